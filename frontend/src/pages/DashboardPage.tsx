@@ -1,7 +1,7 @@
 import { useEffect, useState, useMemo } from 'react';
 import { useNavigate } from 'react-router-dom';
 import { DollarSign, ShoppingBag, TrendingUp, Calendar, ArrowRight } from 'lucide-react';
-import { obtenerVentas } from '../services/ventaService';
+import { filtrarVentas } from '../services/ventaService';
 import type { VentaDTO } from '../types';
 
 export const DashboardPage = () => {
@@ -15,7 +15,11 @@ export const DashboardPage = () => {
 
     const cargarDatos = async () => {
         try {
-            const data = await obtenerVentas();
+            // Solo se grafican los últimos 7 días
+            const desde = new Date();
+            desde.setDate(desde.getDate() - 6);
+            desde.setHours(0, 0, 0, 0);
+            const data = await filtrarVentas({ fechaInicio: desde.toISOString() });
             setVentas(data);
         } catch (error) {
             console.error(error);
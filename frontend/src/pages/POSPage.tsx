@@ -1,9 +1,9 @@
-import { useEffect, useState, useMemo } from 'react';
+import { useEffect, useState } from 'react';
 import { Search, Loader2, ShoppingBag } from 'lucide-react';
 import { toast, Toaster } from 'react-hot-toast';
 
 import type { Producto } from '../types';
-import { obtenerProductos } from '../services/productoService';
+import { buscarProductos } from '../services/productoService';
 import { useCart } from '../context/CartContext';
 import { useSession } from '../context/SessionContext';
 import { OpeningModal } from '../components/CashControl/OpeningModal';
@@ -12,38 +12,42 @@ import { ProductCard } from '../components/ProductCard';
 import { CartSidebar } from '../components/CartSidebar';
 
 export const POSPage = () => {
-    const [productos, setProductos] = useState<Producto[]>([]);
-    const [loading, setLoading] = useState(true);
+    const [loading, setLoading] = useState(false);
     const [busqueda, setBusqueda] = useState('');
+    const [resultados, setResultados] = useState<Producto[] | null>(null);
 
     const { agregarProducto } = useCart();
     const { sesionActiva, isLoading: sessionLoading, abrirSesion } = useSession();
 
+    // La búsqueda se resuelve en el servidor, con una pequeña espera entre teclas.
+    // Sin término no se pide nada: el catálogo completo no se descarga en la caja.
     useEffect(() => {
-        cargarProductos();
-    }, []);
-
-    const cargarProductos = async () => {
-        try {
-            setLoading(true);
-            const data = await obtenerProductos();
-            setProductos(data);
-        } catch (error) {
-            console.error(error);
-            toast.error('Error cargando catálogo de productos');
-        } finally {
+        const termino = busqueda.trim();
+        if (!termino) {
+            setResultados(null);
             setLoading(false);
+            return;
         }
-    };
 
-    const productosFiltrados = useMemo(() => {
-        if (!busqueda) return productos;
-        const lower = busqueda.toLowerCase();
-        return productos.filter(p =>
-            p.nombre.toLowerCase().includes(lower) ||
-            p.sku.toLowerCase().includes(lower)
-        );
-    }, [productos, busqueda]);
+        let cancelado = false;
+        setLoading(true);
+        const timer = setTimeout(async () => {
+            try {
+                const data = await buscarProductos(termino, 50);
+                if (!cancelado) setResultados(data);
+            } catch (error) {
+                console.error(error);
+                if (!cancelado) toast.error('Error buscando productos');
+            } finally {
+                if (!cancelado) setLoading(false);
+            }
+        }, 200);
+
+        return () => {
+            cancelado = true;
+            clearTimeout(timer);
+        };
+    }, [busqueda]);
 
     const handleAgregar = (producto: Producto) => {
         agregarProducto(producto);
@@ -100,11 +104,16 @@ export const POSPage = () => {
                     {loading ? (
                         <div className="h-full flex flex-col items-center justify-center text-brand-primary-400">
                             <Loader2 className="animate-spin mb-4" size={48} strokeWidth={2.5} />
-                            <p className="font-black uppercase tracking-widest text-xs animate-pulse">Consultando Inventario...</p>
+                            <p className="font-black uppercase tracking-widest text-xs animate-pulse">Buscando productos...</p>
                         </div>
                     ) : (
                         <div className="max-w-full mx-auto">
-                            {productosFiltrados.length === 0 ? (
+                            {resultados === null ? (
+                                <div className="text-center py-20 text-gray-600">
+                                    <Search size={64} className="mx-auto mb-4 opacity-10" />
+                                    <p className="text-lg font-bold">Escribe el nombre o SKU de un producto para buscarlo.</p>
+                                </div>
+                            ) : resultados.length === 0 ? (
                                 <div className="text-center py-20 text-gray-600">
                                     <ShoppingBag size={64} className="mx-auto mb-4 opacity-10" />
                                     <p className="text-lg font-bold">No se encontraron productos.</p>
@@ -117,7 +126,7 @@ export const POSPage = () => {
                                 </div>
                             ) : (
                                 <div className="grid grid-cols-1 sm:grid-cols-2 lg:grid-cols-3 xl:grid-cols-4 2xl:grid-cols-5 gap-6 mb-10">
-                                    {productosFiltrados.map((producto) => (
+                                    {resultados.map((producto) => (
                                         <ProductCard
                                             key={producto.productoId}
                                             product={producto}
@@ -6,15 +6,17 @@ import {
     ArrowRight
 } from 'lucide-react';
 import { toast } from 'react-hot-toast';
-import { filtrarVentas, obtenerVentas, descargarFactura } from '../services/ventaService';
-import type { VentaDTO, FiltrosVenta, MetodoPago, EstadoVenta } from '../types';
+import { filtrarVentas, obtenerVentas, obtenerVentaPorId, descargarFactura } from '../services/ventaService';
+import type { VentaDTO, VentaResumenDTO, CursorVentas, FiltrosVenta, MetodoPago, EstadoVenta } from '../types';
 import { SaleDetailModal } from '../components/Sales/SaleDetailModal';
 import { VoidSaleModal } from '../components/Sales/VoidSaleModal';
 import { useAuth } from '../context/AuthContext';
 
 export const SalesHistoryPage = () => {
-    const [ventas, setVentas] = useState<VentaDTO[]>([]);
+    const [ventas, setVentas] = useState<VentaResumenDTO[]>([]);
+    const [cursor, setCursor] = useState<CursorVentas | null>(null);
     const [loading, setLoading] = useState(true);
+    const [loadingMore, setLoadingMore] = useState(false);
     const [busqueda, setBusqueda] = useState('');
     const [showFilters, setShowFilters] = useState(false);
     const [selectedSale, setSelectedSale] = useState<VentaDTO | null>(null);
@@ -36,8 +38,11 @@ export const SalesHistoryPage = () => {
     const cargarVentas = async () => {
         try {
             setLoading(true);
-            const data = await obtenerVentas();
-            setVentas(data);
+            const pagina = await obtenerVentas();
+            setVentas(pagina.contenido);
+            setCursor(pagina.hayMas && pagina.cursorFecha && pagina.cursorId
+                ? { cursorFecha: pagina.cursorFecha, cursorId: pagina.cursorId }
+                : null);
         } catch (error) {
             console.error(error);
             toast.error('Error cargando historial de ventas');
@@ -46,6 +51,34 @@ export const SalesHistoryPage = () => {
         }
     };
 
+    const cargarMas = async () => {
+        if (!cursor) return;
+        try {
+            setLoadingMore(true);
+            const pagina = await obtenerVentas(cursor);
+            setVentas(prev => [...prev, ...pagina.contenido]);
+            setCursor(pagina.hayMas && pagina.cursorFecha && pagina.cursorId
+                ? { cursorFecha: pagina.cursorFecha, cursorId: pagina.cursorId }
+                : null);
+        } catch (error) {
+            console.error(error);
+            toast.error('Error cargando más ventas');
+        } finally {
+            setLoadingMore(false);
+        }
+    };
+
+    // El listado solo trae la cabecera; los detalles se piden al abrir la venta
+    const abrirVenta = async (ventaId: number | undefined, accion: (venta: VentaDTO) => void) => {
+        if (!ventaId) return;
+        try {
+            accion(await obtenerVentaPorId(ventaId));
+        } catch (error) {
+            console.error(error);
+            toast.error('Error cargando detalle de la venta');
+        }
+    };
+
     const aplicarFiltros = async () => {
         try {
             setLoading(true);
@@ -63,6 +96,7 @@ export const SalesHistoryPage = () => {
 
             const data = await filtrarVentas(filtrosLimpios);
             setVentas(data);
+            setCursor(null);
             toast.success('Filtros aplicados');
         } catch (error) {
             console.error(error);
@@ -345,7 +379,7 @@ export const SalesHistoryPage = () => {
                                                     <FileText size={18} strokeWidth={2.5} />
                                                 </button>
                                                 <button
-                                                    onClick={() => setSelectedSale(venta)}
+                                                    onClick={() => abrirVenta(venta.ventaId, setSelectedSale)}
                                                     className="p-2.5 bg-brand-primary-500/10 text-brand-primary-400 hover:bg-brand-primary-500 hover:text-white rounded-xl transition-all active:scale-95 border border-brand-primary-500/20"
                                                     title="Ver detalles detallados"
                                                 >
@@ -353,7 +387,7 @@ export const SalesHistoryPage = () => {
                                                 </button>
                                                 {isAdmin && venta.estado === 'Completada' && (
                                                     <button
-                                                        onClick={() => setSaleToVoid(venta)}
+                                                        onClick={() => abrirVenta(venta.ventaId, setSaleToVoid)}
                                                         className="p-2.5 bg-red-500/10 text-red-400 hover:bg-red-500 hover:text-white rounded-xl transition-all active:scale-95 border border-red-500/20"
                                                         title="Anular venta del sistema"
                                                     >
@@ -367,6 +401,18 @@ export const SalesHistoryPage = () => {
                             </tbody>
                         </table>
                     )}
+                    {!loading && cursor && !busqueda && (
+                        <div className="flex justify-center py-6">
+                            <button
+                                onClick={cargarMas}
+                                disabled={loadingMore}
+                                className="flex items-center gap-2 px-6 py-3 rounded-2xl font-bold text-sm bg-white/5 text-gray-400 hover:bg-white/10 border border-white/5 transition-all active:scale-95 disabled:opacity-50"
+                            >
+                                {loadingMore ? <Loader2 className="animate-spin" size={18} /> : <ChevronDown size={18} />}
+                                <span>Cargar más</span>
+                            </button>
+                        </div>
+                    )}
                 </div>
 
                 {/* Subtle Table Footer Glow */}
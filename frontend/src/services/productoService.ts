@@ -21,6 +21,13 @@ export const obtenerProductos = async (): Promise<Producto[]> => {
     return response.data.map(mapProducto);
 };
 
+// Búsqueda en el servidor por nombre, SKU o descripción (sin distinguir acentos)
+export const buscarProductos = async (q: string, limite = 20): Promise<Producto[]> => {
+    const params = new URLSearchParams({ q, limite: limite.toString() });
+    const response = await axiosClient.get<any[]>(`/productos/buscar?${params.toString()}`);
+    return response.data.map(mapProducto);
+};
+
 export const obtenerProductoPorId = async (id: number): Promise<Producto> => {
     const response = await axiosClient.get<any>(`/productos/${id}`);
     return mapProducto(response.data);
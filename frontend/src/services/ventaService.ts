@@ -1,13 +1,21 @@
 import axiosClient from '../api/axiosClient';
-import type { VentaDTO, FiltrosVenta, AnularVentaRequest } from '../types';
+import type { VentaDTO, VentaPaginaDTO, CursorVentas, FiltrosVenta, AnularVentaRequest } from '../types';
 
 export const crearVenta = async (venta: VentaDTO): Promise<VentaDTO> => {
     const response = await axiosClient.post<VentaDTO>('/ventas', venta);
     return response.data;
 };
 
-export const obtenerVentas = async (): Promise<VentaDTO[]> => {
-    const response = await axiosClient.get<VentaDTO[]>('/ventas');
+export const obtenerVentas = async (cursor?: CursorVentas, tamano = 20): Promise<VentaPaginaDTO> => {
+    const params = new URLSearchParams();
+
+    params.append('tamano', tamano.toString());
+    if (cursor) {
+        params.append('cursorFecha', cursor.cursorFecha);
+        params.append('cursorId', cursor.cursorId.toString());
+    }
+
+    const response = await axiosClient.get<VentaPaginaDTO>(`/ventas?${params.toString()}`);
     return response.data;
 };
 
@@ -88,6 +88,31 @@ export interface VentaDTO {
     detalles: DetalleVentaDTO[];
 }
 
+// Cabecera de venta para listados (sin detalles)
+export interface VentaResumenDTO {
+    ventaId?: number;
+    fechaVenta?: string;
+    clienteId: number;
+    clienteNombre?: string;
+    usuarioId: number;
+    usuarioNombre?: string;
+    montoTotal?: number;
+    metodoPago: MetodoPago;
+    estado?: EstadoVenta;
+}
+
+export interface VentaPaginaDTO {
+    contenido: VentaResumenDTO[];
+    cursorFecha?: string;
+    cursorId?: number;
+    hayMas: boolean;
+}
+
+export interface CursorVentas {
+    cursorFecha: string;
+    cursorId: number;
+}
+
 export interface FiltrosVenta {
     fechaInicio?: string;
     fechaFin?: string;
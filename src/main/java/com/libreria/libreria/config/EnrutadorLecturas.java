@@ -0,0 +1,82 @@
+package com.libreria.libreria.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * DataSource que entrega conexiones de la réplica a las transacciones marcadas
+ * con LecturaEnReplica, mientras MonitorReplica la considere utilizable. Todo
+ * lo demás va a la primaria, igual que cualquier lectura cuando la réplica no
+ * entrega una conexión.
+ */
+public class EnrutadorLecturas extends AbstractDataSource {
+
+    public static final String ETIQUETA_REPLICA = "replica";
+
+    // One entry per transaction begun on this thread; a suspended transaction keeps its entry below
+    private static final ThreadLocal<Deque<Boolean>> RUTAS = ThreadLocal.withInitial(ArrayDeque::new);
+
+    private final DataSource primaria;
+    private final DataSource replica;
+    private final MonitorReplica monitor;
+    private final Counter enPrimaria;
+    private final Counter enReplica;
+
+    public EnrutadorLecturas(DataSource primaria, DataSource replica, MonitorReplica monitor,
+            MeterRegistry meterRegistry) {
+        this.primaria = primaria;
+        this.replica = replica;
+        this.monitor = monitor;
+        this.enPrimaria = Counter.builder("db.conexiones")
+                .tag("destino", "primaria")
+                .register(meterRegistry);
+        this.enReplica = Counter.builder("db.conexiones")
+                .tag("destino", "replica")
+                .register(meterRegistry);
+    }
+
+    /** Anota la ruta de la transacción que empieza en este hilo. */
+    static void iniciar(boolean replica) {
+        RUTAS.get().push(replica);
+    }
+
+    /** Descarta la ruta de la transacción que terminó en este hilo. */
+    static void terminar() {
+        Deque<Boolean> rutas = RUTAS.get();
+        rutas.poll();
+        if (rutas.isEmpty()) {
+            RUTAS.remove();
+        }
+    }
+
+    static boolean enReplica() {
+        return Boolean.TRUE.equals(RUTAS.get().peek());
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (enReplica() && monitor.utilizable()) {
+            try {
+                Connection conexion = replica.getConnection();
+                enReplica.increment();
+                return conexion;
+            } catch (SQLException e) {
+                monitor.marcarNoDisponible(e);
+            }
+        }
+        enPrimaria.increment();
+        return primaria.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return primaria.getConnection(username, password);
+    }
+}
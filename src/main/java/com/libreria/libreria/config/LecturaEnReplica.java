@@ -0,0 +1,23 @@
+package com.libreria.libreria.config;
+
+import org.springframework.transaction.annotation.Transactional;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Transacción de solo lectura que puede ir a la réplica de lectura (ver
+ * ReplicaConfig). Es para reportes y listados, que toleran unos segundos de
+ * atraso. Lo que se lee justo después de escribirlo, como el ticket de una
+ * venta recién cobrada, sigue con @Transactional(readOnly = true) en la
+ * primaria. Sin réplica configurada es igual a @Transactional(readOnly = true).
+ */
+@Target({ ElementType.METHOD, ElementType.TYPE })
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@Transactional(readOnly = true, label = EnrutadorLecturas.ETIQUETA_REPLICA)
+public @interface LecturaEnReplica {
+}
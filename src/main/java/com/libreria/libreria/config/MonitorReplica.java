@@ -0,0 +1,76 @@
+package com.libreria.libreria.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+
+/**
+ * Revisa periódicamente que la réplica responda y cuánto atraso lleva. Mientras
+ * no responda o el atraso pase del máximo, las lecturas van a la primaria.
+ */
+public class MonitorReplica {
+
+    // 0 when the standby has replayed everything it received, or when the server is not a standby
+    // (a second instance standing in for the replica). NULL when WAL is pending but nothing has been
+    // replayed since the standby started, so the lag cannot be measured
+    private static final String SQL_RETRASO = "SELECT CASE WHEN NOT pg_is_in_recovery() " +
+            "OR pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 " +
+            "ELSE EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000 END";
+
+    private static final long SIN_MEDIR = -1;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final long retrasoMaximoMs;
+
+    // Until the first check the replica is not used
+    private volatile boolean disponible = false;
+    private volatile long retrasoMs = 0;
+
+    public MonitorReplica(DataSource replica, long retrasoMaximoMs, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = new JdbcTemplate(replica);
+        this.jdbcTemplate.setQueryTimeout(5);
+        this.retrasoMaximoMs = retrasoMaximoMs;
+
+        Gauge.builder("db.replica.retraso", this, monitor -> monitor.disponible ? monitor.retrasoMs : SIN_MEDIR)
+                .description("Atraso de la réplica de lectura, -1 si no responde o no se puede medir")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${replica.verificacion.intervalo-ms:5000}")
+    public void verificar() {
+        try {
+            Long retraso = jdbcTemplate.queryForObject(SQL_RETRASO, Long.class);
+            actualizar(retraso != null ? retraso : SIN_MEDIR);
+        } catch (DataAccessException e) {
+            marcarNoDisponible(e);
+        }
+    }
+
+    public boolean utilizable() {
+        return disponible && retrasoMs != SIN_MEDIR && retrasoMs <= retrasoMaximoMs;
+    }
+
+    void actualizar(long retraso) {
+        boolean antes = utilizable();
+        retrasoMs = retraso;
+        disponible = true;
+        if (antes != utilizable()) {
+            System.out.println(utilizable()
+                    ? "Réplica de lectura en uso, atraso " + retraso + " ms"
+                    : "Réplica de lectura con atraso " + (retraso == SIN_MEDIR ? "desconocido" : retraso + " ms")
+                            + ", se lee de la primaria");
+        }
+    }
+
+    void marcarNoDisponible(Exception e) {
+        if (disponible) {
+            System.err.println("Réplica de lectura no disponible, se lee de la primaria: " + e.getMessage());
+        }
+        disponible = false;
+    }
+}
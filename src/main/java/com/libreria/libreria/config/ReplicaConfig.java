@@ -0,0 +1,82 @@
+package com.libreria.libreria.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+
+/**
+ * Réplica de lectura de PostgreSQL, activa solo si se configura
+ * replica.datasource.url. Los métodos con LecturaEnReplica (estadísticas,
+ * historial de ventas, auditoría, listado de productos) leen de la réplica y
+ * el resto de la aplicación sigue en la primaria, así un reporte pesado no
+ * frena a las cajas.
+ *
+ * El DataSource principal pide la conexión física recién en la primera
+ * sentencia, cuando ya se sabe si la transacción puede ir a la réplica, y no
+ * toma ninguna si todo sale de memoria.
+ */
+@Configuration
+@ConditionalOnProperty(name = "replica.datasource.url")
+public class ReplicaConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primariaDataSource(
+            @Value("${spring.datasource.url}") String url,
+            @Value("${spring.datasource.username}") String usuario,
+            @Value("${spring.datasource.password}") String contrasena) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName("primaria");
+        dataSource.setJdbcUrl(url);
+        dataSource.setUsername(usuario);
+        dataSource.setPassword(contrasena);
+        return dataSource;
+    }
+
+    @Bean
+    @ConfigurationProperties("replica.datasource.hikari")
+    public HikariDataSource replicaDataSource(
+            @Value("${replica.datasource.url}") String url,
+            @Value("${replica.datasource.username:${spring.datasource.username}}") String usuario,
+            @Value("${replica.datasource.password:${spring.datasource.password}}") String contrasena) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName("replica");
+        dataSource.setJdbcUrl(url);
+        dataSource.setUsername(usuario);
+        dataSource.setPassword(contrasena);
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+
+    @Bean
+    public MonitorReplica monitorReplica(@Qualifier("replicaDataSource") DataSource replica,
+            @Value("${replica.retraso-maximo-ms:5000}") long retrasoMaximoMs,
+            MeterRegistry meterRegistry) {
+        return new MonitorReplica(replica, retrasoMaximoMs, meterRegistry);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primariaDataSource") DataSource primaria,
+            @Qualifier("replicaDataSource") DataSource replica,
+            MonitorReplica monitor,
+            MeterRegistry meterRegistry) {
+        return new LazyConnectionDataSourceProxy(new EnrutadorLecturas(primaria, replica, monitor, meterRegistry));
+    }
+
+    @Bean
+    public PlatformTransactionManager transactionManager(EntityManagerFactory entityManagerFactory) {
+        return new ReplicaTransactionManager(entityManagerFactory);
+    }
+}
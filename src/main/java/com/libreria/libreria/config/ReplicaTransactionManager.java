@@ -0,0 +1,40 @@
+package com.libreria.libreria.config;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.interceptor.TransactionAttribute;
+
+/**
+ * JpaTransactionManager que avisa a EnrutadorLecturas si la transacción que
+ * empieza puede leer de la réplica: de solo lectura y con la etiqueta de
+ * LecturaEnReplica. Las transacciones que se unen a otra usan su conexión.
+ */
+public class ReplicaTransactionManager extends JpaTransactionManager {
+
+    public ReplicaTransactionManager(EntityManagerFactory entityManagerFactory) {
+        super(entityManagerFactory);
+    }
+
+    @Override
+    protected void doBegin(Object transaction, TransactionDefinition definition) {
+        EnrutadorLecturas.iniciar(definition.isReadOnly()
+                && definition instanceof TransactionAttribute atributo
+                && atributo.getLabels().contains(EnrutadorLecturas.ETIQUETA_REPLICA));
+        try {
+            super.doBegin(transaction, definition);
+        } catch (RuntimeException | Error e) {
+            EnrutadorLecturas.terminar();
+            throw e;
+        }
+    }
+
+    @Override
+    protected void doCleanupAfterCompletion(Object transaction) {
+        try {
+            super.doCleanupAfterCompletion(transaction);
+        } finally {
+            EnrutadorLecturas.terminar();
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.libreria.libreria.config;
 import com.libreria.libreria.security.JwtAuthenticationFilter;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
 import org.springframework.security.authentication.AuthenticationProvider;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
@@ -35,6 +36,13 @@ public class SecurityConfig {
                 .cors(cors -> cors.configurationSource(corsConfigurationSource()))
                 .authorizeHttpRequests(auth -> auth
                         .requestMatchers("/api/auth/**").permitAll()
+                        // Authorities are "ROLE_" + Rol.nombre, see Usuario.getAuthorities
+                        .requestMatchers(HttpMethod.PUT, "/api/usuarios/*/rol", "/api/usuarios/*/estado")
+                        .hasRole("Administrador")
+                        .requestMatchers(HttpMethod.POST, "/api/ventas/resumen-diario/reconstruir")
+                        .hasRole("Administrador")
+                        // Only reachable on management.server.port, which is not published
+                        .requestMatchers("/actuator/health", "/actuator/prometheus").permitAll()
                         .anyRequest().authenticated())
                 .sessionManagement(sess -> sess
                         .sessionCreationPolicy(SessionCreationPolicy.STATELESS))
@@ -1,10 +1,12 @@
 package com.libreria.libreria.controller;
 
 import com.libreria.libreria.dto.ErrorResponse;
+import com.libreria.libreria.exception.IdempotenciaConflictoException;
 import com.libreria.libreria.exception.StockInsuficienteException;
 import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -28,6 +30,19 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(error, HttpStatus.BAD_REQUEST);
     }
 
+    @ExceptionHandler(IdempotenciaConflictoException.class)
+    public ResponseEntity<ErrorResponse> handleIdempotenciaConflicto(IdempotenciaConflictoException ex,
+            HttpServletRequest request) {
+        ErrorResponse error = ErrorResponse.builder()
+                .timestamp(LocalDateTime.now())
+                .status(HttpStatus.CONFLICT.value())
+                .error("Conflicto de Idempotencia")
+                .message(ex.getMessage())
+                .path(request.getRequestURI())
+                .build();
+        return new ResponseEntity<>(error, HttpStatus.CONFLICT);
+    }
+
     @ExceptionHandler(RuntimeException.class) // Generic handler for "Not Found" etc if thrown as RuntimeException
     public ResponseEntity<ErrorResponse> handleRuntimeException(RuntimeException ex, HttpServletRequest request) {
         // Simple logic: if message contains "no encontrado", treat as 404, else 400 or
@@ -55,6 +70,20 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(error, status);
     }
 
+    // Malformed JSON or a field of the wrong type; without this it would fall into the 500 handler
+    @ExceptionHandler(HttpMessageNotReadableException.class)
+    public ResponseEntity<ErrorResponse> handleMensajeIlegible(HttpMessageNotReadableException ex,
+            HttpServletRequest request) {
+        ErrorResponse error = ErrorResponse.builder()
+                .timestamp(LocalDateTime.now())
+                .status(HttpStatus.BAD_REQUEST.value())
+                .error("Validation Error")
+                .message("Cuerpo de la solicitud inválido")
+                .path(request.getRequestURI())
+                .build();
+        return new ResponseEntity<>(error, HttpStatus.BAD_REQUEST);
+    }
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<ErrorResponse> handleValidationExceptions(MethodArgumentNotValidException ex,
             HttpServletRequest request) {
@@ -27,6 +27,12 @@ public class ProductoController {
         return ResponseEntity.ok(productoService.findAll());
     }
 
+    @GetMapping("/buscar")
+    public ResponseEntity<List<ProductoDTO>> buscarProductos(@RequestParam String q,
+            @RequestParam(required = false) Integer limite) {
+        return ResponseEntity.ok(productoService.buscar(q, limite));
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<ProductoDTO> getProductoById(@PathVariable Integer id) {
         return productoService.findById(id)
@@ -1,5 +1,7 @@
 package com.libreria.libreria.controller;
 
+import com.libreria.libreria.dto.CambioEstadoDTO;
+import com.libreria.libreria.dto.CambioRolDTO;
 import com.libreria.libreria.dto.CreateUsuarioDTO;
 import com.libreria.libreria.dto.UsuarioDTO;
 import com.libreria.libreria.service.UsuarioService;
@@ -32,4 +34,17 @@ public class UsuarioController {
     public ResponseEntity<UsuarioDTO> crearUsuario(@Valid @RequestBody CreateUsuarioDTO dto) {
         return new ResponseEntity<>(usuarioService.crearUsuario(dto), HttpStatus.CREATED);
     }
+
+    // Administrador only, see SecurityConfig
+    @PutMapping("/{id}/rol")
+    public ResponseEntity<UsuarioDTO> cambiarRol(@PathVariable Integer id, @Valid @RequestBody CambioRolDTO dto) {
+        return ResponseEntity.ok(usuarioService.cambiarRol(id, dto.getRolId()));
+    }
+
+    // Administrador only, see SecurityConfig
+    @PutMapping("/{id}/estado")
+    public ResponseEntity<UsuarioDTO> cambiarEstado(@PathVariable Integer id,
+            @Valid @RequestBody CambioEstadoDTO dto) {
+        return ResponseEntity.ok(usuarioService.cambiarEstado(id, dto.getActivo()));
+    }
 }
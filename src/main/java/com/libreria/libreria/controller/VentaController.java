@@ -1,21 +1,33 @@
 package com.libreria.libreria.controller;
 
 import com.libreria.libreria.dto.EstadisticasVentasDTO;
+import com.libreria.libreria.dto.FacturaPdfDTO;
+import com.libreria.libreria.dto.LoteVentasOfflineDTO;
 import com.libreria.libreria.dto.ProductoMasVendidoDTO;
+import com.libreria.libreria.dto.ResultadoSincronizacionDTO;
 import com.libreria.libreria.dto.VentaDTO;
+import com.libreria.libreria.dto.VentaPaginaDTO;
 import com.libreria.libreria.dto.VentasPorMetodoDTO;
 import com.libreria.libreria.model.enums.EstadoVenta;
+import com.libreria.libreria.model.enums.FormatoExportacion;
+import com.libreria.libreria.model.enums.FormatoFactura;
 import com.libreria.libreria.model.enums.MetodoPago;
 import com.libreria.libreria.service.VentaService;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
+import java.util.zip.GZIPOutputStream;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
 @RequestMapping("/api/ventas")
@@ -30,14 +42,29 @@ public class VentaController {
     }
 
     @PostMapping
-    public ResponseEntity<VentaDTO> registrarVenta(@Valid @RequestBody VentaDTO ventaDTO) {
-        VentaDTO nuevaVenta = ventaService.crearVenta(ventaDTO);
+    public ResponseEntity<VentaDTO> registrarVenta(
+            @Valid @RequestBody VentaDTO ventaDTO,
+            @RequestHeader(value = "Idempotency-Key", required = false) String claveIdempotencia) {
+        // A retry with the same key gets the original sale back instead of a second one
+        VentaDTO nuevaVenta = claveIdempotencia != null
+                ? ventaService.crearVenta(ventaDTO, claveIdempotencia)
+                : ventaService.crearVenta(ventaDTO);
         return new ResponseEntity<>(nuevaVenta, HttpStatus.CREATED);
     }
 
+    // Sales captured while the register was offline; one result per sale, in the same order
+    @PostMapping("/sincronizar")
+    public ResponseEntity<List<ResultadoSincronizacionDTO>> sincronizarVentas(
+            @Valid @RequestBody LoteVentasOfflineDTO lote) {
+        return new ResponseEntity<>(ventaService.sincronizarVentas(lote.getVentas()), HttpStatus.OK);
+    }
+
     @GetMapping
-    public ResponseEntity<List<VentaDTO>> listarVentas() {
-        return new ResponseEntity<>(ventaService.listarVentas(), HttpStatus.OK);
+    public ResponseEntity<VentaPaginaDTO> listarVentas(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime cursorFecha,
+            @RequestParam(required = false) Integer cursorId,
+            @RequestParam(required = false, defaultValue = "20") Integer tamano) {
+        return new ResponseEntity<>(ventaService.listarVentas(cursorFecha, cursorId, tamano), HttpStatus.OK);
     }
 
     @GetMapping("/{id}")
@@ -93,15 +120,97 @@ public class VentaController {
         return new ResponseEntity<>(ventasPorMetodo, HttpStatus.OK);
     }
 
+    @PostMapping("/resumen-diario/reconstruir")
+    public ResponseEntity<Void> reconstruirResumenDiario(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta) {
+        ventaService.reconstruirResumenDiario(desde, hasta);
+        return ResponseEntity.noContent().build();
+    }
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportarVentas(
+            @RequestParam(required = false, defaultValue = "csv") String format,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime fechaInicio,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime fechaFin,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        // Validate before the response is committed; errors while streaming can only abort it
+        FormatoExportacion formato = FormatoExportacion.desde(format);
+        boolean gzip = acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+
+        StreamingResponseBody cuerpo = salida -> {
+            if (gzip) {
+                GZIPOutputStream comprimida = new GZIPOutputStream(salida, 64 * 1024);
+                ventaService.exportarVentas(fechaInicio, fechaFin, formato, comprimida);
+                comprimida.finish();
+            } else {
+                ventaService.exportarVentas(fechaInicio, fechaFin, formato, salida);
+            }
+        };
+
+        String nombre = "ventas_" + fechaInicio.format(DateTimeFormatter.BASIC_ISO_DATE) + "_"
+                + fechaFin.format(DateTimeFormatter.BASIC_ISO_DATE) + "." + formato.getExtension();
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType(formato.getTipoContenido() + ";charset=UTF-8"));
+        headers.setContentDispositionFormData("attachment", nombre);
+        headers.add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            headers.add(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+
+        return new ResponseEntity<>(cuerpo, headers, HttpStatus.OK);
+    }
+
+    @GetMapping("/facturas")
+    public ResponseEntity<StreamingResponseBody> descargarFacturas(
+            @RequestParam(required = false) List<Integer> ids,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime fechaInicio,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime fechaFin,
+            @RequestParam(required = false, defaultValue = "zip") String formato) {
+        FormatoFactura formatoFactura = FormatoFactura.desde(formato);
+        List<Integer> ventaIds = ventaService.seleccionarFacturas(ids, fechaInicio, fechaFin);
+
+        StreamingResponseBody cuerpo = salida -> ventaService.generarFacturas(ventaIds, formatoFactura, salida);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType(formatoFactura.getTipoContenido()));
+        headers.setContentDispositionFormData("attachment", "facturas." + formatoFactura.getExtension());
+
+        return new ResponseEntity<>(cuerpo, headers, HttpStatus.OK);
+    }
+
+    @GetMapping("/{id}/ticket")
+    public ResponseEntity<byte[]> descargarTicket(@PathVariable Integer id) {
+        byte[] ticket = ventaService.generarTicket(id);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
+        headers.setContentDispositionFormData("attachment", "ticket_venta_" + id + ".bin");
+        return new ResponseEntity<>(ticket, headers, HttpStatus.OK);
+    }
+
+    @GetMapping(value = "/{id}/ticket/texto", produces = "text/plain;charset=UTF-8")
+    public ResponseEntity<String> previsualizarTicket(@PathVariable Integer id) {
+        return ResponseEntity.ok(ventaService.generarTicketTexto(id));
+    }
+
     @GetMapping("/{id}/pdf")
-    public ResponseEntity<byte[]> descargarFacturaPdf(@PathVariable Integer id) {
-        byte[] pdfBytes = ventaService.generarReportePdf(id);
+    public ResponseEntity<byte[]> descargarFacturaPdf(@PathVariable Integer id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        FacturaPdfDTO factura = ventaService.obtenerFacturaPdf(id, ifNoneMatch);
 
-        org.springframework.http.HttpHeaders headers = new org.springframework.http.HttpHeaders();
-        headers.setContentType(org.springframework.http.MediaType.APPLICATION_PDF);
-        headers.setContentDispositionFormData("attachment", "factura_venta_" + id + ".pdf");
-        headers.setCacheControl("must-revalidate, post-check=0, pre-check=0");
+        HttpHeaders headers = new HttpHeaders();
+        headers.setETag(factura.getEtag());
+        // Browsers keep the copy but ask again each time; an unchanged invoice costs a 304
+        headers.setCacheControl("private, no-cache");
 
-        return new ResponseEntity<>(pdfBytes, headers, HttpStatus.OK);
+        if (factura.getContenido() == null) {
+            return new ResponseEntity<>(headers, HttpStatus.NOT_MODIFIED);
+        }
+
+        headers.setContentType(MediaType.APPLICATION_PDF);
+        headers.setContentDispositionFormData("attachment", "factura_venta_" + id + ".pdf");
+        return new ResponseEntity<>(factura.getContenido(), headers, HttpStatus.OK);
     }
 }
@@ -0,0 +1,16 @@
+package com.libreria.libreria.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class FacturaPdfDTO {
+    private String etag;
+    // null when the client's copy (If-None-Match) is still current
+    private byte[] contenido;
+}
@@ -0,0 +1,19 @@
+package com.libreria.libreria.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class LoteVentasOfflineDTO {
+    @NotEmpty
+    @Valid
+    private List<VentaOfflineDTO> ventas;
+}
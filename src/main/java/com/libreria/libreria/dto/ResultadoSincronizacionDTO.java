@@ -0,0 +1,22 @@
+package com.libreria.libreria.dto;
+
+import com.libreria.libreria.model.enums.ResultadoSincronizacion;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ResultadoSincronizacionDTO {
+    private UUID uuid;
+    private ResultadoSincronizacion resultado;
+
+    // Sale created now (Aceptada) or earlier for the same uuid (Duplicada)
+    private Integer ventaId;
+
+    private String mensaje;
+}
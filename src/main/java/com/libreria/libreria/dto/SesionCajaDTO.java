@@ -24,5 +24,10 @@ public class SesionCajaDTO {
     private BigDecimal montoFinalEsperado;
     private BigDecimal montoFinalContado;
     private BigDecimal diferencia;
+    private BigDecimal totalEfectivo;
+    private BigDecimal totalTarjeta;
+    private BigDecimal totalMixto;
+    private BigDecimal totalAnulado;
+    private Integer numeroVentas;
     private EstadoSesion estado;
 }
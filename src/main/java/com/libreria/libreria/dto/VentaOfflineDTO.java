@@ -0,0 +1,28 @@
+package com.libreria.libreria.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class VentaOfflineDTO {
+    // Generated by the POS when the sale is captured; also the idempotency key
+    @NotNull
+    private UUID uuid;
+
+    // When the sale happened at the register, which becomes its fechaVenta
+    @NotNull
+    private LocalDateTime fechaLocal;
+
+    @NotNull
+    @Valid
+    private VentaDTO venta;
+}
@@ -0,0 +1,22 @@
+package com.libreria.libreria.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class VentaPaginaDTO {
+    private List<VentaResumenDTO> contenido;
+
+    // Keyset cursor for the next page: (fechaVenta, ventaId) of the last row
+    private LocalDateTime cursorFecha;
+    private Integer cursorId;
+
+    private boolean hayMas;
+}
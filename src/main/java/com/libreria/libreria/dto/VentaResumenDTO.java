@@ -0,0 +1,27 @@
+package com.libreria.libreria.dto;
+
+import com.libreria.libreria.model.enums.EstadoVenta;
+import com.libreria.libreria.model.enums.MetodoPago;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Sale header for listings: no detail lines
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class VentaResumenDTO {
+    private Integer ventaId;
+    private LocalDateTime fechaVenta;
+    private Integer clienteId;
+    private String clienteNombre;
+    private Integer usuarioId;
+    private String usuarioNombre;
+    private BigDecimal montoTotal;
+    private MetodoPago metodoPago;
+    private EstadoVenta estado;
+}
@@ -0,0 +1,7 @@
+package com.libreria.libreria.exception;
+
+public class IdempotenciaConflictoException extends RuntimeException {
+    public IdempotenciaConflictoException(String message) {
+        super(message);
+    }
+}
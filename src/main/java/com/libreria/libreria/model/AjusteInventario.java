@@ -14,7 +14,8 @@ import java.time.LocalDateTime;
 @Table(name = "Ajustes_Inventario")
 public class AjusteInventario {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "ajustes_inventario_seq")
+    @SequenceGenerator(name = "ajustes_inventario_seq", sequenceName = "ajustes_inventario_seq", allocationSize = 50)
     @Column(name = "ajuste_id")
     private Integer ajusteId;
 
@@ -17,7 +17,8 @@ import java.util.ArrayList;
 @Table(name = "Compras")
 public class Compra {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "compras_seq")
+    @SequenceGenerator(name = "compras_seq", sequenceName = "compras_seq", allocationSize = 50)
     @Column(name = "compra_id")
     private Integer compraId;
 
@@ -14,7 +14,8 @@ import java.math.BigDecimal;
 @Table(name = "Detalle_Compras")
 public class DetalleCompra {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "detalle_compras_seq")
+    @SequenceGenerator(name = "detalle_compras_seq", sequenceName = "detalle_compras_seq", allocationSize = 50)
     @Column(name = "detalle_compra_id")
     private Integer detalleCompraId;
 
@@ -5,6 +5,7 @@ import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Min;
 import lombok.*;
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 
 @Data
 @NoArgsConstructor
@@ -14,7 +15,8 @@ import java.math.BigDecimal;
 @Table(name = "Detalle_Ventas")
 public class DetalleVenta {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "detalle_ventas_seq")
+    @SequenceGenerator(name = "detalle_ventas_seq", sequenceName = "detalle_ventas_seq", allocationSize = 50)
     @Column(name = "detalle_id")
     private Integer detalleId;
 
@@ -23,6 +25,11 @@ public class DetalleVenta {
     @JoinColumn(name = "venta_id", nullable = false)
     private Venta venta;
 
+    // Copy of the sale date: the table is partitioned by month on this column
+    @NotNull
+    @Column(name = "fecha_venta", nullable = false, updatable = false)
+    private LocalDateTime fechaVenta;
+
     @NotNull
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "producto_id", nullable = false)
@@ -62,6 +62,10 @@ public class Producto {
     @Builder.Default
     private Integer cantidadStock = 0;
 
+    // Written only by ProductoStockRepository, together with cantidad_stock
+    @Column(name = "stock_version", insertable = false, updatable = false)
+    private Long stockVersion;
+
     @Builder.Default
     private Boolean activo = true;
 }
@@ -49,6 +49,27 @@ public class SesionCaja {
     @Column(precision = 10, scale = 2)
     private BigDecimal diferencia;
 
+    // Running totals, kept up to date by crearVenta/anularVenta
+    @Column(name = "total_efectivo", precision = 10, scale = 2)
+    @Builder.Default
+    private BigDecimal totalEfectivo = BigDecimal.ZERO;
+
+    @Column(name = "total_tarjeta", precision = 10, scale = 2)
+    @Builder.Default
+    private BigDecimal totalTarjeta = BigDecimal.ZERO;
+
+    @Column(name = "total_mixto", precision = 10, scale = 2)
+    @Builder.Default
+    private BigDecimal totalMixto = BigDecimal.ZERO;
+
+    @Column(name = "total_anulado", precision = 10, scale = 2)
+    @Builder.Default
+    private BigDecimal totalAnulado = BigDecimal.ZERO;
+
+    @Column(name = "numero_ventas")
+    @Builder.Default
+    private Integer numeroVentas = 0;
+
     @NotNull
     @Enumerated(EnumType.STRING)
     @Column(nullable = false)
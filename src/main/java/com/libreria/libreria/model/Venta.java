@@ -18,7 +18,8 @@ import java.util.ArrayList;
 @Table(name = "Ventas")
 public class Venta {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "ventas_seq")
+    @SequenceGenerator(name = "ventas_seq", sequenceName = "ventas_seq", allocationSize = 50)
     @Column(name = "venta_id")
     private Integer ventaId;
 
@@ -0,0 +1,39 @@
+package com.libreria.libreria.model;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.*;
+import java.time.LocalDateTime;
+
+/**
+ * Clave de idempotencia enviada por el punto de venta al registrar una venta.
+ * Se inserta en la misma transacción que la venta, así que la clave primaria
+ * garantiza una sola venta por clave aunque los reintentos lleguen a otra
+ * instancia. La huella es el SHA-256 del contenido de la solicitud.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+@Table(name = "Ventas_Idempotencia",
+        indexes = @Index(name = "idx_ventas_idempotencia_fecha", columnList = "fecha_creacion"))
+public class VentaIdempotencia {
+    @Id
+    @Size(max = 100)
+    @Column(length = 100)
+    private String clave;
+
+    @NotNull
+    @Size(min = 64, max = 64)
+    @Column(nullable = false, length = 64)
+    private String huella;
+
+    @Column(name = "venta_id")
+    private Integer ventaId;
+
+    @NotNull
+    @Column(name = "fecha_creacion", nullable = false)
+    private LocalDateTime fechaCreacion;
+}
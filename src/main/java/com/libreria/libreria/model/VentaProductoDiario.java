@@ -0,0 +1,45 @@
+package com.libreria.libreria.model;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import lombok.*;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Unidades vendidas por producto y por día, solo de ventas completadas. Lo
+ * mantienen crearVenta y anularVenta, y ResumenVentasDiario lo reconstruye desde
+ * Detalle_Ventas junto con Ventas_Resumen_Diario.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+@Table(name = "Ventas_Productos_Diario",
+        uniqueConstraints = @UniqueConstraint(columnNames = { "fecha", "producto_id" }),
+        indexes = @Index(name = "idx_ventas_productos_diario_ranking", columnList = "fecha, cantidad_vendida"))
+public class VentaProductoDiario {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "resumen_id")
+    private Integer resumenId;
+
+    @NotNull
+    @Column(nullable = false)
+    private LocalDate fecha;
+
+    @NotNull
+    @Column(name = "producto_id", nullable = false)
+    private Integer productoId;
+
+    @NotNull
+    @Column(name = "cantidad_vendida", nullable = false)
+    @Builder.Default
+    private Long cantidadVendida = 0L;
+
+    @NotNull
+    @Column(name = "monto_total", nullable = false, precision = 14, scale = 2)
+    @Builder.Default
+    private BigDecimal montoTotal = BigDecimal.ZERO;
+}
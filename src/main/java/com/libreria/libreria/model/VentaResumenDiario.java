@@ -0,0 +1,58 @@
+package com.libreria.libreria.model;
+
+import com.libreria.libreria.model.enums.EstadoVenta;
+import com.libreria.libreria.model.enums.MetodoPago;
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import lombok.*;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Totales de ventas por día, método de pago y estado, repartidos en cubetas
+ * que se suman al leer. Lo mantienen al día crearVenta y anularVenta, y
+ * ResumenVentasDiario lo reconstruye desde Ventas.
+ * Una venta anulada se cuenta en el día en que se hizo, no en el de la anulación.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+@Table(name = "Ventas_Resumen_Diario", uniqueConstraints = @UniqueConstraint(columnNames = { "fecha",
+        "metodo_pago", "estado", "cubeta" }))
+public class VentaResumenDiario {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "resumen_id")
+    private Integer resumenId;
+
+    @NotNull
+    @Column(nullable = false)
+    private LocalDate fecha;
+
+    @NotNull
+    @Enumerated(EnumType.STRING)
+    @Column(name = "metodo_pago", nullable = false)
+    private MetodoPago metodoPago;
+
+    @NotNull
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private EstadoVenta estado;
+
+    @NotNull
+    @Column(nullable = false)
+    @Builder.Default
+    private Integer cubeta = 0;
+
+    @NotNull
+    @Column(name = "numero_ventas", nullable = false)
+    @Builder.Default
+    private Long numeroVentas = 0L;
+
+    @NotNull
+    @Column(name = "monto_total", nullable = false, precision = 14, scale = 2)
+    @Builder.Default
+    private BigDecimal montoTotal = BigDecimal.ZERO;
+}
@@ -0,0 +1,31 @@
+package com.libreria.libreria.model.enums;
+
+public enum FormatoFactura {
+    ZIP("application/zip", "zip"),
+    PDF("application/pdf", "pdf");
+
+    private final String tipoContenido;
+    private final String extension;
+
+    FormatoFactura(String tipoContenido, String extension) {
+        this.tipoContenido = tipoContenido;
+        this.extension = extension;
+    }
+
+    public String getTipoContenido() {
+        return tipoContenido;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public static FormatoFactura desde(String valor) {
+        for (FormatoFactura formato : values()) {
+            if (formato.extension.equalsIgnoreCase(valor)) {
+                return formato;
+            }
+        }
+        throw new RuntimeException("Formato de facturas no soportado: " + valor);
+    }
+}
@@ -0,0 +1,8 @@
+package com.libreria.libreria.model.enums;
+
+public enum ResultadoSincronizacion {
+    Aceptada,
+    Duplicada,
+    ConflictoStock,
+    Rechazada
+}
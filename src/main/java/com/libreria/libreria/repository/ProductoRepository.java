@@ -2,11 +2,30 @@ package com.libreria.libreria.repository;
 
 import com.libreria.libreria.model.Producto;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface ProductoRepository extends JpaRepository<Producto, Integer> {
+public interface ProductoRepository extends JpaRepository<Producto, Integer>, ProductoStockRepository {
     Optional<Producto> findBySku(String sku);
+
+    // Active catalog with its category and location in a single query
+    @Query("SELECT p FROM Producto p JOIN FETCH p.categoria JOIN FETCH p.ubicacion " +
+            "WHERE p.activo = true ORDER BY p.productoId")
+    List<Producto> findAllActivos();
+
+    // Locks the rows until the transaction ends, always in producto_id order so concurrent
+    // batches cannot deadlock
+    @Query(value = "SELECT producto_id, cantidad_stock FROM productos WHERE producto_id IN (:productoIds) " +
+            "ORDER BY producto_id FOR UPDATE", nativeQuery = true)
+    List<Object[]> bloquearStocks(@Param("productoIds") Collection<Integer> productoIds);
+
+    // Current stock straight from the database, bypassing the persistence context
+    @Query("SELECT p.cantidadStock FROM Producto p WHERE p.productoId = :productoId")
+    Integer obtenerStock(@Param("productoId") Integer productoId);
 }
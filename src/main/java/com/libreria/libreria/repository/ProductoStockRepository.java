@@ -0,0 +1,58 @@
+package com.libreria.libreria.repository;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Operaciones de stock que se ejecutan como un único lote JDBC en lugar de un
+ * save() por producto. Cada escritura incrementa stock_version y devuelve el
+ * stock resultante, leído en el mismo UPDATE.
+ */
+public interface ProductoStockRepository {
+
+    /**
+     * Stock de un producto tal como lo dejó una escritura. La versión crece con
+     * cada escritura confirmada, así que entre dos valores del mismo producto
+     * el de mayor versión es el más reciente.
+     */
+    record StockActualizado(Integer productoId, int cantidadStock, long version) {
+    }
+
+    /**
+     * Descuenta el stock de varios productos en un solo lote. Cada descuento es
+     * atómico y condicional (solo se aplica si hay stock suficiente), por lo que
+     * dos cajas vendiendo el mismo producto no pueden pisarse.
+     *
+     * @param cantidades cantidad a descontar por ID de producto
+     * @return stock resultante de los productos descontados; los que no tenían
+     *         stock suficiente no aparecen
+     */
+    List<StockActualizado> descontarStock(Map<Integer, Integer> cantidades);
+
+    /**
+     * Descuenta el stock sin comprobar si alcanza, en un solo lote. Es para
+     * productos ya bloqueados con bloquearStocks cuyo stock se validó en la
+     * misma transacción; el resultado puede quedar negativo.
+     *
+     * @param cantidades cantidad a descontar por ID de producto
+     * @return stock resultante de cada producto
+     */
+    List<StockActualizado> descontarStockReservado(Map<Integer, Integer> cantidades);
+
+    /**
+     * Devuelve stock a varios productos en un solo lote (anulaciones)
+     *
+     * @param cantidades cantidad a devolver por ID de producto
+     * @return stock resultante de cada producto
+     */
+    List<StockActualizado> incrementarStock(Map<Integer, Integer> cantidades);
+
+    /**
+     * Incrementa la versión del stock de un producto que se escribió por JPA
+     * (alta o edición). Hay que hacer flush antes para que el UPDATE vea la
+     * fila ya escrita.
+     *
+     * @return stock actual del producto con su nueva versión
+     */
+    StockActualizado versionarStock(Integer productoId);
+}
@@ -0,0 +1,91 @@
+package com.libreria.libreria.repository;
+
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+public class ProductoStockRepositoryImpl implements ProductoStockRepository {
+
+    // Compare-and-decrement in the database: no read-modify-write window in Java
+    private static final String SQL_DESCONTAR_STOCK = "UPDATE productos SET cantidad_stock = cantidad_stock - ?, " +
+            "stock_version = stock_version + 1 WHERE producto_id = ? AND cantidad_stock >= ?";
+
+    private static final String SQL_DESCONTAR_RESERVADO = "UPDATE productos SET cantidad_stock = cantidad_stock - ?, " +
+            "stock_version = stock_version + 1 WHERE producto_id = ?";
+
+    private static final String SQL_INCREMENTAR_STOCK = "UPDATE productos SET cantidad_stock = cantidad_stock + ?, " +
+            "stock_version = stock_version + 1 WHERE producto_id = ?";
+
+    private static final String SQL_VERSIONAR_STOCK = "UPDATE productos SET stock_version = stock_version + 1 " +
+            "WHERE producto_id = ? RETURNING cantidad_stock, stock_version";
+
+    // Added by the driver as a RETURNING clause; only rows the UPDATE touched come back
+    private static final String[] COLUMNAS_STOCK = { "producto_id", "cantidad_stock", "stock_version" };
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ProductoStockRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public List<StockActualizado> descontarStock(Map<Integer, Integer> cantidades) {
+        return actualizar(SQL_DESCONTAR_STOCK, cantidades, true);
+    }
+
+    @Override
+    public List<StockActualizado> descontarStockReservado(Map<Integer, Integer> cantidades) {
+        return actualizar(SQL_DESCONTAR_RESERVADO, cantidades, false);
+    }
+
+    @Override
+    public List<StockActualizado> incrementarStock(Map<Integer, Integer> cantidades) {
+        return actualizar(SQL_INCREMENTAR_STOCK, cantidades, false);
+    }
+
+    @Override
+    public StockActualizado versionarStock(Integer productoId) {
+        return jdbcTemplate.queryForObject(SQL_VERSIONAR_STOCK,
+                (rs, fila) -> new StockActualizado(productoId, rs.getInt(1), rs.getLong(2)), productoId);
+    }
+
+    private List<StockActualizado> actualizar(String sql, Map<Integer, Integer> cantidades, boolean condicional) {
+        if (cantidades.isEmpty()) {
+            return List.of();
+        }
+
+        // Always lock rows in producto_id order so two tickets sharing products
+        // cannot deadlock each other
+        List<Map.Entry<Integer, Integer>> filas = new ArrayList<>(new TreeMap<>(cantidades).entrySet());
+        GeneratedKeyHolder stocks = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(con -> con.prepareStatement(sql, COLUMNAS_STOCK), new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                ps.setInt(1, filas.get(i).getValue());
+                ps.setInt(2, filas.get(i).getKey());
+                if (condicional) {
+                    ps.setInt(3, filas.get(i).getValue());
+                }
+            }
+
+            @Override
+            public int getBatchSize() {
+                return filas.size();
+            }
+        }, stocks);
+
+        List<StockActualizado> resultado = new ArrayList<>(filas.size());
+        for (Map<String, Object> fila : stocks.getKeyList()) {
+            resultado.add(new StockActualizado((Integer) fila.get("producto_id"),
+                    (Integer) fila.get("cantidad_stock"), (Long) fila.get("stock_version")));
+        }
+        return resultado;
+    }
+}
@@ -2,9 +2,16 @@ package com.libreria.libreria.repository;
 
 import com.libreria.libreria.model.SesionCaja;
 import com.libreria.libreria.model.enums.EstadoSesion;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -12,4 +19,29 @@ public interface SesionCajaRepository extends JpaRepository<SesionCaja, Integer>
     Optional<SesionCaja> findByUsuarioApertura_UsuarioIdAndEstado(Integer usuarioId, EstadoSesion estado);
 
     Optional<SesionCaja> findTopByUsuarioApertura_UsuarioIdOrderByFechaAperturaDesc(Integer usuarioId);
+
+    @Query("SELECT s.sesionId FROM SesionCaja s WHERE s.estado = :estado")
+    List<Integer> findIdsByEstado(@Param("estado") EstadoSesion estado);
+
+    // Row lock so running totals cannot change while the session is closed or reconciled
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM SesionCaja s WHERE s.sesionId = :sesionId")
+    Optional<SesionCaja> bloquearPorId(@Param("sesionId") Integer sesionId);
+
+    // Atomic increment of the running totals (negative deltas for voided sales)
+    @Modifying
+    @Query("UPDATE SesionCaja s SET " +
+            "s.totalEfectivo = COALESCE(s.totalEfectivo, 0) + :efectivo, " +
+            "s.totalTarjeta = COALESCE(s.totalTarjeta, 0) + :tarjeta, " +
+            "s.totalMixto = COALESCE(s.totalMixto, 0) + :mixto, " +
+            "s.totalAnulado = COALESCE(s.totalAnulado, 0) + :anulado, " +
+            "s.numeroVentas = COALESCE(s.numeroVentas, 0) + :ventas " +
+            "WHERE s.sesionId = :sesionId")
+    int acumularTotales(
+            @Param("sesionId") Integer sesionId,
+            @Param("efectivo") BigDecimal efectivo,
+            @Param("tarjeta") BigDecimal tarjeta,
+            @Param("mixto") BigDecimal mixto,
+            @Param("anulado") BigDecimal anulado,
+            @Param("ventas") int ventas);
 }
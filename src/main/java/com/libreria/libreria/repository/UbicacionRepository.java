@@ -1,9 +1,22 @@
 package com.libreria.libreria.repository;
 
 import com.libreria.libreria.model.Ubicacion;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 @Repository
 public interface UbicacionRepository extends JpaRepository<Ubicacion, Integer> {
+
+    // Served from the second-level cache until a Ubicacion is written
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "ubicaciones-consultas")
+    })
+    @Override
+    List<Ubicacion> findAll();
 }
@@ -0,0 +1,34 @@
+package com.libreria.libreria.repository;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Operaciones sobre las claves de idempotencia de un lote de ventas, cada una
+ * en un solo viaje a la base de datos.
+ */
+public interface VentaIdempotenciaLoteRepository {
+
+    /**
+     * Inserta las claves que todavía no existen. Si otra transacción está
+     * insertando la misma clave, espera a que termine.
+     *
+     * @param huellas huella de la solicitud por clave
+     * @return claves insertadas por esta llamada; las demás ya estaban guardadas
+     */
+    Set<String> reservarLote(Map<String, String> huellas);
+
+    /**
+     * Asocia cada clave reservada con la venta creada.
+     *
+     * @param ventas ID de venta por clave
+     */
+    void asignarVentas(Map<String, Integer> ventas);
+
+    /**
+     * Borra claves reservadas cuya venta no se creó, para que un reintento pueda
+     * volver a procesarlas.
+     */
+    void liberar(Collection<String> claves);
+}
@@ -0,0 +1,77 @@
+package com.libreria.libreria.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class VentaIdempotenciaLoteRepositoryImpl implements VentaIdempotenciaLoteRepository {
+
+    // RETURNING only lists the rows this statement inserted, which a batch update count cannot
+    // tell reliably once the driver rewrites batched inserts
+    private static final String SQL_RESERVAR = "INSERT INTO ventas_idempotencia (clave, huella, fecha_creacion) " +
+            "SELECT c.clave, c.huella, ? FROM unnest(?::varchar[], ?::varchar[]) AS c(clave, huella) " +
+            "ON CONFLICT (clave) DO NOTHING RETURNING clave";
+
+    private static final String SQL_ASIGNAR = "UPDATE ventas_idempotencia SET venta_id = ? WHERE clave = ?";
+
+    private static final String SQL_LIBERAR = "DELETE FROM ventas_idempotencia WHERE clave = ANY (?::varchar[])";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public VentaIdempotenciaLoteRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public Set<String> reservarLote(Map<String, String> huellas) {
+        Set<String> reservadas = new HashSet<>();
+        if (huellas.isEmpty()) {
+            return reservadas;
+        }
+
+        List<String> claves = new ArrayList<>(huellas.keySet());
+        List<String> valores = claves.stream().map(huellas::get).toList();
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(SQL_RESERVAR);
+            ps.setTimestamp(1, Timestamp.valueOf(LocalDateTime.now()));
+            ps.setArray(2, con.createArrayOf("varchar", claves.toArray()));
+            ps.setArray(3, con.createArrayOf("varchar", valores.toArray()));
+            return ps;
+        }, rs -> {
+            reservadas.add(rs.getString(1));
+        });
+        return reservadas;
+    }
+
+    @Override
+    public void asignarVentas(Map<String, Integer> ventas) {
+        if (ventas.isEmpty()) {
+            return;
+        }
+
+        List<Object[]> parametros = new ArrayList<>(ventas.size());
+        ventas.forEach((clave, ventaId) -> parametros.add(new Object[] { ventaId, clave }));
+        jdbcTemplate.batchUpdate(SQL_ASIGNAR, parametros);
+    }
+
+    @Override
+    public void liberar(Collection<String> claves) {
+        if (claves.isEmpty()) {
+            return;
+        }
+
+        jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(SQL_LIBERAR);
+            ps.setArray(1, con.createArrayOf("varchar", claves.toArray()));
+            return ps;
+        });
+    }
+}
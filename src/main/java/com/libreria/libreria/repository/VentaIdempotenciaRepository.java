@@ -0,0 +1,34 @@
+package com.libreria.libreria.repository;
+
+import com.libreria.libreria.model.VentaIdempotencia;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface VentaIdempotenciaRepository extends JpaRepository<VentaIdempotencia, String>,
+        VentaIdempotenciaLoteRepository {
+
+    // Plain INSERT so a duplicate key fails right here (or waits for the other transaction) instead of merging
+    @Modifying
+    @Query(value = "INSERT INTO ventas_idempotencia (clave, huella, fecha_creacion) " +
+            "VALUES (:clave, :huella, :fecha)", nativeQuery = true)
+    int reservar(
+            @Param("clave") String clave,
+            @Param("huella") String huella,
+            @Param("fecha") LocalDateTime fecha);
+
+    @Modifying
+    @Query("UPDATE VentaIdempotencia i SET i.ventaId = :ventaId WHERE i.clave = :clave")
+    int asignarVenta(
+            @Param("clave") String clave,
+            @Param("ventaId") Integer ventaId);
+
+    @Modifying
+    @Query("DELETE FROM VentaIdempotencia i WHERE i.fechaCreacion < :limite")
+    int eliminarAnteriores(@Param("limite") LocalDateTime limite);
+}
@@ -0,0 +1,53 @@
+package com.libreria.libreria.repository;
+
+import com.libreria.libreria.model.VentaProductoDiario;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface VentaProductoDiarioRepository extends JpaRepository<VentaProductoDiario, Integer> {
+
+    @Query("SELECT MIN(r.fecha) FROM VentaProductoDiario r")
+    LocalDate primeraFecha();
+
+    // Same (fecha, producto_id) order as the per-sale upserts
+    @Query(value = "SELECT resumen_id FROM ventas_productos_diario WHERE fecha >= :desde AND fecha <= :hasta " +
+            "ORDER BY fecha, producto_id FOR UPDATE", nativeQuery = true)
+    List<Integer> bloquearRango(
+            @Param("desde") LocalDate desde,
+            @Param("hasta") LocalDate hasta);
+
+    @Modifying
+    @Query("UPDATE VentaProductoDiario r SET r.cantidadVendida = 0, r.montoTotal = 0 " +
+            "WHERE r.fecha >= :desde AND r.fecha <= :hasta")
+    int vaciarRango(
+            @Param("desde") LocalDate desde,
+            @Param("hasta") LocalDate hasta);
+
+    @Modifying
+    @Query("DELETE FROM VentaProductoDiario r WHERE r.fecha >= :desde AND r.fecha <= :hasta " +
+            "AND r.cantidadVendida = 0 AND r.montoTotal = 0")
+    int eliminarVacios(
+            @Param("desde") LocalDate desde,
+            @Param("hasta") LocalDate hasta);
+
+    @Modifying
+    @Query(value = "INSERT INTO ventas_productos_diario (fecha, producto_id, cantidad_vendida, monto_total) " +
+            "SELECT CAST(v.fecha_venta AS DATE), d.producto_id, SUM(d.cantidad), SUM(d.subtotal) " +
+            "FROM detalle_ventas d JOIN ventas v ON v.venta_id = d.venta_id AND v.fecha_venta = d.fecha_venta " +
+            "WHERE v.estado = 'Completada' AND v.fecha_venta >= :inicio AND v.fecha_venta < :fin " +
+            "AND d.fecha_venta >= :inicio AND d.fecha_venta < :fin " +
+            "GROUP BY CAST(v.fecha_venta AS DATE), d.producto_id " +
+            "ON CONFLICT (fecha, producto_id) DO UPDATE SET " +
+            "cantidad_vendida = EXCLUDED.cantidad_vendida, monto_total = EXCLUDED.monto_total", nativeQuery = true)
+    int reconstruirRango(
+            @Param("inicio") LocalDateTime inicio,
+            @Param("fin") LocalDateTime fin);
+}
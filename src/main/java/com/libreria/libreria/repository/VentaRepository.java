@@ -1,23 +1,80 @@
 package com.libreria.libreria.repository;
 
+import com.libreria.libreria.dto.VentaResumenDTO;
+import com.libreria.libreria.model.Usuario;
 import com.libreria.libreria.model.Venta;
 import com.libreria.libreria.model.enums.EstadoVenta;
 import com.libreria.libreria.model.enums.MetodoPago;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface VentaRepository extends JpaRepository<Venta, Integer> {
         List<Venta> findBySesion_SesionIdAndEstadoAndMetodoPago(Integer sesionId, EstadoVenta estado,
                         MetodoPago metodoPago);
 
-        List<Venta> findAllByOrderByFechaVentaDesc();
+        // Ledger totals of a cash session, used to reconcile its running totals
+        @Query("SELECT v.metodoPago, v.estado, COUNT(v), COALESCE(SUM(v.montoTotal), 0) FROM Venta v " +
+                        "WHERE v.sesion.sesionId = :sesionId GROUP BY v.metodoPago, v.estado")
+        List<Object[]> totalizarPorSesion(@Param("sesionId") Integer sesionId);
+
+        // Everything mapToDTO touches is fetched in the same query: usuario, cliente and
+        // detalles.producto. sesion and usuarioAnulo are only read by ID, which the proxy
+        // answers without a query.
+        @EntityGraph(attributePaths = { "usuario", "cliente", "detalles", "detalles.producto" })
+        Optional<Venta> findConDetallesByVentaId(Integer ventaId);
+
+        @EntityGraph(attributePaths = { "usuario", "cliente", "detalles", "detalles.producto" })
+        List<Venta> findConDetallesByVentaIdIn(Collection<Integer> ventaIds);
+
+        @Query("SELECT v.estado FROM Venta v WHERE v.ventaId = :ventaId")
+        Optional<EstadoVenta> obtenerEstado(@Param("ventaId") Integer ventaId);
+
+        // Claims the Completada -> Anulada transition: of two concurrent voids only one updates the row
+        @Modifying
+        @Query("UPDATE Venta v SET v.estado = com.libreria.libreria.model.enums.EstadoVenta.Anulada, " +
+                        "v.motivoAnulacion = :motivo, v.fechaAnulacion = :fechaAnulacion, v.usuarioAnulo = :usuarioAnulo " +
+                        "WHERE v.ventaId = :ventaId AND v.estado = com.libreria.libreria.model.enums.EstadoVenta.Completada")
+        int marcarAnulada(@Param("ventaId") Integer ventaId, @Param("motivo") String motivo,
+                        @Param("fechaAnulacion") LocalDateTime fechaAnulacion,
+                        @Param("usuarioAnulo") Usuario usuarioAnulo);
+
+        @Query("SELECT v.ventaId FROM Venta v WHERE v.ventaId IN :ventaIds")
+        List<Integer> obtenerIdsExistentes(@Param("ventaIds") Collection<Integer> ventaIds);
+
+        @Query("SELECT v.ventaId FROM Venta v WHERE v.fechaVenta BETWEEN :fechaInicio AND :fechaFin " +
+                        "ORDER BY v.fechaVenta, v.ventaId")
+        List<Integer> obtenerIdsPorFecha(@Param("fechaInicio") LocalDateTime fechaInicio,
+                        @Param("fechaFin") LocalDateTime fechaFin, Pageable pageable);
+
+        // Keyset pagination over (fecha_venta, venta_id), summary projection only
+        @Query("SELECT new com.libreria.libreria.dto.VentaResumenDTO(v.ventaId, v.fechaVenta, c.clienteId, " +
+                        "c.nombreCompleto, u.usuarioId, u.nombreCompleto, v.montoTotal, v.metodoPago, v.estado) " +
+                        "FROM Venta v JOIN v.cliente c JOIN v.usuario u " +
+                        "ORDER BY v.fechaVenta DESC, v.ventaId DESC")
+        List<VentaResumenDTO> listarResumen(Pageable pageable);
+
+        @Query("SELECT new com.libreria.libreria.dto.VentaResumenDTO(v.ventaId, v.fechaVenta, c.clienteId, " +
+                        "c.nombreCompleto, u.usuarioId, u.nombreCompleto, v.montoTotal, v.metodoPago, v.estado) " +
+                        "FROM Venta v JOIN v.cliente c JOIN v.usuario u " +
+                        // The redundant upper bound lets idx_ventas_fecha start the scan at the cursor
+                        "WHERE v.fechaVenta <= :cursorFecha " +
+                        "AND (v.fechaVenta < :cursorFecha OR (v.fechaVenta = :cursorFecha AND v.ventaId < :cursorId)) " +
+                        "ORDER BY v.fechaVenta DESC, v.ventaId DESC")
+        List<VentaResumenDTO> listarResumenDespuesDe(
+                        @Param("cursorFecha") LocalDateTime cursorFecha,
+                        @Param("cursorId") Integer cursorId,
+                        Pageable pageable);
 
         // Filter by date range
         List<Venta> findByFechaVentaBetween(LocalDateTime fechaInicio, LocalDateTime fechaFin);
@@ -31,13 +88,15 @@ public interface VentaRepository extends JpaRepository<Venta, Integer> {
         // Filter by state
         List<Venta> findByEstado(EstadoVenta estado);
 
-        // Complex filter query with optional parameters
+        // Complex filter query with optional parameters. The casts give PostgreSQL a type
+        // for "? IS NULL", which it cannot infer from an untyped or null parameter.
+        @EntityGraph(attributePaths = { "usuario", "cliente", "detalles", "detalles.producto" })
         @Query("SELECT v FROM Venta v WHERE " +
-                        "(:fechaInicio IS NULL OR v.fechaVenta >= :fechaInicio) AND " +
-                        "(:fechaFin IS NULL OR v.fechaVenta <= :fechaFin) AND " +
-                        "(:clienteId IS NULL OR v.cliente.clienteId = :clienteId) AND " +
-                        "(:metodoPago IS NULL OR v.metodoPago = :metodoPago) AND " +
-                        "(:estado IS NULL OR v.estado = :estado) " +
+                        "(CAST(:fechaInicio AS LocalDateTime) IS NULL OR v.fechaVenta >= :fechaInicio) AND " +
+                        "(CAST(:fechaFin AS LocalDateTime) IS NULL OR v.fechaVenta <= :fechaFin) AND " +
+                        "(CAST(:clienteId AS Integer) IS NULL OR v.cliente.clienteId = :clienteId) AND " +
+                        "(CAST(:metodoPago AS String) IS NULL OR v.metodoPago = :metodoPago) AND " +
+                        "(CAST(:estado AS String) IS NULL OR v.estado = :estado) " +
                         "ORDER BY v.fechaVenta DESC")
         List<Venta> filtrarVentas(
                         @Param("fechaInicio") LocalDateTime fechaInicio,
@@ -46,38 +105,26 @@ public interface VentaRepository extends JpaRepository<Venta, Integer> {
                         @Param("metodoPago") MetodoPago metodoPago,
                         @Param("estado") EstadoVenta estado);
 
-        // Statistics queries
-        @Query("SELECT COALESCE(SUM(v.montoTotal), 0) FROM Venta v WHERE " +
-                        "v.fechaVenta >= :fechaInicio AND v.fechaVenta <= :fechaFin AND v.estado = 'Completada'")
-        BigDecimal calcularTotalVentas(
-                        @Param("fechaInicio") LocalDateTime fechaInicio,
-                        @Param("fechaFin") LocalDateTime fechaFin);
-
-        @Query("SELECT COUNT(v) FROM Venta v WHERE " +
-                        "v.fechaVenta >= :fechaInicio AND v.fechaVenta <= :fechaFin AND v.estado = 'Completada'")
-        Long contarTransacciones(
-                        @Param("fechaInicio") LocalDateTime fechaInicio,
-                        @Param("fechaFin") LocalDateTime fechaFin);
-
-        // Top selling products
-        @Query("SELECT d.producto.productoId as productoId, d.producto.nombre as nombreProducto, " +
-                        "SUM(d.cantidad) as cantidadVendida, SUM(d.subtotal) as montoTotal " +
-                        "FROM DetalleVenta d JOIN d.venta v " +
+        // Sales by payment method
+        @Query("SELECT v.metodoPago as metodoPago, COUNT(v) as numeroVentas, SUM(v.montoTotal) as montoTotal " +
+                        "FROM Venta v " +
                         "WHERE v.fechaVenta >= :fechaInicio AND v.fechaVenta <= :fechaFin AND v.estado = 'Completada' "
                         +
-                        "GROUP BY d.producto.productoId, d.producto.nombre " +
-                        "ORDER BY cantidadVendida DESC")
-        List<Object[]> obtenerProductosMasVendidos(
+                        "GROUP BY v.metodoPago")
+        List<Object[]> obtenerVentasPorMetodo(
                         @Param("fechaInicio") LocalDateTime fechaInicio,
                         @Param("fechaFin") LocalDateTime fechaFin);
 
-        // Sales by payment method
+        // Same as obtenerVentasPorMetodo with an exclusive upper bound, for partial days
         @Query("SELECT v.metodoPago as metodoPago, COUNT(v) as numeroVentas, SUM(v.montoTotal) as montoTotal " +
                         "FROM Venta v " +
-                        "WHERE v.fechaVenta >= :fechaInicio AND v.fechaVenta <= :fechaFin AND v.estado = 'Completada' "
+                        "WHERE v.fechaVenta >= :fechaInicio AND v.fechaVenta < :fechaLimite AND v.estado = 'Completada' "
                         +
                         "GROUP BY v.metodoPago")
-        List<Object[]> obtenerVentasPorMetodo(
+        List<Object[]> obtenerVentasPorMetodoAntesDe(
                         @Param("fechaInicio") LocalDateTime fechaInicio,
-                        @Param("fechaFin") LocalDateTime fechaFin);
+                        @Param("fechaLimite") LocalDateTime fechaLimite);
+
+        @Query("SELECT MIN(v.fechaVenta) FROM Venta v")
+        LocalDateTime obtenerPrimeraFechaVenta();
 }
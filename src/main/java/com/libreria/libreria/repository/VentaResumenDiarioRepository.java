@@ -0,0 +1,78 @@
+package com.libreria.libreria.repository;
+
+import com.libreria.libreria.model.VentaResumenDiario;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface VentaResumenDiarioRepository extends JpaRepository<VentaResumenDiario, Integer> {
+
+    // Creates the day row of the bucket on its first sale and adds the deltas afterwards
+    @Modifying
+    @Query(value = "INSERT INTO ventas_resumen_diario (fecha, metodo_pago, estado, cubeta, numero_ventas, " +
+            "monto_total) VALUES (:fecha, :metodoPago, :estado, :cubeta, :ventas, :monto) " +
+            "ON CONFLICT (fecha, metodo_pago, estado, cubeta) DO UPDATE SET " +
+            "numero_ventas = ventas_resumen_diario.numero_ventas + EXCLUDED.numero_ventas, " +
+            "monto_total = ventas_resumen_diario.monto_total + EXCLUDED.monto_total", nativeQuery = true)
+    int acumular(
+            @Param("fecha") LocalDate fecha,
+            @Param("metodoPago") String metodoPago,
+            @Param("estado") String estado,
+            @Param("cubeta") int cubeta,
+            @Param("ventas") long ventas,
+            @Param("monto") BigDecimal monto);
+
+    // Completed sales per payment method over whole days (both ends inclusive)
+    @Query("SELECT r.metodoPago, SUM(r.numeroVentas), SUM(r.montoTotal) FROM VentaResumenDiario r " +
+            "WHERE r.fecha >= :desde AND r.fecha <= :hasta AND r.estado = 'Completada' " +
+            "GROUP BY r.metodoPago")
+    List<Object[]> totalizarPorMetodo(
+            @Param("desde") LocalDate desde,
+            @Param("hasta") LocalDate hasta);
+
+    @Query("SELECT MIN(r.fecha) FROM VentaResumenDiario r")
+    LocalDate primeraFecha();
+
+    // Key order, which is also the order anularVenta updates its two rows in, so a
+    // rebuild and a sale never wait on each other in a cycle
+    @Query(value = "SELECT resumen_id FROM ventas_resumen_diario WHERE fecha >= :desde AND fecha <= :hasta " +
+            "ORDER BY fecha, metodo_pago, estado, cubeta FOR UPDATE", nativeQuery = true)
+    List<Integer> bloquearRango(
+            @Param("desde") LocalDate desde,
+            @Param("hasta") LocalDate hasta);
+
+    @Modifying
+    @Query("UPDATE VentaResumenDiario r SET r.numeroVentas = 0, r.montoTotal = 0 " +
+            "WHERE r.fecha >= :desde AND r.fecha <= :hasta")
+    int vaciarRango(
+            @Param("desde") LocalDate desde,
+            @Param("hasta") LocalDate hasta);
+
+    @Modifying
+    @Query("DELETE FROM VentaResumenDiario r WHERE r.fecha >= :desde AND r.fecha <= :hasta " +
+            "AND r.numeroVentas = 0 AND r.montoTotal = 0")
+    int eliminarVacios(
+            @Param("desde") LocalDate desde,
+            @Param("hasta") LocalDate hasta);
+
+    // Rebuilt totals go to bucket 0; upserting keeps the unique key valid against sales
+    // that create a row of the range while the rebuild runs
+    @Modifying
+    @Query(value = "INSERT INTO ventas_resumen_diario (fecha, metodo_pago, estado, cubeta, numero_ventas, " +
+            "monto_total) SELECT CAST(v.fecha_venta AS DATE), v.metodo_pago, v.estado, 0, COUNT(*), " +
+            "SUM(v.monto_total) FROM ventas v WHERE v.fecha_venta >= :inicio AND v.fecha_venta < :fin " +
+            "GROUP BY CAST(v.fecha_venta AS DATE), v.metodo_pago, v.estado " +
+            "ON CONFLICT (fecha, metodo_pago, estado, cubeta) DO UPDATE SET " +
+            "numero_ventas = EXCLUDED.numero_ventas, monto_total = EXCLUDED.monto_total", nativeQuery = true)
+    int reconstruirRango(
+            @Param("inicio") LocalDateTime inicio,
+            @Param("fin") LocalDateTime fin);
+}
@@ -1,5 +1,8 @@
 package com.libreria.libreria.security;
 
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -22,15 +25,36 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtService jwtService;
     private final UserDetailsService userDetailsService;
+    private final UsuarioPrincipalCache principalCache;
     private final HandlerExceptionResolver handlerExceptionResolver;
+    private final MeterRegistry meterRegistry;
+
+    private final Timer autenticados;
+    private final Timer rechazados;
+    private final Timer invalidos;
 
     public JwtAuthenticationFilter(
             JwtService jwtService,
             UserDetailsService userDetailsService,
-            HandlerExceptionResolver handlerExceptionResolver) {
+            UsuarioPrincipalCache principalCache,
+            HandlerExceptionResolver handlerExceptionResolver,
+            MeterRegistry meterRegistry) {
         this.jwtService = jwtService;
         this.userDetailsService = userDetailsService;
+        this.principalCache = principalCache;
         this.handlerExceptionResolver = handlerExceptionResolver;
+        this.meterRegistry = meterRegistry;
+
+        // Token check and principal lookup only, not the rest of the request
+        this.autenticados = Timer.builder("seguridad.jwt.autenticacion")
+                .tag("resultado", "autenticado")
+                .register(meterRegistry);
+        this.rechazados = Timer.builder("seguridad.jwt.autenticacion")
+                .tag("resultado", "rechazado")
+                .register(meterRegistry);
+        this.invalidos = Timer.builder("seguridad.jwt.autenticacion")
+                .tag("resultado", "invalido")
+                .register(meterRegistry);
     }
 
     @Override
@@ -45,16 +69,22 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             return;
         }
 
+        Timer.Sample inicio = Timer.start(meterRegistry);
         try {
             final String jwt = authHeader.substring(7);
-            final String username = jwtService.extractUsername(jwt);
+            // Signature and expiration are checked once here; the claims are reused below
+            final Claims claims = jwtService.validarToken(jwt);
+            final String username = claims.getSubject();
 
             Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+            Timer resultado = rechazados;
 
             if (username != null && authentication == null) {
-                UserDetails userDetails = this.userDetailsService.loadUserByUsername(username);
+                UserDetails userDetails = principalCache.obtener(username,
+                        this.userDetailsService::loadUserByUsername);
 
-                if (jwtService.isTokenValid(jwt, userDetails)) {
+                // A deactivated user is rejected even while their token is still valid
+                if (userDetails.isEnabled() && jwtService.isTokenValid(claims, userDetails)) {
                     UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
                             userDetails,
                             null,
@@ -62,11 +92,17 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
                     authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
                     SecurityContextHolder.getContext().setAuthentication(authToken);
+                    resultado = autenticados;
                 }
             }
+            inicio.stop(resultado);
+            inicio = null;
 
             filterChain.doFilter(request, response);
         } catch (Exception exception) {
+            if (inicio != null) {
+                inicio.stop(invalidos);
+            }
             handlerExceptionResolver.resolveException(request, response, null, exception);
         }
     }
@@ -1,9 +1,11 @@
 package com.libreria.libreria.security;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
@@ -11,6 +13,7 @@ import org.springframework.stereotype.Service;
 import javax.crypto.SecretKey;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.function.Function;
 
@@ -24,15 +27,68 @@ public class JwtService {
     @Value("${jwt.expiration:86400000}") // 1 día por defecto
     private long jwtExpiration;
 
+    // Máximo de tokens ya verificados que se recuerdan; al llenarse sale el menos usado
+    @Value("${jwt.cache.max-tokens:10000}")
+    private int maxTokensCache;
+
+    // La clave y el parser son inmutables: se construyen una sola vez
+    private SecretKey signInKey;
+    private JwtParser jwtParser;
+
+    private Map<String, Claims> tokensVerificados;
+
+    @PostConstruct
+    void init() {
+        // LRU: evicting the eldest entry is O(1), so a full cache still takes the new token
+        this.tokensVerificados = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Claims> eldest) {
+                return size() > maxTokensCache;
+            }
+        };
+        byte[] keyBytes = Decoders.BASE64.decode(secretKey);
+        this.signInKey = Keys.hmacShaKeyFor(keyBytes);
+        this.jwtParser = Jwts.parser()
+                .verifyWith(signInKey)
+                .build();
+    }
+
     public String extractUsername(String token) {
         return extractClaim(token, Claims::getSubject);
     }
 
     public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = extractAllClaims(token);
+        final Claims claims = validarToken(token);
         return claimsResolver.apply(claims);
     }
 
+    /**
+     * Verifica la firma y la expiración del token una sola vez y devuelve sus
+     * claims. Los tokens ya verificados se sirven desde memoria hasta su "exp".
+     *
+     * @throws io.jsonwebtoken.JwtException si el token es inválido o expiró
+     */
+    public Claims validarToken(String token) {
+        synchronized (tokensVerificados) {
+            Claims claims = tokensVerificados.get(token);
+            if (claims != null) {
+                if (claims.getExpiration().after(new Date())) {
+                    return claims;
+                }
+                tokensVerificados.remove(token);
+            }
+        }
+
+        // The signature is checked outside the lock
+        Claims claims = extractAllClaims(token);
+        if (claims.getExpiration() != null) {
+            synchronized (tokensVerificados) {
+                tokensVerificados.put(token, claims);
+            }
+        }
+        return claims;
+    }
+
     public String generateToken(UserDetails userDetails) {
         return generateToken(new HashMap<>(), userDetails);
     }
@@ -47,33 +103,22 @@ public class JwtService {
                 .subject(userDetails.getUsername())
                 .issuedAt(new Date(System.currentTimeMillis()))
                 .expiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(getSignInKey()) // Algoritmo inferido automáticamente por la clave
+                .signWith(signInKey) // Algoritmo inferido automáticamente por la clave
                 .compact();
     }
 
     public boolean isTokenValid(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername())) && !isTokenExpired(token);
-    }
-
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+        return isTokenValid(validarToken(token), userDetails);
     }
 
-    private Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+    public boolean isTokenValid(Claims claims, UserDetails userDetails) {
+        final String username = claims.getSubject();
+        return (username.equals(userDetails.getUsername())) && !claims.getExpiration().before(new Date());
     }
 
     private Claims extractAllClaims(String token) {
-        return Jwts.parser()
-                .verifyWith(getSignInKey())
-                .build()
+        return jwtParser
                 .parseSignedClaims(token)
                 .getPayload();
     }
-
-    private SecretKey getSignInKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(secretKey);
-        return Keys.hmacShaKeyFor(keyBytes);
-    }
 }
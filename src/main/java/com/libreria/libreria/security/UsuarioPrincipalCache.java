@@ -0,0 +1,86 @@
+package com.libreria.libreria.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Caché acotada con TTL de los usuarios autenticados, para no consultar
+ * Usuarios en cada petición con JWT.
+ */
+@Component
+public class UsuarioPrincipalCache {
+
+    private record Entrada(UserDetails usuario, long expiraEn) {
+    }
+
+    private final Map<String, Entrada> entradas = new ConcurrentHashMap<>();
+    private final long ttlMs;
+    private final int maxEntradas;
+
+    private final Counter aciertos;
+    private final Counter fallos;
+
+    public UsuarioPrincipalCache(MeterRegistry meterRegistry,
+            @Value("${seguridad.principal-cache.ttl-ms:60000}") long ttlMs,
+            @Value("${seguridad.principal-cache.max-entradas:1000}") int maxEntradas) {
+        this.ttlMs = ttlMs;
+        this.maxEntradas = maxEntradas;
+
+        this.aciertos = Counter.builder("seguridad.principal.cache")
+                .tag("resultado", "acierto")
+                .register(meterRegistry);
+        this.fallos = Counter.builder("seguridad.principal.cache")
+                .tag("resultado", "fallo")
+                .register(meterRegistry);
+        Gauge.builder("seguridad.principal.cache.tamano", entradas, Map::size)
+                .register(meterRegistry);
+    }
+
+    public UserDetails obtener(String username, Function<String, UserDetails> cargador) {
+        long ahora = System.currentTimeMillis();
+        Entrada entrada = entradas.get(username);
+        if (entrada != null && entrada.expiraEn() > ahora) {
+            aciertos.increment();
+            return entrada.usuario();
+        }
+
+        fallos.increment();
+        UserDetails usuario = cargador.apply(username);
+
+        if (entradas.size() >= maxEntradas) {
+            entradas.values().removeIf(e -> e.expiraEn() <= ahora);
+        }
+        if (entradas.size() < maxEntradas) {
+            entradas.put(username, new Entrada(usuario, ahora + ttlMs));
+        }
+        return usuario;
+    }
+
+    /**
+     * Descarta el usuario de la caché. Si hay una transacción activa se vuelve a
+     * descartar al confirmarla, para que una petición concurrente no deje en
+     * caché el estado anterior al cambio.
+     */
+    public void invalidar(String username) {
+        entradas.remove(username);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    entradas.remove(username);
+                }
+            });
+        }
+    }
+}
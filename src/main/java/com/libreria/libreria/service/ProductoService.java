@@ -9,6 +9,8 @@ public interface ProductoService {
 
     Optional<ProductoDTO> findById(Integer id);
 
+    List<ProductoDTO> buscar(String texto, Integer limite);
+
     ProductoDTO save(ProductoDTO productoDTO);
 
     ProductoDTO update(Integer id, ProductoDTO productoDTO);
@@ -10,4 +10,6 @@ public interface SesionCajaService {
     SesionCajaDTO abrirSesion(AperturaCajaDTO dto);
 
     SesionCajaDTO cerrarSesion(Integer sesionId, CierreCajaDTO dto);
+
+    void reconciliarTotales();
 }
@@ -15,4 +15,8 @@ public interface UsuarioService {
     Optional<Usuario> login(LoginDTO loginDTO);
 
     UsuarioDTO obtenerUsuarioPorId(Integer id);
+
+    UsuarioDTO cambiarRol(Integer id, Integer rolId);
+
+    UsuarioDTO cambiarEstado(Integer id, Boolean activo);
 }
@@ -1,19 +1,31 @@
 package com.libreria.libreria.service;
 
 import com.libreria.libreria.dto.EstadisticasVentasDTO;
+import com.libreria.libreria.dto.FacturaPdfDTO;
 import com.libreria.libreria.dto.ProductoMasVendidoDTO;
+import com.libreria.libreria.dto.ResultadoSincronizacionDTO;
 import com.libreria.libreria.dto.VentaDTO;
+import com.libreria.libreria.dto.VentaOfflineDTO;
+import com.libreria.libreria.dto.VentaPaginaDTO;
 import com.libreria.libreria.dto.VentasPorMetodoDTO;
 import com.libreria.libreria.model.enums.EstadoVenta;
+import com.libreria.libreria.model.enums.FormatoExportacion;
+import com.libreria.libreria.model.enums.FormatoFactura;
 import com.libreria.libreria.model.enums.MetodoPago;
 
+import java.io.OutputStream;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 
 public interface VentaService {
         VentaDTO crearVenta(VentaDTO ventaDTO);
 
-        List<VentaDTO> listarVentas();
+        VentaDTO crearVenta(VentaDTO ventaDTO, String claveIdempotencia);
+
+        List<ResultadoSincronizacionDTO> sincronizarVentas(List<VentaOfflineDTO> ventasOffline);
+
+        VentaPaginaDTO listarVentas(LocalDateTime cursorFecha, Integer cursorId, Integer tamano);
 
         VentaDTO obtenerVentaPorId(Integer ventaId);
 
@@ -29,5 +41,20 @@ public interface VentaService {
 
         List<VentasPorMetodoDTO> obtenerVentasPorMetodo(LocalDateTime fechaInicio, LocalDateTime fechaFin);
 
+        void reconstruirResumenDiario(LocalDate desde, LocalDate hasta);
+
+        long exportarVentas(LocalDateTime fechaInicio, LocalDateTime fechaFin, FormatoExportacion formato,
+                        OutputStream salida);
+
         byte[] generarReportePdf(Integer ventaId);
+
+        FacturaPdfDTO obtenerFacturaPdf(Integer ventaId, String etagCliente);
+
+        byte[] generarTicket(Integer ventaId);
+
+        String generarTicketTexto(Integer ventaId);
+
+        List<Integer> seleccionarFacturas(List<Integer> ventaIds, LocalDateTime fechaInicio, LocalDateTime fechaFin);
+
+        void generarFacturas(List<Integer> ventaIds, FormatoFactura formato, OutputStream salida);
 }
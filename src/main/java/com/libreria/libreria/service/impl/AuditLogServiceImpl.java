@@ -1,5 +1,6 @@
 package com.libreria.libreria.service.impl;
 
+import com.libreria.libreria.config.LecturaEnReplica;
 import com.libreria.libreria.dto.AuditLogDTO;
 import com.libreria.libreria.model.AuditLog;
 import com.libreria.libreria.model.Usuario;
@@ -7,57 +8,62 @@ import com.libreria.libreria.model.enums.TipoAccion;
 import com.libreria.libreria.repository.AuditLogRepository;
 import com.libreria.libreria.repository.UsuarioRepository;
 import com.libreria.libreria.service.AuditLogService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Propagation;
-import org.springframework.transaction.annotation.Transactional;
 
 @Service
 public class AuditLogServiceImpl implements AuditLogService {
 
     private final AuditLogRepository auditLogRepository;
     private final UsuarioRepository usuarioRepository;
+    private final AuditLogWriter auditLogWriter;
+    private final MeterRegistry meterRegistry;
+    private final Timer encolados;
+    private final Timer fallidos;
 
     @Autowired
-    public AuditLogServiceImpl(AuditLogRepository auditLogRepository, UsuarioRepository usuarioRepository) {
+    public AuditLogServiceImpl(AuditLogRepository auditLogRepository, UsuarioRepository usuarioRepository,
+            AuditLogWriter auditLogWriter, MeterRegistry meterRegistry) {
         this.auditLogRepository = auditLogRepository;
         this.usuarioRepository = usuarioRepository;
+        this.auditLogWriter = auditLogWriter;
+        this.meterRegistry = meterRegistry;
+
+        // Time spent by the caller; it only grows when the queue is full
+        this.encolados = Timer.builder("auditoria.registro")
+                .tag("resultado", "encolado")
+                .register(meterRegistry);
+        this.fallidos = Timer.builder("auditoria.registro")
+                .tag("resultado", "error")
+                .register(meterRegistry);
     }
 
     @Override
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
     public void logAccion(Integer usuarioId, TipoAccion accion, String entidad, Integer entidadId, String detalles) {
         logAccion(usuarioId, accion, entidad, entidadId, detalles, null);
     }
 
+    // Queued and written in batches by AuditLogWriter; never blocks or fails the caller
     @Override
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
     public void logAccion(Integer usuarioId, TipoAccion accion, String entidad, Integer entidadId, String detalles,
             String ipAddress) {
+        Timer.Sample inicio = Timer.start(meterRegistry);
         try {
-            Usuario usuario = usuarioRepository.findById(usuarioId)
-                    .orElseThrow(() -> new RuntimeException("Usuario no encontrado ID: " + usuarioId));
-
-            AuditLog auditLog = AuditLog.builder()
-                    .usuario(usuario)
-                    .accion(accion)
-                    .entidad(entidad)
-                    .entidadId(entidadId)
-                    .detalles(detalles)
-                    .ipAddress(ipAddress)
-                    .build();
-
-            auditLogRepository.save(auditLog);
+            auditLogWriter.encolar(usuarioId, accion, entidad, entidadId, detalles, ipAddress);
+            inicio.stop(encolados);
         } catch (Exception e) {
+            inicio.stop(fallidos);
             // Log the error but don't fail the main transaction
             System.err.println("Error al registrar auditoría: " + e.getMessage());
         }
     }
 
     @Override
-    @Transactional(readOnly = true)
+    @LecturaEnReplica
     public Page<AuditLogDTO> getHistorialUsuario(Integer usuarioId, Pageable pageable) {
         Usuario usuario = usuarioRepository.findById(usuarioId)
                 .orElseThrow(() -> new RuntimeException("Usuario no encontrado ID: " + usuarioId));
@@ -67,21 +73,21 @@ public class AuditLogServiceImpl implements AuditLogService {
     }
 
     @Override
-    @Transactional(readOnly = true)
+    @LecturaEnReplica
     public Page<AuditLogDTO> getHistorialEntidad(String entidad, Integer entidadId, Pageable pageable) {
         return auditLogRepository.findByEntidadAndEntidadIdOrderByFechaAccionDesc(entidad, entidadId, pageable)
                 .map(this::convertToDTO);
     }
 
     @Override
-    @Transactional(readOnly = true)
+    @LecturaEnReplica
     public Page<AuditLogDTO> getUltimasSesiones(Pageable pageable) {
         return auditLogRepository.findByAccionOrderByFechaAccionDesc(TipoAccion.LOGIN, pageable)
                 .map(this::convertToDTO);
     }
 
     @Override
-    @Transactional(readOnly = true)
+    @LecturaEnReplica
     public Page<AuditLogDTO> getAllAuditLogs(Pageable pageable) {
         return auditLogRepository.findAllByOrderByFechaAccionDesc(pageable)
                 .map(this::convertToDTO);
@@ -0,0 +1,209 @@
+package com.libreria.libreria.service.impl;
+
+import com.libreria.libreria.model.enums.TipoAccion;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Escritor asíncrono de auditoría: los eventos se encolan en memoria y un hilo
+ * en segundo plano los inserta por lotes JDBC, sin abrir una transacción ni una
+ * conexión extra por cada acción auditada.
+ */
+@Component
+public class AuditLogWriter {
+
+    /**
+     * Qué hacer cuando la cola está llena
+     */
+    public enum PoliticaSaturacion {
+        // Se pierde el evento y se cuenta como descartado
+        DESCARTAR,
+        // Se espera hasta auditoria.saturacion.espera-ms y luego se descarta
+        BLOQUEAR,
+        // El hilo que audita escribe el evento directamente, en su propia transacción
+        EJECUTAR_EN_LLAMADOR
+    }
+
+    private record Evento(Integer usuarioId, TipoAccion accion, String entidad, Integer entidadId, String detalles,
+            LocalDateTime fechaAccion, String ipAddress) {
+    }
+
+    private static final String SQL_INSERT = "INSERT INTO audit_logs " +
+            "(usuario_id, accion, entidad, entidad_id, detalles, fecha_accion, ip_address) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transaccionPropia;
+    private final BlockingQueue<Evento> cola;
+    private final int tamanoLote;
+    private final long intervaloFlushMs;
+    private final PoliticaSaturacion politica;
+    private final long esperaMs;
+    private final ScheduledExecutorService executor;
+
+    private final Counter descartados;
+    private final Counter escritos;
+    private final Counter fallidos;
+
+    public AuditLogWriter(JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${auditoria.cola.capacidad:10000}") int capacidad,
+            @Value("${auditoria.lote.tamano:200}") int tamanoLote,
+            @Value("${auditoria.flush.intervalo-ms:500}") long intervaloFlushMs,
+            @Value("${auditoria.saturacion.politica:EJECUTAR_EN_LLAMADOR}") PoliticaSaturacion politica,
+            @Value("${auditoria.saturacion.espera-ms:50}") long esperaMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transaccionPropia = new TransactionTemplate(transactionManager);
+        this.transaccionPropia.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.cola = new ArrayBlockingQueue<>(capacidad);
+        this.tamanoLote = tamanoLote;
+        this.intervaloFlushMs = intervaloFlushMs;
+        this.politica = politica;
+        this.esperaMs = esperaMs;
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread hilo = new Thread(r, "audit-writer");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+
+        Gauge.builder("auditoria.cola.profundidad", cola, BlockingQueue::size)
+                .description("Eventos de auditoría pendientes de escribir")
+                .register(meterRegistry);
+        this.descartados = Counter.builder("auditoria.eventos.descartados")
+                .description("Eventos perdidos por cola llena")
+                .register(meterRegistry);
+        this.escritos = Counter.builder("auditoria.eventos.escritos")
+                .register(meterRegistry);
+        this.fallidos = Counter.builder("auditoria.eventos.fallidos")
+                .description("Eventos rechazados por la base de datos")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void iniciar() {
+        executor.scheduleWithFixedDelay(this::flushSeguro, intervaloFlushMs, intervaloFlushMs,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Vacía la cola antes de que se cierre el DataSource
+     */
+    @PreDestroy
+    void detener() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+        flush();
+    }
+
+    public void encolar(Integer usuarioId, TipoAccion accion, String entidad, Integer entidadId, String detalles,
+            String ipAddress) {
+        Evento evento = new Evento(usuarioId, accion, entidad, entidadId, detalles, LocalDateTime.now(), ipAddress);
+
+        if (cola.offer(evento)) {
+            return;
+        }
+
+        switch (politica) {
+            case BLOQUEAR:
+                try {
+                    if (cola.offer(evento, esperaMs, TimeUnit.MILLISECONDS)) {
+                        return;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                descartados.increment();
+                break;
+            case EJECUTAR_EN_LLAMADOR:
+                escribir(List.of(evento));
+                break;
+            case DESCARTAR:
+            default:
+                descartados.increment();
+                break;
+        }
+    }
+
+    private void flushSeguro() {
+        try {
+            flush();
+        } catch (Exception e) {
+            // Never let an exception cancel the scheduled task
+            System.err.println("Error al escribir lote de auditoría: " + e.getMessage());
+        }
+    }
+
+    private void flush() {
+        List<Evento> lote = new ArrayList<>(tamanoLote);
+        while (cola.drainTo(lote, tamanoLote) > 0) {
+            escribir(lote);
+            lote.clear();
+        }
+    }
+
+    private void escribir(List<Evento> lote) {
+        try {
+            if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                // A failed insert aborts the whole PostgreSQL transaction, so it must not
+                // run in the audited action's one or its commit would fail too
+                transaccionPropia.executeWithoutResult(estado -> insertar(lote));
+            } else {
+                insertar(lote);
+            }
+            escritos.increment(lote.size());
+        } catch (Exception e) {
+            if (lote.size() == 1) {
+                fallidos.increment();
+                System.err.println("Error al registrar auditoría: " + e.getMessage());
+                return;
+            }
+            // One bad row (e.g. unknown usuario_id) must not lose the whole batch
+            for (Evento evento : lote) {
+                escribir(List.of(evento));
+            }
+        }
+    }
+
+    private void insertar(List<Evento> lote) {
+        jdbcTemplate.batchUpdate(SQL_INSERT, lote.stream().map(this::parametros).toList(), tiposParametros());
+    }
+
+    private Object[] parametros(Evento evento) {
+        return new Object[] {
+                evento.usuarioId(),
+                evento.accion().name(),
+                evento.entidad(),
+                evento.entidadId(),
+                evento.detalles(),
+                Timestamp.valueOf(evento.fechaAccion()),
+                evento.ipAddress()
+        };
+    }
+
+    private int[] tiposParametros() {
+        return new int[] { Types.INTEGER, Types.VARCHAR, Types.VARCHAR, Types.INTEGER, Types.VARCHAR,
+                Types.TIMESTAMP, Types.VARCHAR };
+    }
+}
@@ -0,0 +1,106 @@
+package com.libreria.libreria.service.impl;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+/**
+ * Regiones de la caché de segundo nivel de Hibernate para las entidades de
+ * referencia (ver application.conf). Hibernate las mantiene al día con
+ * lo que se escribe por JPA; los servicios además descartan la región, o el
+ * cliente modificado, cuando se confirma el cambio. Publica aciertos y fallos
+ * por región.
+ */
+@Component
+public class CacheReferencias {
+
+    public static final String CATEGORIAS = "categorias";
+    public static final String UBICACIONES = "ubicaciones";
+    public static final String ROLES = "roles";
+    public static final String CLIENTES = "clientes";
+
+    // Query result region kept next to each entity region that has cached queries
+    private static final String CONSULTAS = "-consultas";
+    private static final List<String> CON_CONSULTAS = List.of(CATEGORIAS, UBICACIONES, ROLES);
+
+    private final SessionFactory sessionFactory;
+
+    public CacheReferencias(EntityManagerFactory entityManagerFactory, MeterRegistry meterRegistry) {
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+
+        Statistics estadisticas = sessionFactory.getStatistics();
+        for (String region : List.of(CATEGORIAS, UBICACIONES, ROLES, CLIENTES)) {
+            registrar(meterRegistry, estadisticas, region);
+            if (CON_CONSULTAS.contains(region)) {
+                registrar(meterRegistry, estadisticas, region + CONSULTAS);
+            }
+        }
+    }
+
+    /** Descarta la región completa, con sus consultas, al confirmar la transacción. */
+    public void evictar(String region) {
+        alConfirmar(() -> {
+            sessionFactory.getCache().evictRegion(region);
+            if (CON_CONSULTAS.contains(region)) {
+                sessionFactory.getCache().evictQueryRegion(region + CONSULTAS);
+            }
+        });
+    }
+
+    /** Descarta una sola entidad al confirmar la transacción. */
+    public void evictar(Class<?> entidad, Object id) {
+        alConfirmar(() -> sessionFactory.getCache().evictEntityData(entidad, id));
+    }
+
+    private static void registrar(MeterRegistry meterRegistry, Statistics estadisticas, String region) {
+        FunctionCounter.builder("cache.referencias", estadisticas,
+                        s -> contar(s, region, CacheRegionStatistics::getHitCount))
+                .tag("region", region)
+                .tag("resultado", "acierto")
+                .register(meterRegistry);
+        FunctionCounter.builder("cache.referencias", estadisticas,
+                        s -> contar(s, region, CacheRegionStatistics::getMissCount))
+                .tag("region", region)
+                .tag("resultado", "fallo")
+                .register(meterRegistry);
+        Gauge.builder("cache.referencias.tasa.aciertos", estadisticas, s -> tasaAciertos(
+                        contar(s, region, CacheRegionStatistics::getHitCount),
+                        contar(s, region, CacheRegionStatistics::getMissCount)))
+                .tag("region", region)
+                .register(meterRegistry);
+    }
+
+    private static double tasaAciertos(long aciertos, long fallos) {
+        long total = aciertos + fallos;
+        return total == 0 ? 0 : (double) aciertos / total;
+    }
+
+    // A query region is only created on its first use
+    private static long contar(Statistics estadisticas, String region, ToLongFunction<CacheRegionStatistics> valor) {
+        CacheRegionStatistics regionEstadisticas = estadisticas.getCacheRegionStatistics(region);
+        return regionEstadisticas == null ? 0 : valor.applyAsLong(regionEstadisticas);
+    }
+
+    private void alConfirmar(Runnable accion) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    accion.run();
+                }
+            });
+        } else {
+            accion.run();
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.libreria.libreria.service.impl;
+
+import com.libreria.libreria.dto.ProductoDTO;
+import com.libreria.libreria.repository.ProductoStockRepository.StockActualizado;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Supplier;
+
+/**
+ * Catálogo en memoria de los productos activos. Se carga una vez desde la base
+ * de datos y después se mantiene al día producto a producto cuando se crean,
+ * editan o eliminan productos y cuando una venta mueve el stock.
+ *
+ * Los ProductoDTO guardados nunca se modifican: cada cambio reemplaza la
+ * entrada por una copia nueva. El índice de búsqueda solo guarda IDs y textos,
+ * así que los cambios de stock no lo tocan.
+ *
+ * El stock llega ya leído por la transacción que lo escribió, con su versión
+ * (ver ProductoStockRepository), y se aplica al confirmar sin volver a la base
+ * de datos. Si dos cajas confirman en distinto orden del que escribieron, gana
+ * siempre la versión mayor.
+ */
+@Component
+public class CatalogoProductosCache {
+
+    /** Producto leído de la base de datos con la versión de su stock. */
+    public record ProductoCargado(ProductoDTO producto, long versionStock) {
+    }
+
+    // Ordered by productoId, like the original findAll
+    private final ConcurrentSkipListMap<Integer, ProductoDTO> productos = new ConcurrentSkipListMap<>();
+    private final IndiceBusquedaProductos indice = new IndiceBusquedaProductos();
+    private final Object lock = new Object();
+
+    // Newest stock seen per product, also before the first load; guarded by lock
+    private final Map<Integer, StockActualizado> stocks = new HashMap<>();
+
+    private volatile boolean cargado = false;
+    private volatile List<ProductoDTO> lista = List.of();
+    private volatile boolean listaVigente = false;
+
+    public List<ProductoDTO> listar(Supplier<List<ProductoCargado>> cargador) {
+        cargarSiHaceFalta(cargador);
+
+        if (!listaVigente) {
+            synchronized (lock) {
+                if (!listaVigente) {
+                    lista = List.copyOf(productos.values());
+                    listaVigente = true;
+                }
+            }
+        }
+        return lista;
+    }
+
+    public Optional<ProductoDTO> obtener(Integer productoId, Supplier<List<ProductoCargado>> cargador) {
+        cargarSiHaceFalta(cargador);
+        return Optional.ofNullable(productos.get(productoId));
+    }
+
+    public List<ProductoDTO> buscar(String texto, int limite, Supplier<List<ProductoCargado>> cargador) {
+        cargarSiHaceFalta(cargador);
+
+        List<ProductoDTO> resultado = new ArrayList<>();
+        for (Integer productoId : indice.buscar(texto, limite)) {
+            ProductoDTO producto = productos.get(productoId);
+            if (producto != null) {
+                resultado.add(producto);
+            }
+        }
+        return resultado;
+    }
+
+    /**
+     * Publica el producto guardado cuando la transacción se confirma. Los
+     * productos inactivos salen del catálogo.
+     *
+     * @param stock stock del producto al guardarlo, de versionarStock
+     */
+    public void actualizar(ProductoDTO producto, StockActualizado stock) {
+        alConfirmar(() -> {
+            synchronized (lock) {
+                // A sale may have committed after this edit
+                StockActualizado vigente = registrar(stock);
+                if (!cargado) {
+                    return;
+                }
+                if (Boolean.TRUE.equals(producto.getActivo())) {
+                    productos.put(producto.getProductoId(),
+                            producto.toBuilder().cantidadStock(vigente.cantidadStock()).build());
+                    indice.indexar(producto);
+                } else {
+                    productos.remove(producto.getProductoId());
+                    indice.quitar(producto.getProductoId());
+                }
+                listaVigente = false;
+            }
+        });
+    }
+
+    /**
+     * Aplica el stock escrito por la transacción actual cuando se confirma. Los
+     * valores vienen del propio UPDATE, así que no se consulta la base de datos;
+     * un valor con versión menor que la conocida llegó tarde y se ignora.
+     */
+    public void refrescarStock(Collection<StockActualizado> actualizados) {
+        if (actualizados.isEmpty()) {
+            return;
+        }
+
+        List<StockActualizado> copia = List.copyOf(actualizados);
+        alConfirmar(() -> {
+            synchronized (lock) {
+                for (StockActualizado stock : copia) {
+                    StockActualizado vigente = registrar(stock);
+                    productos.computeIfPresent(vigente.productoId(),
+                            (id, actual) -> actual.toBuilder().cantidadStock(vigente.cantidadStock()).build());
+                }
+                listaVigente = false;
+            }
+        });
+    }
+
+    // Keeps the newest of the known and the given stock and returns it
+    private StockActualizado registrar(StockActualizado stock) {
+        return stocks.merge(stock.productoId(), stock,
+                (conocido, nuevo) -> nuevo.version() > conocido.version() ? nuevo : conocido);
+    }
+
+    private void cargarSiHaceFalta(Supplier<List<ProductoCargado>> cargador) {
+        if (cargado) {
+            return;
+        }
+        synchronized (lock) {
+            if (!cargado) {
+                // Sales confirmed before the snapshot may already be in stocks, later ones
+                // wait for the lock; the higher version wins either way
+                for (ProductoCargado cargadoDeBase : cargador.get()) {
+                    ProductoDTO producto = cargadoDeBase.producto();
+                    StockActualizado vigente = registrar(new StockActualizado(producto.getProductoId(),
+                            producto.getCantidadStock(), cargadoDeBase.versionStock()));
+                    productos.put(producto.getProductoId(),
+                            producto.toBuilder().cantidadStock(vigente.cantidadStock()).build());
+                    indice.indexar(producto);
+                }
+                cargado = true;
+                listaVigente = false;
+            }
+        }
+    }
+
+    private void alConfirmar(Runnable accion) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    accion.run();
+                }
+            });
+        } else {
+            accion.run();
+        }
+    }
+}
@@ -15,10 +15,12 @@ import java.util.stream.Collectors;
 public class CategoriaServiceImpl implements CategoriaService {
 
     private final CategoriaRepository categoriaRepository;
+    private final CacheReferencias cacheReferencias;
 
     @Autowired
-    public CategoriaServiceImpl(CategoriaRepository categoriaRepository) {
+    public CategoriaServiceImpl(CategoriaRepository categoriaRepository, CacheReferencias cacheReferencias) {
         this.categoriaRepository = categoriaRepository;
+        this.cacheReferencias = cacheReferencias;
     }
 
     @Override
@@ -42,7 +44,9 @@ public class CategoriaServiceImpl implements CategoriaService {
                 .nombre(dto.getNombre())
                 .descripcion(dto.getDescripcion())
                 .build();
-        return mapToDTO(categoriaRepository.save(categoria));
+        CategoriaDTO creada = mapToDTO(categoriaRepository.save(categoria));
+        cacheReferencias.evictar(CacheReferencias.CATEGORIAS);
+        return creada;
     }
 
     @Override
@@ -54,7 +58,9 @@ public class CategoriaServiceImpl implements CategoriaService {
         categoria.setNombre(dto.getNombre());
         categoria.setDescripcion(dto.getDescripcion());
 
-        return mapToDTO(categoriaRepository.save(categoria));
+        CategoriaDTO actualizada = mapToDTO(categoriaRepository.save(categoria));
+        cacheReferencias.evictar(CacheReferencias.CATEGORIAS);
+        return actualizada;
     }
 
     @Override
@@ -64,6 +70,7 @@ public class CategoriaServiceImpl implements CategoriaService {
             throw new RuntimeException("Categoría no encontrada con ID: " + id);
         }
         categoriaRepository.deleteById(id);
+        cacheReferencias.evictar(CacheReferencias.CATEGORIAS);
     }
 
     private CategoriaDTO mapToDTO(Categoria categoria) {
@@ -19,11 +19,14 @@ public class ClienteServiceImpl implements ClienteService {
 
     private final ClienteRepository clienteRepository;
     private final AuditLogService auditLogService;
+    private final CacheReferencias cacheReferencias;
 
     @Autowired
-    public ClienteServiceImpl(ClienteRepository clienteRepository, AuditLogService auditLogService) {
+    public ClienteServiceImpl(ClienteRepository clienteRepository, AuditLogService auditLogService,
+            CacheReferencias cacheReferencias) {
         this.clienteRepository = clienteRepository;
         this.auditLogService = auditLogService;
+        this.cacheReferencias = cacheReferencias;
     }
 
     @Override
@@ -77,6 +80,7 @@ public class ClienteServiceImpl implements ClienteService {
             }
 
             Cliente updated = clienteRepository.save(existingCliente);
+            cacheReferencias.evictar(Cliente.class, updated.getClienteId());
 
             // Audit log
             try {
@@ -97,6 +101,7 @@ public class ClienteServiceImpl implements ClienteService {
         clienteRepository.findById(id).ifPresent(cliente -> {
             cliente.setActivo(false);
             clienteRepository.save(cliente);
+            cacheReferencias.evictar(Cliente.class, cliente.getClienteId());
 
             // Audit log
             try {
@@ -0,0 +1,209 @@
+package com.libreria.libreria.service.impl;
+
+import com.libreria.libreria.model.enums.FormatoExportacion;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Escribe la exportación de ventas fila por fila, sin acumular nada en memoria.
+ *
+ * CSV: una línea por detalle, repitiendo los datos de la venta.
+ * NDJSON: una línea por venta con sus detalles anidados; las filas deben llegar
+ * ordenadas por venta, de modo que solo se mantiene abierta la venta actual.
+ */
+public class EscritorVentas {
+
+    /**
+     * Una fila de Ventas unida a uno de sus detalles (los campos del detalle son
+     * null si la venta no tiene detalles).
+     */
+    public record Fila(Integer ventaId, LocalDateTime fechaVenta, Integer sesionId, Integer usuarioId,
+            String usuario, Integer clienteId, String cliente, String metodoPago, String estado,
+            BigDecimal montoTotal, String motivoAnulacion, LocalDateTime fechaAnulacion,
+            Integer detalleId, Integer productoId, String sku, String producto, Integer cantidad,
+            BigDecimal precioUnitario, BigDecimal descuento, BigDecimal subtotal) {
+    }
+
+    private static final String CABECERA_CSV = "venta_id,fecha_venta,sesion_id,usuario_id,usuario,cliente_id,"
+            + "cliente,metodo_pago,estado,monto_total,motivo_anulacion,fecha_anulacion,detalle_id,producto_id,"
+            + "sku,producto,cantidad,precio_unitario,descuento,subtotal\r\n";
+
+    private final Writer writer;
+    private final FormatoExportacion formato;
+
+    private Integer ventaAbierta;
+    private boolean primerDetalle;
+    private long ventas;
+
+    public EscritorVentas(Writer writer, FormatoExportacion formato) {
+        this.writer = writer;
+        this.formato = formato;
+    }
+
+    public void iniciar() throws IOException {
+        if (formato == FormatoExportacion.CSV) {
+            writer.write(CABECERA_CSV);
+        }
+    }
+
+    public void escribir(Fila fila) throws IOException {
+        if (formato == FormatoExportacion.CSV) {
+            escribirCsv(fila);
+        } else {
+            escribirJson(fila);
+        }
+    }
+
+    /**
+     * Cierra la última venta pendiente y vacía el buffer.
+     *
+     * @return cantidad de ventas escritas
+     */
+    public long terminar() throws IOException {
+        if (formato == FormatoExportacion.NDJSON && ventaAbierta != null) {
+            writer.write("]}\n");
+            ventaAbierta = null;
+        }
+        writer.flush();
+        return ventas;
+    }
+
+    private void escribirCsv(Fila fila) throws IOException {
+        if (!fila.ventaId().equals(ventaAbierta)) {
+            ventaAbierta = fila.ventaId();
+            ventas++;
+        }
+
+        campoCsv(fila.ventaId(), false);
+        campoCsv(fila.fechaVenta(), false);
+        campoCsv(fila.sesionId(), false);
+        campoCsv(fila.usuarioId(), false);
+        campoCsv(fila.usuario(), false);
+        campoCsv(fila.clienteId(), false);
+        campoCsv(fila.cliente(), false);
+        campoCsv(fila.metodoPago(), false);
+        campoCsv(fila.estado(), false);
+        campoCsv(fila.montoTotal(), false);
+        campoCsv(fila.motivoAnulacion(), false);
+        campoCsv(fila.fechaAnulacion(), false);
+        campoCsv(fila.detalleId(), false);
+        campoCsv(fila.productoId(), false);
+        campoCsv(fila.sku(), false);
+        campoCsv(fila.producto(), false);
+        campoCsv(fila.cantidad(), false);
+        campoCsv(fila.precioUnitario(), false);
+        campoCsv(fila.descuento(), false);
+        campoCsv(fila.subtotal(), true);
+    }
+
+    private void campoCsv(Object valor, boolean ultimo) throws IOException {
+        if (valor instanceof String texto) {
+            // Spreadsheets run cells starting with these characters as formulas
+            if (!texto.isEmpty() && "=+-@".indexOf(texto.charAt(0)) >= 0) {
+                texto = "'" + texto;
+            }
+            if (texto.indexOf(',') >= 0 || texto.indexOf('"') >= 0 || texto.indexOf('\n') >= 0
+                    || texto.indexOf('\r') >= 0) {
+                writer.write('"');
+                writer.write(texto.replace("\"", "\"\""));
+                writer.write('"');
+            } else {
+                writer.write(texto);
+            }
+        } else if (valor != null) {
+            writer.write(formatear(valor));
+        }
+        writer.write(ultimo ? "\r\n" : ",");
+    }
+
+    private void escribirJson(Fila fila) throws IOException {
+        if (!fila.ventaId().equals(ventaAbierta)) {
+            if (ventaAbierta != null) {
+                writer.write("]}\n");
+            }
+            ventaAbierta = fila.ventaId();
+            primerDetalle = true;
+            ventas++;
+
+            writer.write('{');
+            campoJson("ventaId", fila.ventaId(), true);
+            campoJson("fechaVenta", fila.fechaVenta(), false);
+            campoJson("sesionId", fila.sesionId(), false);
+            campoJson("usuarioId", fila.usuarioId(), false);
+            campoJson("usuario", fila.usuario(), false);
+            campoJson("clienteId", fila.clienteId(), false);
+            campoJson("cliente", fila.cliente(), false);
+            campoJson("metodoPago", fila.metodoPago(), false);
+            campoJson("estado", fila.estado(), false);
+            campoJson("montoTotal", fila.montoTotal(), false);
+            campoJson("motivoAnulacion", fila.motivoAnulacion(), false);
+            campoJson("fechaAnulacion", fila.fechaAnulacion(), false);
+            writer.write(",\"detalles\":[");
+        }
+
+        if (fila.detalleId() == null) {
+            return;
+        }
+        if (!primerDetalle) {
+            writer.write(',');
+        }
+        primerDetalle = false;
+
+        writer.write('{');
+        campoJson("detalleId", fila.detalleId(), true);
+        campoJson("productoId", fila.productoId(), false);
+        campoJson("sku", fila.sku(), false);
+        campoJson("producto", fila.producto(), false);
+        campoJson("cantidad", fila.cantidad(), false);
+        campoJson("precioUnitario", fila.precioUnitario(), false);
+        campoJson("descuento", fila.descuento(), false);
+        campoJson("subtotal", fila.subtotal(), false);
+        writer.write('}');
+    }
+
+    private void campoJson(String nombre, Object valor, boolean primero) throws IOException {
+        if (!primero) {
+            writer.write(',');
+        }
+        writer.write('"');
+        writer.write(nombre);
+        writer.write("\":");
+
+        if (valor == null) {
+            writer.write("null");
+        } else if (valor instanceof Number) {
+            writer.write(formatear(valor));
+        } else {
+            textoJson(formatear(valor));
+        }
+    }
+
+    private void textoJson(String texto) throws IOException {
+        writer.write('"');
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            switch (c) {
+                case '"' -> writer.write("\\\"");
+                case '\\' -> writer.write("\\\\");
+                case '\n' -> writer.write("\\n");
+                case '\r' -> writer.write("\\r");
+                case '\t' -> writer.write("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        writer.write(String.format("\\u%04x", (int) c));
+                    } else {
+                        writer.write(c);
+                    }
+                }
+            }
+        }
+        writer.write('"');
+    }
+
+    private static String formatear(Object valor) {
+        return valor instanceof BigDecimal decimal ? decimal.toPlainString() : valor.toString();
+    }
+}
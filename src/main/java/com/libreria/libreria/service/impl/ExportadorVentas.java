@@ -0,0 +1,110 @@
+package com.libreria.libreria.service.impl;
+
+import com.libreria.libreria.model.enums.FormatoExportacion;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+/**
+ * Exporta ventas y sus detalles leyendo la consulta con un cursor de la base de
+ * datos (fetch size) y escribiendo cada fila directamente a la salida, así que
+ * la memoria usada no depende de la cantidad de ventas.
+ *
+ * PostgreSQL solo usa el cursor dentro de una transacción (autocommit
+ * apagado); quien llama debe abrirla.
+ */
+@Component
+public class ExportadorVentas {
+
+    private static final String SQL_EXPORTAR = "SELECT v.venta_id, v.fecha_venta, v.sesion_id, v.usuario_id, " +
+            "u.nombre_completo AS usuario, v.cliente_id, c.nombre_completo AS cliente, v.metodo_pago, v.estado, " +
+            "v.monto_total, v.motivo_anulacion, v.fecha_anulacion, d.detalle_id, d.producto_id, p.sku, " +
+            "p.nombre AS producto, d.cantidad, d.precio_unitario, d.descuento, d.subtotal " +
+            "FROM ventas v " +
+            "JOIN usuarios u ON u.usuario_id = v.usuario_id " +
+            "JOIN clientes c ON c.cliente_id = v.cliente_id " +
+            // Bounded on its own fecha_venta so only the months exported are read
+            "LEFT JOIN detalle_ventas d ON d.venta_id = v.venta_id AND d.fecha_venta = v.fecha_venta " +
+            "AND d.fecha_venta >= ? AND d.fecha_venta <= ? " +
+            "LEFT JOIN productos p ON p.producto_id = d.producto_id " +
+            "WHERE v.fecha_venta >= ? AND v.fecha_venta <= ? " +
+            "ORDER BY v.fecha_venta, v.venta_id, d.detalle_id";
+
+    private static final int TAMANO_BUFFER = 64 * 1024;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ExportadorVentas(DataSource dataSource,
+            @Value("${ventas.exportacion.fetch-size:1000}") int fetchSize) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(fetchSize);
+    }
+
+    /**
+     * Escribe las ventas entre las dos fechas (ambas inclusive) en el formato
+     * indicado. No cierra la salida.
+     *
+     * @return cantidad de ventas exportadas
+     */
+    public long exportar(LocalDateTime fechaInicio, LocalDateTime fechaFin, FormatoExportacion formato,
+            OutputStream salida) {
+        try {
+            BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(salida, StandardCharsets.UTF_8),
+                    TAMANO_BUFFER);
+            EscritorVentas escritor = new EscritorVentas(writer, formato);
+
+            escritor.iniciar();
+            jdbcTemplate.query(SQL_EXPORTAR, rs -> {
+                try {
+                    escritor.escribir(leerFila(rs));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, Timestamp.valueOf(fechaInicio), Timestamp.valueOf(fechaFin), Timestamp.valueOf(fechaInicio),
+                    Timestamp.valueOf(fechaFin));
+            return escritor.terminar();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static EscritorVentas.Fila leerFila(ResultSet rs) throws SQLException {
+        return new EscritorVentas.Fila(
+                rs.getInt("venta_id"),
+                fecha(rs.getTimestamp("fecha_venta")),
+                rs.getInt("sesion_id"),
+                rs.getInt("usuario_id"),
+                rs.getString("usuario"),
+                rs.getInt("cliente_id"),
+                rs.getString("cliente"),
+                rs.getString("metodo_pago"),
+                rs.getString("estado"),
+                rs.getBigDecimal("monto_total"),
+                rs.getString("motivo_anulacion"),
+                fecha(rs.getTimestamp("fecha_anulacion")),
+                rs.getObject("detalle_id", Integer.class),
+                rs.getObject("producto_id", Integer.class),
+                rs.getString("sku"),
+                rs.getString("producto"),
+                rs.getObject("cantidad", Integer.class),
+                rs.getBigDecimal("precio_unitario"),
+                rs.getBigDecimal("descuento"),
+                rs.getBigDecimal("subtotal"));
+    }
+
+    private static LocalDateTime fecha(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+}
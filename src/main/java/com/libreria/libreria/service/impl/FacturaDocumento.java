@@ -0,0 +1,60 @@
+package com.libreria.libreria.service.impl;
+
+import com.libreria.libreria.model.DetalleVenta;
+import com.libreria.libreria.model.Venta;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Contenido de la factura de una venta, ya formateado. La factura PDF y el
+ * ticket térmico se generan desde aquí, así que siempre muestran los mismos
+ * datos, montos y textos.
+ */
+public record FacturaDocumento(
+        Integer ventaId,
+        String fecha,
+        String cliente,
+        String nit,
+        String vendedor,
+        String metodoPago,
+        List<Linea> lineas,
+        String total) {
+
+    public static final String NOMBRE_TIENDA = "LIBRERIA MARÍA Y JOSÉ";
+    public static final String TITULO = "FACTURA DE VENTA";
+    public static final String PIE = "¡Gracias por su compra en Librería María y José!";
+
+    private static final DateTimeFormatter FORMATO_FECHA = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
+
+    public record Linea(String producto, String cantidad, String precioUnitario, String subtotal) {
+    }
+
+    public static FacturaDocumento de(Venta venta) {
+        List<Linea> lineas = new ArrayList<>(venta.getDetalles().size());
+        for (DetalleVenta detalle : venta.getDetalles()) {
+            lineas.add(new Linea(
+                    detalle.getProducto().getNombre(),
+                    String.valueOf(detalle.getCantidad()),
+                    moneda(detalle.getPrecioUnitario()),
+                    moneda(detalle.getSubtotal())));
+        }
+
+        return new FacturaDocumento(
+                venta.getVentaId(),
+                FORMATO_FECHA.format(venta.getFechaVenta()),
+                venta.getCliente().getNombreCompleto(),
+                venta.getCliente().getNit() != null ? venta.getCliente().getNit() : "C/F",
+                venta.getUsuario().getNombreCompleto(),
+                String.valueOf(venta.getMetodoPago()),
+                lineas,
+                moneda(venta.getMontoTotal()));
+    }
+
+    static String moneda(BigDecimal valor) {
+        return "Q " + valor.setScale(2, RoundingMode.HALF_UP).toPlainString();
+    }
+}
@@ -0,0 +1,309 @@
+package com.libreria.libreria.service.impl;
+
+import com.libreria.libreria.model.enums.EstadoVenta;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Caché de facturas PDF ya generadas, por venta y estado. Una factura no
+ * cambia mientras la venta no cambie de estado, así que no necesita TTL: la
+ * anulación usa otra clave e invalida la anterior.
+ *
+ * Tiene un nivel en memoria (LRU acotado por bytes) y, si se configura un
+ * directorio, un nivel en disco que sobrevive a reinicios. Los errores del
+ * disco solo se registran; la factura se genera de nuevo.
+ */
+@Component
+public class FacturaPdfCache {
+
+    // Bump whenever FacturaPdfRenderer changes what it prints, so clients drop their copies
+    static final int VERSION_PLANTILLA = 1;
+
+    private record Clave(Integer ventaId, EstadoVenta estado) {
+    }
+
+    private final LinkedHashMap<Clave, byte[]> memoria = new LinkedHashMap<>(64, 0.75f, true);
+    private final long maximoMemoria;
+    private long bytesMemoria;
+
+    private final Path directorio;
+    private final long maximoDisco;
+    private final AtomicLong bytesDisco = new AtomicLong();
+
+    private final Counter aciertosMemoria;
+    private final Counter aciertosDisco;
+    private final Counter fallos;
+
+    public FacturaPdfCache(MeterRegistry meterRegistry,
+            @Value("${ventas.factura-cache.memoria-mb:32}") long memoriaMb,
+            @Value("${ventas.factura-cache.directorio:}") String directorio,
+            @Value("${ventas.factura-cache.disco-mb:512}") long discoMb) {
+        this.maximoMemoria = memoriaMb * 1024 * 1024;
+        this.maximoDisco = discoMb * 1024 * 1024;
+        this.directorio = directorio.isBlank() ? null : prepararDirectorio(Paths.get(directorio));
+
+        this.aciertosMemoria = Counter.builder("ventas.factura.cache")
+                .tag("resultado", "memoria")
+                .register(meterRegistry);
+        this.aciertosDisco = Counter.builder("ventas.factura.cache")
+                .tag("resultado", "disco")
+                .register(meterRegistry);
+        this.fallos = Counter.builder("ventas.factura.cache")
+                .tag("resultado", "fallo")
+                .register(meterRegistry);
+        Gauge.builder("ventas.factura.cache.bytes", this, FacturaPdfCache::bytesEnMemoria)
+                .tag("nivel", "memoria")
+                .register(meterRegistry);
+        Gauge.builder("ventas.factura.cache.bytes", bytesDisco, AtomicLong::get)
+                .tag("nivel", "disco")
+                .register(meterRegistry);
+    }
+
+    /**
+     * ETag de la factura de una venta en un estado. No depende de los bytes del
+     * PDF (que cambian en cada generación por la fecha de creación), así que se
+     * puede responder 304 sin generar ni leer la factura.
+     */
+    public static String etag(Integer ventaId, EstadoVenta estado) {
+        return "\"factura-" + ventaId + "-" + estado.name().toLowerCase() + "-v" + VERSION_PLANTILLA + "\"";
+    }
+
+    /**
+     * Indica si el encabezado If-None-Match del cliente incluye el ETag.
+     */
+    public static boolean coincide(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+        for (String candidato : ifNoneMatch.split(",")) {
+            String valor = candidato.trim();
+            if (valor.startsWith("W/")) {
+                valor = valor.substring(2);
+            }
+            if (valor.equals("*") || valor.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public byte[] obtener(Integer ventaId, EstadoVenta estado) {
+        Clave clave = new Clave(ventaId, estado);
+        synchronized (memoria) {
+            byte[] pdf = memoria.get(clave);
+            if (pdf != null) {
+                aciertosMemoria.increment();
+                return pdf;
+            }
+        }
+
+        byte[] pdf = leerDisco(clave);
+        if (pdf != null) {
+            aciertosDisco.increment();
+            guardarEnMemoria(clave, pdf);
+            return pdf;
+        }
+
+        fallos.increment();
+        return null;
+    }
+
+    public void guardar(Integer ventaId, EstadoVenta estado, byte[] pdf) {
+        Clave clave = new Clave(ventaId, estado);
+        guardarEnMemoria(clave, pdf);
+        escribirDisco(clave, pdf);
+    }
+
+    /**
+     * Descarta las facturas de la venta en todos sus estados. Si hay una
+     * transacción activa se vuelve a descartar al confirmarla, para que una
+     * descarga concurrente no deje en caché la factura anterior al cambio.
+     */
+    public void invalidar(Integer ventaId) {
+        descartar(ventaId);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    descartar(ventaId);
+                }
+            });
+        }
+    }
+
+    private void descartar(Integer ventaId) {
+        for (EstadoVenta estado : EstadoVenta.values()) {
+            Clave clave = new Clave(ventaId, estado);
+            synchronized (memoria) {
+                byte[] anterior = memoria.remove(clave);
+                if (anterior != null) {
+                    bytesMemoria -= anterior.length;
+                }
+            }
+            borrarDisco(clave);
+        }
+    }
+
+    long bytesEnMemoria() {
+        synchronized (memoria) {
+            return bytesMemoria;
+        }
+    }
+
+    private void guardarEnMemoria(Clave clave, byte[] pdf) {
+        if (pdf.length > maximoMemoria) {
+            return;
+        }
+        synchronized (memoria) {
+            byte[] anterior = memoria.put(clave, pdf);
+            bytesMemoria += pdf.length - (anterior != null ? anterior.length : 0);
+
+            var iterador = memoria.values().iterator();
+            while (bytesMemoria > maximoMemoria && iterador.hasNext()) {
+                bytesMemoria -= iterador.next().length;
+                iterador.remove();
+            }
+        }
+    }
+
+    private Path archivo(Clave clave) {
+        return directorio.resolve(clave.ventaId() + "-" + clave.estado().name() + "-v" + VERSION_PLANTILLA + ".pdf");
+    }
+
+    private byte[] leerDisco(Clave clave) {
+        if (directorio == null) {
+            return null;
+        }
+        Path ruta = archivo(clave);
+        try {
+            byte[] pdf = Files.readAllBytes(ruta);
+            // Recently read files are the last ones removed when the disk tier is full
+            Files.setLastModifiedTime(ruta, FileTime.fromMillis(System.currentTimeMillis()));
+            return pdf;
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            System.err.println("No se pudo leer la factura en caché " + ruta + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void escribirDisco(Clave clave, byte[] pdf) {
+        if (directorio == null) {
+            return;
+        }
+        Path ruta = archivo(clave);
+        try {
+            // Write to a temporary file first so a reader never sees a partial PDF
+            Path temporal = Files.createTempFile(directorio, "factura", ".tmp");
+            Files.write(temporal, pdf);
+            long anterior = Files.exists(ruta) ? Files.size(ruta) : 0;
+            try {
+                Files.move(temporal, ruta, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporal, ruta, StandardCopyOption.REPLACE_EXISTING);
+            }
+
+            if (bytesDisco.addAndGet(pdf.length - anterior) > maximoDisco) {
+                recortarDisco();
+            }
+        } catch (IOException e) {
+            System.err.println("No se pudo guardar la factura en caché " + ruta + ": " + e.getMessage());
+        }
+    }
+
+    private void borrarDisco(Clave clave) {
+        if (directorio == null) {
+            return;
+        }
+        Path ruta = archivo(clave);
+        try {
+            long tamano = Files.exists(ruta) ? Files.size(ruta) : 0;
+            if (Files.deleteIfExists(ruta)) {
+                bytesDisco.addAndGet(-tamano);
+            }
+        } catch (IOException e) {
+            System.err.println("No se pudo borrar la factura en caché " + ruta + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Borra los archivos usados hace más tiempo hasta quedar en el 90 % del
+     * máximo, y vuelve a medir el directorio.
+     */
+    private synchronized void recortarDisco() {
+        record Archivo(Path ruta, long tamano, long modificado) {
+        }
+
+        List<Archivo> archivos = new ArrayList<>();
+        try (Stream<Path> rutas = Files.list(directorio)) {
+            for (Path ruta : (Iterable<Path>) rutas.filter(r -> r.toString().endsWith(".pdf"))::iterator) {
+                try {
+                    archivos.add(new Archivo(ruta, Files.size(ruta), Files.getLastModifiedTime(ruta).toMillis()));
+                } catch (IOException e) {
+                    // Removed by another thread in the meantime
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("No se pudo recorrer la caché de facturas: " + e.getMessage());
+            return;
+        }
+
+        long total = archivos.stream().mapToLong(Archivo::tamano).sum();
+        archivos.sort(Comparator.comparingLong(Archivo::modificado));
+        for (Archivo archivo : archivos) {
+            if (total <= maximoDisco * 9 / 10) {
+                break;
+            }
+            try {
+                Files.deleteIfExists(archivo.ruta());
+                total -= archivo.tamano();
+            } catch (IOException e) {
+                System.err.println("No se pudo borrar la factura en caché " + archivo.ruta() + ": "
+                        + e.getMessage());
+            }
+        }
+        bytesDisco.set(total);
+    }
+
+    private Path prepararDirectorio(Path ruta) {
+        try {
+            Files.createDirectories(ruta);
+            try (Stream<Path> rutas = Files.list(ruta)) {
+                bytesDisco.set(rutas.filter(r -> r.toString().endsWith(".pdf")).mapToLong(r -> {
+                    try {
+                        return Files.size(r);
+                    } catch (IOException e) {
+                        return 0;
+                    }
+                }).sum());
+            }
+            return ruta;
+        } catch (IOException e) {
+            System.err.println("Caché de facturas en disco desactivada, no se pudo usar " + ruta + ": "
+                    + e.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,312 @@
+package com.libreria.libreria.service.impl;
+
+import com.libreria.libreria.model.Venta;
+import com.lowagie.text.Document;
+import com.lowagie.text.DocumentException;
+import com.lowagie.text.Element;
+import com.lowagie.text.Font;
+import com.lowagie.text.FontFactory;
+import com.lowagie.text.Image;
+import com.lowagie.text.PageSize;
+import com.lowagie.text.Paragraph;
+import com.lowagie.text.Phrase;
+import com.lowagie.text.Rectangle;
+import com.lowagie.text.pdf.PdfPCell;
+import com.lowagie.text.pdf.PdfPTable;
+import com.lowagie.text.pdf.PdfWriter;
+import com.lowagie.text.pdf.draw.LineSeparator;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Genera la factura en PDF de una venta.
+ *
+ * El logo se busca, decodifica, reduce y comprime una sola vez al crear el
+ * componente, y las fuentes, colores y estilos de celda son constantes
+ * compartidas, así que cada factura solo crea los objetos de su propio
+ * contenido. Es seguro usarlo
+ * desde varios hilos: nada compartido se modifica al generar una factura.
+ */
+@Component
+public class FacturaPdfRenderer {
+
+    private static final Color COLOR_MARCA = new Color(14, 165, 233); // #0ea5e9
+    private static final Color GRIS_CLARO = new Color(241, 245, 249);
+    private static final Color COLOR_BORDE = new Color(226, 232, 240);
+
+    private static final Font FUENTE_TITULO = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 22, COLOR_MARCA);
+    private static final Font FUENTE_SUBTITULO = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 14,
+            Color.DARK_GRAY);
+    private static final Font FUENTE_ENCABEZADO = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 11, Color.WHITE);
+    private static final Font FUENTE_NORMAL = FontFactory.getFont(FontFactory.HELVETICA, 10, Color.BLACK);
+    private static final Font FUENTE_NEGRITA = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 10, Color.BLACK);
+
+    private static final float[] ANCHOS_DETALLE = { 5, 1, 2, 2 };
+    private static final String[] COLUMNAS_DETALLE = { "Producto", "Cant.", "Precio U.", "Subtotal" };
+
+    // Logo box in points, and pixels kept per point (about 216 dpi)
+    private static final float ANCHO_LOGO = 120;
+    private static final float ALTO_LOGO = 60;
+    private static final int PIXELES_POR_PUNTO = 3;
+
+    /** Formato compartido de un tipo de celda. */
+    private record EstiloCelda(Color fondo, Color borde, int bordes, float relleno, int alineacion) {
+
+        PdfPCell crear(Phrase contenido) {
+            PdfPCell celda = new PdfPCell(contenido);
+            aplicar(celda);
+            return celda;
+        }
+
+        void aplicar(PdfPCell celda) {
+            if (fondo != null) {
+                celda.setBackgroundColor(fondo);
+            }
+            if (borde != null) {
+                celda.setBorderColor(borde);
+            }
+            celda.setBorder(bordes);
+            celda.setPadding(relleno);
+            celda.setHorizontalAlignment(alineacion);
+        }
+    }
+
+    private static final EstiloCelda SIN_BORDE = new EstiloCelda(null, null, Rectangle.NO_BORDER, 2,
+            Element.ALIGN_LEFT);
+    private static final EstiloCelda ENCABEZADO = new EstiloCelda(COLOR_MARCA, null, Rectangle.BOX, 8,
+            Element.ALIGN_LEFT);
+    private static final EstiloCelda FILA = new EstiloCelda(Color.WHITE, COLOR_BORDE, Rectangle.BOX, 8,
+            Element.ALIGN_LEFT);
+    private static final EstiloCelda FILA_ALTERNA = new EstiloCelda(GRIS_CLARO, COLOR_BORDE, Rectangle.BOX, 8,
+            Element.ALIGN_LEFT);
+    private static final EstiloCelda TOTAL_ETIQUETA = new EstiloCelda(COLOR_MARCA, null, Rectangle.NO_BORDER, 8,
+            Element.ALIGN_LEFT);
+    private static final EstiloCelda TOTAL_VALOR = new EstiloCelda(null, null, Rectangle.NO_BORDER, 8,
+            Element.ALIGN_RIGHT);
+
+    // Already scaled; null when no logo was found and the store name is printed instead
+    private final Image logo;
+
+    public FacturaPdfRenderer() {
+        this.logo = cargarLogo();
+    }
+
+    FacturaPdfRenderer(Image logo) {
+        this.logo = logo;
+    }
+
+    public byte[] renderizar(Venta venta) {
+        return renderizar(FacturaDocumento.de(venta));
+    }
+
+    public byte[] renderizar(FacturaDocumento factura) {
+        // A one-page invoice is around 3-4 KB without the logo
+        try (ByteArrayOutputStream out = new ByteArrayOutputStream(logo != null ? 32 * 1024 : 8 * 1024)) {
+            Document document = new Document(PageSize.A4);
+            PdfWriter.getInstance(document, out);
+            document.open();
+
+            document.add(encabezado(factura));
+
+            LineSeparator linea = new LineSeparator();
+            linea.setLineColor(COLOR_MARCA);
+            document.add(linea);
+            document.add(espacio());
+
+            document.add(new Paragraph("DATOS DEL CLIENTE", FUENTE_NEGRITA));
+            document.add(new Paragraph("Nombre: " + factura.cliente(), FUENTE_NORMAL));
+            document.add(new Paragraph("NIT: " + factura.nit(), FUENTE_NORMAL));
+            document.add(espacio());
+
+            document.add(new Paragraph("DATOS DE LA VENTA", FUENTE_NEGRITA));
+            document.add(new Paragraph("Vendedor: " + factura.vendedor(), FUENTE_NORMAL));
+            document.add(new Paragraph("Método de Pago: " + factura.metodoPago(), FUENTE_NORMAL));
+            document.add(espacio());
+
+            document.add(detalles(factura));
+            document.add(espacio());
+
+            document.add(total(factura));
+
+            document.add(espacio());
+            Paragraph pie = new Paragraph(FacturaDocumento.PIE, FUENTE_NORMAL);
+            pie.setAlignment(Element.ALIGN_CENTER);
+            document.add(pie);
+
+            document.close();
+            return out.toByteArray();
+        } catch (Exception e) {
+            throw new RuntimeException("Error al generar PDF", e);
+        }
+    }
+
+    private PdfPTable encabezado(FacturaDocumento factura) {
+        PdfPTable tabla = new PdfPTable(2);
+        tabla.setWidthPercentage(100);
+        tabla.setSpacingAfter(20);
+
+        if (logo != null) {
+            // PdfPCell works on its own copy of the image, so the shared one is never modified
+            PdfPCell celdaLogo = new PdfPCell(logo);
+            SIN_BORDE.aplicar(celdaLogo);
+            tabla.addCell(celdaLogo);
+        } else {
+            tabla.addCell(SIN_BORDE.crear(new Phrase(FacturaDocumento.NOMBRE_TIENDA, FUENTE_TITULO)));
+        }
+
+        PdfPCell info = new PdfPCell();
+        SIN_BORDE.aplicar(info);
+        info.setHorizontalAlignment(Element.ALIGN_RIGHT);
+        info.addElement(new Paragraph(FacturaDocumento.TITULO, FUENTE_SUBTITULO));
+        info.addElement(new Paragraph("No. de Factura: #" + factura.ventaId(), FUENTE_NEGRITA));
+        info.addElement(new Paragraph("Fecha: " + factura.fecha(), FUENTE_NORMAL));
+        tabla.addCell(info);
+        return tabla;
+    }
+
+    private PdfPTable detalles(FacturaDocumento factura) throws DocumentException {
+        PdfPTable tabla = new PdfPTable(ANCHOS_DETALLE.length);
+        tabla.setWidthPercentage(100);
+        tabla.setWidths(ANCHOS_DETALLE);
+        tabla.setSpacingBefore(10);
+
+        for (String columna : COLUMNAS_DETALLE) {
+            tabla.addCell(ENCABEZADO.crear(new Phrase(columna, FUENTE_ENCABEZADO)));
+        }
+
+        boolean alterna = false;
+        for (FacturaDocumento.Linea linea : factura.lineas()) {
+            EstiloCelda estilo = alterna ? FILA_ALTERNA : FILA;
+            tabla.addCell(estilo.crear(new Phrase(linea.producto(), FUENTE_NORMAL)));
+            tabla.addCell(estilo.crear(new Phrase(linea.cantidad(), FUENTE_NORMAL)));
+            tabla.addCell(estilo.crear(new Phrase(linea.precioUnitario(), FUENTE_NORMAL)));
+            tabla.addCell(estilo.crear(new Phrase(linea.subtotal(), FUENTE_NORMAL)));
+            alterna = !alterna;
+        }
+        return tabla;
+    }
+
+    private PdfPTable total(FacturaDocumento factura) {
+        PdfPTable tabla = new PdfPTable(2);
+        tabla.setWidthPercentage(40);
+        tabla.setHorizontalAlignment(Element.ALIGN_RIGHT);
+        tabla.addCell(TOTAL_ETIQUETA.crear(new Phrase("TOTAL:", FUENTE_ENCABEZADO)));
+        tabla.addCell(TOTAL_VALOR.crear(new Phrase(factura.total(), FUENTE_SUBTITULO)));
+        return tabla;
+    }
+
+    private static Paragraph espacio() {
+        return new Paragraph(" ");
+    }
+
+    private static Image cargarLogo() {
+        try {
+            byte[] bytes = leerLogo();
+            if (bytes == null) {
+                System.out.println("Logo de factura no encontrado; se usará el nombre de la tienda");
+                return null;
+            }
+            BufferedImage original = ImageIO.read(new ByteArrayInputStream(bytes));
+            if (original == null) {
+                // Format ImageIO cannot read: let OpenPDF handle it as before
+                Image imagen = Image.getInstance(bytes);
+                imagen.scaleToFit(ANCHO_LOGO, ALTO_LOGO);
+                return imagen;
+            }
+            return prepararLogo(original);
+        } catch (Exception e) {
+            System.err.println("No se pudo cargar el logo de factura: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Reduce el logo a la resolución con que se imprime y guarda sus pixeles ya
+     * comprimidos. OpenPDF copia tal cual una imagen marcada como comprimida, en
+     * vez de volver a comprimir el PNG completo en cada factura.
+     */
+    static Image prepararLogo(BufferedImage original) throws Exception {
+        double escala = Math.min(ANCHO_LOGO / original.getWidth(), ALTO_LOGO / original.getHeight());
+        int ancho = (int) Math.max(1, Math.min(original.getWidth(),
+                Math.round(original.getWidth() * escala * PIXELES_POR_PUNTO)));
+        int alto = (int) Math.max(1, Math.min(original.getHeight(),
+                Math.round(original.getHeight() * escala * PIXELES_POR_PUNTO)));
+        boolean transparente = original.getColorModel().hasAlpha();
+
+        BufferedImage reducida = new BufferedImage(ancho, alto,
+                transparente ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = reducida.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+        g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        g.drawImage(original, 0, 0, ancho, alto, null);
+        g.dispose();
+
+        byte[] rgb = new byte[ancho * alto * 3];
+        byte[] alfa = new byte[ancho * alto];
+        int[] pixeles = reducida.getRGB(0, 0, ancho, alto, null, 0, ancho);
+        for (int i = 0; i < pixeles.length; i++) {
+            rgb[i * 3] = (byte) (pixeles[i] >> 16);
+            rgb[i * 3 + 1] = (byte) (pixeles[i] >> 8);
+            rgb[i * 3 + 2] = (byte) pixeles[i];
+            alfa[i] = (byte) (pixeles[i] >>> 24);
+        }
+
+        Image logo = Image.getInstance(ancho, alto, 3, 8, comprimir(rgb));
+        logo.setDeflated(true);
+        if (transparente) {
+            Image mascara = Image.getInstance(ancho, alto, 1, 8, comprimir(alfa));
+            mascara.makeMask();
+            mascara.setDeflated(true);
+            logo.setImageMask(mascara);
+        }
+        logo.scaleToFit(ANCHO_LOGO, ALTO_LOGO);
+        return logo;
+    }
+
+    private static byte[] comprimir(byte[] datos) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            try (DeflaterOutputStream zip = new DeflaterOutputStream(out, deflater)) {
+                zip.write(datos);
+            }
+            return out.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] leerLogo() throws IOException {
+        try (InputStream recurso = FacturaPdfRenderer.class.getResourceAsStream("/static/logo.png")) {
+            if (recurso != null) {
+                return recurso.readAllBytes();
+            }
+        }
+
+        String userDir = System.getProperty("user.dir");
+        for (Path ruta : new Path[] {
+                Paths.get(userDir, "frontend", "public", "logo.png"),
+                Paths.get(userDir, "src", "main", "resources", "static", "logo.png") }) {
+            if (Files.exists(ruta)) {
+                return Files.readAllBytes(ruta);
+            }
+        }
+        return null;
+    }
+}
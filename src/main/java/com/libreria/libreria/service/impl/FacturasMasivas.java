@@ -0,0 +1,286 @@
+package com.libreria.libreria.service.impl;
+
+import com.libreria.libreria.model.Venta;
+import com.libreria.libreria.model.enums.FormatoFactura;
+import com.libreria.libreria.repository.VentaRepository;
+import com.lowagie.text.Document;
+import com.lowagie.text.pdf.PdfCopy;
+import com.lowagie.text.pdf.PdfReader;
+import com.lowagie.text.pdf.PdfSmartCopy;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Genera muchas facturas de una vez, como un ZIP con un PDF por venta o como
+ * un solo PDF con todas.
+ *
+ * Las ventas se leen por lotes (una consulta con sus detalles por lote) y las
+ * facturas se generan en paralelo en un pool de hilos acotado compartido por
+ * todas las solicitudes, pasando por la misma caché y las mismas métricas que
+ * la descarga de una sola factura. Cada solicitud tiene a lo sumo una ventana de
+ * facturas pendientes de escribir, así que la memoria no depende de cuántas
+ * ventas se pidan. En el ZIP cada factura se escribe apenas está lista; en el
+ * PDF unido se respeta el orden pedido.
+ */
+@Component
+public class FacturasMasivas {
+
+    private static final int VENTAS_POR_CONSULTA = 100;
+
+    private record Factura(int posicion, Integer ventaId, byte[] pdf) {
+    }
+
+    private final VentaRepository ventaRepository;
+    private final FacturaPdfRenderer renderer;
+    private final FacturaPdfCache facturaCache;
+    private final MetricasVentas metricas;
+    private final ThreadPoolExecutor executor;
+    private final int ventana;
+    private final int maximoFacturas;
+
+    public FacturasMasivas(VentaRepository ventaRepository,
+            FacturaPdfRenderer renderer,
+            FacturaPdfCache facturaCache,
+            MetricasVentas metricas,
+            @Value("${ventas.facturas.hilos:0}") int hilos,
+            @Value("${ventas.facturas.maximo:2000}") int maximoFacturas) {
+        this.ventaRepository = ventaRepository;
+        this.renderer = renderer;
+        this.facturaCache = facturaCache;
+        this.metricas = metricas;
+        this.maximoFacturas = maximoFacturas;
+
+        int tamanoPool = hilos > 0 ? hilos : Runtime.getRuntime().availableProcessors();
+        this.ventana = tamanoPool * 2;
+
+        AtomicInteger numero = new AtomicInteger();
+        // When every thread and queue slot is busy the request thread renders the invoice itself
+        this.executor = new ThreadPoolExecutor(tamanoPool, tamanoPool, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(tamanoPool * 4), r -> {
+                    Thread hilo = new Thread(r, "facturas-" + numero.incrementAndGet());
+                    hilo.setDaemon(true);
+                    return hilo;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    @PreDestroy
+    void detener() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Ventas a facturar: las indicadas (en ese orden, sin repetir) o, si no se
+     * indica ninguna, las del rango de fechas en orden cronológico.
+     */
+    public List<Integer> seleccionar(List<Integer> ventaIds, LocalDateTime fechaInicio, LocalDateTime fechaFin) {
+        List<Integer> seleccion;
+        if (ventaIds != null && !ventaIds.isEmpty()) {
+            seleccion = new ArrayList<>(new LinkedHashSet<>(ventaIds));
+            if (seleccion.size() > maximoFacturas) {
+                throw new RuntimeException(
+                        "Se pueden generar como máximo " + maximoFacturas + " facturas por solicitud.");
+            }
+
+            Set<Integer> existentes = new HashSet<>(ventaRepository.obtenerIdsExistentes(seleccion));
+            for (Integer ventaId : seleccion) {
+                if (!existentes.contains(ventaId)) {
+                    throw new RuntimeException("Venta no encontrada ID: " + ventaId);
+                }
+            }
+        } else if (fechaInicio != null && fechaFin != null) {
+            seleccion = ventaRepository.obtenerIdsPorFecha(fechaInicio, fechaFin,
+                    PageRequest.of(0, maximoFacturas + 1));
+            if (seleccion.size() > maximoFacturas) {
+                throw new RuntimeException(
+                        "Se pueden generar como máximo " + maximoFacturas + " facturas por solicitud.");
+            }
+        } else {
+            throw new RuntimeException("Debe indicar las ventas o un rango de fechas.");
+        }
+
+        if (seleccion.isEmpty()) {
+            throw new RuntimeException("No hay ventas en el rango indicado.");
+        }
+        return seleccion;
+    }
+
+    public void escribir(List<Integer> ventaIds, FormatoFactura formato, OutputStream salida) {
+        CompletionService<Factura> completadas = new ExecutorCompletionService<>(executor);
+        // Only unfinished work is tracked, so finished PDFs can be collected once written
+        Set<Future<Factura>> pendientes = new HashSet<>();
+
+        try {
+            Destino destino = formato == FormatoFactura.ZIP ? new DestinoZip(salida) : new DestinoPdf(salida);
+            int posicion = 0;
+
+            for (int inicio = 0; inicio < ventaIds.size(); inicio += VENTAS_POR_CONSULTA) {
+                List<Integer> lote = ventaIds.subList(inicio,
+                        Math.min(inicio + VENTAS_POR_CONSULTA, ventaIds.size()));
+                Map<Integer, Venta> ventas = new HashMap<>();
+                for (Venta venta : ventaRepository.findConDetallesByVentaIdIn(lote)) {
+                    ventas.put(venta.getVentaId(), venta);
+                }
+
+                for (Integer ventaId : lote) {
+                    Venta venta = ventas.get(ventaId);
+                    if (venta == null) {
+                        throw new RuntimeException("Venta no encontrada ID: " + ventaId);
+                    }
+
+                    // Never more than a window of rendered invoices waiting to be written
+                    while (posicion - destino.escritas() >= ventana) {
+                        destino.agregar(siguiente(completadas, pendientes));
+                    }
+
+                    int posicionVenta = posicion++;
+                    pendientes.add(completadas.submit(
+                            () -> new Factura(posicionVenta, ventaId, factura(venta))));
+                }
+            }
+
+            while (destino.escritas() < posicion) {
+                destino.agregar(siguiente(completadas, pendientes));
+            }
+            destino.terminar();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            // Stop rendering for a client that went away or an invoice that failed
+            for (Future<Factura> futuro : pendientes) {
+                futuro.cancel(true);
+            }
+        }
+    }
+
+    // Same path as VentaServiceImpl.obtenerFacturaPdf; runs on the pool, so disk reads stay off the request thread
+    private byte[] factura(Venta venta) {
+        byte[] pdf = facturaCache.obtener(venta.getVentaId(), venta.getEstado());
+        if (pdf == null) {
+            pdf = metricas.renderizarFactura(() -> renderer.renderizar(venta));
+            facturaCache.guardar(venta.getVentaId(), venta.getEstado(), pdf);
+        }
+        return pdf;
+    }
+
+    private static Factura siguiente(CompletionService<Factura> completadas, Set<Future<Factura>> pendientes) {
+        try {
+            Future<Factura> lista = completadas.take();
+            pendientes.remove(lista);
+            return lista.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Generación de facturas interrumpida", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Error al generar PDF", e.getCause());
+        }
+    }
+
+    private interface Destino {
+        void agregar(Factura factura) throws IOException;
+
+        int escritas();
+
+        void terminar() throws IOException;
+    }
+
+    /** Un PDF por venta, en el orden en que terminan. */
+    private static class DestinoZip implements Destino {
+
+        private final ZipOutputStream zip;
+        private int escritas;
+
+        DestinoZip(OutputStream salida) {
+            this.zip = new ZipOutputStream(salida);
+            // The PDFs are already compressed
+            this.zip.setLevel(Deflater.BEST_SPEED);
+        }
+
+        @Override
+        public void agregar(Factura factura) throws IOException {
+            zip.putNextEntry(new ZipEntry("factura_venta_" + factura.ventaId() + ".pdf"));
+            zip.write(factura.pdf());
+            zip.closeEntry();
+            zip.flush();
+            escritas++;
+        }
+
+        @Override
+        public int escritas() {
+            return escritas;
+        }
+
+        @Override
+        public void terminar() throws IOException {
+            zip.finish();
+        }
+    }
+
+    /** Todas las facturas en un solo PDF, en el orden pedido. */
+    private static class DestinoPdf implements Destino {
+
+        private final Document document;
+        private final PdfCopy copia;
+        private final Map<Integer, Factura> enEspera = new HashMap<>();
+        private int escritas;
+
+        DestinoPdf(OutputStream salida) {
+            this.document = new Document();
+            // Shares identical streams (logo, fonts) between pages instead of repeating them
+            this.copia = new PdfSmartCopy(document, salida);
+            this.copia.setCloseStream(false);
+            this.document.open();
+        }
+
+        @Override
+        public void agregar(Factura factura) throws IOException {
+            enEspera.put(factura.posicion(), factura);
+
+            Factura lista;
+            while ((lista = enEspera.remove(escritas)) != null) {
+                PdfReader reader = new PdfReader(lista.pdf());
+                for (int pagina = 1; pagina <= reader.getNumberOfPages(); pagina++) {
+                    copia.addPage(copia.getImportedPage(reader, pagina));
+                }
+                copia.freeReader(reader);
+                reader.close();
+                copia.flush();
+                escritas++;
+            }
+        }
+
+        @Override
+        public int escritas() {
+            return escritas;
+        }
+
+        @Override
+        public void terminar() {
+            document.close();
+        }
+    }
+}
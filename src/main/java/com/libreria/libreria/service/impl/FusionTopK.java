@@ -0,0 +1,97 @@
+package com.libreria.libreria.service.impl;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Combina listas parciales de productos más vendidos (una por día o por tramo
+ * de horas) en el top N del rango completo.
+ *
+ * Cada lista trae las K mayores cantidades de su tramo y una cota: ningún
+ * producto fuera de la lista vendió más que la cota en ese tramo (0 si la lista
+ * está completa). Con eso cada producto tiene un mínimo (lo visto) y un máximo
+ * (lo visto más las cotas de los tramos donde no aparece).
+ *
+ * Garantía: si fusionar devuelve una lista, esos N productos son exactamente los
+ * N más vendidos del rango, porque el mínimo de cada uno es mayor o igual que el
+ * máximo posible de cualquier otro producto, visto o no (los empates pueden
+ * resolverse a favor de cualquiera). Si las listas no alcanzan para asegurarlo
+ * devuelve vacío, y quien llama debe pedir listas más largas o calcular el
+ * ranking exacto. El orden devuelto es por mínimo; las cantidades exactas se
+ * consultan aparte.
+ */
+public final class FusionTopK {
+
+    /**
+     * @param cantidades cantidad vendida por producto en el tramo, de mayor a menor
+     * @param cota       máximo que pudo vender en el tramo un producto que no está
+     *                   en la lista
+     */
+    public record Parcial(Map<Integer, Long> cantidades, long cota) {
+    }
+
+    private FusionTopK() {
+    }
+
+    /**
+     * Lista parcial a partir de las K primeras filas de un tramo, ordenadas de
+     * mayor a menor cantidad. Si llegaron K filas puede haber más productos, que
+     * vendieron como mucho lo mismo que el último.
+     */
+    public static Parcial parcial(LinkedHashMap<Integer, Long> cantidades, int k) {
+        long cota = 0;
+        if (cantidades.size() >= k) {
+            for (Long cantidad : cantidades.values()) {
+                cota = cantidad;
+            }
+        }
+        return new Parcial(cantidades, cota);
+    }
+
+    public static Optional<List<Integer>> fusionar(List<Parcial> parciales, int n) {
+        if (n <= 0) {
+            return Optional.of(List.of());
+        }
+
+        Map<Integer, Long> minimos = new HashMap<>();
+        Map<Integer, Long> cotasPresentes = new HashMap<>();
+        long cotaTotal = 0;
+
+        for (Parcial parcial : parciales) {
+            cotaTotal += parcial.cota();
+            for (Map.Entry<Integer, Long> entrada : parcial.cantidades().entrySet()) {
+                minimos.merge(entrada.getKey(), entrada.getValue(), Long::sum);
+                cotasPresentes.merge(entrada.getKey(), parcial.cota(), Long::sum);
+            }
+        }
+
+        List<Integer> candidatos = new ArrayList<>(minimos.keySet());
+        candidatos.sort(Comparator.<Integer>comparingLong(minimos::get).reversed()
+                .thenComparing(Comparator.naturalOrder()));
+
+        if (candidatos.size() < n) {
+            // Every product that sold anything is listed only if no list was cut short
+            return cotaTotal == 0 ? Optional.of(candidatos) : Optional.empty();
+        }
+
+        List<Integer> top = candidatos.subList(0, n);
+        long umbral = minimos.get(top.get(n - 1));
+
+        // A product missing from every list sold at most the sum of all the bounds
+        if (cotaTotal > umbral) {
+            return Optional.empty();
+        }
+        for (Integer productoId : candidatos.subList(n, candidatos.size())) {
+            long maximo = minimos.get(productoId) + cotaTotal - cotasPresentes.get(productoId);
+            if (maximo > umbral) {
+                return Optional.empty();
+            }
+        }
+        return Optional.of(new ArrayList<>(top));
+    }
+}
@@ -0,0 +1,343 @@
+package com.libreria.libreria.service.impl;
+
+import com.libreria.libreria.dto.ProductoDTO;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Pattern;
+
+/**
+ * Índice en memoria para la búsqueda de productos del punto de venta.
+ *
+ * Los textos se normalizan sin acentos ni mayúsculas ("Lápiz" = "lapiz"). El
+ * SKU y el nombre completo se guardan en mapas ordenados, así que las búsquedas
+ * por prefijo son un recorrido de rango. Cada palabra del nombre, el SKU y la
+ * descripción apunta a los productos que la contienen. Para tolerar errores de
+ * tipeo, cada trigrama apunta a las palabras distintas de los nombres que lo
+ * contienen: una búsqueda aproximada recorre ese vocabulario, que es mucho más
+ * chico que el catálogo, y solo puntúa los productos con alguna palabra parecida.
+ *
+ * Ninguna búsqueda revisa más de una cantidad fija de productos, de modo que el costo
+ * no crece con el tamaño del catálogo. Las escrituras deben hacerse desde un
+ * único hilo (CatalogoProductosCache las hace bajo su lock); las búsquedas pueden
+ * ser concurrentes.
+ */
+public class IndiceBusquedaProductos {
+
+    static final int MAX_CANDIDATOS = 5000;
+    // Fuzzy matching only reaches products through words already known to be similar
+    static final int MAX_CANDIDATOS_APROXIMADOS = 1000;
+    private static final double SIMILITUD_MINIMA = 0.3;
+
+    // Separates the indexed text from the product id in the ordered keys
+    private static final char SEPARADOR = '\u0000';
+
+    private static final Pattern MARCAS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARADORES = Pattern.compile("[^a-z0-9]+");
+
+    private final Map<Integer, Entrada> entradas = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<String, Integer> porSku = new ConcurrentSkipListMap<>();
+    private final ConcurrentSkipListMap<String, Integer> porNombre = new ConcurrentSkipListMap<>();
+    private final ConcurrentSkipListMap<String, Set<Integer>> palabras = new ConcurrentSkipListMap<>();
+    // Trigram -> distinct name words, and how many products use each name word
+    private final Map<String, Set<String>> trigramas = new ConcurrentHashMap<>();
+    private final Map<String, Integer> vocabulario = new ConcurrentHashMap<>();
+
+    private record Entrada(String nombre, String sku, String[] palabrasNombre, String[] palabras) {
+    }
+
+    private record Candidato(Integer productoId, double puntaje, int largoNombre) {
+    }
+
+    public void indexar(ProductoDTO producto) {
+        Integer productoId = producto.getProductoId();
+        quitar(productoId);
+
+        String nombre = normalizar(producto.getNombre());
+        String sku = compactar(producto.getSku());
+
+        Set<String> palabrasNombre = new LinkedHashSet<>(dividir(nombre));
+        Set<String> todas = new LinkedHashSet<>(palabrasNombre);
+        todas.addAll(dividir(normalizar(producto.getSku())));
+        todas.addAll(dividir(normalizar(producto.getDescripcion())));
+        if (!sku.isEmpty()) {
+            todas.add(sku);
+        }
+
+        Entrada entrada = new Entrada(nombre, sku, palabrasNombre.toArray(String[]::new),
+                todas.toArray(String[]::new));
+        entradas.put(productoId, entrada);
+
+        if (!sku.isEmpty()) {
+            porSku.put(clave(sku, productoId), productoId);
+        }
+        if (!nombre.isEmpty()) {
+            porNombre.put(clave(nombre, productoId), productoId);
+        }
+        for (String palabra : entrada.palabras()) {
+            palabras.computeIfAbsent(palabra, k -> ConcurrentHashMap.newKeySet(2)).add(productoId);
+        }
+        for (String palabra : entrada.palabrasNombre()) {
+            if (vocabulario.merge(palabra, 1, Integer::sum) == 1) {
+                for (String gram : trigramasDe(palabra)) {
+                    trigramas.computeIfAbsent(gram, k -> ConcurrentHashMap.newKeySet(2)).add(palabra);
+                }
+            }
+        }
+    }
+
+    public void quitar(Integer productoId) {
+        Entrada entrada = entradas.remove(productoId);
+        if (entrada == null) {
+            return;
+        }
+        porSku.remove(clave(entrada.sku(), productoId));
+        porNombre.remove(clave(entrada.nombre(), productoId));
+        for (String palabra : entrada.palabras()) {
+            quitarDe(palabras, palabra, productoId);
+        }
+        for (String palabra : entrada.palabrasNombre()) {
+            if (vocabulario.computeIfPresent(palabra, (k, usos) -> usos == 1 ? null : usos - 1) == null) {
+                for (String gram : trigramasDe(palabra)) {
+                    quitarDe(trigramas, gram, palabra);
+                }
+            }
+        }
+    }
+
+    /**
+     * Devuelve los IDs de los productos que coinciden con el texto, del más al
+     * menos relevante: SKU exacto, SKU por prefijo, nombre exacto, nombre que
+     * empieza con el texto, todas las palabras presentes en el nombre y
+     * coincidencias que necesitan la descripción. Si no hubo ninguna, se prueban
+     * coincidencias aproximadas por trigramas.
+     */
+    public List<Integer> buscar(String texto, int limite) {
+        String consulta = normalizar(texto);
+        if (consulta.isEmpty() || limite <= 0) {
+            return List.of();
+        }
+
+        LinkedHashSet<Integer> resultado = new LinkedHashSet<>();
+        recorrerPrefijo(porSku, compactar(texto), limite, resultado);
+        recorrerPrefijo(porNombre, consulta, limite, resultado);
+        if (resultado.size() < limite) {
+            buscarPorPalabras(new ArrayList<>(new LinkedHashSet<>(dividir(consulta))), limite, resultado);
+        }
+        if (resultado.isEmpty()) {
+            buscarPorTrigramas(consulta, limite, resultado);
+        }
+        return List.copyOf(resultado);
+    }
+
+    // Exact matches sort first because the separator is lower than any text character
+    private static void recorrerPrefijo(ConcurrentSkipListMap<String, Integer> indice, String prefijo, int limite,
+            Set<Integer> resultado) {
+        if (prefijo.isEmpty()) {
+            return;
+        }
+        for (Integer productoId : indice.subMap(prefijo, true, prefijo + Character.MAX_VALUE, true).values()) {
+            if (resultado.size() >= limite) {
+                return;
+            }
+            resultado.add(productoId);
+        }
+    }
+
+    private void buscarPorPalabras(List<String> terminos, int limite, Set<Integer> resultado) {
+        // Walk the postings of the most selective term and check the others on each product
+        String guia = terminoMasSelectivo(terminos);
+        List<Candidato> enNombre = new ArrayList<>();
+        List<Candidato> enDescripcion = new ArrayList<>();
+        int revisados = 0;
+
+        recorrido:
+        for (Set<Integer> ids : palabras.subMap(guia, true, guia + Character.MAX_VALUE, true).values()) {
+            for (Integer productoId : ids) {
+                if (revisados++ >= MAX_CANDIDATOS || enNombre.size() >= limite) {
+                    break recorrido;
+                }
+                Entrada entrada = entradas.get(productoId);
+                if (entrada == null || resultado.contains(productoId)) {
+                    continue;
+                }
+                if (contieneTodos(entrada.palabrasNombre(), terminos)) {
+                    enNombre.add(new Candidato(productoId, 0, entrada.nombre().length()));
+                } else if (enDescripcion.size() < limite && contieneTodos(entrada.palabras(), terminos)) {
+                    enDescripcion.add(new Candidato(productoId, 0, entrada.nombre().length()));
+                }
+            }
+        }
+
+        agregarOrdenados(enNombre, limite, resultado);
+        agregarOrdenados(enDescripcion, limite, resultado);
+    }
+
+    private String terminoMasSelectivo(List<String> terminos) {
+        String mejor = terminos.get(0);
+        long menor = Long.MAX_VALUE;
+        for (String termino : terminos) {
+            long total = 0;
+            for (Set<Integer> ids : palabras.subMap(termino, true, termino + Character.MAX_VALUE, true).values()) {
+                total += ids.size();
+                if (total >= menor) {
+                    break;
+                }
+            }
+            if (total < menor) {
+                menor = total;
+                mejor = termino;
+            }
+        }
+        return mejor;
+    }
+
+    private void buscarPorTrigramas(String consulta, int limite, Set<Integer> resultado) {
+        List<Map<String, Double>> porPalabra = new ArrayList<>();
+        Map<String, Double> mejores = new HashMap<>();
+        for (String palabra : new LinkedHashSet<>(dividir(consulta))) {
+            Map<String, Double> similares = palabrasSimilares(palabra);
+            porPalabra.add(similares);
+            similares.forEach((candidata, similitud) -> mejores.merge(candidata, similitud, Math::max));
+        }
+
+        // A product scores the average over the query words, so it needs at least one word
+        // this similar; the most similar words spend the candidate budget first
+        List<String> guias = mejores.entrySet().stream()
+                .filter(e -> e.getValue() >= SIMILITUD_MINIMA)
+                .sorted(Map.Entry.<String, Double>comparingByValue().reversed())
+                .map(Map.Entry::getKey)
+                .toList();
+
+        Set<Integer> revisados = new HashSet<>();
+        List<Candidato> similares = new ArrayList<>();
+        recorrido:
+        for (String guia : guias) {
+            for (Integer productoId : palabras.getOrDefault(guia, Set.of())) {
+                if (revisados.size() >= MAX_CANDIDATOS_APROXIMADOS) {
+                    break recorrido;
+                }
+                if (!revisados.add(productoId)) {
+                    continue;
+                }
+                Entrada entrada = entradas.get(productoId);
+                if (entrada == null) {
+                    continue;
+                }
+                double similitud = similitud(porPalabra, entrada.palabrasNombre());
+                if (similitud >= SIMILITUD_MINIMA) {
+                    similares.add(new Candidato(productoId, similitud, entrada.nombre().length()));
+                }
+            }
+        }
+
+        agregarOrdenados(similares, limite, resultado);
+    }
+
+    // Dice coefficient of the word against every name word sharing at least one trigram with it
+    private Map<String, Double> palabrasSimilares(String palabra) {
+        Set<String> grams = Set.copyOf(trigramasDe(palabra));
+        Map<String, Integer> comunes = new HashMap<>();
+        for (String gram : grams) {
+            for (String candidata : trigramas.getOrDefault(gram, Set.of())) {
+                comunes.merge(candidata, 1, Integer::sum);
+            }
+        }
+        Map<String, Double> similares = new HashMap<>();
+        comunes.forEach((candidata, n) -> similares.put(candidata,
+                2.0 * n / (grams.size() + Set.copyOf(trigramasDe(candidata)).size())));
+        return similares;
+    }
+
+    // Per query word, the best similarity to a word of the name, averaged; comparing word
+    // by word keeps long names from diluting the score of a typo
+    private static double similitud(List<Map<String, Double>> consulta, String[] palabrasNombre) {
+        double total = 0;
+        for (Map<String, Double> similares : consulta) {
+            double mejor = 0;
+            for (String palabra : palabrasNombre) {
+                mejor = Math.max(mejor, similares.getOrDefault(palabra, 0.0));
+            }
+            total += mejor;
+        }
+        return total / consulta.size();
+    }
+
+    // Highest score first, then the shortest name
+    private static void agregarOrdenados(List<Candidato> candidatos, int limite, Set<Integer> resultado) {
+        candidatos.sort(Comparator.comparingDouble(Candidato::puntaje).reversed()
+                .thenComparingInt(Candidato::largoNombre));
+        for (Candidato candidato : candidatos) {
+            if (resultado.size() >= limite) {
+                return;
+            }
+            resultado.add(candidato.productoId());
+        }
+    }
+
+    private static boolean contieneTodos(String[] palabras, List<String> terminos) {
+        for (String termino : terminos) {
+            boolean encontrado = false;
+            for (String palabra : palabras) {
+                if (palabra.startsWith(termino)) {
+                    encontrado = true;
+                    break;
+                }
+            }
+            if (!encontrado) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static <T> void quitarDe(Map<String, Set<T>> indice, String clave, T valor) {
+        indice.computeIfPresent(clave, (k, valores) -> {
+            valores.remove(valor);
+            return valores.isEmpty() ? null : valores;
+        });
+    }
+
+    private static String clave(String texto, Integer productoId) {
+        return texto + SEPARADOR + productoId;
+    }
+
+    static String normalizar(String texto) {
+        if (texto == null || texto.isBlank()) {
+            return "";
+        }
+        String sinAcentos = MARCAS.matcher(Normalizer.normalize(texto, Normalizer.Form.NFD)).replaceAll("");
+        return SEPARADORES.matcher(sinAcentos.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+    }
+
+    private static String compactar(String texto) {
+        return normalizar(texto).replace(" ", "");
+    }
+
+    private static List<String> dividir(String normalizado) {
+        return normalizado.isEmpty() ? List.of() : Arrays.asList(normalizado.split(" "));
+    }
+
+    private static List<String> trigramasDe(String palabra) {
+        if (palabra.isEmpty()) {
+            return List.of();
+        }
+        String conBordes = " " + palabra + " ";
+        List<String> grams = new ArrayList<>();
+        for (int i = 0; i + 3 <= conBordes.length(); i++) {
+            grams.add(conBordes.substring(i, i + 3));
+        }
+        return grams;
+    }
+}
@@ -0,0 +1,90 @@
+package com.libreria.libreria.service.impl;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.function.Supplier;
+
+/**
+ * Métricas del cobro y la anulación de ventas y de la factura PDF. Los tiempos
+ * de crearVenta y anularVenta se cierran al terminar la transacción, así
+ * incluyen el commit y se etiquetan según si se confirmó o se revirtió.
+ */
+@Component
+public class MetricasVentas {
+
+    private final MeterRegistry meterRegistry;
+    private final DistributionSummary lineas;
+    private final Counter conflictosValidacion;
+    private final Counter conflictosDescuento;
+    private final Timer renderizado;
+    private final DistributionSummary bytesFactura;
+
+    public MetricasVentas(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+
+        this.lineas = DistributionSummary.builder("ventas.lineas")
+                .description("Líneas por venta confirmada")
+                .register(meterRegistry);
+        // validacion: the stock read at the start of the sale was not enough;
+        // descuento: another register sold the units before the conditional UPDATE
+        this.conflictosValidacion = Counter.builder("ventas.stock.conflictos")
+                .tag("etapa", "validacion")
+                .register(meterRegistry);
+        this.conflictosDescuento = Counter.builder("ventas.stock.conflictos")
+                .tag("etapa", "descuento")
+                .register(meterRegistry);
+        this.renderizado = Timer.builder("ventas.factura.renderizado")
+                .register(meterRegistry);
+        this.bytesFactura = DistributionSummary.builder("ventas.factura.tamano")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /** Mide la venta en curso hasta el fin de su transacción. */
+    public void medirCreacion(int lineasVenta) {
+        medirTransaccion("ventas.creacion", () -> lineas.record(lineasVenta));
+    }
+
+    /** Mide la anulación en curso hasta el fin de su transacción. */
+    public void medirAnulacion() {
+        medirTransaccion("ventas.anulacion", () -> {
+        });
+    }
+
+    public void conflictoStock(boolean enDescuento) {
+        (enDescuento ? conflictosDescuento : conflictosValidacion).increment();
+    }
+
+    public byte[] renderizarFactura(Supplier<byte[]> renderizador) {
+        Timer.Sample inicio = Timer.start(meterRegistry);
+        byte[] pdf = renderizador.get();
+        inicio.stop(renderizado);
+        bytesFactura.record(pdf.length);
+        return pdf;
+    }
+
+    private void medirTransaccion(String nombre, Runnable alConfirmar) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        Timer.Sample inicio = Timer.start(meterRegistry);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                boolean confirmada = status == STATUS_COMMITTED;
+                inicio.stop(Timer.builder(nombre)
+                        .tag("resultado", confirmada ? "confirmada" : "revertida")
+                        .register(meterRegistry));
+                if (confirmada) {
+                    alConfirmar.run();
+                }
+            }
+        });
+    }
+}
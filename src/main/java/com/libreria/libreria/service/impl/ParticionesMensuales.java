@@ -0,0 +1,131 @@
+package com.libreria.libreria.service.impl;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Mantenimiento de las particiones mensuales de Ventas, Detalle_Ventas y
+ * Audit_Logs (ver la migración V4). Al arrancar y cada noche crea las
+ * particiones de los próximos meses, así una venta o un evento de auditoría
+ * siempre tiene dónde guardarse.
+ *
+ * Las particiones más antiguas que la retención se desprenden: dejan de ser
+ * parte de la tabla pero quedan en la base como tablas sueltas, listas para
+ * archivarlas o borrarlas a mano. Con retención 0 se conservan todas.
+ */
+@Component
+public class ParticionesMensuales {
+
+    private static final String SQL_CREAR = "SELECT crear_particion_mensual(?, ?)";
+
+    private static final String SQL_PARTICIONES = "SELECT c.relname FROM pg_inherits i " +
+            "JOIN pg_class c ON c.oid = i.inhrelid WHERE i.inhparent = CAST(? AS regclass)";
+
+    private static final DateTimeFormatter SUFIJO = DateTimeFormatter.ofPattern("uuuu_MM");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int mesesAdelante;
+    private final int retencionVentas;
+    private final int retencionAuditoria;
+
+    public ParticionesMensuales(JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            @Value("${particiones.meses-adelante:3}") int mesesAdelante,
+            @Value("${particiones.ventas.retencion-meses:0}") int retencionVentas,
+            @Value("${particiones.auditoria.retencion-meses:0}") int retencionAuditoria) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.mesesAdelante = mesesAdelante;
+        this.retencionVentas = retencionVentas;
+        this.retencionAuditoria = retencionAuditoria;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void inicializar() {
+        try {
+            mantener();
+        } catch (Exception e) {
+            System.err.println("No se pudieron revisar las particiones mensuales: " + e.getMessage());
+        }
+    }
+
+    @Scheduled(cron = "${particiones.mantenimiento.cron:0 15 3 * * *}")
+    public void mantener() {
+        YearMonth actual = YearMonth.now();
+        for (int i = 0; i <= mesesAdelante; i++) {
+            Date mes = Date.valueOf(actual.plusMonths(i).atDay(1));
+            crear("ventas", mes);
+            crear("detalle_ventas", mes);
+            crear("audit_logs", mes);
+        }
+
+        if (retencionVentas > 0) {
+            YearMonth limite = actual.minusMonths(retencionVentas);
+            // Details go first: a sale partition cannot leave while detail rows reference it
+            for (String particion : anteriores("detalle_ventas", limite)) {
+                transactionTemplate.executeWithoutResult(estado -> {
+                    desprender("detalle_ventas", particion);
+                    jdbcTemplate.execute("ALTER TABLE " + particion + " DROP CONSTRAINT fk_detalle_ventas_venta");
+                });
+            }
+            for (String particion : anteriores("ventas", limite)) {
+                desprender("ventas", particion);
+            }
+        }
+        if (retencionAuditoria > 0) {
+            for (String particion : anteriores("audit_logs", actual.minusMonths(retencionAuditoria))) {
+                desprender("audit_logs", particion);
+            }
+        }
+    }
+
+    private void crear(String tabla, Date mes) {
+        if (Boolean.TRUE.equals(jdbcTemplate.queryForObject(SQL_CREAR, Boolean.class, tabla, mes))) {
+            System.out.println("Partición creada: " + tabla + " " + mes.toLocalDate());
+        }
+    }
+
+    private List<String> anteriores(String tabla, YearMonth limite) {
+        return anterioresA(tabla, jdbcTemplate.queryForList(SQL_PARTICIONES, String.class, tabla), limite);
+    }
+
+    // Partition names come from anterioresA, which only accepts tabla_yyyy_MM
+    private void desprender(String tabla, String particion) {
+        jdbcTemplate.execute("ALTER TABLE " + tabla + " DETACH PARTITION " + particion);
+        System.out.println("Partición desprendida: " + particion);
+    }
+
+    /**
+     * Particiones mensuales de la tabla anteriores al mes límite, de la más
+     * antigua a la más reciente. La partición histórica nunca se incluye.
+     */
+    static List<String> anterioresA(String tabla, Collection<String> particiones, YearMonth limite) {
+        Pattern mensual = Pattern.compile(Pattern.quote(tabla) + "_(\\d{4}_\\d{2})");
+        List<String> anteriores = new ArrayList<>();
+        for (String particion : particiones) {
+            Matcher matcher = mensual.matcher(particion);
+            if (matcher.matches() && YearMonth.parse(matcher.group(1), SUFIJO).isBefore(limite)) {
+                anteriores.add(particion);
+            }
+        }
+        Collections.sort(anteriores);
+        return anteriores;
+    }
+}
@@ -25,33 +25,51 @@ public class ProductoServiceImpl implements ProductoService {
     private final CategoriaRepository categoriaRepository;
     private final UbicacionRepository ubicacionRepository;
     private final AuditLogService auditLogService;
+    private final CatalogoProductosCache catalogo;
 
     @Autowired
     public ProductoServiceImpl(ProductoRepository productoRepository,
             CategoriaRepository categoriaRepository,
             UbicacionRepository ubicacionRepository,
-            AuditLogService auditLogService) {
+            AuditLogService auditLogService,
+            CatalogoProductosCache catalogo) {
         this.productoRepository = productoRepository;
         this.categoriaRepository = categoriaRepository;
         this.ubicacionRepository = ubicacionRepository;
         this.auditLogService = auditLogService;
+        this.catalogo = catalogo;
     }
 
+    // Served from the in-memory catalog; the database is only read on first use.
+    // That first load stays on the primary: stock updates are applied on top of it
     @Override
-    @Transactional(readOnly = true)
     public List<ProductoDTO> findAll() {
-        return productoRepository.findAll().stream()
-                .filter(p -> Boolean.TRUE.equals(p.getActivo()))
-                .map(this::mapToDTO)
-                .collect(Collectors.toList());
+        return catalogo.listar(this::cargarCatalogo);
     }
 
     @Override
-    @Transactional(readOnly = true)
     public Optional<ProductoDTO> findById(Integer id) {
-        return productoRepository.findById(id)
-                .filter(p -> Boolean.TRUE.equals(p.getActivo()))
-                .map(this::mapToDTO);
+        return catalogo.obtener(id, this::cargarCatalogo);
+    }
+
+    @Override
+    public List<ProductoDTO> buscar(String texto, Integer limite) {
+        int tamano = limite == null ? 20 : Math.max(1, Math.min(limite, 50));
+        return catalogo.buscar(texto, tamano, this::cargarCatalogo);
+    }
+
+    private List<CatalogoProductosCache.ProductoCargado> cargarCatalogo() {
+        return productoRepository.findAllActivos().stream()
+                .map(producto -> new CatalogoProductosCache.ProductoCargado(mapToDTO(producto),
+                        producto.getStockVersion()))
+                .collect(Collectors.toList());
+    }
+
+    // Versions the stock in this transaction so the catalog can order the write against
+    // concurrent sales; the flush makes the UPDATE see the row Hibernate is holding
+    private void publicar(Producto producto) {
+        productoRepository.flush();
+        catalogo.actualizar(mapToDTO(producto), productoRepository.versionarStock(producto.getProductoId()));
     }
 
     @Override
@@ -60,6 +78,7 @@ public class ProductoServiceImpl implements ProductoService {
         Producto producto = mapToEntity(productoDTO);
         producto.setActivo(true);
         Producto savedProducto = productoRepository.save(producto);
+        publicar(savedProducto);
 
         // Audit log - assuming system user ID 1 for now (should be from
         // SecurityContext)
@@ -106,6 +125,7 @@ public class ProductoServiceImpl implements ProductoService {
             }
 
             Producto updated = productoRepository.save(existingProducto);
+            publicar(updated);
 
             // Audit log
             try {
@@ -126,6 +146,7 @@ public class ProductoServiceImpl implements ProductoService {
         productoRepository.findById(id).ifPresent(producto -> {
             producto.setActivo(false);
             productoRepository.save(producto);
+            publicar(producto);
 
             // Audit log
             try {
@@ -0,0 +1,51 @@
+package com.libreria.libreria.service.impl;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Divide un rango de fechas [inicio, fin] (ambos inclusive) en las horas sueltas
+ * antes del primer día completo, los días completos, y el último día hasta fin.
+ * Los días completos se leen de los resúmenes diarios; las horas sueltas, de
+ * Ventas.
+ */
+public record RangoPorDias(LocalDateTime inicio, LocalDate primerDia, LocalDate ultimoDia, LocalDateTime fin) {
+
+    public static RangoPorDias de(LocalDateTime inicio, LocalDateTime fin) {
+        LocalDate primerDia = inicio.toLocalDate();
+        if (inicio.isAfter(primerDia.atStartOfDay())) {
+            primerDia = primerDia.plusDays(1);
+        }
+        return new RangoPorDias(inicio, primerDia, fin.toLocalDate(), fin);
+    }
+
+    /**
+     * Falso cuando inicio y fin están a menos de un día: no hay nada que leer de
+     * los resúmenes y conviene consultar Ventas directamente.
+     */
+    public boolean divisible() {
+        return !primerDia.isAfter(ultimoDia);
+    }
+
+    // [inicio, inicioPrimerDia()) is read from Ventas when not empty
+    public boolean tieneHorasIniciales() {
+        return inicio.isBefore(inicioPrimerDia());
+    }
+
+    public boolean tieneDiasCompletos() {
+        return primerDia.isBefore(ultimoDia);
+    }
+
+    public LocalDateTime inicioPrimerDia() {
+        return primerDia.atStartOfDay();
+    }
+
+    public LocalDate ultimoDiaCompleto() {
+        return ultimoDia.minusDays(1);
+    }
+
+    // [inicioUltimoDia(), fin] is always read from Ventas
+    public LocalDateTime inicioUltimoDia() {
+        return ultimoDia.atStartOfDay();
+    }
+}
@@ -0,0 +1,219 @@
+package com.libreria.libreria.service.impl;
+
+import com.libreria.libreria.dto.ProductoMasVendidoDTO;
+import com.libreria.libreria.model.Producto;
+import com.libreria.libreria.repository.ProductoRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Ranking de productos más vendidos para cualquier rango de fechas.
+ *
+ * Los días completos se leen de Ventas_Productos_Diario como listas top K por
+ * día (una sola consulta con ROW_NUMBER), y las horas sueltas del primer y el
+ * último día se leen de Detalle_Ventas con LIMIT. FusionTopK combina esas
+ * listas y solo acepta el resultado cuando puede asegurar que es el top N
+ * exacto; si no, se reintenta con K más grande y, como último recurso, se
+ * calcula el ranking exacto en la base de datos, también con LIMIT. En todos los
+ * casos las cantidades devueltas son exactas.
+ */
+@Component
+public class RankingProductosVendidos {
+
+    private static final int K_MINIMO = 20;
+    private static final int INTENTOS_FUSION = 3;
+
+    // Both tables are partitioned by fecha_venta and the planner does not carry a range
+    // across the join, so each query bounds d.fecha_venta as well as v.fecha_venta
+    private static final String DETALLES_COMPLETADOS = "FROM detalle_ventas d " +
+            "JOIN ventas v ON v.venta_id = d.venta_id AND v.fecha_venta = d.fecha_venta " +
+            "WHERE v.estado = 'Completada' ";
+
+    private static final String SQL_TOP_VENTAS = "SELECT d.producto_id, SUM(d.cantidad) AS cantidad, " +
+            "SUM(d.subtotal) AS monto " + DETALLES_COMPLETADOS +
+            "AND v.fecha_venta >= ? AND v.fecha_venta <= ? AND d.fecha_venta >= ? AND d.fecha_venta <= ? " +
+            "GROUP BY d.producto_id ORDER BY cantidad DESC, d.producto_id LIMIT ?";
+
+    private static final String SQL_TOP_VENTAS_ANTES_DE = "SELECT d.producto_id, SUM(d.cantidad) AS cantidad, " +
+            "SUM(d.subtotal) AS monto " + DETALLES_COMPLETADOS +
+            "AND v.fecha_venta >= ? AND v.fecha_venta < ? AND d.fecha_venta >= ? AND d.fecha_venta < ? " +
+            "GROUP BY d.producto_id ORDER BY cantidad DESC, d.producto_id LIMIT ?";
+
+    private static final String SQL_TOP_POR_DIA = "SELECT fecha, producto_id, cantidad_vendida FROM (" +
+            "SELECT fecha, producto_id, cantidad_vendida, " +
+            "ROW_NUMBER() OVER (PARTITION BY fecha ORDER BY cantidad_vendida DESC, producto_id) AS puesto " +
+            "FROM ventas_productos_diario WHERE fecha >= ? AND fecha <= ? AND cantidad_vendida > 0) ranking " +
+            "WHERE puesto <= ? ORDER BY fecha, puesto";
+
+    // Whole days from the daily counters plus the partial first and last day from the sales
+    private static final String SQL_RANGO_COMPLETO = "SELECT producto_id, cantidad_vendida AS cantidad, " +
+            "monto_total AS monto FROM ventas_productos_diario WHERE fecha >= ? AND fecha <= ? %s " +
+            "UNION ALL " +
+            "SELECT d.producto_id, d.cantidad, d.subtotal " + DETALLES_COMPLETADOS + "%s " +
+            "AND ((v.fecha_venta >= ? AND v.fecha_venta < ?) OR (v.fecha_venta >= ? AND v.fecha_venta <= ?)) " +
+            "AND ((d.fecha_venta >= ? AND d.fecha_venta < ?) OR (d.fecha_venta >= ? AND d.fecha_venta <= ?))";
+
+    private static final String SQL_TOP_EXACTO = "SELECT producto_id, SUM(cantidad) AS cantidad, " +
+            "SUM(monto) AS monto FROM (" + String.format(SQL_RANGO_COMPLETO, "", "") + ") rango " +
+            "GROUP BY producto_id ORDER BY cantidad DESC, producto_id LIMIT ?";
+
+    private record Fila(Integer productoId, long cantidad, BigDecimal monto) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ProductoRepository productoRepository;
+    private final ResumenVentasDiario resumenDiario;
+    private final Counter porFusion;
+    private final Counter exactos;
+
+    public RankingProductosVendidos(JdbcTemplate jdbcTemplate,
+            ProductoRepository productoRepository,
+            ResumenVentasDiario resumenDiario,
+            MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.productoRepository = productoRepository;
+        this.resumenDiario = resumenDiario;
+        this.porFusion = Counter.builder("ventas.ranking.productos")
+                .description("Rankings resueltos combinando listas diarias")
+                .tag("metodo", "fusion")
+                .register(meterRegistry);
+        this.exactos = Counter.builder("ventas.ranking.productos")
+                .description("Rankings que necesitaron el cálculo exacto")
+                .tag("metodo", "exacto")
+                .register(meterRegistry);
+    }
+
+    public List<ProductoMasVendidoDTO> obtenerTop(LocalDateTime fechaInicio, LocalDateTime fechaFin, int limite) {
+        RangoPorDias rango = RangoPorDias.de(fechaInicio, fechaFin);
+
+        if (!resumenDiario.isListo() || !rango.tieneDiasCompletos()) {
+            // No whole days to read from the counters: one query with the limit applied
+            return conNombres(consultarVentas(SQL_TOP_VENTAS, fechaInicio, fechaFin, limite));
+        }
+
+        List<Integer> top = null;
+        int k = Math.max(limite * 2, K_MINIMO);
+        for (int intento = 0; top == null && intento < INTENTOS_FUSION; intento++, k *= 2) {
+            top = FusionTopK.fusionar(listasParciales(rango, k), limite).orElse(null);
+        }
+
+        if (top != null) {
+            porFusion.increment();
+            return conNombres(totalesDe(rango, top));
+        }
+
+        exactos.increment();
+        return conNombres(jdbcTemplate.query(SQL_TOP_EXACTO, (rs, rowNum) -> leerFila(rs),
+                parametrosRango(rango, List.of(), limite)));
+    }
+
+    private List<FusionTopK.Parcial> listasParciales(RangoPorDias rango, int k) {
+        List<FusionTopK.Parcial> parciales = new ArrayList<>();
+
+        if (rango.tieneHorasIniciales()) {
+            parciales.add(FusionTopK.parcial(
+                    cantidades(consultarVentas(SQL_TOP_VENTAS_ANTES_DE, rango.inicio(), rango.inicioPrimerDia(), k)),
+                    k));
+        }
+
+        Map<LocalDate, LinkedHashMap<Integer, Long>> porDia = new LinkedHashMap<>();
+        jdbcTemplate.query(SQL_TOP_POR_DIA, rs -> {
+            porDia.computeIfAbsent(rs.getDate("fecha").toLocalDate(), fecha -> new LinkedHashMap<>())
+                    .put(rs.getInt("producto_id"), rs.getLong("cantidad_vendida"));
+        }, Date.valueOf(rango.primerDia()), Date.valueOf(rango.ultimoDiaCompleto()), k);
+        for (LinkedHashMap<Integer, Long> dia : porDia.values()) {
+            parciales.add(FusionTopK.parcial(dia, k));
+        }
+
+        parciales.add(FusionTopK.parcial(
+                cantidades(consultarVentas(SQL_TOP_VENTAS, rango.inicioUltimoDia(), rango.fin(), k)), k));
+        return parciales;
+    }
+
+    // Exact quantities and amounts of the chosen products over the whole range
+    private List<Fila> totalesDe(RangoPorDias rango, List<Integer> productoIds) {
+        if (productoIds.isEmpty()) {
+            return List.of();
+        }
+
+        String enLista = "AND producto_id IN (" + String.join(", ", Collections.nCopies(productoIds.size(), "?"))
+                + ")";
+        String sql = "SELECT producto_id, SUM(cantidad) AS cantidad, SUM(monto) AS monto FROM (" +
+                String.format(SQL_RANGO_COMPLETO, enLista, enLista.replace("producto_id", "d.producto_id")) +
+                ") rango GROUP BY producto_id";
+
+        List<Fila> filas = new ArrayList<>(jdbcTemplate.query(sql, (rs, rowNum) -> leerFila(rs),
+                parametrosRango(rango, productoIds, null)));
+        filas.sort(Comparator.comparingLong(Fila::cantidad).reversed().thenComparing(Fila::productoId));
+        return filas;
+    }
+
+    private Object[] parametrosRango(RangoPorDias rango, List<Integer> productoIds, Integer limite) {
+        List<Object> parametros = new ArrayList<>();
+        parametros.add(Date.valueOf(rango.primerDia()));
+        parametros.add(Date.valueOf(rango.ultimoDiaCompleto()));
+        parametros.addAll(productoIds);
+        parametros.addAll(productoIds);
+        // Partial first and last day, once for ventas and once for detalle_ventas
+        for (int i = 0; i < 2; i++) {
+            parametros.add(Timestamp.valueOf(rango.inicio()));
+            parametros.add(Timestamp.valueOf(rango.inicioPrimerDia()));
+            parametros.add(Timestamp.valueOf(rango.inicioUltimoDia()));
+            parametros.add(Timestamp.valueOf(rango.fin()));
+        }
+        if (limite != null) {
+            parametros.add(limite);
+        }
+        return parametros.toArray();
+    }
+
+    private List<Fila> consultarVentas(String sql, LocalDateTime desde, LocalDateTime hasta, int limite) {
+        Timestamp inicio = Timestamp.valueOf(desde);
+        Timestamp fin = Timestamp.valueOf(hasta);
+        return jdbcTemplate.query(sql, (rs, rowNum) -> leerFila(rs), inicio, fin, inicio, fin, limite);
+    }
+
+    private static Fila leerFila(java.sql.ResultSet rs) throws java.sql.SQLException {
+        BigDecimal monto = rs.getBigDecimal("monto");
+        return new Fila(rs.getInt("producto_id"), rs.getLong("cantidad"), monto != null ? monto : BigDecimal.ZERO);
+    }
+
+    private static LinkedHashMap<Integer, Long> cantidades(List<Fila> filas) {
+        LinkedHashMap<Integer, Long> cantidades = new LinkedHashMap<>();
+        for (Fila fila : filas) {
+            cantidades.put(fila.productoId(), fila.cantidad());
+        }
+        return cantidades;
+    }
+
+    private List<ProductoMasVendidoDTO> conNombres(List<Fila> filas) {
+        Map<Integer, String> nombres = productoRepository.findAllById(filas.stream().map(Fila::productoId).toList())
+                .stream()
+                .collect(Collectors.toMap(Producto::getProductoId, Producto::getNombre));
+
+        return filas.stream()
+                .filter(fila -> fila.cantidad() > 0)
+                .map(fila -> ProductoMasVendidoDTO.builder()
+                        .productoId(fila.productoId())
+                        .nombreProducto(nombres.get(fila.productoId()))
+                        .cantidadVendida((int) fila.cantidad())
+                        .montoTotal(fila.monto())
+                        .build())
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,228 @@
+package com.libreria.libreria.service.impl;
+
+import com.libreria.libreria.dto.VentasPorMetodoDTO;
+import com.libreria.libreria.model.DetalleVenta;
+import com.libreria.libreria.model.enums.EstadoVenta;
+import com.libreria.libreria.model.enums.MetodoPago;
+import com.libreria.libreria.repository.VentaProductoDiarioRepository;
+import com.libreria.libreria.repository.VentaRepository;
+import com.libreria.libreria.repository.VentaResumenDiarioRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Resúmenes diarios de ventas: totales por método de pago y estado
+ * (Ventas_Resumen_Diario) y unidades por producto (Ventas_Productos_Diario).
+ * Las consultas de un rango de fechas suman los días completos desde los
+ * resúmenes y solo leen Ventas para las horas sueltas del primer y el último
+ * día, así que su costo depende de la cantidad de días y no de ventas.
+ *
+ * Los resúmenes se actualizan en la misma transacción que crea o anula cada
+ * venta. Los totales por método se reparten en cubetas según la sesión de caja:
+ * las ventas de una caja ya esperan por la fila de su sesión, y así dos cajas
+ * no esperan además por la misma fila del resumen. Al arrancar se llenan si
+ * están vacíos, y cada noche se reconstruyen los últimos días, sin contar el
+ * actual, para corregir cualquier diferencia.
+ */
+@Component
+public class ResumenVentasDiario {
+
+    // Backfills run one month per transaction
+    private static final int DIAS_POR_LOTE = 31;
+
+    private static final String SQL_ACUMULAR_PRODUCTO = "INSERT INTO ventas_productos_diario " +
+            "(fecha, producto_id, cantidad_vendida, monto_total) VALUES (?, ?, ?, ?) " +
+            "ON CONFLICT (fecha, producto_id) DO UPDATE SET " +
+            "cantidad_vendida = ventas_productos_diario.cantidad_vendida + EXCLUDED.cantidad_vendida, " +
+            "monto_total = ventas_productos_diario.monto_total + EXCLUDED.monto_total";
+
+    private final VentaResumenDiarioRepository resumenRepository;
+    private final VentaProductoDiarioRepository productoDiarioRepository;
+    private final VentaRepository ventaRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int diasReconstruccion;
+    private final int cubetas;
+
+    // Until the first backfill finishes, statistics are read from Ventas directly
+    private volatile boolean listo = false;
+
+    public ResumenVentasDiario(VentaResumenDiarioRepository resumenRepository,
+            VentaProductoDiarioRepository productoDiarioRepository,
+            VentaRepository ventaRepository,
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            @Value("${ventas.resumen.reconstruccion.dias:2}") int diasReconstruccion,
+            @Value("${ventas.resumen.cubetas:16}") int cubetas) {
+        this.resumenRepository = resumenRepository;
+        this.productoDiarioRepository = productoDiarioRepository;
+        this.ventaRepository = ventaRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.diasReconstruccion = diasReconstruccion;
+        this.cubetas = cubetas;
+    }
+
+    /**
+     * Suma (o resta, con valores negativos) ventas al día de la venta, en la
+     * cubeta de la sesión de caja. Debe llamarse dentro de la transacción que
+     * guarda la venta.
+     */
+    public void registrar(LocalDateTime fechaVenta, MetodoPago metodoPago, EstadoVenta estado, Integer sesionId,
+            long ventas, BigDecimal monto) {
+        resumenRepository.acumular(fechaVenta.toLocalDate(), metodoPago.name(), estado.name(),
+                Math.floorMod(sesionId, cubetas), ventas, monto);
+    }
+
+    /**
+     * Suma (signo 1) o resta (signo -1) las unidades y montos de cada producto de
+     * la venta en un solo lote JDBC. Debe llamarse dentro de la transacción que
+     * guarda la venta.
+     */
+    public void registrarProductos(LocalDateTime fechaVenta, List<DetalleVenta> detalles, int signo) {
+        // Same product_id order as the stock updates, so concurrent tickets cannot deadlock
+        Map<Integer, Long> cantidades = new TreeMap<>();
+        Map<Integer, BigDecimal> montos = new TreeMap<>();
+        for (DetalleVenta detalle : detalles) {
+            Integer productoId = detalle.getProducto().getProductoId();
+            cantidades.merge(productoId, (long) detalle.getCantidad(), Long::sum);
+            montos.merge(productoId, detalle.getSubtotal(), BigDecimal::add);
+        }
+        if (cantidades.isEmpty()) {
+            return;
+        }
+
+        java.sql.Date fecha = java.sql.Date.valueOf(fechaVenta.toLocalDate());
+        List<Object[]> parametros = new ArrayList<>(cantidades.size());
+        cantidades.forEach((productoId, cantidad) -> parametros.add(new Object[] { fecha, productoId,
+                signo * cantidad, signo < 0 ? montos.get(productoId).negate() : montos.get(productoId) }));
+
+        jdbcTemplate.batchUpdate(SQL_ACUMULAR_PRODUCTO, parametros);
+    }
+
+    public boolean isListo() {
+        return listo;
+    }
+
+    /**
+     * Ventas completadas por método de pago entre las dos fechas (ambas
+     * inclusive), igual que VentaRepository.obtenerVentasPorMetodo.
+     */
+    public List<VentasPorMetodoDTO> totalizarPorMetodo(LocalDateTime fechaInicio, LocalDateTime fechaFin) {
+        Map<MetodoPago, VentasPorMetodoDTO> totales = new EnumMap<>(MetodoPago.class);
+        RangoPorDias rango = RangoPorDias.de(fechaInicio, fechaFin);
+
+        if (!listo || !rango.divisible()) {
+            // Less than a day apart: the range scan is already small
+            sumar(totales, ventaRepository.obtenerVentasPorMetodo(fechaInicio, fechaFin));
+        } else {
+            if (rango.tieneHorasIniciales()) {
+                sumar(totales, ventaRepository.obtenerVentasPorMetodoAntesDe(fechaInicio, rango.inicioPrimerDia()));
+            }
+            if (rango.tieneDiasCompletos()) {
+                sumar(totales, resumenRepository.totalizarPorMetodo(rango.primerDia(), rango.ultimoDiaCompleto()));
+            }
+            sumar(totales, ventaRepository.obtenerVentasPorMetodo(rango.inicioUltimoDia(), fechaFin));
+        }
+
+        List<VentasPorMetodoDTO> resultado = new ArrayList<>();
+        for (VentasPorMetodoDTO total : totales.values()) {
+            if (total.getNumeroVentas() > 0) {
+                resultado.add(total);
+            }
+        }
+        return resultado;
+    }
+
+    /**
+     * Vuelve a calcular los resúmenes de los días indicados (ambos inclusive) a
+     * partir de la tabla Ventas. Bloquea primero las filas del rango: una venta
+     * que ya las actualizó termina antes de que se lean las ventas, y una que
+     * llega después suma su diferencia sobre el total reconstruido.
+     */
+    public void reconstruir(LocalDate desde, LocalDate hasta) {
+        LocalDate inicioLote = desde;
+        while (!inicioLote.isAfter(hasta)) {
+            LocalDate finLote = inicioLote.plusDays(DIAS_POR_LOTE - 1);
+            if (finLote.isAfter(hasta)) {
+                finLote = hasta;
+            }
+
+            LocalDate desdeLote = inicioLote;
+            LocalDate hastaLote = finLote;
+            transactionTemplate.executeWithoutResult(status -> {
+                resumenRepository.bloquearRango(desdeLote, hastaLote);
+                productoDiarioRepository.bloquearRango(desdeLote, hastaLote);
+
+                resumenRepository.vaciarRango(desdeLote, hastaLote);
+                resumenRepository.reconstruirRango(desdeLote.atStartOfDay(), hastaLote.plusDays(1).atStartOfDay());
+                resumenRepository.eliminarVacios(desdeLote, hastaLote);
+                productoDiarioRepository.vaciarRango(desdeLote, hastaLote);
+                productoDiarioRepository.reconstruirRango(desdeLote.atStartOfDay(),
+                        hastaLote.plusDays(1).atStartOfDay());
+                productoDiarioRepository.eliminarVacios(desdeLote, hastaLote);
+            });
+
+            inicioLote = finLote.plusDays(1);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void inicializar() {
+        try {
+            if (resumenRepository.primeraFecha() == null || productoDiarioRepository.primeraFecha() == null) {
+                LocalDateTime primeraVenta = ventaRepository.obtenerPrimeraFechaVenta();
+                if (primeraVenta != null) {
+                    System.out.println("Llenando el resumen diario de ventas desde " + primeraVenta.toLocalDate());
+                    reconstruir(primeraVenta.toLocalDate(), LocalDate.now());
+                }
+            }
+            listo = true;
+        } catch (Exception e) {
+            System.err.println("No se pudo llenar el resumen diario de ventas: " + e.getMessage());
+        }
+    }
+
+    @Scheduled(cron = "${ventas.resumen.reconstruccion.cron:0 30 3 * * *}")
+    public void reconstruirRecientes() {
+        // Today is still taking sales; it is rebuilt once it is over
+        LocalDate ayer = LocalDate.now().minusDays(1);
+        reconstruir(ayer.minusDays(diasReconstruccion - 1), ayer);
+        listo = true;
+    }
+
+    private static void sumar(Map<MetodoPago, VentasPorMetodoDTO> totales, List<Object[]> filas) {
+        for (Object[] row : filas) {
+            MetodoPago metodoPago = (MetodoPago) row[0];
+            int numeroVentas = ((Number) row[1]).intValue();
+            BigDecimal monto = row[2] != null ? (BigDecimal) row[2] : BigDecimal.ZERO;
+
+            totales.merge(metodoPago,
+                    VentasPorMetodoDTO.builder()
+                            .metodoPago(metodoPago)
+                            .numeroVentas(numeroVentas)
+                            .montoTotal(monto)
+                            .build(),
+                    (actual, nuevo) -> VentasPorMetodoDTO.builder()
+                            .metodoPago(metodoPago)
+                            .numeroVentas(actual.getNumeroVentas() + nuevo.getNumeroVentas())
+                            .montoTotal(actual.getMontoTotal().add(nuevo.getMontoTotal()))
+                            .build());
+        }
+    }
+}
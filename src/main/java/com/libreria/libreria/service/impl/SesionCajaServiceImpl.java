@@ -6,12 +6,17 @@ import com.libreria.libreria.dto.SesionCajaDTO;
 import com.libreria.libreria.model.SesionCaja;
 import com.libreria.libreria.model.Usuario;
 import com.libreria.libreria.model.enums.EstadoSesion;
+import com.libreria.libreria.model.enums.EstadoVenta;
+import com.libreria.libreria.model.enums.MetodoPago;
 import com.libreria.libreria.repository.SesionCajaRepository;
 import com.libreria.libreria.repository.UsuarioRepository;
 import com.libreria.libreria.service.SesionCajaService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -22,13 +27,16 @@ public class SesionCajaServiceImpl implements SesionCajaService {
         private final SesionCajaRepository sesionCajaRepository;
         private final UsuarioRepository usuarioRepository;
         private final com.libreria.libreria.repository.VentaRepository ventaRepository;
+        private final TransactionTemplate transactionTemplate;
 
         @Autowired
         public SesionCajaServiceImpl(SesionCajaRepository sesionCajaRepository, UsuarioRepository usuarioRepository,
-                        com.libreria.libreria.repository.VentaRepository ventaRepository) {
+                        com.libreria.libreria.repository.VentaRepository ventaRepository,
+                        PlatformTransactionManager transactionManager) {
                 this.sesionCajaRepository = sesionCajaRepository;
                 this.usuarioRepository = usuarioRepository;
                 this.ventaRepository = ventaRepository;
+                this.transactionTemplate = new TransactionTemplate(transactionManager);
         }
 
         @Override
@@ -65,7 +73,7 @@ public class SesionCajaServiceImpl implements SesionCajaService {
         @Override
         @Transactional
         public SesionCajaDTO cerrarSesion(Integer sesionId, CierreCajaDTO dto) {
-                SesionCaja sesion = sesionCajaRepository.findById(sesionId)
+                SesionCaja sesion = sesionCajaRepository.bloquearPorId(sesionId)
                                 .orElseThrow(() -> new RuntimeException("Sesión no encontrada con ID: " + sesionId));
 
                 if (sesion.getEstado() == EstadoSesion.Cerrada) {
@@ -76,15 +84,8 @@ public class SesionCajaServiceImpl implements SesionCajaService {
                                 .orElseThrow(() -> new RuntimeException(
                                                 "Usuario no encontrado con ID: " + dto.getUsuarioId()));
 
-                // Sumar las ventas realizadas en efectivo durante la sesión
-                BigDecimal ventasEfectivo = ventaRepository.findBySesion_SesionIdAndEstadoAndMetodoPago(
-                                sesionId,
-                                com.libreria.libreria.model.enums.EstadoVenta.Completada,
-                                com.libreria.libreria.model.enums.MetodoPago.Efectivo).stream()
-                                .map(com.libreria.libreria.model.Venta::getMontoTotal)
-                                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-                BigDecimal montoEsperado = sesion.getMontoInicial().add(ventasEfectivo);
+                // Ventas en efectivo acumuladas durante la sesión
+                BigDecimal montoEsperado = calcularMontoEsperado(sesion);
                 BigDecimal diferencia = dto.getMontoFinalContado().subtract(montoEsperado);
 
                 sesion.setUsuarioCierre(usuarioCierre);
@@ -97,19 +98,91 @@ public class SesionCajaServiceImpl implements SesionCajaService {
                 return mapToDTO(sesionCajaRepository.save(sesion));
         }
 
+        /**
+         * Compara los totales acumulados de cada sesión abierta contra las ventas
+         * registradas y los corrige si difieren.
+         */
+        @Override
+        @Scheduled(fixedDelayString = "${caja.reconciliacion.intervalo-ms:300000}")
+        public void reconciliarTotales() {
+                // One short transaction per session, so each row lock is held only while
+                // that session is reconciled and not until the whole loop ends
+                for (Integer sesionId : sesionCajaRepository.findIdsByEstado(EstadoSesion.Abierta)) {
+                        transactionTemplate.executeWithoutResult(estado -> reconciliarSesion(sesionId));
+                }
+        }
+
+        private void reconciliarSesion(Integer sesionId) {
+                // The row lock makes concurrent sales wait, so the ledger read below
+                // cannot miss a sale whose delta is already in the running totals
+                SesionCaja sesion = sesionCajaRepository.bloquearPorId(sesionId).orElse(null);
+                if (sesion == null || sesion.getEstado() != EstadoSesion.Abierta) {
+                        return;
+                }
+
+                BigDecimal efectivo = BigDecimal.ZERO;
+                BigDecimal tarjeta = BigDecimal.ZERO;
+                BigDecimal mixto = BigDecimal.ZERO;
+                BigDecimal anulado = BigDecimal.ZERO;
+                int numeroVentas = 0;
+
+                for (Object[] row : ventaRepository.totalizarPorSesion(sesionId)) {
+                        MetodoPago metodoPago = (MetodoPago) row[0];
+                        EstadoVenta estado = (EstadoVenta) row[1];
+                        int cantidad = ((Long) row[2]).intValue();
+                        BigDecimal monto = (BigDecimal) row[3];
+
+                        if (estado == EstadoVenta.Anulada) {
+                                anulado = anulado.add(monto);
+                                continue;
+                        }
+
+                        numeroVentas += cantidad;
+                        switch (metodoPago) {
+                                case Efectivo:
+                                        efectivo = efectivo.add(monto);
+                                        break;
+                                case Tarjeta:
+                                        tarjeta = tarjeta.add(monto);
+                                        break;
+                                case Mixto:
+                                        mixto = mixto.add(monto);
+                                        break;
+                        }
+                }
+
+                if (!coincide(sesion.getTotalEfectivo(), efectivo)
+                                || !coincide(sesion.getTotalTarjeta(), tarjeta)
+                                || !coincide(sesion.getTotalMixto(), mixto)
+                                || !coincide(sesion.getTotalAnulado(), anulado)
+                                || !Integer.valueOf(numeroVentas).equals(sesion.getNumeroVentas())) {
+                        System.err.println("Totales de caja desincronizados en sesión " + sesionId
+                                        + ", corrigiendo desde el registro de ventas.");
+                        sesion.setTotalEfectivo(efectivo);
+                        sesion.setTotalTarjeta(tarjeta);
+                        sesion.setTotalMixto(mixto);
+                        sesion.setTotalAnulado(anulado);
+                        sesion.setNumeroVentas(numeroVentas);
+                }
+        }
+
+        private boolean coincide(BigDecimal acumulado, BigDecimal real) {
+                return acumulado != null && acumulado.compareTo(real) == 0;
+        }
+
+        private BigDecimal calcularMontoEsperado(SesionCaja sesion) {
+                BigDecimal ventasEfectivo = sesion.getTotalEfectivo() != null ? sesion.getTotalEfectivo()
+                                : BigDecimal.ZERO;
+                return sesion.getMontoInicial().add(ventasEfectivo);
+        }
+
         private SesionCajaDTO mapToDTO(SesionCaja sesion) {
                 BigDecimal montoEsperado = sesion.getMontoFinalEsperado();
 
-                // Si la sesión está abierta, calculamos el monto esperado en tiempo real para
-                // mostrar al usuario
+                // Si la sesión está abierta, el monto esperado sale de los totales
+                // acumulados, sin recorrer las ventas
                 if (sesion.getEstado() == EstadoSesion.Abierta) {
-                        BigDecimal ventasEfectivo = ventaRepository.findBySesion_SesionIdAndEstadoAndMetodoPago(
-                                        sesion.getSesionId(),
-                                        com.libreria.libreria.model.enums.EstadoVenta.Completada,
-                                        com.libreria.libreria.model.enums.MetodoPago.Efectivo).stream()
-                                        .map(com.libreria.libreria.model.Venta::getMontoTotal)
-                                        .reduce(BigDecimal.ZERO, BigDecimal::add);
-                        montoEsperado = sesion.getMontoInicial().add(ventasEfectivo);
+                        montoEsperado = calcularMontoEsperado(sesion);
                 }
 
                 return SesionCajaDTO.builder()
@@ -129,6 +202,11 @@ public class SesionCajaServiceImpl implements SesionCajaService {
                                 .montoFinalEsperado(montoEsperado)
                                 .montoFinalContado(sesion.getMontoFinalContado())
                                 .diferencia(sesion.getDiferencia())
+                                .totalEfectivo(sesion.getTotalEfectivo())
+                                .totalTarjeta(sesion.getTotalTarjeta())
+                                .totalMixto(sesion.getTotalMixto())
+                                .totalAnulado(sesion.getTotalAnulado())
+                                .numeroVentas(sesion.getNumeroVentas())
                                 .estado(sesion.getEstado())
                                 .build();
         }
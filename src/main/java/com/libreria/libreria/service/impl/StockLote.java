@@ -0,0 +1,71 @@
+package com.libreria.libreria.service.impl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Stock de los productos de un lote de ventas sincronizadas. Parte del stock
+ * leído con bloqueo al inicio de la transacción y descuenta cada venta que se
+ * acepta, así que cada venta se decide sin volver a la base de datos y al final
+ * se aplica todo en un solo lote.
+ */
+final class StockLote {
+
+    /**
+     * Qué hacer con una venta sin conexión que deja stock negativo
+     */
+    public enum PoliticaStockNegativo {
+        // La venta no se guarda y se informa como ConflictoStock
+        RECHAZAR,
+        // La venta se guarda igual: la mercadería ya se entregó en la tienda
+        PERMITIR
+    }
+
+    private final Map<Integer, Integer> disponible;
+    private final Map<Integer, Integer> descontado = new TreeMap<>();
+    private final PoliticaStockNegativo politica;
+
+    StockLote(Map<Integer, Integer> disponible, PoliticaStockNegativo politica) {
+        this.disponible = new HashMap<>(disponible);
+        this.politica = politica;
+    }
+
+    /**
+     * Descuenta las cantidades de una venta. Con RECHAZAR no descuenta nada si
+     * algún producto no alcanza.
+     *
+     * @param cantidades cantidad por ID de producto
+     * @return productos cuyo stock no alcanzaba (vacío si todos alcanzaban)
+     */
+    List<Integer> reservar(Map<Integer, Integer> cantidades) {
+        List<Integer> faltantes = new ArrayList<>();
+        cantidades.forEach((productoId, cantidad) -> {
+            if (disponible(productoId) < cantidad) {
+                faltantes.add(productoId);
+            }
+        });
+        if (!faltantes.isEmpty() && politica == PoliticaStockNegativo.RECHAZAR) {
+            return faltantes;
+        }
+
+        cantidades.forEach((productoId, cantidad) -> {
+            disponible.merge(productoId, -cantidad, Integer::sum);
+            descontado.merge(productoId, cantidad, Integer::sum);
+        });
+        return faltantes;
+    }
+
+    int disponible(Integer productoId) {
+        return disponible.getOrDefault(productoId, 0);
+    }
+
+    /**
+     * Total a descontar por producto de todas las ventas aceptadas
+     */
+    Map<Integer, Integer> descontado() {
+        return descontado;
+    }
+}
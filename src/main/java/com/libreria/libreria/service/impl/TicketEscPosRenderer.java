@@ -0,0 +1,165 @@
+package com.libreria.libreria.service.impl;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Ticket para impresoras térmicas ESC/POS (80 mm, 48 columnas en la fuente A)
+ * con el mismo contenido que la factura PDF.
+ *
+ * La vista previa en texto sale de la misma composición, sin los comandos de
+ * la impresora. Todo el texto se alinea con espacios, así que la vista previa
+ * se ve igual que el papel, salvo el tamaño del título y el total.
+ */
+@Component
+public class TicketEscPosRenderer {
+
+    // Western European code page with the accents, ñ and ¡ used in the invoice
+    private static final Charset CODIFICACION = Charset.forName("IBM850");
+
+    private static final byte ESC = 0x1B;
+    private static final byte GS = 0x1D;
+    private static final byte[] INICIAR = { ESC, '@', ESC, 't', 2 };
+    private static final byte[] NEGRITA_SI = { ESC, 'E', 1 };
+    private static final byte[] NEGRITA_NO = { ESC, 'E', 0 };
+    private static final byte[] CENTRAR = { ESC, 'a', 1 };
+    private static final byte[] IZQUIERDA = { ESC, 'a', 0 };
+    private static final byte[] DOBLE = { GS, '!', 0x11 };
+    private static final byte[] DOBLE_ALTO = { GS, '!', 0x01 };
+    private static final byte[] NORMAL = { GS, '!', 0x00 };
+    // Feed past the cutter, then partial cut
+    private static final byte[] CORTAR = { ESC, 'd', 4, GS, 'V', 1 };
+
+    private enum Estilo {
+        NORMAL, NEGRITA, TITULO, TOTAL
+    }
+
+    /** Recibe las líneas ya compuestas del ticket. */
+    private interface Salida {
+        void linea(String texto, Estilo estilo);
+    }
+
+    private final int columnas;
+    private final String separador;
+
+    public TicketEscPosRenderer(@Value("${ventas.ticket.columnas:48}") int columnas) {
+        this.columnas = columnas;
+        char[] guiones = new char[columnas];
+        Arrays.fill(guiones, '-');
+        this.separador = new String(guiones);
+    }
+
+    public byte[] renderizar(FacturaDocumento factura) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(1024 + factura.lineas().size() * columnas * 2);
+        out.writeBytes(INICIAR);
+
+        componer(factura, (texto, estilo) -> {
+            switch (estilo) {
+                case TITULO -> {
+                    out.writeBytes(CENTRAR);
+                    out.writeBytes(DOBLE);
+                    out.writeBytes(texto.getBytes(CODIFICACION));
+                    out.writeBytes(NORMAL);
+                    out.writeBytes(IZQUIERDA);
+                }
+                case TOTAL -> {
+                    out.writeBytes(NEGRITA_SI);
+                    out.writeBytes(DOBLE_ALTO);
+                    out.writeBytes(texto.getBytes(CODIFICACION));
+                    out.writeBytes(NORMAL);
+                    out.writeBytes(NEGRITA_NO);
+                }
+                case NEGRITA -> {
+                    out.writeBytes(NEGRITA_SI);
+                    out.writeBytes(texto.getBytes(CODIFICACION));
+                    out.writeBytes(NEGRITA_NO);
+                }
+                default -> out.writeBytes(texto.getBytes(CODIFICACION));
+            }
+            out.write('\n');
+        });
+
+        out.writeBytes(CORTAR);
+        return out.toByteArray();
+    }
+
+    public String previsualizar(FacturaDocumento factura) {
+        StringBuilder texto = new StringBuilder(512 + factura.lineas().size() * columnas * 2);
+        componer(factura, (linea, estilo) -> {
+            if (estilo == Estilo.TITULO) {
+                centrar(texto, linea);
+            } else {
+                texto.append(linea);
+            }
+            texto.append('\n');
+        });
+        return texto.toString();
+    }
+
+    private void componer(FacturaDocumento factura, Salida salida) {
+        salida.linea(FacturaDocumento.NOMBRE_TIENDA, Estilo.TITULO);
+        salida.linea(centrado(FacturaDocumento.TITULO), Estilo.NEGRITA);
+        salida.linea("", Estilo.NORMAL);
+
+        salida.linea(ajustar("No. de Factura: #" + factura.ventaId()), Estilo.NORMAL);
+        salida.linea(ajustar("Fecha: " + factura.fecha()), Estilo.NORMAL);
+        salida.linea(ajustar("Cliente: " + factura.cliente()), Estilo.NORMAL);
+        salida.linea(ajustar("NIT: " + factura.nit()), Estilo.NORMAL);
+        salida.linea(ajustar("Vendedor: " + factura.vendedor()), Estilo.NORMAL);
+        salida.linea(ajustar("Método de Pago: " + factura.metodoPago()), Estilo.NORMAL);
+        salida.linea(separador, Estilo.NORMAL);
+
+        for (FacturaDocumento.Linea linea : factura.lineas()) {
+            String producto = linea.producto();
+            while (producto.length() > columnas) {
+                salida.linea(producto.substring(0, columnas), Estilo.NORMAL);
+                producto = producto.substring(columnas);
+            }
+            salida.linea(producto, Estilo.NORMAL);
+            salida.linea(extremos("  " + linea.cantidad() + " x " + linea.precioUnitario(), linea.subtotal()),
+                    Estilo.NORMAL);
+        }
+
+        salida.linea(separador, Estilo.NORMAL);
+        salida.linea(extremos("TOTAL:", factura.total()), Estilo.TOTAL);
+        salida.linea("", Estilo.NORMAL);
+        salida.linea(centrado(FacturaDocumento.PIE), Estilo.NORMAL);
+    }
+
+    private String ajustar(String texto) {
+        return texto.length() > columnas ? texto.substring(0, columnas) : texto;
+    }
+
+    private String centrado(String texto) {
+        StringBuilder linea = new StringBuilder(columnas);
+        centrar(linea, texto);
+        return linea.toString();
+    }
+
+    private void centrar(StringBuilder destino, String texto) {
+        String ajustado = ajustar(texto);
+        int margen = (columnas - ajustado.length()) / 2;
+        for (int i = 0; i < margen; i++) {
+            destino.append(' ');
+        }
+        destino.append(ajustado);
+    }
+
+    // Left text and right text on the same line, the left one cut if both do not fit
+    private String extremos(String izquierda, String derecha) {
+        int espacio = columnas - derecha.length() - 1;
+        if (izquierda.length() > espacio) {
+            izquierda = izquierda.substring(0, Math.max(0, espacio));
+        }
+        StringBuilder linea = new StringBuilder(columnas);
+        linea.append(izquierda);
+        while (linea.length() < columnas - derecha.length()) {
+            linea.append(' ');
+        }
+        return linea.append(derecha).toString();
+    }
+}
@@ -15,10 +15,12 @@ import java.util.stream.Collectors;
 public class UbicacionServiceImpl implements UbicacionService {
 
     private final UbicacionRepository ubicacionRepository;
+    private final CacheReferencias cacheReferencias;
 
     @Autowired
-    public UbicacionServiceImpl(UbicacionRepository ubicacionRepository) {
+    public UbicacionServiceImpl(UbicacionRepository ubicacionRepository, CacheReferencias cacheReferencias) {
         this.ubicacionRepository = ubicacionRepository;
+        this.cacheReferencias = cacheReferencias;
     }
 
     @Override
@@ -42,7 +44,9 @@ public class UbicacionServiceImpl implements UbicacionService {
                 .nombreCorto(dto.getNombreCorto())
                 .descripcion(dto.getDescripcion())
                 .build();
-        return mapToDTO(ubicacionRepository.save(ubicacion));
+        UbicacionDTO creada = mapToDTO(ubicacionRepository.save(ubicacion));
+        cacheReferencias.evictar(CacheReferencias.UBICACIONES);
+        return creada;
     }
 
     @Override
@@ -54,7 +58,9 @@ public class UbicacionServiceImpl implements UbicacionService {
         ubicacion.setNombreCorto(dto.getNombreCorto());
         ubicacion.setDescripcion(dto.getDescripcion());
 
-        return mapToDTO(ubicacionRepository.save(ubicacion));
+        UbicacionDTO actualizada = mapToDTO(ubicacionRepository.save(ubicacion));
+        cacheReferencias.evictar(CacheReferencias.UBICACIONES);
+        return actualizada;
     }
 
     @Override
@@ -64,6 +70,7 @@ public class UbicacionServiceImpl implements UbicacionService {
             throw new RuntimeException("Ubicación no encontrada con ID: " + id);
         }
         ubicacionRepository.deleteById(id);
+        cacheReferencias.evictar(CacheReferencias.UBICACIONES);
     }
 
     private UbicacionDTO mapToDTO(Ubicacion ubicacion) {
@@ -8,6 +8,7 @@ import com.libreria.libreria.model.Usuario;
 import com.libreria.libreria.model.enums.TipoAccion;
 import com.libreria.libreria.repository.RolRepository;
 import com.libreria.libreria.repository.UsuarioRepository;
+import com.libreria.libreria.security.UsuarioPrincipalCache;
 import com.libreria.libreria.service.AuditLogService;
 import com.libreria.libreria.service.UsuarioService;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -26,14 +27,17 @@ public class UsuarioServiceImpl implements UsuarioService {
     private final RolRepository rolRepository;
     private final PasswordEncoder passwordEncoder;
     private final AuditLogService auditLogService;
+    private final UsuarioPrincipalCache principalCache;
 
     @Autowired
     public UsuarioServiceImpl(UsuarioRepository usuarioRepository, RolRepository rolRepository,
-            PasswordEncoder passwordEncoder, AuditLogService auditLogService) {
+            PasswordEncoder passwordEncoder, AuditLogService auditLogService,
+            UsuarioPrincipalCache principalCache) {
         this.usuarioRepository = usuarioRepository;
         this.rolRepository = rolRepository;
         this.passwordEncoder = passwordEncoder;
         this.auditLogService = auditLogService;
+        this.principalCache = principalCache;
     }
 
     @Override
@@ -82,6 +86,55 @@ public class UsuarioServiceImpl implements UsuarioService {
         return mapToDTO(savedUsuario);
     }
 
+    @Override
+    @Transactional
+    public UsuarioDTO cambiarRol(Integer id, Integer rolId) {
+        Usuario usuario = usuarioRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
+        Rol rol = rolRepository.findById(rolId)
+                .orElseThrow(() -> new RuntimeException("Rol no encontrado"));
+
+        usuario.setRol(rol);
+        Usuario updated = usuarioRepository.save(usuario);
+
+        // Authorities change: the cached principal must not outlive this commit
+        principalCache.invalidar(updated.getUsername());
+
+        // Audit log
+        try {
+            auditLogService.logAccion(updated.getUsuarioId(), TipoAccion.UPDATE, "Usuario", updated.getUsuarioId(),
+                    "Rol cambiado a " + rol.getNombre() + ": " + updated.getUsername());
+        } catch (Exception e) {
+            // Continue even if audit fails
+        }
+
+        return mapToDTO(updated);
+    }
+
+    @Override
+    @Transactional
+    public UsuarioDTO cambiarEstado(Integer id, Boolean activo) {
+        Usuario usuario = usuarioRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
+
+        usuario.setActivo(activo);
+        Usuario updated = usuarioRepository.save(usuario);
+
+        // Deactivation must take effect on the next request, not after the cache TTL
+        principalCache.invalidar(updated.getUsername());
+
+        // Audit log
+        try {
+            auditLogService.logAccion(updated.getUsuarioId(), TipoAccion.UPDATE, "Usuario", updated.getUsuarioId(),
+                    (Boolean.TRUE.equals(activo) ? "Usuario activado: " : "Usuario desactivado: ")
+                            + updated.getUsername());
+        } catch (Exception e) {
+            // Continue even if audit fails
+        }
+
+        return mapToDTO(updated);
+    }
+
     @Override
     public Optional<Usuario> login(LoginDTO loginDTO) {
         System.out.println("Intentando login para usuario: " + loginDTO.getUsername());
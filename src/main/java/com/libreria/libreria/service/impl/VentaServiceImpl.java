@@ -1,35 +1,78 @@
 package com.libreria.libreria.service.impl;
 
+import com.libreria.libreria.config.LecturaEnReplica;
 import com.libreria.libreria.dto.DetalleVentaDTO;
+import com.libreria.libreria.dto.EstadisticasVentasDTO;
+import com.libreria.libreria.dto.FacturaPdfDTO;
+import com.libreria.libreria.dto.ProductoMasVendidoDTO;
+import com.libreria.libreria.dto.ResultadoSincronizacionDTO;
 import com.libreria.libreria.dto.VentaDTO;
+import com.libreria.libreria.dto.VentaOfflineDTO;
+import com.libreria.libreria.dto.VentaPaginaDTO;
+import com.libreria.libreria.dto.VentaResumenDTO;
+import com.libreria.libreria.dto.VentasPorMetodoDTO;
 import com.libreria.libreria.exception.StockInsuficienteException;
 import com.libreria.libreria.model.*;
+import com.libreria.libreria.model.enums.EstadoSesion;
 import com.libreria.libreria.model.enums.EstadoVenta;
+import com.libreria.libreria.model.enums.FormatoExportacion;
+import com.libreria.libreria.model.enums.FormatoFactura;
 import com.libreria.libreria.model.enums.NivelPrecio;
 import com.libreria.libreria.model.enums.MetodoPago;
+import com.libreria.libreria.model.enums.ResultadoSincronizacion;
 import com.libreria.libreria.model.enums.TipoAccion;
 import com.libreria.libreria.repository.*;
 import com.libreria.libreria.service.AuditLogService;
 import com.libreria.libreria.service.VentaService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.OutputStream;
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
 public class VentaServiceImpl implements VentaService {
 
+        private static final int TAMANO_PAGINA_DEFECTO = 20;
+        private static final int TAMANO_PAGINA_MAXIMO = 100;
+
         private final VentaRepository ventaRepository;
         private final ProductoRepository productoRepository;
         private final ClienteRepository clienteRepository;
         private final UsuarioRepository usuarioRepository;
         private final SesionCajaRepository sesionCajaRepository;
         private final AuditLogService auditLogService;
+        private final CatalogoProductosCache catalogo;
+        private final ResumenVentasDiario resumenDiario;
+        private final RankingProductosVendidos rankingProductos;
+        private final ExportadorVentas exportador;
+        private final FacturaPdfRenderer facturaRenderer;
+        private final FacturaPdfCache facturaCache;
+        private final TicketEscPosRenderer ticketRenderer;
+        private final FacturasMasivas facturasMasivas;
+        private final VentasIdempotentes ventasIdempotentes;
+        private final MetricasVentas metricas;
+        private final StockLote.PoliticaStockNegativo politicaStockNegativo;
+        private final int maximoLoteSincronizacion;
+        private final int maximoDiasReconstruccion;
 
         @Autowired
         public VentaServiceImpl(VentaRepository ventaRepository,
@@ -37,18 +80,46 @@ public class VentaServiceImpl implements VentaService {
                         ClienteRepository clienteRepository,
                         UsuarioRepository usuarioRepository,
                         SesionCajaRepository sesionCajaRepository,
-                        AuditLogService auditLogService) {
+                        AuditLogService auditLogService,
+                        CatalogoProductosCache catalogo,
+                        ResumenVentasDiario resumenDiario,
+                        RankingProductosVendidos rankingProductos,
+                        ExportadorVentas exportador,
+                        FacturaPdfRenderer facturaRenderer,
+                        FacturaPdfCache facturaCache,
+                        TicketEscPosRenderer ticketRenderer,
+                        FacturasMasivas facturasMasivas,
+                        VentasIdempotentes ventasIdempotentes,
+                        MetricasVentas metricas,
+                        @Value("${ventas.sincronizacion.stock-negativo:RECHAZAR}") StockLote.PoliticaStockNegativo politicaStockNegativo,
+                        @Value("${ventas.sincronizacion.maximo-lote:500}") int maximoLoteSincronizacion,
+                        @Value("${ventas.resumen.reconstruccion.maximo-dias:366}") int maximoDiasReconstruccion) {
                 this.ventaRepository = ventaRepository;
                 this.productoRepository = productoRepository;
                 this.clienteRepository = clienteRepository;
                 this.usuarioRepository = usuarioRepository;
                 this.sesionCajaRepository = sesionCajaRepository;
                 this.auditLogService = auditLogService;
+                this.catalogo = catalogo;
+                this.resumenDiario = resumenDiario;
+                this.rankingProductos = rankingProductos;
+                this.exportador = exportador;
+                this.facturaRenderer = facturaRenderer;
+                this.facturaCache = facturaCache;
+                this.ticketRenderer = ticketRenderer;
+                this.facturasMasivas = facturasMasivas;
+                this.ventasIdempotentes = ventasIdempotentes;
+                this.metricas = metricas;
+                this.politicaStockNegativo = politicaStockNegativo;
+                this.maximoLoteSincronizacion = maximoLoteSincronizacion;
+                this.maximoDiasReconstruccion = maximoDiasReconstruccion;
         }
 
         @Override
         @Transactional
         public VentaDTO crearVenta(VentaDTO ventaDTO) {
+                metricas.medirCreacion(ventaDTO.getDetalles().size());
+
                 // 1. Fetch Related Entities
                 Cliente cliente = clienteRepository.findById(ventaDTO.getClienteId())
                                 .orElseThrow(() -> new RuntimeException(
@@ -62,7 +133,7 @@ public class VentaServiceImpl implements VentaService {
                                 .orElseThrow(() -> new RuntimeException(
                                                 "Sesion no encontrada ID: " + ventaDTO.getSesionId()));
 
-                if (sesion.getEstado() != com.libreria.libreria.model.enums.EstadoSesion.Abierta) {
+                if (sesion.getEstado() != EstadoSesion.Abierta) {
                         throw new RuntimeException("La sesión de caja no está abierta.");
                 }
 
@@ -78,54 +149,78 @@ public class VentaServiceImpl implements VentaService {
                                 .build();
 
                 // 3. Process Details
+                // Load every product of the ticket in a single query instead of one per line
+                Map<Integer, Producto> productos = productoRepository.findAllById(ventaDTO.getDetalles().stream()
+                                .map(DetalleVentaDTO::getProductoId)
+                                .collect(Collectors.toSet())).stream()
+                                .collect(Collectors.toMap(Producto::getProductoId, Function.identity()));
+
+                // Quantity taken per product so far; a product may appear in several lines
+                Map<Integer, Integer> cantidadesPorProducto = new LinkedHashMap<>();
                 BigDecimal montoTotalCalculado = BigDecimal.ZERO;
 
                 for (DetalleVentaDTO detDTO : ventaDTO.getDetalles()) {
-                        Producto producto = productoRepository.findById(detDTO.getProductoId())
-                                        .orElseThrow(() -> new RuntimeException(
-                                                        "Producto no encontrado ID: " + detDTO.getProductoId()));
+                        Producto producto = productos.get(detDTO.getProductoId());
+                        if (producto == null) {
+                                throw new RuntimeException("Producto no encontrado ID: " + detDTO.getProductoId());
+                        }
 
-                        // A. Validate Stock
-                        if (producto.getCantidadStock() < detDTO.getCantidad()) {
+                        // A. Validate Stock (discounting earlier lines of the same product)
+                        int stockDisponible = producto.getCantidadStock()
+                                        - cantidadesPorProducto.getOrDefault(producto.getProductoId(), 0);
+                        if (stockDisponible < detDTO.getCantidad()) {
+                                metricas.conflictoStock(false);
                                 throw new StockInsuficienteException(
                                                 "Stock insuficiente para producto: " + producto.getNombre() +
-                                                                ". Disponible: " + producto.getCantidadStock()
+                                                                ". Disponible: " + stockDisponible
                                                                 + ", Requerido: " + detDTO.getCantidad());
                         }
 
-                        // B. Select Price based on Cliente Level
-                        BigDecimal precioUnitario = determinarPrecio(producto, cliente.getNivelPrecioAsignado());
-
-                        // C. Calculate Subtotal (Backend logic)
-                        BigDecimal subtotal = precioUnitario.multiply(BigDecimal.valueOf(detDTO.getCantidad()));
-
-                        // Apply Manual Discount if any (assuming logic allows passing discount,
-                        // otherwise default 0)
-                        BigDecimal descuento = detDTO.getDescuento() != null ? detDTO.getDescuento() : BigDecimal.ZERO;
-                        subtotal = subtotal.subtract(descuento);
-
-                        // D. Deduct Stock
-                        producto.setCantidadStock(producto.getCantidadStock() - detDTO.getCantidad());
-                        productoRepository.save(producto); // Update stock immediately or let transaction handle it
-
-                        // E. Create Detalle Entity
-                        DetalleVenta detalle = DetalleVenta.builder()
-                                        .venta(venta)
-                                        .producto(producto)
-                                        .cantidad(detDTO.getCantidad())
-                                        .precioUnitario(precioUnitario)
-                                        .descuento(descuento)
-                                        .subtotal(subtotal)
-                                        .build();
+                        // B. Price, discount and subtotal for the Cliente level
+                        DetalleVenta detalle = crearDetalle(venta, producto, cliente.getNivelPrecioAsignado(), detDTO);
+
+                        // C. Reserve Stock (applied below in one batch)
+                        cantidadesPorProducto.merge(producto.getProductoId(), detDTO.getCantidad(), Integer::sum);
 
                         venta.getDetalles().add(detalle);
-                        montoTotalCalculado = montoTotalCalculado.add(subtotal);
+                        montoTotalCalculado = montoTotalCalculado.add(detalle.getSubtotal());
+                }
+
+                // Deduct stock for all lines in a single batched statement. The check above
+                // works on the snapshot we read; the conditional UPDATE is what guarantees that
+                // a concurrent register did not sell the same units in the meantime.
+                List<ProductoStockRepository.StockActualizado> descontados = productoRepository
+                                .descontarStock(cantidadesPorProducto);
+                if (descontados.size() < cantidadesPorProducto.size()) {
+                        metricas.conflictoStock(true);
+                        Set<Integer> conStock = descontados.stream()
+                                        .map(ProductoStockRepository.StockActualizado::productoId)
+                                        .collect(Collectors.toSet());
+                        Producto producto = cantidadesPorProducto.keySet().stream()
+                                        .filter(productoId -> !conStock.contains(productoId))
+                                        .findFirst()
+                                        .map(productos::get)
+                                        .orElseThrow();
+                        throw new StockInsuficienteException(
+                                        "Stock insuficiente para producto: " + producto.getNombre() +
+                                                        ". Disponible: "
+                                                        + productoRepository.obtenerStock(producto.getProductoId())
+                                                        + ", Requerido: "
+                                                        + cantidadesPorProducto.get(producto.getProductoId()));
                 }
+                catalogo.refrescarStock(descontados);
 
                 // 4. Set Total and Save
                 venta.setMontoTotal(montoTotalCalculado);
                 Venta savedVenta = ventaRepository.save(venta);
 
+                // 5. Update the cash session running totals
+                acumularTotalesSesion(sesion.getSesionId(), savedVenta.getMetodoPago(), montoTotalCalculado,
+                                BigDecimal.ZERO, 1);
+                resumenDiario.registrar(savedVenta.getFechaVenta(), savedVenta.getMetodoPago(),
+                                EstadoVenta.Completada, sesion.getSesionId(), 1, montoTotalCalculado);
+                resumenDiario.registrarProductos(savedVenta.getFechaVenta(), savedVenta.getDetalles(), 1);
+
                 // Audit log
                 try {
                         String detalles = String.format("Venta creada: ID %d, Cliente: %s, Monto: %s",
@@ -139,20 +234,269 @@ public class VentaServiceImpl implements VentaService {
                 return mapToDTO(savedVenta);
         }
 
+        // Not @Transactional: VentasIdempotentes opens the transaction around crearVenta and
+        // must see a duplicate key error only after it has been rolled back
         @Override
-        public List<VentaDTO> listarVentas() {
-                List<Venta> ventas = ventaRepository.findAllByOrderByFechaVentaDesc();
-                return ventas.stream().map(this::mapToDTO).collect(Collectors.toList());
+        public VentaDTO crearVenta(VentaDTO ventaDTO, String claveIdempotencia) {
+                return ventasIdempotentes.registrar(claveIdempotencia, ventaDTO, () -> crearVenta(ventaDTO),
+                                this::obtenerVentaPorId);
         }
 
         @Override
+        @Transactional
+        public List<ResultadoSincronizacionDTO> sincronizarVentas(List<VentaOfflineDTO> ventasOffline) {
+                if (ventasOffline.size() > maximoLoteSincronizacion) {
+                        throw new RuntimeException("El lote supera el máximo de " + maximoLoteSincronizacion
+                                        + " ventas.");
+                }
+                ResultadoSincronizacionDTO[] resultados = new ResultadoSincronizacionDTO[ventasOffline.size()];
+
+                // 1. Claim each uuid once; repeats inside the batch get the result of the first
+                Map<String, Integer> primeraPorClave = new HashMap<>();
+                Map<String, String> huellas = new LinkedHashMap<>();
+                for (int i = 0; i < ventasOffline.size(); i++) {
+                        String clave = ventasOffline.get(i).getUuid().toString();
+                        if (primeraPorClave.putIfAbsent(clave, i) == null) {
+                                huellas.put(clave, VentasIdempotentes.huella(ventasOffline.get(i).getVenta()));
+                        }
+                }
+                Set<String> reservadas = ventasIdempotentes.reservarLote(huellas);
+
+                // Already registered by an earlier sync, or by POST /api/ventas with that Idempotency-Key
+                Map<String, VentaIdempotencia> registradas = ventasIdempotentes.buscar(huellas.keySet().stream()
+                                .filter(clave -> !reservadas.contains(clave))
+                                .toList());
+                registradas.forEach((clave, registrada) -> {
+                        int i = primeraPorClave.get(clave);
+                        resultados[i] = registrada.getHuella().equals(huellas.get(clave))
+                                        ? resultado(ventasOffline.get(i), ResultadoSincronizacion.Duplicada,
+                                                        registrada.getVentaId(), null)
+                                        : resultado(ventasOffline.get(i), ResultadoSincronizacion.Rechazada, null,
+                                                        "El uuid ya se usó para otra venta con distinto contenido.");
+                });
+
+                // 2. Load everything the batch refers to in one query per table. Stock rows are
+                // locked first, so the checks below hold until commit.
+                List<Integer> pendientes = new ArrayList<>();
+                for (String clave : reservadas) {
+                        pendientes.add(primeraPorClave.get(clave));
+                }
+                // Stock is applied in the order the sales happened at the registers
+                pendientes.sort(Comparator.comparing((Integer i) -> ventasOffline.get(i).getFechaLocal())
+                                .thenComparing(Function.identity()));
+                List<VentaDTO> nuevas = pendientes.stream().map(i -> ventasOffline.get(i).getVenta()).toList();
+
+                Set<Integer> productoIds = nuevas.stream()
+                                .flatMap(v -> v.getDetalles().stream())
+                                .map(DetalleVentaDTO::getProductoId)
+                                .collect(Collectors.toSet());
+                Map<Integer, Integer> stocks = new HashMap<>();
+                if (!productoIds.isEmpty()) {
+                        for (Object[] row : productoRepository.bloquearStocks(productoIds)) {
+                                stocks.put(((Number) row[0]).intValue(), ((Number) row[1]).intValue());
+                        }
+                }
+                StockLote stock = new StockLote(stocks, politicaStockNegativo);
+
+                Map<Integer, Producto> productos = porId(productoRepository.findAllById(productoIds),
+                                Producto::getProductoId);
+                Map<Integer, Cliente> clientes = porId(clienteRepository.findAllById(
+                                nuevas.stream().map(VentaDTO::getClienteId).collect(Collectors.toSet())),
+                                Cliente::getClienteId);
+                Map<Integer, Usuario> usuarios = porId(usuarioRepository.findAllById(
+                                nuevas.stream().map(VentaDTO::getUsuarioId).collect(Collectors.toSet())),
+                                Usuario::getUsuarioId);
+                Map<Integer, SesionCaja> sesiones = porId(sesionCajaRepository.findAllById(
+                                nuevas.stream().map(VentaDTO::getSesionId).collect(Collectors.toSet())),
+                                SesionCaja::getSesionId);
+
+                // 3. Decide each sale against the running stock, with the same rules as crearVenta
+                LocalDateTime ahora = LocalDateTime.now();
+                List<Integer> aceptadas = new ArrayList<>();
+                List<Venta> ventas = new ArrayList<>();
+                for (int i : pendientes) {
+                        VentaOfflineDTO offline = ventasOffline.get(i);
+                        VentaDTO ventaDTO = offline.getVenta();
+
+                        Cliente cliente = clientes.get(ventaDTO.getClienteId());
+                        Usuario usuario = usuarios.get(ventaDTO.getUsuarioId());
+                        SesionCaja sesion = sesiones.get(ventaDTO.getSesionId());
+                        String problema = null;
+                        if (cliente == null) {
+                                problema = "Cliente no encontrado ID: " + ventaDTO.getClienteId();
+                        } else if (usuario == null) {
+                                problema = "Usuario no encontrado ID: " + ventaDTO.getUsuarioId();
+                        } else if (sesion == null) {
+                                problema = "Sesion no encontrada ID: " + ventaDTO.getSesionId();
+                        } else if (sesion.getEstado() != EstadoSesion.Abierta) {
+                                problema = "La sesión de caja no está abierta.";
+                        }
+                        Map<Integer, Integer> cantidades = new LinkedHashMap<>();
+                        for (DetalleVentaDTO detDTO : ventaDTO.getDetalles()) {
+                                if (problema == null && !productos.containsKey(detDTO.getProductoId())) {
+                                        problema = "Producto no encontrado ID: " + detDTO.getProductoId();
+                                }
+                                cantidades.merge(detDTO.getProductoId(), detDTO.getCantidad(), Integer::sum);
+                        }
+                        if (problema != null) {
+                                resultados[i] = resultado(offline, ResultadoSincronizacion.Rechazada, null, problema);
+                                continue;
+                        }
+
+                        Map<Integer, Integer> disponibles = new HashMap<>();
+                        cantidades.keySet().forEach(id -> disponibles.put(id, stock.disponible(id)));
+                        List<Integer> sinStock = stock.reservar(cantidades);
+                        String aviso = null;
+                        if (!sinStock.isEmpty()) {
+                                Producto producto = productos.get(sinStock.get(0));
+                                aviso = "Stock insuficiente para producto: " + producto.getNombre() +
+                                                ". Disponible: " + disponibles.get(producto.getProductoId())
+                                                + ", Requerido: " + cantidades.get(producto.getProductoId());
+                                if (politicaStockNegativo == StockLote.PoliticaStockNegativo.RECHAZAR) {
+                                        resultados[i] = resultado(offline, ResultadoSincronizacion.ConflictoStock,
+                                                        null, aviso);
+                                        continue;
+                                }
+                        }
+
+                        // A sale cannot be dated after it reaches the server, whatever the register clock says
+                        Venta venta = Venta.builder()
+                                        .cliente(cliente)
+                                        .usuario(usuario)
+                                        .sesion(sesion)
+                                        .fechaVenta(offline.getFechaLocal().isAfter(ahora) ? ahora
+                                                        : offline.getFechaLocal())
+                                        .metodoPago(ventaDTO.getMetodoPago())
+                                        .estado(EstadoVenta.Completada)
+                                        .detalles(new ArrayList<>())
+                                        .build();
+                        BigDecimal montoTotal = BigDecimal.ZERO;
+                        for (DetalleVentaDTO detDTO : ventaDTO.getDetalles()) {
+                                DetalleVenta detalle = crearDetalle(venta, productos.get(detDTO.getProductoId()),
+                                                cliente.getNivelPrecioAsignado(), detDTO);
+                                venta.getDetalles().add(detalle);
+                                montoTotal = montoTotal.add(detalle.getSubtotal());
+                        }
+                        venta.setMontoTotal(montoTotal);
+
+                        resultados[i] = resultado(offline, ResultadoSincronizacion.Aceptada, null, aviso);
+                        aceptadas.add(i);
+                        ventas.add(venta);
+                }
+
+                // 4. Write the accepted sales and every total they touch in batches
+                List<Venta> guardadas = ventaRepository.saveAll(ventas);
+                catalogo.refrescarStock(productoRepository.descontarStockReservado(stock.descontado()));
+
+                record SesionMetodo(Integer sesionId, MetodoPago metodoPago) {
+                }
+                record DiaMetodo(LocalDate dia, MetodoPago metodoPago, Integer sesionId) {
+                }
+                Map<String, Integer> ventaPorClave = new HashMap<>();
+                Map<SesionMetodo, BigDecimal> montosSesion = new LinkedHashMap<>();
+                Map<SesionMetodo, Integer> ventasSesion = new HashMap<>();
+                Map<DiaMetodo, BigDecimal> montosDia = new LinkedHashMap<>();
+                Map<DiaMetodo, Integer> ventasDia = new HashMap<>();
+                Map<LocalDate, List<DetalleVenta>> detallesDia = new TreeMap<>();
+                for (int j = 0; j < guardadas.size(); j++) {
+                        Venta venta = guardadas.get(j);
+                        ResultadoSincronizacionDTO resultado = resultados[aceptadas.get(j)];
+                        resultado.setVentaId(venta.getVentaId());
+                        ventaPorClave.put(resultado.getUuid().toString(), venta.getVentaId());
+
+                        SesionMetodo sesion = new SesionMetodo(venta.getSesion().getSesionId(), venta.getMetodoPago());
+                        montosSesion.merge(sesion, venta.getMontoTotal(), BigDecimal::add);
+                        ventasSesion.merge(sesion, 1, Integer::sum);
+                        DiaMetodo dia = new DiaMetodo(venta.getFechaVenta().toLocalDate(), venta.getMetodoPago(),
+                                        venta.getSesion().getSesionId());
+                        montosDia.merge(dia, venta.getMontoTotal(), BigDecimal::add);
+                        ventasDia.merge(dia, 1, Integer::sum);
+                        detallesDia.computeIfAbsent(dia.dia(), d -> new ArrayList<>()).addAll(venta.getDetalles());
+                }
+                montosSesion.forEach((sesion, monto) -> acumularTotalesSesion(sesion.sesionId(), sesion.metodoPago(),
+                                monto, BigDecimal.ZERO, ventasSesion.get(sesion)));
+                montosDia.forEach((dia, monto) -> resumenDiario.registrar(dia.dia().atStartOfDay(), dia.metodoPago(),
+                                EstadoVenta.Completada, dia.sesionId(), ventasDia.get(dia), monto));
+                detallesDia.forEach((dia, detalles) -> resumenDiario.registrarProductos(dia.atStartOfDay(),
+                                detalles, 1));
+
+                ventasIdempotentes.confirmarLote(ventaPorClave, reservadas.stream()
+                                .filter(clave -> !ventaPorClave.containsKey(clave))
+                                .toList());
+
+                // 5. Repeats inside the batch
+                for (int i = 0; i < ventasOffline.size(); i++) {
+                        if (resultados[i] != null) {
+                                continue;
+                        }
+                        String clave = ventasOffline.get(i).getUuid().toString();
+                        ResultadoSincronizacionDTO primera = resultados[primeraPorClave.get(clave)];
+                        if (!huellas.get(clave).equals(VentasIdempotentes.huella(ventasOffline.get(i).getVenta()))) {
+                                resultados[i] = resultado(ventasOffline.get(i), ResultadoSincronizacion.Rechazada, null,
+                                                "El uuid ya se usó para otra venta con distinto contenido.");
+                        } else if (primera.getVentaId() != null) {
+                                resultados[i] = resultado(ventasOffline.get(i), ResultadoSincronizacion.Duplicada,
+                                                primera.getVentaId(), null);
+                        } else {
+                                resultados[i] = resultado(ventasOffline.get(i), primera.getResultado(), null,
+                                                primera.getMensaje());
+                        }
+                }
+
+                // Audit log
+                for (Venta venta : guardadas) {
+                        try {
+                                String detalles = String.format("Venta sincronizada: ID %d, Cliente: %s, Monto: %s",
+                                                venta.getVentaId(), venta.getCliente().getNombreCompleto(),
+                                                venta.getMontoTotal());
+                                auditLogService.logAccion(venta.getUsuario().getUsuarioId(), TipoAccion.CREATE,
+                                                "Venta", venta.getVentaId(), detalles);
+                        } catch (Exception e) {
+                                // Continue even if audit fails
+                        }
+                }
+
+                return Arrays.asList(resultados);
+        }
+
+        @Override
+        @LecturaEnReplica
+        public VentaPaginaDTO listarVentas(LocalDateTime cursorFecha, Integer cursorId, Integer tamano) {
+                if ((cursorFecha == null) != (cursorId == null)) {
+                        throw new RuntimeException("cursorFecha y cursorId deben enviarse juntos.");
+                }
+
+                int tamanoPagina = tamano == null || tamano < 1 ? TAMANO_PAGINA_DEFECTO
+                                : Math.min(tamano, TAMANO_PAGINA_MAXIMO);
+
+                // Ask for one extra row to know whether there is a next page
+                Pageable pageable = PageRequest.of(0, tamanoPagina + 1);
+                List<VentaResumenDTO> ventas = cursorFecha == null
+                                ? ventaRepository.listarResumen(pageable)
+                                : ventaRepository.listarResumenDespuesDe(cursorFecha, cursorId, pageable);
+
+                boolean hayMas = ventas.size() > tamanoPagina;
+                List<VentaResumenDTO> contenido = hayMas ? ventas.subList(0, tamanoPagina) : ventas;
+                VentaResumenDTO ultima = contenido.isEmpty() ? null : contenido.get(contenido.size() - 1);
+
+                return VentaPaginaDTO.builder()
+                                .contenido(new ArrayList<>(contenido))
+                                .cursorFecha(hayMas ? ultima.getFechaVenta() : null)
+                                .cursorId(hayMas ? ultima.getVentaId() : null)
+                                .hayMas(hayMas)
+                                .build();
+        }
+
+        @Override
+        @Transactional(readOnly = true)
         public VentaDTO obtenerVentaPorId(Integer ventaId) {
-                Venta venta = ventaRepository.findById(ventaId)
+                Venta venta = ventaRepository.findConDetallesByVentaId(ventaId)
                                 .orElseThrow(() -> new RuntimeException("Venta no encontrada ID: " + ventaId));
                 return mapToDTO(venta);
         }
 
         @Override
+        @LecturaEnReplica
         public List<VentaDTO> filtrarVentas(LocalDateTime fechaInicio, LocalDateTime fechaFin,
                         Integer clienteId, MetodoPago metodoPago, EstadoVenta estado) {
                 List<Venta> ventas = ventaRepository.filtrarVentas(fechaInicio, fechaFin, clienteId, metodoPago,
@@ -163,33 +507,44 @@ public class VentaServiceImpl implements VentaService {
         @Override
         @Transactional
         public VentaDTO anularVenta(Integer ventaId, Integer usuarioId, String motivo) {
-                // 1. Fetch Venta
-                Venta venta = ventaRepository.findById(ventaId)
-                                .orElseThrow(() -> new RuntimeException("Venta no encontrada ID: " + ventaId));
+                metricas.medirAnulacion();
+
+                // 1. Fetch Usuario
+                Usuario usuarioAnulo = usuarioRepository.findById(usuarioId)
+                                .orElseThrow(() -> new RuntimeException("Usuario no encontrado ID: " + usuarioId));
 
-                // 2. Validate state
-                if (venta.getEstado() == EstadoVenta.Anulada) {
+                // 2. Claim the state transition before touching stock, so a concurrent void of the
+                // same sale finds no Completada row and stops here
+                if (ventaRepository.marcarAnulada(ventaId, motivo, LocalDateTime.now(), usuarioAnulo) == 0) {
+                        if (ventaRepository.obtenerEstado(ventaId).isEmpty()) {
+                                throw new RuntimeException("Venta no encontrada ID: " + ventaId);
+                        }
                         throw new RuntimeException("La venta ya está anulada.");
                 }
 
-                // 3. Fetch Usuario
-                Usuario usuarioAnulo = usuarioRepository.findById(usuarioId)
-                                .orElseThrow(() -> new RuntimeException("Usuario no encontrado ID: " + usuarioId));
+                // 3. Fetch Venta, already Anulada
+                Venta venta = ventaRepository.findConDetallesByVentaId(ventaId)
+                                .orElseThrow(() -> new RuntimeException("Venta no encontrada ID: " + ventaId));
 
                 // 4. Restore Stock
+                Map<Integer, Integer> cantidadesPorProducto = new LinkedHashMap<>();
                 for (DetalleVenta detalle : venta.getDetalles()) {
-                        Producto producto = detalle.getProducto();
-                        producto.setCantidadStock(producto.getCantidadStock() + detalle.getCantidad());
-                        productoRepository.save(producto);
+                        cantidadesPorProducto.merge(detalle.getProducto().getProductoId(), detalle.getCantidad(),
+                                        Integer::sum);
                 }
-
-                // 5. Update Venta
-                venta.setEstado(EstadoVenta.Anulada);
-                venta.setMotivoAnulacion(motivo);
-                venta.setFechaAnulacion(LocalDateTime.now());
-                venta.setUsuarioAnulo(usuarioAnulo);
-
-                Venta ventaAnulada = ventaRepository.save(venta);
+                catalogo.refrescarStock(productoRepository.incrementarStock(cantidadesPorProducto));
+                facturaCache.invalidar(ventaId);
+
+                // 5. Move the amount from its payment method to the voided total
+                Integer sesionId = venta.getSesion().getSesionId();
+                acumularTotalesSesion(sesionId, venta.getMetodoPago(), venta.getMontoTotal().negate(),
+                                venta.getMontoTotal(), -1);
+                // Anulada before Completada: the key order in which a rebuild locks the rows
+                resumenDiario.registrar(venta.getFechaVenta(), venta.getMetodoPago(), EstadoVenta.Anulada, sesionId, 1,
+                                venta.getMontoTotal());
+                resumenDiario.registrar(venta.getFechaVenta(), venta.getMetodoPago(), EstadoVenta.Completada,
+                                sesionId, -1, venta.getMontoTotal().negate());
+                resumenDiario.registrarProductos(venta.getFechaVenta(), venta.getDetalles(), -1);
 
                 // Audit log
                 try {
@@ -199,7 +554,53 @@ public class VentaServiceImpl implements VentaService {
                         // Continue even if audit fails
                 }
 
-                return mapToDTO(ventaAnulada);
+                return mapToDTO(venta);
+        }
+
+        private static ResultadoSincronizacionDTO resultado(VentaOfflineDTO offline, ResultadoSincronizacion resultado,
+                        Integer ventaId, String mensaje) {
+                return ResultadoSincronizacionDTO.builder()
+                                .uuid(offline.getUuid())
+                                .resultado(resultado)
+                                .ventaId(ventaId)
+                                .mensaje(mensaje)
+                                .build();
+        }
+
+        private static <T> Map<Integer, T> porId(List<T> entidades, Function<T, Integer> id) {
+                return entidades.stream().collect(Collectors.toMap(id, Function.identity()));
+        }
+
+        private void acumularTotalesSesion(Integer sesionId, MetodoPago metodoPago, BigDecimal monto,
+                        BigDecimal anulado, int ventas) {
+                sesionCajaRepository.acumularTotales(sesionId,
+                                metodoPago == MetodoPago.Efectivo ? monto : BigDecimal.ZERO,
+                                metodoPago == MetodoPago.Tarjeta ? monto : BigDecimal.ZERO,
+                                metodoPago == MetodoPago.Mixto ? monto : BigDecimal.ZERO,
+                                anulado, ventas);
+        }
+
+        private DetalleVenta crearDetalle(Venta venta, Producto producto, NivelPrecio nivelPrecio,
+                        DetalleVentaDTO detDTO) {
+                BigDecimal precioUnitario = determinarPrecio(producto, nivelPrecio);
+
+                // Calculate Subtotal (Backend logic)
+                BigDecimal subtotal = precioUnitario.multiply(BigDecimal.valueOf(detDTO.getCantidad()));
+
+                // Apply Manual Discount if any (assuming logic allows passing discount,
+                // otherwise default 0)
+                BigDecimal descuento = detDTO.getDescuento() != null ? detDTO.getDescuento() : BigDecimal.ZERO;
+                subtotal = subtotal.subtract(descuento);
+
+                return DetalleVenta.builder()
+                                .venta(venta)
+                                .fechaVenta(venta.getFechaVenta())
+                                .producto(producto)
+                                .cantidad(detDTO.getCantidad())
+                                .precioUnitario(precioUnitario)
+                                .descuento(descuento)
+                                .subtotal(subtotal)
+                                .build();
         }
 
         private BigDecimal determinarPrecio(Producto producto, NivelPrecio nivelPrecio) {
@@ -248,10 +649,13 @@ public class VentaServiceImpl implements VentaService {
         }
 
         @Override
-        public com.libreria.libreria.dto.EstadisticasVentasDTO obtenerEstadisticas(LocalDateTime fechaInicio,
-                        LocalDateTime fechaFin) {
-                BigDecimal totalVentas = ventaRepository.calcularTotalVentas(fechaInicio, fechaFin);
-                Long numeroTransacciones = ventaRepository.contarTransacciones(fechaInicio, fechaFin);
+        @LecturaEnReplica
+        public EstadisticasVentasDTO obtenerEstadisticas(LocalDateTime fechaInicio, LocalDateTime fechaFin) {
+                List<VentasPorMetodoDTO> porMetodo = resumenDiario.totalizarPorMetodo(fechaInicio, fechaFin);
+                BigDecimal totalVentas = sumarMontos(porMetodo);
+                Long numeroTransacciones = porMetodo.stream()
+                                .mapToLong(VentasPorMetodoDTO::getNumeroVentas)
+                                .sum();
 
                 BigDecimal ticketPromedio = BigDecimal.ZERO;
                 if (numeroTransacciones > 0) {
@@ -264,7 +668,7 @@ public class VentaServiceImpl implements VentaService {
                 LocalDateTime prevInicio = fechaInicio.minusDays(daysDiff);
                 LocalDateTime prevFin = fechaInicio.minusSeconds(1);
 
-                BigDecimal totalVentasPrev = ventaRepository.calcularTotalVentas(prevInicio, prevFin);
+                BigDecimal totalVentasPrev = sumarMontos(resumenDiario.totalizarPorMetodo(prevInicio, prevFin));
                 BigDecimal comparacion = BigDecimal.ZERO;
 
                 if (totalVentasPrev.compareTo(BigDecimal.ZERO) > 0) {
@@ -273,7 +677,7 @@ public class VentaServiceImpl implements VentaService {
                                         .multiply(BigDecimal.valueOf(100));
                 }
 
-                return com.libreria.libreria.dto.EstadisticasVentasDTO.builder()
+                return EstadisticasVentasDTO.builder()
                                 .totalVentas(totalVentas)
                                 .numeroTransacciones(numeroTransacciones.intValue())
                                 .ticketPromedio(ticketPromedio)
@@ -282,217 +686,111 @@ public class VentaServiceImpl implements VentaService {
         }
 
         @Override
-        public List<com.libreria.libreria.dto.ProductoMasVendidoDTO> obtenerProductosMasVendidos(
+        @LecturaEnReplica
+        public List<ProductoMasVendidoDTO> obtenerProductosMasVendidos(
                         LocalDateTime fechaInicio, LocalDateTime fechaFin, Integer limite) {
-                List<Object[]> resultados = ventaRepository.obtenerProductosMasVendidos(fechaInicio, fechaFin);
-
-                return resultados.stream()
-                                .limit(limite != null ? limite : 10)
-                                .map(row -> com.libreria.libreria.dto.ProductoMasVendidoDTO.builder()
-                                                .productoId((Integer) row[0])
-                                                .nombreProducto((String) row[1])
-                                                .cantidadVendida(((Long) row[2]).intValue())
-                                                .montoTotal((BigDecimal) row[3])
-                                                .build())
-                                .collect(Collectors.toList());
+                int tamano = limite == null || limite < 1 ? 10 : Math.min(limite, TAMANO_PAGINA_MAXIMO);
+                return rankingProductos.obtenerTop(fechaInicio, fechaFin, tamano);
         }
 
         @Override
-        public List<com.libreria.libreria.dto.VentasPorMetodoDTO> obtenerVentasPorMetodo(LocalDateTime fechaInicio,
+        @LecturaEnReplica
+        public List<VentasPorMetodoDTO> obtenerVentasPorMetodo(LocalDateTime fechaInicio,
                         LocalDateTime fechaFin) {
-                List<Object[]> resultados = ventaRepository.obtenerVentasPorMetodo(fechaInicio, fechaFin);
+                return resumenDiario.totalizarPorMetodo(fechaInicio, fechaFin);
+        }
 
-                return resultados.stream()
-                                .map(row -> com.libreria.libreria.dto.VentasPorMetodoDTO.builder()
-                                                .metodoPago((MetodoPago) row[0])
-                                                .numeroVentas(((Long) row[1]).intValue())
-                                                .montoTotal((BigDecimal) row[2])
-                                                .build())
-                                .collect(Collectors.toList());
+        @Override
+        public void reconstruirResumenDiario(LocalDate desde, LocalDate hasta) {
+                if (desde.isAfter(hasta)) {
+                        throw new RuntimeException("La fecha inicial no puede ser posterior a la final.");
+                }
+                // Each day rewrites its summary rows; the full backfill only runs at startup
+                if (ChronoUnit.DAYS.between(desde, hasta) + 1 > maximoDiasReconstruccion) {
+                        throw new RuntimeException("El rango supera el máximo de " + maximoDiasReconstruccion
+                                        + " días por reconstrucción.");
+                }
+                resumenDiario.reconstruir(desde, hasta);
         }
 
+        // On the primary: a long cursor on a hot standby can be cancelled by WAL replay
+        // conflicts, which would cut the file short
         @Override
+        @Transactional(readOnly = true)
+        public long exportarVentas(LocalDateTime fechaInicio, LocalDateTime fechaFin, FormatoExportacion formato,
+                        OutputStream salida) {
+                if (fechaInicio.isAfter(fechaFin)) {
+                        throw new RuntimeException("La fecha inicial no puede ser posterior a la final.");
+                }
+                // The read-only transaction keeps autocommit off so the driver can use a cursor
+                return exportador.exportar(fechaInicio, fechaFin, formato, salida);
+        }
+
+        private BigDecimal sumarMontos(List<VentasPorMetodoDTO> porMetodo) {
+                return porMetodo.stream()
+                                .map(VentasPorMetodoDTO::getMontoTotal)
+                                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        }
+
+        @Override
+        @Transactional(readOnly = true)
         public byte[] generarReportePdf(Integer ventaId) {
-                Venta venta = ventaRepository.findById(ventaId)
+                return obtenerFacturaPdf(ventaId, null).getContenido();
+        }
+
+        @Override
+        @Transactional(readOnly = true)
+        public FacturaPdfDTO obtenerFacturaPdf(Integer ventaId, String etagCliente) {
+                EstadoVenta estado = ventaRepository.obtenerEstado(ventaId)
                                 .orElseThrow(() -> new RuntimeException("Venta no encontrada ID: " + ventaId));
+                String etag = FacturaPdfCache.etag(ventaId, estado);
+                if (FacturaPdfCache.coincide(etagCliente, etag)) {
+                        return FacturaPdfDTO.builder().etag(etag).build();
+                }
 
-                try (java.io.ByteArrayOutputStream out = new java.io.ByteArrayOutputStream()) {
-                        com.lowagie.text.Document document = new com.lowagie.text.Document(
-                                        com.lowagie.text.PageSize.A4);
-                        com.lowagie.text.pdf.PdfWriter.getInstance(document, out);
-                        document.open();
-
-                        // Brand Colors
-                        java.awt.Color brandColor = new java.awt.Color(14, 165, 233); // #0ea5e9
-                        java.awt.Color lightGray = new java.awt.Color(241, 245, 249);
-
-                        // Fonts
-                        com.lowagie.text.Font fontTitle = com.lowagie.text.FontFactory
-                                        .getFont(com.lowagie.text.FontFactory.HELVETICA_BOLD, 22, brandColor);
-                        com.lowagie.text.Font fontSubTitle = com.lowagie.text.FontFactory.getFont(
-                                        com.lowagie.text.FontFactory.HELVETICA_BOLD, 14, java.awt.Color.DARK_GRAY);
-                        com.lowagie.text.Font fontHeader = com.lowagie.text.FontFactory
-                                        .getFont(com.lowagie.text.FontFactory.HELVETICA_BOLD, 11, java.awt.Color.WHITE);
-                        com.lowagie.text.Font fontNormal = com.lowagie.text.FontFactory
-                                        .getFont(com.lowagie.text.FontFactory.HELVETICA, 10, java.awt.Color.BLACK);
-                        com.lowagie.text.Font fontBold = com.lowagie.text.FontFactory
-                                        .getFont(com.lowagie.text.FontFactory.HELVETICA_BOLD, 10, java.awt.Color.BLACK);
-
-                        // Header Table (Logo and Invoice Info)
-                        com.lowagie.text.pdf.PdfPTable headerTable = new com.lowagie.text.pdf.PdfPTable(2);
-                        headerTable.setWidthPercentage(100);
-                        headerTable.setSpacingAfter(20);
-
-                        // Try to add Logo
-                        try {
-                                // Try absolute path resolution
-                                String userDir = System.getProperty("user.dir");
-                                // If running from root standard spring boot directory
-                                java.nio.file.Path logoPath = java.nio.file.Paths.get(userDir, "frontend", "public",
-                                                "logo.png");
-
-                                if (!java.nio.file.Files.exists(logoPath)) {
-                                        // Fallback for some IDE configs
-                                        logoPath = java.nio.file.Paths.get(userDir, "src", "main", "resources",
-                                                        "static", "logo.png");
-                                }
+                byte[] pdf = facturaCache.obtener(ventaId, estado);
+                if (pdf == null) {
+                        Venta venta = ventaRepository.findConDetallesByVentaId(ventaId)
+                                        .orElseThrow(() -> new RuntimeException("Venta no encontrada ID: " + ventaId));
+                        // Key by the state actually rendered, in case the sale was voided in between
+                        estado = venta.getEstado();
+                        etag = FacturaPdfCache.etag(ventaId, estado);
+                        pdf = metricas.renderizarFactura(() -> facturaRenderer.renderizar(venta));
+                        facturaCache.guardar(ventaId, estado, pdf);
+                }
+                return FacturaPdfDTO.builder().etag(etag).contenido(pdf).build();
+        }
 
-                                if (java.nio.file.Files.exists(logoPath)) {
-                                        com.lowagie.text.Image logo = com.lowagie.text.Image
-                                                        .getInstance(logoPath.toAbsolutePath().toString());
-                                        logo.scaleToFit(120, 60);
-                                        com.lowagie.text.pdf.PdfPCell logoCell = new com.lowagie.text.pdf.PdfPCell(
-                                                        logo);
-                                        logoCell.setBorder(com.lowagie.text.Rectangle.NO_BORDER);
-                                        headerTable.addCell(logoCell);
-                                } else {
-                                        throw new java.io.FileNotFoundException("Logo not found at " + logoPath);
-                                }
-                        } catch (Exception e) {
-                                com.lowagie.text.pdf.PdfPCell titleCell = new com.lowagie.text.pdf.PdfPCell(
-                                                new com.lowagie.text.Phrase("LIBRERIA MARÍA Y JOSÉ", fontTitle));
-                                titleCell.setBorder(com.lowagie.text.Rectangle.NO_BORDER);
-                                headerTable.addCell(titleCell);
-                        }
+        @Override
+        @Transactional(readOnly = true)
+        public byte[] generarTicket(Integer ventaId) {
+                return ticketRenderer.renderizar(documentoFactura(ventaId));
+        }
 
-                        com.lowagie.text.pdf.PdfPCell infoCell = new com.lowagie.text.pdf.PdfPCell();
-                        infoCell.setBorder(com.lowagie.text.Rectangle.NO_BORDER);
-                        infoCell.setHorizontalAlignment(com.lowagie.text.Element.ALIGN_RIGHT);
-                        infoCell.addElement(new com.lowagie.text.Paragraph("FACTURA DE VENTA", fontSubTitle));
-                        infoCell.addElement(new com.lowagie.text.Paragraph("No. de Factura: #" + venta.getVentaId(),
-                                        fontBold));
-                        infoCell.addElement(
-                                        new com.lowagie.text.Paragraph(
-                                                        "Fecha: " + venta.getFechaVenta()
-                                                                        .format(java.time.format.DateTimeFormatter
-                                                                                        .ofPattern("dd/MM/yyyy HH:mm")),
-                                                        fontNormal));
-                        headerTable.addCell(infoCell);
-
-                        document.add(headerTable);
-
-                        // Horizontal Line
-                        com.lowagie.text.pdf.draw.LineSeparator line = new com.lowagie.text.pdf.draw.LineSeparator();
-                        line.setLineColor(brandColor);
-                        document.add(line);
-                        document.add(new com.lowagie.text.Paragraph(" ")); // Spacer
-
-                        // Client and Info
-                        document.add(new com.lowagie.text.Paragraph("DATOS DEL CLIENTE", fontBold));
-                        document.add(new com.lowagie.text.Paragraph("Nombre: " + venta.getCliente().getNombreCompleto(),
-                                        fontNormal));
-                        document.add(new com.lowagie.text.Paragraph("NIT: "
-                                        + (venta.getCliente().getNit() != null ? venta.getCliente().getNit() : "C/F"),
-                                        fontNormal));
-                        document.add(new com.lowagie.text.Paragraph(" "));
-
-                        document.add(new com.lowagie.text.Paragraph("DATOS DE LA VENTA", fontBold));
-                        document.add(new com.lowagie.text.Paragraph(
-                                        "Vendedor: " + venta.getUsuario().getNombreCompleto(), fontNormal));
-                        document.add(new com.lowagie.text.Paragraph("Método de Pago: " + venta.getMetodoPago(),
-                                        fontNormal));
-                        document.add(new com.lowagie.text.Paragraph(" "));
-
-                        // Table
-                        com.lowagie.text.pdf.PdfPTable table = new com.lowagie.text.pdf.PdfPTable(4);
-                        table.setWidthPercentage(100);
-                        table.setWidths(new float[] { 5, 1, 2, 2 });
-                        table.setSpacingBefore(10);
-
-                        // Table Headers
-                        addTableHeader(table, "Producto", fontHeader, brandColor);
-                        addTableHeader(table, "Cant.", fontHeader, brandColor);
-                        addTableHeader(table, "Precio U.", fontHeader, brandColor);
-                        addTableHeader(table, "Subtotal", fontHeader, brandColor);
-
-                        // Table Data
-                        boolean alternate = false;
-                        for (DetalleVenta detalle : venta.getDetalles()) {
-                                java.awt.Color bgColor = alternate ? lightGray : java.awt.Color.WHITE;
-                                addTableCell(table, detalle.getProducto().getNombre(), fontNormal, bgColor);
-                                addTableCell(table, String.valueOf(detalle.getCantidad()), fontNormal, bgColor);
-                                addTableCell(table, String.format("Q %.2f", detalle.getPrecioUnitario()), fontNormal,
-                                                bgColor);
-                                addTableCell(table, String.format("Q %.2f", detalle.getSubtotal()), fontNormal,
-                                                bgColor);
-                                alternate = !alternate;
-                        }
+        @Override
+        @Transactional(readOnly = true)
+        public String generarTicketTexto(Integer ventaId) {
+                return ticketRenderer.previsualizar(documentoFactura(ventaId));
+        }
 
-                        document.add(table);
-                        document.add(new com.lowagie.text.Paragraph(" ")); // Spacer
-
-                        // Total
-                        com.lowagie.text.pdf.PdfPTable totalTable = new com.lowagie.text.pdf.PdfPTable(2);
-                        totalTable.setWidthPercentage(40);
-                        totalTable.setHorizontalAlignment(com.lowagie.text.Element.ALIGN_RIGHT);
-
-                        com.lowagie.text.pdf.PdfPCell labelCell = new com.lowagie.text.pdf.PdfPCell(
-                                        new com.lowagie.text.Phrase("TOTAL:", fontHeader));
-                        labelCell.setBackgroundColor(brandColor);
-                        labelCell.setPadding(8);
-                        labelCell.setBorder(com.lowagie.text.Rectangle.NO_BORDER);
-                        totalTable.addCell(labelCell);
-
-                        com.lowagie.text.pdf.PdfPCell valueCell = new com.lowagie.text.pdf.PdfPCell(
-                                        new com.lowagie.text.Phrase(String.format("Q %.2f", venta.getMontoTotal()),
-                                                        fontSubTitle));
-                        valueCell.setPadding(8);
-                        valueCell.setBorder(com.lowagie.text.Rectangle.NO_BORDER);
-                        valueCell.setHorizontalAlignment(com.lowagie.text.Element.ALIGN_RIGHT);
-                        totalTable.addCell(valueCell);
-
-                        document.add(totalTable);
-
-                        // Footer
-                        document.add(new com.lowagie.text.Paragraph(" "));
-                        com.lowagie.text.Paragraph footer = new com.lowagie.text.Paragraph(
-                                        "¡Gracias por su compra en Librería María y José!", fontNormal);
-                        footer.setAlignment(com.lowagie.text.Element.ALIGN_CENTER);
-                        document.add(footer);
-
-                        document.close();
-                        return out.toByteArray();
-                } catch (Exception e) {
-                        throw new RuntimeException("Error al generar PDF", e);
-                }
+        private FacturaDocumento documentoFactura(Integer ventaId) {
+                Venta venta = ventaRepository.findConDetallesByVentaId(ventaId)
+                                .orElseThrow(() -> new RuntimeException("Venta no encontrada ID: " + ventaId));
+                return FacturaDocumento.de(venta);
         }
 
-        private void addTableHeader(com.lowagie.text.pdf.PdfPTable table, String headerTitle,
-                        com.lowagie.text.Font font, java.awt.Color bgColor) {
-                com.lowagie.text.pdf.PdfPCell header = new com.lowagie.text.pdf.PdfPCell();
-                header.setBackgroundColor(bgColor);
-                header.setPadding(8);
-                header.setPhrase(new com.lowagie.text.Phrase(headerTitle, font));
-                table.addCell(header);
+        @Override
+        public List<Integer> seleccionarFacturas(List<Integer> ventaIds, LocalDateTime fechaInicio,
+                        LocalDateTime fechaFin) {
+                if (fechaInicio != null && fechaFin != null && fechaInicio.isAfter(fechaFin)) {
+                        throw new RuntimeException("La fecha inicial no puede ser posterior a la final.");
+                }
+                return facturasMasivas.seleccionar(ventaIds, fechaInicio, fechaFin);
         }
 
-        private void addTableCell(com.lowagie.text.pdf.PdfPTable table, String text, com.lowagie.text.Font font,
-                        java.awt.Color bgColor) {
-                com.lowagie.text.pdf.PdfPCell cell = new com.lowagie.text.pdf.PdfPCell(
-                                new com.lowagie.text.Phrase(text, font));
-                cell.setBackgroundColor(bgColor);
-                cell.setPadding(8);
-                cell.setBorderColor(new java.awt.Color(226, 232, 240));
-                table.addCell(cell);
+        @Override
+        public void generarFacturas(List<Integer> ventaIds, FormatoFactura formato, OutputStream salida) {
+                // Each batch of sales is read in its own short transaction, not one held for the whole download
+                facturasMasivas.escribir(ventaIds, formato, salida);
         }
 }
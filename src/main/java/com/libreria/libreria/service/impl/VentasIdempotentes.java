@@ -0,0 +1,257 @@
+package com.libreria.libreria.service.impl;
+
+import com.libreria.libreria.dto.DetalleVentaDTO;
+import com.libreria.libreria.dto.VentaDTO;
+import com.libreria.libreria.exception.IdempotenciaConflictoException;
+import com.libreria.libreria.model.VentaIdempotencia;
+import com.libreria.libreria.repository.VentaIdempotenciaRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Registro de ventas con clave de idempotencia (encabezado Idempotency-Key).
+ * Si el punto de venta reintenta el cobro con la misma clave, se devuelve la
+ * venta original en lugar de crear otra y descontar el stock dos veces.
+ *
+ * Las solicitudes recientes se recuerdan en memoria: un reintento que llega
+ * mientras la primera sigue en curso espera su resultado, así que los
+ * duplicados concurrentes se ejecutan una sola vez. La clave también se guarda
+ * en Ventas_Idempotencia dentro de la transacción de la venta, lo que cubre los
+ * reintentos que llegan después de un reinicio o a otra instancia.
+ */
+@Component
+public class VentasIdempotentes {
+
+    static final int LONGITUD_MAXIMA_CLAVE = 100;
+
+    // Expired in-memory entries are swept at most this often
+    private static final long INTERVALO_PURGA_MS = 60_000;
+
+    private record Entrada(String huella, CompletableFuture<Integer> ventaId, long creada) {
+    }
+
+    private final ConcurrentHashMap<String, Entrada> recientes = new ConcurrentHashMap<>();
+    private final VentaIdempotenciaRepository repositorio;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate lectura;
+    private final long ttlMemoriaMs;
+    private final int retencionDias;
+    private volatile long ultimaPurga = System.currentTimeMillis();
+
+    private final Counter nuevas;
+    private final Counter repetidas;
+    private final Counter conflictos;
+
+    public VentasIdempotentes(VentaIdempotenciaRepository repositorio,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${ventas.idempotencia.memoria-minutos:10}") long memoriaMinutos,
+            @Value("${ventas.idempotencia.retencion-dias:7}") int retencionDias) {
+        this.repositorio = repositorio;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.lectura = new TransactionTemplate(transactionManager);
+        this.lectura.setReadOnly(true);
+        this.ttlMemoriaMs = memoriaMinutos * 60_000;
+        this.retencionDias = retencionDias;
+
+        this.nuevas = Counter.builder("ventas.idempotencia")
+                .tag("resultado", "nueva")
+                .register(meterRegistry);
+        this.repetidas = Counter.builder("ventas.idempotencia")
+                .tag("resultado", "repetida")
+                .register(meterRegistry);
+        this.conflictos = Counter.builder("ventas.idempotencia")
+                .tag("resultado", "conflicto")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Crea la venta una sola vez por clave. crearVenta se ejecuta dentro de una
+     * transacción que también guarda la clave; cargarVenta lee la venta ya
+     * registrada cuando la solicitud es un reintento. Si la venta falla la clave
+     * no queda guardada y el siguiente reintento la vuelve a intentar.
+     */
+    public VentaDTO registrar(String clave, VentaDTO solicitud, Supplier<VentaDTO> crearVenta,
+            Function<Integer, VentaDTO> cargarVenta) {
+        if (clave.isBlank() || clave.length() > LONGITUD_MAXIMA_CLAVE) {
+            throw new RuntimeException("La clave de idempotencia debe tener entre 1 y " + LONGITUD_MAXIMA_CLAVE
+                    + " caracteres.");
+        }
+        String huella = huella(solicitud);
+        purgarVencidas();
+
+        Entrada propia = new Entrada(huella, new CompletableFuture<>(), System.currentTimeMillis());
+        Entrada actual = recientes.compute(clave,
+                (k, anterior) -> anterior == null || vencida(anterior) ? propia : anterior);
+        if (actual != propia) {
+            return cargar(cargarVenta, esperar(actual, huella));
+        }
+
+        try {
+            VentaDTO venta = ejecutar(clave, huella, crearVenta, cargarVenta);
+            propia.ventaId().complete(venta.getVentaId());
+            return venta;
+        } catch (RuntimeException e) {
+            // Concurrent duplicates get the same error; later retries run again
+            recientes.remove(clave, propia);
+            propia.ventaId().completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Reserva las claves de un lote de ventas sin conexión, en un solo viaje.
+     * Debe llamarse dentro de la transacción del lote.
+     *
+     * @param huellas huella de la venta por clave
+     * @return claves reservadas ahora; las demás ya tienen una venta registrada
+     */
+    public Set<String> reservarLote(Map<String, String> huellas) {
+        return repositorio.reservarLote(huellas);
+    }
+
+    public Map<String, VentaIdempotencia> buscar(Collection<String> claves) {
+        Map<String, VentaIdempotencia> guardadas = new HashMap<>();
+        for (VentaIdempotencia guardada : repositorio.findAllById(claves)) {
+            guardadas.put(guardada.getClave(), guardada);
+        }
+        return guardadas;
+    }
+
+    /**
+     * Asocia las claves reservadas con las ventas creadas y libera las que no
+     * llegaron a crear venta, para que un reintento las vuelva a procesar.
+     */
+    public void confirmarLote(Map<String, Integer> ventas, Collection<String> sinVenta) {
+        repositorio.asignarVentas(ventas);
+        repositorio.liberar(sinVenta);
+        nuevas.increment(ventas.size());
+    }
+
+    @Scheduled(cron = "${ventas.idempotencia.limpieza.cron:0 0 4 * * *}")
+    public void eliminarAntiguas() {
+        LocalDateTime limite = LocalDateTime.now().minusDays(retencionDias);
+        Integer eliminadas = transactionTemplate.execute(estado -> repositorio.eliminarAnteriores(limite));
+        System.out.println("Claves de idempotencia eliminadas: " + eliminadas);
+    }
+
+    int enMemoria() {
+        return recientes.size();
+    }
+
+    private VentaDTO ejecutar(String clave, String huella, Supplier<VentaDTO> crearVenta,
+            Function<Integer, VentaDTO> cargarVenta) {
+        VentaIdempotencia guardada = repositorio.findById(clave).orElse(null);
+        if (guardada != null) {
+            return repetida(guardada, huella, cargarVenta);
+        }
+
+        try {
+            VentaDTO venta = transactionTemplate.execute(estado -> {
+                // Reserved before the sale, so a duplicate on another instance waits on this row
+                // instead of deducting stock it would then have to roll back
+                repositorio.reservar(clave, huella, LocalDateTime.now());
+                VentaDTO creada = crearVenta.get();
+                repositorio.asignarVenta(clave, creada.getVentaId());
+                return creada;
+            });
+            nuevas.increment();
+            return venta;
+        } catch (DataIntegrityViolationException e) {
+            // Another instance committed the same key first; this sale was rolled back
+            guardada = repositorio.findById(clave).orElseThrow(() -> e);
+            return repetida(guardada, huella, cargarVenta);
+        }
+    }
+
+    private VentaDTO repetida(VentaIdempotencia guardada, String huella, Function<Integer, VentaDTO> cargarVenta) {
+        verificarHuella(guardada.getHuella(), huella);
+        repetidas.increment();
+        return cargar(cargarVenta, guardada.getVentaId());
+    }
+
+    // The sale is mapped with its lazy associations, so it is read inside a transaction
+    private VentaDTO cargar(Function<Integer, VentaDTO> cargarVenta, Integer ventaId) {
+        return lectura.execute(estado -> cargarVenta.apply(ventaId));
+    }
+
+    private Integer esperar(Entrada entrada, String huella) {
+        verificarHuella(entrada.huella(), huella);
+        try {
+            Integer ventaId = entrada.ventaId().join();
+            repetidas.increment();
+            return ventaId;
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException causa ? causa : e;
+        }
+    }
+
+    private void verificarHuella(String registrada, String huella) {
+        if (!registrada.equals(huella)) {
+            conflictos.increment();
+            throw new IdempotenciaConflictoException(
+                    "La clave de idempotencia ya se usó para otra venta con distinto contenido.");
+        }
+    }
+
+    private boolean vencida(Entrada entrada) {
+        // Entries still running are never expired, or a slow sale could be executed twice
+        return entrada.ventaId().isDone() && System.currentTimeMillis() - entrada.creada() > ttlMemoriaMs;
+    }
+
+    private void purgarVencidas() {
+        long ahora = System.currentTimeMillis();
+        if (ahora - ultimaPurga < INTERVALO_PURGA_MS) {
+            return;
+        }
+        ultimaPurga = ahora;
+        recientes.values().removeIf(this::vencida);
+    }
+
+    /**
+     * SHA-256 de los datos que definen la venta. Los nombres, precios y
+     * subtotales que envía el cliente no cuentan porque el servidor los calcula.
+     */
+    static String huella(VentaDTO venta) {
+        StringBuilder texto = new StringBuilder(64 + venta.getDetalles().size() * 24)
+                .append(venta.getClienteId()).append('|')
+                .append(venta.getUsuarioId()).append('|')
+                .append(venta.getSesionId()).append('|')
+                .append(venta.getMetodoPago());
+        for (DetalleVentaDTO detalle : venta.getDetalles()) {
+            BigDecimal descuento = detalle.getDescuento() != null ? detalle.getDescuento() : BigDecimal.ZERO;
+            texto.append('|').append(detalle.getProductoId())
+                    .append(':').append(detalle.getCantidad())
+                    .append(':').append(descuento.stripTrailingZeros().toPlainString());
+        }
+
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(sha256.digest(texto.toString().getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
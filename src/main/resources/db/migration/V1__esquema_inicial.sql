@@ -0,0 +1,219 @@
+-- Esquema tal como lo generaba Hibernate con ddl-auto=update. En las bases ya
+-- creadas de esa forma Flyway no ejecuta esta versión (baseline-version=1).
+
+CREATE TABLE roles (
+    rol_id integer GENERATED BY DEFAULT AS IDENTITY,
+    nombre varchar(50) NOT NULL UNIQUE,
+    descripcion TEXT,
+    PRIMARY KEY (rol_id)
+);
+
+CREATE TABLE usuarios (
+    usuario_id integer GENERATED BY DEFAULT AS IDENTITY,
+    rol_id integer NOT NULL,
+    username varchar(50) NOT NULL UNIQUE,
+    password_hash varchar(255) NOT NULL,
+    nombre_completo varchar(150) NOT NULL,
+    activo boolean,
+    PRIMARY KEY (usuario_id),
+    CONSTRAINT fk_usuarios_rol FOREIGN KEY (rol_id) REFERENCES roles
+);
+
+CREATE TABLE categorias (
+    categoria_id integer GENERATED BY DEFAULT AS IDENTITY,
+    nombre varchar(100) NOT NULL UNIQUE,
+    descripcion TEXT,
+    PRIMARY KEY (categoria_id)
+);
+
+CREATE TABLE ubicaciones (
+    ubicacion_id integer GENERATED BY DEFAULT AS IDENTITY,
+    nombre_corto varchar(50) NOT NULL UNIQUE,
+    descripcion TEXT NOT NULL,
+    PRIMARY KEY (ubicacion_id)
+);
+
+CREATE TABLE productos (
+    producto_id integer GENERATED BY DEFAULT AS IDENTITY,
+    categoria_id integer NOT NULL,
+    ubicacion_id integer NOT NULL,
+    nombre varchar(150) NOT NULL,
+    descripcion TEXT,
+    sku varchar(100) UNIQUE,
+    precio_venta numeric(10,2) NOT NULL CHECK (precio_venta >= 0),
+    precio_mayorista numeric(10,2) NOT NULL CHECK (precio_mayorista >= 0),
+    precio_costo numeric(10,2) CHECK (precio_costo >= 0),
+    cantidad_stock integer NOT NULL,
+    activo boolean,
+    PRIMARY KEY (producto_id),
+    CONSTRAINT fk_productos_categoria FOREIGN KEY (categoria_id) REFERENCES categorias,
+    CONSTRAINT fk_productos_ubicacion FOREIGN KEY (ubicacion_id) REFERENCES ubicaciones
+);
+
+CREATE TABLE clientes (
+    cliente_id integer GENERATED BY DEFAULT AS IDENTITY,
+    nombre_completo varchar(150) NOT NULL,
+    nit varchar(20),
+    telefono varchar(20),
+    email varchar(100),
+    direccion TEXT,
+    nivel_precio_asignado varchar(255) NOT NULL
+            CHECK (nivel_precio_asignado IN ('Publico', 'Mayorista', 'Costo')),
+    activo boolean,
+    PRIMARY KEY (cliente_id)
+);
+
+CREATE TABLE proveedores (
+    proveedor_id integer GENERATED BY DEFAULT AS IDENTITY,
+    nombre_empresa varchar(150) NOT NULL,
+    nombre_contacto varchar(100),
+    nit_proveedor varchar(30),
+    telefono varchar(20),
+    email varchar(100),
+    PRIMARY KEY (proveedor_id)
+);
+
+CREATE TABLE sesiones_caja (
+    sesion_id integer GENERATED BY DEFAULT AS IDENTITY,
+    usuario_apertura_id integer NOT NULL,
+    fecha_apertura timestamp(6) NOT NULL,
+    monto_inicial numeric(10,2) NOT NULL,
+    usuario_cierre_id integer,
+    fecha_cierre timestamp(6),
+    monto_final_esperado numeric(10,2),
+    monto_final_contado numeric(10,2),
+    diferencia numeric(10,2),
+    total_efectivo numeric(10,2),
+    total_tarjeta numeric(10,2),
+    total_mixto numeric(10,2),
+    total_anulado numeric(10,2),
+    numero_ventas integer,
+    estado varchar(255) NOT NULL CHECK (estado IN ('Abierta', 'Cerrada')),
+    PRIMARY KEY (sesion_id),
+    CONSTRAINT fk_sesiones_caja_usuario_apertura FOREIGN KEY (usuario_apertura_id) REFERENCES usuarios,
+    CONSTRAINT fk_sesiones_caja_usuario_cierre FOREIGN KEY (usuario_cierre_id) REFERENCES usuarios
+);
+
+CREATE SEQUENCE ventas_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE ventas (
+    venta_id integer NOT NULL,
+    sesion_id integer NOT NULL,
+    usuario_id integer NOT NULL,
+    cliente_id integer NOT NULL,
+    fecha_venta timestamp(6) NOT NULL,
+    monto_total numeric(10,2) NOT NULL,
+    metodo_pago varchar(255) NOT NULL CHECK (metodo_pago IN ('Efectivo', 'Tarjeta', 'Mixto')),
+    estado varchar(255) NOT NULL CHECK (estado IN ('Completada', 'Anulada')),
+    motivo_anulacion TEXT,
+    fecha_anulacion timestamp(6),
+    usuario_anulo_id integer,
+    PRIMARY KEY (venta_id),
+    CONSTRAINT fk_ventas_sesion FOREIGN KEY (sesion_id) REFERENCES sesiones_caja,
+    CONSTRAINT fk_ventas_usuario FOREIGN KEY (usuario_id) REFERENCES usuarios,
+    CONSTRAINT fk_ventas_cliente FOREIGN KEY (cliente_id) REFERENCES clientes,
+    CONSTRAINT fk_ventas_usuario_anulo FOREIGN KEY (usuario_anulo_id) REFERENCES usuarios
+);
+
+CREATE SEQUENCE detalle_ventas_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE detalle_ventas (
+    detalle_id integer NOT NULL,
+    venta_id integer NOT NULL,
+    producto_id integer NOT NULL,
+    cantidad integer NOT NULL CHECK (cantidad >= 1),
+    precio_unitario numeric(10,2) NOT NULL CHECK (precio_unitario >= 0),
+    descuento numeric(10,2) NOT NULL CHECK (descuento >= 0),
+    subtotal numeric(10,2) NOT NULL CHECK (subtotal >= 0),
+    PRIMARY KEY (detalle_id),
+    CONSTRAINT fk_detalle_ventas_venta FOREIGN KEY (venta_id) REFERENCES ventas,
+    CONSTRAINT fk_detalle_ventas_producto FOREIGN KEY (producto_id) REFERENCES productos
+);
+
+CREATE SEQUENCE compras_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE compras (
+    compra_id integer NOT NULL,
+    proveedor_id integer NOT NULL,
+    usuario_id integer NOT NULL,
+    fecha_compra date NOT NULL,
+    numero_factura_proveedor varchar(100),
+    total_compra numeric(10,2) NOT NULL,
+    PRIMARY KEY (compra_id),
+    CONSTRAINT fk_compras_proveedor FOREIGN KEY (proveedor_id) REFERENCES proveedores,
+    CONSTRAINT fk_compras_usuario FOREIGN KEY (usuario_id) REFERENCES usuarios
+);
+
+CREATE SEQUENCE detalle_compras_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE detalle_compras (
+    detalle_compra_id integer NOT NULL,
+    compra_id integer NOT NULL,
+    producto_id integer NOT NULL,
+    cantidad integer NOT NULL CHECK (cantidad >= 1),
+    precio_costo_compra numeric(10,2) NOT NULL CHECK (precio_costo_compra >= 0),
+    PRIMARY KEY (detalle_compra_id),
+    CONSTRAINT fk_detalle_compras_compra FOREIGN KEY (compra_id) REFERENCES compras,
+    CONSTRAINT fk_detalle_compras_producto FOREIGN KEY (producto_id) REFERENCES productos
+);
+
+CREATE SEQUENCE ajustes_inventario_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE ajustes_inventario (
+    ajuste_id integer NOT NULL,
+    producto_id integer NOT NULL,
+    usuario_id integer NOT NULL,
+    cantidad integer NOT NULL,
+    motivo varchar(200) NOT NULL,
+    fecha_ajuste timestamp(6),
+    PRIMARY KEY (ajuste_id),
+    CONSTRAINT fk_ajustes_inventario_producto FOREIGN KEY (producto_id) REFERENCES productos,
+    CONSTRAINT fk_ajustes_inventario_usuario FOREIGN KEY (usuario_id) REFERENCES usuarios
+);
+
+CREATE TABLE audit_logs (
+    audit_id integer GENERATED BY DEFAULT AS IDENTITY,
+    usuario_id integer NOT NULL,
+    accion varchar(255) NOT NULL
+            CHECK (accion IN ('LOGIN', 'LOGOUT', 'CREATE', 'UPDATE', 'DELETE', 'ANULAR_VENTA')),
+    entidad varchar(100) NOT NULL,
+    entidad_id integer,
+    detalles TEXT,
+    ip_address varchar(50),
+    fecha_accion timestamp(6) NOT NULL,
+    PRIMARY KEY (audit_id),
+    CONSTRAINT fk_audit_logs_usuario FOREIGN KEY (usuario_id) REFERENCES usuarios
+);
+
+CREATE TABLE ventas_resumen_diario (
+    resumen_id integer GENERATED BY DEFAULT AS IDENTITY,
+    fecha date NOT NULL,
+    metodo_pago varchar(255) NOT NULL CHECK (metodo_pago IN ('Efectivo', 'Tarjeta', 'Mixto')),
+    estado varchar(255) NOT NULL CHECK (estado IN ('Completada', 'Anulada')),
+    numero_ventas bigint NOT NULL,
+    monto_total numeric(14,2) NOT NULL,
+    PRIMARY KEY (resumen_id),
+    UNIQUE (fecha, metodo_pago, estado)
+);
+
+CREATE TABLE ventas_productos_diario (
+    resumen_id integer GENERATED BY DEFAULT AS IDENTITY,
+    fecha date NOT NULL,
+    producto_id integer NOT NULL,
+    cantidad_vendida bigint NOT NULL,
+    monto_total numeric(14,2) NOT NULL,
+    PRIMARY KEY (resumen_id),
+    UNIQUE (fecha, producto_id)
+);
+
+CREATE INDEX idx_ventas_productos_diario_ranking ON ventas_productos_diario (fecha, cantidad_vendida);
+
+CREATE TABLE ventas_idempotencia (
+    clave varchar(100) NOT NULL,
+    huella varchar(64) NOT NULL,
+    venta_id integer,
+    fecha_creacion timestamp(6) NOT NULL,
+    PRIMARY KEY (clave)
+);
+
+CREATE INDEX idx_ventas_idempotencia_fecha ON ventas_idempotencia (fecha_creacion);
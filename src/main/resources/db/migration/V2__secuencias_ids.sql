@@ -0,0 +1,30 @@
+-- Secuencias de las tablas de mayor volumen (allocationSize = 50 en las entidades)
+-- para las bases creadas por Hibernate antes de usarlas: crea la secuencia si
+-- falta y la adelanta hasta el mayor ID de la tabla, así los IDs ya guardados no
+-- cambian y los nuevos no chocan con ellos. Nunca la hace retroceder.
+-- La columna deja de ser IDENTITY para que nadie tome IDs de la secuencia anterior.
+-- En una base nueva V1 ya crea las secuencias y las columnas sin IDENTITY.
+CREATE SEQUENCE IF NOT EXISTS ventas_seq INCREMENT BY 50;
+ALTER TABLE ventas ALTER COLUMN venta_id DROP IDENTITY IF EXISTS;
+SELECT setval('ventas_seq', GREATEST((SELECT COALESCE(MAX(venta_id), 0) FROM ventas),
+        (SELECT last_value FROM ventas_seq), 1));
+
+CREATE SEQUENCE IF NOT EXISTS detalle_ventas_seq INCREMENT BY 50;
+ALTER TABLE detalle_ventas ALTER COLUMN detalle_id DROP IDENTITY IF EXISTS;
+SELECT setval('detalle_ventas_seq', GREATEST((SELECT COALESCE(MAX(detalle_id), 0) FROM detalle_ventas),
+        (SELECT last_value FROM detalle_ventas_seq), 1));
+
+CREATE SEQUENCE IF NOT EXISTS compras_seq INCREMENT BY 50;
+ALTER TABLE compras ALTER COLUMN compra_id DROP IDENTITY IF EXISTS;
+SELECT setval('compras_seq', GREATEST((SELECT COALESCE(MAX(compra_id), 0) FROM compras),
+        (SELECT last_value FROM compras_seq), 1));
+
+CREATE SEQUENCE IF NOT EXISTS detalle_compras_seq INCREMENT BY 50;
+ALTER TABLE detalle_compras ALTER COLUMN detalle_compra_id DROP IDENTITY IF EXISTS;
+SELECT setval('detalle_compras_seq', GREATEST((SELECT COALESCE(MAX(detalle_compra_id), 0) FROM detalle_compras),
+        (SELECT last_value FROM detalle_compras_seq), 1));
+
+CREATE SEQUENCE IF NOT EXISTS ajustes_inventario_seq INCREMENT BY 50;
+ALTER TABLE ajustes_inventario ALTER COLUMN ajuste_id DROP IDENTITY IF EXISTS;
+SELECT setval('ajustes_inventario_seq', GREATEST((SELECT COALESCE(MAX(ajuste_id), 0) FROM ajustes_inventario),
+        (SELECT last_value FROM ajustes_inventario_seq), 1));
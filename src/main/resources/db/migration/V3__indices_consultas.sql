@@ -0,0 +1,36 @@
+-- Índices de las consultas de ventas y auditoría. Cada uno indica las consultas
+-- que lo usan; las que filtran por estado = 'Completada' lo llevan escrito en el
+-- SQL, así que pueden usar índices parciales aunque el plan sea genérico.
+
+-- Listado paginado por cursor (fecha_venta, venta_id), listados y filtros por
+-- rango de fechas, exportación, reconstrucción del resumen diario y MIN(fecha_venta).
+CREATE INDEX idx_ventas_fecha ON ventas (fecha_venta, venta_id);
+
+-- Ventas por método de pago y ranking de productos sobre ventas completadas.
+-- Con INCLUDE el resumen por método se resuelve sin leer la tabla.
+CREATE INDEX idx_ventas_completadas_fecha ON ventas (fecha_venta)
+        INCLUDE (venta_id, metodo_pago, monto_total)
+        WHERE estado = 'Completada';
+
+-- Cuadre y cierre de caja: ventas de la sesión por estado y método, y totales
+-- de la sesión agrupados por método y estado.
+CREATE INDEX idx_ventas_sesion_estado_metodo ON ventas (sesion_id, estado, metodo_pago)
+        INCLUDE (monto_total);
+
+-- Historial de un cliente y filtro por cliente, ordenados por fecha.
+CREATE INDEX idx_ventas_cliente_fecha ON ventas (cliente_id, fecha_venta);
+
+-- Carga de los detalles de una o varias ventas y el join de los reportes por
+-- producto, que solo necesitan estas columnas del detalle.
+CREATE INDEX idx_detalle_ventas_venta ON detalle_ventas (venta_id)
+        INCLUDE (producto_id, cantidad, subtotal);
+
+-- Ventas de un producto; también evita recorrer la tabla al borrar un producto.
+CREATE INDEX idx_detalle_ventas_producto ON detalle_ventas (producto_id);
+
+-- Auditoría paginada por usuario, por entidad, por acción y completa, siempre
+-- ordenada por fecha descendente. Los COUNT de cada página usan los mismos.
+CREATE INDEX idx_audit_logs_usuario_fecha ON audit_logs (usuario_id, fecha_accion);
+CREATE INDEX idx_audit_logs_entidad_fecha ON audit_logs (entidad, entidad_id, fecha_accion);
+CREATE INDEX idx_audit_logs_accion_fecha ON audit_logs (accion, fecha_accion);
+CREATE INDEX idx_audit_logs_fecha ON audit_logs (fecha_accion);
@@ -0,0 +1,145 @@
+-- Ventas, Detalle_Ventas y Audit_Logs particionadas por mes: Ventas y
+-- Detalle_Ventas por fecha_venta, Audit_Logs por fecha_accion. Las consultas
+-- con rango de fechas solo leen los meses del rango, y vacuum y los índices
+-- trabajan sobre particiones pequeñas.
+--
+-- PostgreSQL exige que la clave primaria incluya la columna de partición, así
+-- que la clave pasa a ser (id, fecha). Los IDs siguen saliendo de sus
+-- secuencias y siguen siendo únicos. Detalle_Ventas guarda la fecha de su venta
+-- para quedar en el mismo mes y referenciarla con (venta_id, fecha_venta).
+--
+-- Cada mes es una partición tabla_AAAA_MM. Las fechas anteriores al primer mes
+-- con datos van a tabla_historico. La aplicación crea los meses siguientes por
+-- adelantado y puede desprender los antiguos (ParticionesMensuales).
+
+CREATE FUNCTION crear_particion_mensual(tabla text, mes date) RETURNS boolean
+LANGUAGE plpgsql AS $$
+DECLARE
+    inicio date := date_trunc('month', mes);
+    particion text := tabla || '_' || to_char(inicio, 'YYYY_MM');
+BEGIN
+    IF to_regclass(particion) IS NOT NULL THEN
+        RETURN false;
+    END IF;
+    EXECUTE format('CREATE TABLE %I PARTITION OF %I FOR VALUES FROM (%L) TO (%L)',
+            particion, tabla, inicio, (inicio + interval '1 month')::date);
+    RETURN true;
+END
+$$;
+
+-- Historical partition plus one partition per month up to three months ahead
+CREATE FUNCTION crear_particiones_iniciales(tabla text, primer_mes date) RETURNS void
+LANGUAGE plpgsql AS $$
+DECLARE
+    inicio date := date_trunc('month', LEAST(primer_mes, now()));
+    mes date := inicio;
+BEGIN
+    EXECUTE format('CREATE TABLE %I PARTITION OF %I FOR VALUES FROM (MINVALUE) TO (%L)',
+            tabla || '_historico', tabla, inicio);
+    WHILE mes <= date_trunc('month', now()) + interval '3 months' LOOP
+        PERFORM crear_particion_mensual(tabla, mes);
+        mes := mes + interval '1 month';
+    END LOOP;
+END
+$$;
+
+ALTER TABLE detalle_ventas RENAME TO detalle_ventas_sin_particionar;
+ALTER INDEX detalle_ventas_pkey RENAME TO detalle_ventas_sin_particionar_pkey;
+ALTER TABLE ventas RENAME TO ventas_sin_particionar;
+ALTER INDEX ventas_pkey RENAME TO ventas_sin_particionar_pkey;
+ALTER TABLE audit_logs RENAME TO audit_logs_sin_particionar;
+ALTER INDEX audit_logs_pkey RENAME TO audit_logs_sin_particionar_pkey;
+
+CREATE TABLE ventas (
+    venta_id integer NOT NULL,
+    sesion_id integer NOT NULL,
+    usuario_id integer NOT NULL,
+    cliente_id integer NOT NULL,
+    fecha_venta timestamp(6) NOT NULL,
+    monto_total numeric(10,2) NOT NULL,
+    metodo_pago varchar(255) NOT NULL CHECK (metodo_pago IN ('Efectivo', 'Tarjeta', 'Mixto')),
+    estado varchar(255) NOT NULL CHECK (estado IN ('Completada', 'Anulada')),
+    motivo_anulacion TEXT,
+    fecha_anulacion timestamp(6),
+    usuario_anulo_id integer,
+    PRIMARY KEY (venta_id, fecha_venta),
+    CONSTRAINT fk_ventas_sesion FOREIGN KEY (sesion_id) REFERENCES sesiones_caja,
+    CONSTRAINT fk_ventas_usuario FOREIGN KEY (usuario_id) REFERENCES usuarios,
+    CONSTRAINT fk_ventas_cliente FOREIGN KEY (cliente_id) REFERENCES clientes,
+    CONSTRAINT fk_ventas_usuario_anulo FOREIGN KEY (usuario_anulo_id) REFERENCES usuarios
+) PARTITION BY RANGE (fecha_venta);
+
+CREATE TABLE detalle_ventas (
+    detalle_id integer NOT NULL,
+    venta_id integer NOT NULL,
+    fecha_venta timestamp(6) NOT NULL,
+    producto_id integer NOT NULL,
+    cantidad integer NOT NULL CHECK (cantidad >= 1),
+    precio_unitario numeric(10,2) NOT NULL CHECK (precio_unitario >= 0),
+    descuento numeric(10,2) NOT NULL CHECK (descuento >= 0),
+    subtotal numeric(10,2) NOT NULL CHECK (subtotal >= 0),
+    PRIMARY KEY (detalle_id, fecha_venta),
+    CONSTRAINT fk_detalle_ventas_venta FOREIGN KEY (venta_id, fecha_venta) REFERENCES ventas (venta_id, fecha_venta),
+    CONSTRAINT fk_detalle_ventas_producto FOREIGN KEY (producto_id) REFERENCES productos
+) PARTITION BY RANGE (fecha_venta);
+
+CREATE TABLE audit_logs (
+    audit_id integer NOT NULL,
+    usuario_id integer NOT NULL,
+    accion varchar(255) NOT NULL
+            CHECK (accion IN ('LOGIN', 'LOGOUT', 'CREATE', 'UPDATE', 'DELETE', 'ANULAR_VENTA')),
+    entidad varchar(100) NOT NULL,
+    entidad_id integer,
+    detalles TEXT,
+    ip_address varchar(50),
+    fecha_accion timestamp(6) NOT NULL,
+    PRIMARY KEY (audit_id, fecha_accion),
+    CONSTRAINT fk_audit_logs_usuario FOREIGN KEY (usuario_id) REFERENCES usuarios
+) PARTITION BY RANGE (fecha_accion);
+
+SELECT crear_particiones_iniciales('ventas', (SELECT MIN(fecha_venta) FROM ventas_sin_particionar)::date);
+SELECT crear_particiones_iniciales('detalle_ventas', (SELECT MIN(fecha_venta) FROM ventas_sin_particionar)::date);
+SELECT crear_particiones_iniciales('audit_logs', (SELECT MIN(fecha_accion) FROM audit_logs_sin_particionar)::date);
+DROP FUNCTION crear_particiones_iniciales(text, date);
+
+INSERT INTO ventas (venta_id, sesion_id, usuario_id, cliente_id, fecha_venta, monto_total, metodo_pago, estado,
+        motivo_anulacion, fecha_anulacion, usuario_anulo_id)
+SELECT venta_id, sesion_id, usuario_id, cliente_id, fecha_venta, monto_total, metodo_pago, estado,
+        motivo_anulacion, fecha_anulacion, usuario_anulo_id
+FROM ventas_sin_particionar;
+
+INSERT INTO detalle_ventas (detalle_id, venta_id, fecha_venta, producto_id, cantidad, precio_unitario, descuento,
+        subtotal)
+SELECT d.detalle_id, d.venta_id, v.fecha_venta, d.producto_id, d.cantidad, d.precio_unitario, d.descuento,
+        d.subtotal
+FROM detalle_ventas_sin_particionar d
+JOIN ventas_sin_particionar v ON v.venta_id = d.venta_id;
+
+INSERT INTO audit_logs (audit_id, usuario_id, accion, entidad, entidad_id, detalles, ip_address, fecha_accion)
+SELECT audit_id, usuario_id, accion, entidad, entidad_id, detalles, ip_address, fecha_accion
+FROM audit_logs_sin_particionar;
+
+DROP TABLE detalle_ventas_sin_particionar;
+DROP TABLE ventas_sin_particionar;
+DROP TABLE audit_logs_sin_particionar;
+
+-- Audit_Logs keeps generating its own IDs (the JDBC writer relies on the default)
+ALTER TABLE audit_logs ALTER COLUMN audit_id ADD GENERATED BY DEFAULT AS IDENTITY;
+SELECT setval(pg_get_serial_sequence('audit_logs', 'audit_id'),
+        (SELECT COALESCE(MAX(audit_id), 0) + 1 FROM audit_logs), false);
+
+-- Same indexes as V3, now created on every partition
+CREATE INDEX idx_ventas_fecha ON ventas (fecha_venta, venta_id);
+CREATE INDEX idx_ventas_completadas_fecha ON ventas (fecha_venta)
+        INCLUDE (venta_id, metodo_pago, monto_total)
+        WHERE estado = 'Completada';
+CREATE INDEX idx_ventas_sesion_estado_metodo ON ventas (sesion_id, estado, metodo_pago)
+        INCLUDE (monto_total);
+CREATE INDEX idx_ventas_cliente_fecha ON ventas (cliente_id, fecha_venta);
+CREATE INDEX idx_detalle_ventas_venta ON detalle_ventas (venta_id)
+        INCLUDE (producto_id, cantidad, subtotal);
+CREATE INDEX idx_detalle_ventas_producto ON detalle_ventas (producto_id);
+CREATE INDEX idx_audit_logs_usuario_fecha ON audit_logs (usuario_id, fecha_accion);
+CREATE INDEX idx_audit_logs_entidad_fecha ON audit_logs (entidad, entidad_id, fecha_accion);
+CREATE INDEX idx_audit_logs_accion_fecha ON audit_logs (accion, fecha_accion);
+CREATE INDEX idx_audit_logs_fecha ON audit_logs (fecha_accion);
@@ -0,0 +1,5 @@
+-- Versión del stock de cada producto. Toda escritura de cantidad_stock la
+-- incrementa en el mismo UPDATE, mientras tiene la fila bloqueada, así que
+-- sigue el orden de los commits. El catálogo en memoria la usa para no pisar
+-- un stock nuevo con uno más viejo cuando dos cajas confirman a la vez.
+ALTER TABLE productos ADD COLUMN stock_version bigint NOT NULL DEFAULT 0;
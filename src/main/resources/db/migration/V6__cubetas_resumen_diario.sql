@@ -0,0 +1,22 @@
+-- Cubetas del resumen diario por método de pago. Cada venta suma en la cubeta
+-- de su sesión de caja, así que las cajas ya no esperan todas por la misma fila
+-- (día, método, estado) hasta el commit; las consultas suman todas las cubetas.
+-- La reconstrucción desde Ventas escribe en la cubeta 0 y deja las demás en cero.
+ALTER TABLE ventas_resumen_diario ADD COLUMN cubeta integer NOT NULL DEFAULT 0;
+
+-- La restricción única de (fecha, metodo_pago, estado) tiene otro nombre en las
+-- bases que creó ddl-auto=update
+DO $$
+DECLARE
+    restriccion text;
+BEGIN
+    FOR restriccion IN SELECT conname FROM pg_constraint
+            WHERE conrelid = 'ventas_resumen_diario'::regclass AND contype = 'u'
+    LOOP
+        EXECUTE format('ALTER TABLE ventas_resumen_diario DROP CONSTRAINT %I', restriccion);
+    END LOOP;
+END
+$$;
+
+ALTER TABLE ventas_resumen_diario ADD CONSTRAINT ventas_resumen_diario_fecha_metodo_pago_estado_cubeta_key
+        UNIQUE (fecha, metodo_pago, estado, cubeta);
@@ -0,0 +1,107 @@
+package com.libreria.libreria.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class EnrutadorLecturasTest {
+
+    private final Servidor primaria = new Servidor("primaria");
+    private final Servidor replica = new Servidor("replica");
+    private final MonitorReplica monitor = new MonitorReplica(replica, 1000, new SimpleMeterRegistry());
+    private final EnrutadorLecturas enrutador = new EnrutadorLecturas(primaria, replica, monitor,
+            new SimpleMeterRegistry());
+
+    @AfterEach
+    void limpiar() {
+        EnrutadorLecturas.terminar();
+        EnrutadorLecturas.terminar();
+    }
+
+    @Test
+    void soloLasLecturasMarcadasVanALaReplica() throws Exception {
+        monitor.actualizar(0);
+
+        assertEquals("primaria", servidor(enrutador.getConnection()));
+
+        EnrutadorLecturas.iniciar(true);
+        assertEquals("replica", servidor(enrutador.getConnection()));
+
+        // A new transaction inside the read, e.g. REQUIRES_NEW, keeps its own route
+        EnrutadorLecturas.iniciar(false);
+        assertEquals("primaria", servidor(enrutador.getConnection()));
+        EnrutadorLecturas.terminar();
+        assertEquals("replica", servidor(enrutador.getConnection()));
+    }
+
+    @Test
+    void conAtrasoOSinVerificarLeeDeLaPrimaria() throws Exception {
+        EnrutadorLecturas.iniciar(true);
+        assertEquals("primaria", servidor(enrutador.getConnection()));
+
+        monitor.actualizar(1500);
+        assertEquals("primaria", servidor(enrutador.getConnection()));
+
+        monitor.actualizar(200);
+        assertEquals("replica", servidor(enrutador.getConnection()));
+
+        // A standby that has not replayed anything since it started cannot report its lag
+        monitor.actualizar(-1);
+        assertEquals("primaria", servidor(enrutador.getConnection()));
+    }
+
+    @Test
+    void siLaReplicaFallaLeeDeLaPrimaria() throws Exception {
+        monitor.actualizar(0);
+        EnrutadorLecturas.iniciar(true);
+        replica.caido = true;
+
+        assertEquals("primaria", servidor(enrutador.getConnection()));
+
+        // Stays on the primary until the next successful check
+        replica.caido = false;
+        assertEquals("primaria", servidor(enrutador.getConnection()));
+        monitor.actualizar(0);
+        assertEquals("replica", servidor(enrutador.getConnection()));
+    }
+
+    private static String servidor(Connection conexion) {
+        return conexion.toString();
+    }
+
+    // Stand-in for a PostgreSQL instance: its connections only know the server name
+    private static class Servidor extends AbstractDataSource {
+        private final String nombre;
+        private volatile boolean caido;
+
+        Servidor(String nombre) {
+            this.nombre = nombre;
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            if (caido) {
+                throw new SQLException("Connection refused");
+            }
+            return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[] { Connection.class }, (proxy, metodo, args) -> {
+                        if (metodo.getName().equals("toString")) {
+                            return nombre;
+                        }
+                        throw new UnsupportedOperationException(metodo.getName());
+                    });
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return getConnection();
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.libreria.libreria.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class JwtServiceTest {
+
+    private static final String CLAVE = "404E635266556A586E3272357538782F413F4428472B4B6250645367566B5970";
+
+    @Test
+    void conLaCacheLlenaSaleElTokenMenosUsado() {
+        JwtService jwtService = jwtService(2);
+        String a = token(jwtService, "ana");
+        String b = token(jwtService, "beto");
+        String c = token(jwtService, "carla");
+
+        Claims claimsA = jwtService.validarToken(a);
+        Claims claimsB = jwtService.validarToken(b);
+        assertSame(claimsA, jwtService.validarToken(a));
+
+        // Full of live tokens: carla is still cached and beto, the least used, leaves
+        Claims claimsC = jwtService.validarToken(c);
+        assertSame(claimsC, jwtService.validarToken(c));
+        assertSame(claimsA, jwtService.validarToken(a));
+        assertNotSame(claimsB, jwtService.validarToken(b));
+    }
+
+    /**
+     * Microsegundos por token nuevo con la caché llena de 10.000 tokens
+     * vigentes: la estrategia anterior (recorrer la caché buscando expirados y
+     * no guardar el token) contra la LRU. Se ejecuta con -Dbenchmark=true.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void benchmarkTokensNuevosConCacheLlena() {
+        int maximo = 10_000;
+        JwtService jwtService = jwtService(maximo);
+        List<String> vigentes = tokens(jwtService, "vigente", maximo);
+
+        CacheAnterior anterior = new CacheAnterior(maximo);
+        vigentes.forEach(anterior::validarToken);
+        vigentes.forEach(jwtService::validarToken);
+
+        // Each pass also warms up the JIT for the next one; fresh tokens so every call misses
+        for (int i = 0; i < 2; i++) {
+            List<String> nuevos = tokens(jwtService, "nuevo" + i + "-", 5_000);
+            double antes = medir(nuevos, anterior::validarToken);
+            double despues = medir(nuevos, jwtService::validarToken);
+            System.out.printf("Token nuevo con caché llena: %.1f µs antes, %.1f µs después%n", antes, despues);
+        }
+    }
+
+    private static double medir(List<String> tokens, Function<String, Claims> validar) {
+        long inicio = System.nanoTime();
+        for (String token : tokens) {
+            validar.apply(token);
+        }
+        return (System.nanoTime() - inicio) / 1_000.0 / tokens.size();
+    }
+
+    /** validarToken tal como estaba antes de la LRU, para comparar. */
+    private static class CacheAnterior {
+
+        private final JwtParser parser = Jwts.parser()
+                .verifyWith(Keys.hmacShaKeyFor(Decoders.BASE64.decode(CLAVE)))
+                .build();
+        private final Map<String, Claims> tokensVerificados = new ConcurrentHashMap<>();
+        private final int maximo;
+
+        CacheAnterior(int maximo) {
+            this.maximo = maximo;
+        }
+
+        Claims validarToken(String token) {
+            Claims claims = tokensVerificados.get(token);
+            if (claims != null && claims.getExpiration().after(new Date())) {
+                return claims;
+            }
+            claims = parser.parseSignedClaims(token).getPayload();
+            if (tokensVerificados.size() >= maximo) {
+                Date ahora = new Date();
+                tokensVerificados.values().removeIf(c -> c.getExpiration().before(ahora));
+            }
+            if (tokensVerificados.size() < maximo) {
+                tokensVerificados.put(token, claims);
+            }
+            return claims;
+        }
+    }
+
+    private static JwtService jwtService(int maxTokensCache) {
+        JwtService jwtService = new JwtService();
+        ReflectionTestUtils.setField(jwtService, "secretKey", CLAVE);
+        ReflectionTestUtils.setField(jwtService, "jwtExpiration", 3_600_000L);
+        ReflectionTestUtils.setField(jwtService, "maxTokensCache", maxTokensCache);
+        jwtService.init();
+        return jwtService;
+    }
+
+    private static List<String> tokens(JwtService jwtService, String prefijo, int cantidad) {
+        List<String> tokens = new ArrayList<>(cantidad);
+        for (int i = 0; i < cantidad; i++) {
+            tokens.add(token(jwtService, prefijo + i));
+        }
+        return tokens;
+    }
+
+    private static String token(JwtService jwtService, String username) {
+        return jwtService.generateToken(User.withUsername(username).password("x").authorities("ROLE_Cajero").build());
+    }
+}
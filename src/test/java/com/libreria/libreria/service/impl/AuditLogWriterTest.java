@@ -0,0 +1,204 @@
+package com.libreria.libreria.service.impl;
+
+import com.libreria.libreria.model.enums.TipoAccion;
+import com.libreria.libreria.service.impl.AuditLogWriter.PoliticaSaturacion;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AuditLogWriterTest {
+
+    // Rows with this user id are rejected, like an unknown usuario_id foreign key
+    private static final int USUARIO_INEXISTENTE = -1;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final BaseDeDatos baseDeDatos = new BaseDeDatos();
+    private final Transacciones transacciones = new Transacciones();
+    private AuditLogWriter writer;
+
+    @AfterEach
+    void detener() throws InterruptedException {
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+        if (writer != null) {
+            writer.detener();
+        }
+    }
+
+    @Test
+    void descartarPierdeLosEventosQueNoEntranEnLaCola() throws Exception {
+        writer = writer(2, 10, PoliticaSaturacion.DESCARTAR, 0);
+
+        for (int i = 1; i <= 5; i++) {
+            encolar(i);
+        }
+
+        assertEquals(3, contador("auditoria.eventos.descartados"));
+        assertTrue(baseDeDatos.lotes.isEmpty());
+
+        writer.detener();
+        assertEquals(List.of(List.of(1, 2)), baseDeDatos.usuarios());
+    }
+
+    @Test
+    void bloquearDescartaSiLaColaSigueLlenaTrasLaEspera() {
+        writer = writer(1, 10, PoliticaSaturacion.BLOQUEAR, 50);
+        encolar(1);
+
+        long inicio = System.nanoTime();
+        encolar(2);
+        long esperado = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio);
+
+        assertTrue(esperado >= 40, "esperó " + esperado + " ms");
+        assertEquals(1, contador("auditoria.eventos.descartados"));
+    }
+
+    @Test
+    void bloquearEsperaAQueElFlushLibereLugar() throws Exception {
+        writer = writer(1, 10, PoliticaSaturacion.BLOQUEAR, 5_000);
+        writer.iniciar();
+
+        for (int i = 1; i <= 10; i++) {
+            encolar(i);
+        }
+        writer.detener();
+
+        assertEquals(0, contador("auditoria.eventos.descartados"));
+        assertEquals(10, contador("auditoria.eventos.escritos"));
+        assertTrue(baseDeDatos.hilos.stream().anyMatch("audit-writer"::equals));
+    }
+
+    @Test
+    void ejecutarEnLlamadorEscribeEnUnaTransaccionPropia() {
+        writer = writer(1, 10, PoliticaSaturacion.EJECUTAR_EN_LLAMADOR, 0);
+        encolar(1);
+
+        // Inside the audited action's transaction the overflow event gets its own
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        encolar(2);
+
+        assertEquals(List.of(List.of(2)), baseDeDatos.usuarios());
+        assertEquals(Thread.currentThread().getName(), baseDeDatos.hilos.get(0));
+        assertEquals(List.of(TransactionDefinition.PROPAGATION_REQUIRES_NEW), transacciones.propagaciones);
+        assertEquals(1, transacciones.confirmadas);
+        assertEquals(0, contador("auditoria.eventos.descartados"));
+    }
+
+    @Test
+    void ejecutarEnLlamadorSinTransaccionNoAbreNinguna() {
+        writer = writer(1, 10, PoliticaSaturacion.EJECUTAR_EN_LLAMADOR, 0);
+        encolar(1);
+        encolar(2);
+
+        assertEquals(List.of(List.of(2)), baseDeDatos.usuarios());
+        assertTrue(transacciones.propagaciones.isEmpty());
+    }
+
+    @Test
+    void unLoteFallidoSeReintentaFilaPorFila() throws Exception {
+        writer = writer(10, 10, PoliticaSaturacion.DESCARTAR, 0);
+        encolar(1);
+        encolar(USUARIO_INEXISTENTE);
+        encolar(3);
+
+        writer.detener();
+
+        assertEquals(List.of(List.of(1), List.of(3)), baseDeDatos.usuarios());
+        assertEquals(4, baseDeDatos.intentos);
+        assertEquals(2, contador("auditoria.eventos.escritos"));
+        assertEquals(1, contador("auditoria.eventos.fallidos"));
+    }
+
+    @Test
+    void detenerVaciaLaColaEnLotes() throws Exception {
+        // The scheduled flush would run in an hour; only the drain on shutdown writes
+        writer = writer(100, 4, PoliticaSaturacion.DESCARTAR, 0, TimeUnit.HOURS.toMillis(1));
+        writer.iniciar();
+        for (int i = 1; i <= 10; i++) {
+            encolar(i);
+        }
+
+        writer.detener();
+
+        assertEquals(List.of(List.of(1, 2, 3, 4), List.of(5, 6, 7, 8), List.of(9, 10)), baseDeDatos.usuarios());
+        assertEquals(10, contador("auditoria.eventos.escritos"));
+    }
+
+    private AuditLogWriter writer(int capacidad, int tamanoLote, PoliticaSaturacion politica, long esperaMs) {
+        return writer(capacidad, tamanoLote, politica, esperaMs, 10);
+    }
+
+    private AuditLogWriter writer(int capacidad, int tamanoLote, PoliticaSaturacion politica, long esperaMs,
+            long intervaloFlushMs) {
+        return new AuditLogWriter(baseDeDatos, transacciones, registry, capacidad, tamanoLote, intervaloFlushMs,
+                politica, esperaMs);
+    }
+
+    private void encolar(int usuarioId) {
+        writer.encolar(usuarioId, TipoAccion.CREATE, "Venta", usuarioId, "Prueba", "127.0.0.1");
+    }
+
+    private double contador(String nombre) {
+        return registry.get(nombre).counter().count();
+    }
+
+    /** Guarda los lotes que se confirman y rechaza los que traen un usuario inexistente. */
+    private static class BaseDeDatos extends JdbcTemplate {
+
+        private final List<List<Object[]>> lotes = Collections.synchronizedList(new ArrayList<>());
+        private final List<String> hilos = Collections.synchronizedList(new ArrayList<>());
+        private volatile int intentos;
+
+        @Override
+        public int[] batchUpdate(String sql, List<Object[]> batchArgs, int[] argTypes) {
+            intentos++;
+            if (batchArgs.stream().anyMatch(fila -> fila[0].equals(USUARIO_INEXISTENTE))) {
+                throw new IllegalStateException("violates foreign key constraint fk_audit_logs_usuario");
+            }
+            lotes.add(List.copyOf(batchArgs));
+            hilos.add(Thread.currentThread().getName());
+            return new int[batchArgs.size()];
+        }
+
+        List<List<Integer>> usuarios() {
+            synchronized (lotes) {
+                return lotes.stream().map(lote -> lote.stream().map(fila -> (Integer) fila[0]).toList()).toList();
+            }
+        }
+    }
+
+    /** Registra la propagación pedida a cada transacción. */
+    private static class Transacciones implements PlatformTransactionManager {
+
+        private final List<Integer> propagaciones = new ArrayList<>();
+        private int confirmadas;
+
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            propagaciones.add(definition.getPropagationBehavior());
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+            confirmadas++;
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package com.libreria.libreria.service.impl;
+
+import com.libreria.libreria.dto.DetalleVentaDTO;
+import com.libreria.libreria.dto.VentaDTO;
+import com.libreria.libreria.model.enums.MetodoPago;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.flywaydb.core.Flyway;
+import org.hibernate.SessionFactory;
+import org.hibernate.boot.model.naming.PhysicalNamingStrategySnakeCaseImpl;
+import org.hibernate.stat.Statistics;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.support.PropertySourcesPlaceholderConfigurer;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.EnableTransactionManagement;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Contexto de Spring sobre la base de datos de -Dbenchmark.db.url (y, si
+ * hacen falta, -Dbenchmark.db.user y -Dbenchmark.db.password) para las pruebas
+ * que necesitan PostgreSQL: aplica las migraciones y registra los repositorios
+ * y los servicios de ventas y productos, sin la parte web ni la seguridad.
+ *
+ * Cuenta las sentencias que cada hilo envía a la base de datos, sean de
+ * Hibernate o de JdbcTemplate; un lote cuenta como una.
+ *
+ * No lleva @Configuration para que el escaneo de @SpringBootTest no la
+ * registre sin -Dbenchmark.db.url; iniciar() la registra directamente.
+ */
+@EnableTransactionManagement
+@EnableJpaRepositories("com.libreria.libreria.repository")
+@Import({ VentaServiceImpl.class, ProductoServiceImpl.class, AuditLogServiceImpl.class, AuditLogWriter.class,
+        CatalogoProductosCache.class, ResumenVentasDiario.class, RankingProductosVendidos.class,
+        ExportadorVentas.class, FacturaPdfRenderer.class, FacturaPdfCache.class, TicketEscPosRenderer.class,
+        FacturasMasivas.class, VentasIdempotentes.class, MetricasVentas.class })
+class BaseDatosPrueba {
+
+    private static final ThreadLocal<long[]> SENTENCIAS = ThreadLocal.withInitial(() -> new long[1]);
+
+    /** Datos de referencia creados para una prueba. */
+    record Datos(int usuarioId, int clienteId, int sesionId, int categoriaId, int ubicacionId) {
+    }
+
+    static AnnotationConfigApplicationContext iniciar() {
+        return new AnnotationConfigApplicationContext(BaseDatosPrueba.class);
+    }
+
+    /** Reinicia el contador de sentencias del hilo actual. */
+    static void reiniciarSentencias() {
+        SENTENCIAS.get()[0] = 0;
+    }
+
+    /** Sentencias enviadas por el hilo actual desde el último reinicio. */
+    static long sentencias() {
+        return SENTENCIAS.get()[0];
+    }
+
+    static Statistics estadisticas(AnnotationConfigApplicationContext contexto) {
+        return contexto.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+    }
+
+    static Properties propiedadesConexion() {
+        Properties propiedades = new Properties();
+        propiedades.setProperty("user", System.getProperty("benchmark.db.user", "postgres"));
+        propiedades.setProperty("password", System.getProperty("benchmark.db.password", ""));
+        return propiedades;
+    }
+
+    /**
+     * Crea un rol, un usuario, un cliente, una sesión de caja abierta, una
+     * categoría y una ubicación con nombres únicos.
+     */
+    static Datos crearDatos(JdbcTemplate jdbc) {
+        String sufijo = Long.toString(System.nanoTime(), 36);
+        int rolId = jdbc.queryForObject("INSERT INTO roles (nombre) VALUES (?) RETURNING rol_id", Integer.class,
+                "Prueba " + sufijo);
+        int usuarioId = jdbc.queryForObject("INSERT INTO usuarios (rol_id, username, password_hash, "
+                + "nombre_completo, activo) VALUES (?, ?, 'x', 'Cajero de prueba', true) RETURNING usuario_id",
+                Integer.class, rolId, "prueba" + sufijo);
+        int clienteId = jdbc.queryForObject("INSERT INTO clientes (nombre_completo, nivel_precio_asignado, activo) "
+                + "VALUES (?, 'Publico', true) RETURNING cliente_id", Integer.class, "Cliente " + sufijo);
+        int sesionId = jdbc.queryForObject("INSERT INTO sesiones_caja (usuario_apertura_id, fecha_apertura, "
+                + "monto_inicial, estado) VALUES (?, now(), 0, 'Abierta') RETURNING sesion_id", Integer.class,
+                usuarioId);
+        int categoriaId = jdbc.queryForObject("INSERT INTO categorias (nombre) VALUES (?) RETURNING categoria_id",
+                Integer.class, "Categoria " + sufijo);
+        int ubicacionId = jdbc.queryForObject("INSERT INTO ubicaciones (nombre_corto, descripcion) "
+                + "VALUES (?, 'Prueba') RETURNING ubicacion_id", Integer.class, "U" + sufijo);
+        return new Datos(usuarioId, clienteId, sesionId, categoriaId, ubicacionId);
+    }
+
+    static List<Integer> crearProductos(JdbcTemplate jdbc, Datos datos, int cantidad, int stock) {
+        List<Integer> ids = new ArrayList<>(cantidad);
+        for (int i = 0; i < cantidad; i++) {
+            ids.add(jdbc.queryForObject("INSERT INTO productos (categoria_id, ubicacion_id, nombre, precio_venta, "
+                    + "precio_mayorista, precio_costo, cantidad_stock, activo) "
+                    + "VALUES (?, ?, ?, 12.50, 10.00, 8.00, ?, true) RETURNING producto_id", Integer.class,
+                    datos.categoriaId(), datos.ubicacionId(), "Producto de prueba " + i, stock));
+        }
+        return ids;
+    }
+
+    /** Venta en efectivo con una línea por producto. */
+    static VentaDTO venta(Datos datos, Map<Integer, Integer> cantidades) {
+        List<DetalleVentaDTO> detalles = new ArrayList<>();
+        cantidades.forEach((productoId, cantidad) -> detalles.add(DetalleVentaDTO.builder()
+                .productoId(productoId)
+                .cantidad(cantidad)
+                .descuento(BigDecimal.ZERO)
+                .build()));
+        return VentaDTO.builder()
+                .sesionId(datos.sesionId())
+                .usuarioId(datos.usuarioId())
+                .clienteId(datos.clienteId())
+                .metodoPago(MetodoPago.Efectivo)
+                .detalles(detalles)
+                .build();
+    }
+
+    @Bean(destroyMethod = "close")
+    HikariDataSource pool() {
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl(System.getProperty("benchmark.db.url"));
+        config.setDataSourceProperties(propiedadesConexion());
+        config.addDataSourceProperty("reWriteBatchedInserts", "true");
+        config.setMaximumPoolSize(20);
+        HikariDataSource pool = new HikariDataSource(config);
+
+        Flyway.configure()
+                .dataSource(pool)
+                .locations("classpath:db/migration")
+                .baselineOnMigrate(true)
+                .baselineVersion("1")
+                .load()
+                .migrate();
+        return pool;
+    }
+
+    @Bean
+    @Primary
+    DataSource dataSource(HikariDataSource pool) {
+        return (DataSource) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { DataSource.class },
+                (proxy, metodo, args) -> {
+                    Object resultado = invocar(pool, metodo, args);
+                    return resultado instanceof Connection con ? contando(con) : resultado;
+                });
+    }
+
+    @Bean
+    LocalContainerEntityManagerFactoryBean entityManagerFactory(DataSource dataSource) {
+        LocalContainerEntityManagerFactoryBean emf = new LocalContainerEntityManagerFactoryBean();
+        emf.setDataSource(dataSource);
+        emf.setPackagesToScan("com.libreria.libreria.model");
+        emf.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        emf.setJpaPropertyMap(Map.of(
+                "hibernate.physical_naming_strategy", PhysicalNamingStrategySnakeCaseImpl.class.getName(),
+                "hibernate.hbm2ddl.auto", "validate",
+                "hibernate.jdbc.batch_size", "50",
+                "hibernate.order_inserts", "true",
+                "hibernate.order_updates", "true",
+                "hibernate.cache.use_second_level_cache", "false",
+                "hibernate.generate_statistics", "true"));
+        return emf;
+    }
+
+    @Bean
+    PlatformTransactionManager transactionManager(EntityManagerFactory entityManagerFactory) {
+        return new JpaTransactionManager(entityManagerFactory);
+    }
+
+    @Bean
+    JdbcTemplate jdbcTemplate(DataSource dataSource) {
+        return new JdbcTemplate(dataSource);
+    }
+
+    @Bean
+    MeterRegistry meterRegistry() {
+        return new SimpleMeterRegistry();
+    }
+
+    // Every @Value in the services has a default
+    @Bean
+    static PropertySourcesPlaceholderConfigurer propiedades() {
+        return new PropertySourcesPlaceholderConfigurer();
+    }
+
+    private static Connection contando(Connection con) {
+        return (Connection) Proxy.newProxyInstance(BaseDatosPrueba.class.getClassLoader(),
+                new Class<?>[] { Connection.class }, (proxy, metodo, args) -> {
+                    Object resultado = invocar(con, metodo, args);
+                    if (resultado instanceof CallableStatement st) {
+                        return contando(st, CallableStatement.class);
+                    } else if (resultado instanceof PreparedStatement st) {
+                        return contando(st, PreparedStatement.class);
+                    } else if (resultado instanceof Statement st) {
+                        return contando(st, Statement.class);
+                    }
+                    return resultado;
+                });
+    }
+
+    private static Object contando(Statement st, Class<?> tipo) {
+        return Proxy.newProxyInstance(BaseDatosPrueba.class.getClassLoader(), new Class<?>[] { tipo },
+                (proxy, metodo, args) -> {
+                    if (metodo.getName().startsWith("execute")) {
+                        SENTENCIAS.get()[0]++;
+                    }
+                    return invocar(st, metodo, args);
+                });
+    }
+
+    private static Object invocar(Object destino, Method metodo, Object[] args) throws Throwable {
+        try {
+            return metodo.invoke(destino, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.libreria.libreria.service.impl;
+
+import com.libreria.libreria.controller.ProductoController;
+import com.libreria.libreria.dto.ProductoDTO;
+import com.libreria.libreria.repository.ProductoStockRepository.StockActualizado;
+import com.libreria.libreria.service.ProductoService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class CatalogoProductosCacheTest {
+
+    private final CatalogoProductosCache catalogo = new CatalogoProductosCache();
+
+    @AfterEach
+    void limpiar() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void unStockViejoNoPisaAlNuevo() {
+        cargar(producto(1, "Lápiz", 10), 1);
+
+        catalogo.refrescarStock(List.of(new StockActualizado(1, 7, 3)));
+        catalogo.refrescarStock(List.of(new StockActualizado(1, 8, 2)));
+
+        assertEquals(7, stock(1));
+    }
+
+    @Test
+    void elStockSeAplicaSoloSiLaTransaccionSeConfirma() {
+        cargar(producto(1, "Lápiz", 10), 1);
+
+        TransactionSynchronizationManager.initSynchronization();
+        catalogo.refrescarStock(List.of(new StockActualizado(1, 5, 2)));
+        assertEquals(10, stock(1));
+        completar(TransactionSynchronization.STATUS_ROLLED_BACK);
+        assertEquals(10, stock(1));
+
+        TransactionSynchronizationManager.initSynchronization();
+        catalogo.refrescarStock(List.of(new StockActualizado(1, 4, 2)));
+        completar(TransactionSynchronization.STATUS_COMMITTED);
+        assertEquals(4, stock(1));
+    }
+
+    @Test
+    void unaVentaConfirmadaAntesDeCargarNoSePierde() {
+        catalogo.refrescarStock(List.of(new StockActualizado(1, 4, 5)));
+
+        // The snapshot was read before that sale committed
+        cargar(producto(1, "Lápiz", 10), 4);
+
+        assertEquals(4, stock(1));
+    }
+
+    @Test
+    void unaEdicionAnteriorAUnaVentaConservaElStockDeLaVenta() {
+        cargar(producto(1, "Lápiz", 10), 1);
+        catalogo.refrescarStock(List.of(new StockActualizado(1, 6, 3)));
+
+        catalogo.actualizar(producto(1, "Lápiz HB", 20), new StockActualizado(1, 20, 2));
+
+        ProductoDTO actual = catalogo.obtener(1, List::of).orElseThrow();
+        assertEquals("Lápiz HB", actual.getNombre());
+        assertEquals(6, actual.getCantidadStock());
+    }
+
+    /**
+     * Solicitudes por segundo de GET /api/productos con 2.000 productos, a
+     * través de Spring MVC y la serialización JSON, sin y con ventas
+     * confirmándose en paralelo. Se ejecuta con -Dbenchmark=true.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void benchmarkListado() throws Exception {
+        List<CatalogoProductosCache.ProductoCargado> productos = new ArrayList<>();
+        for (int i = 1; i <= 2_000; i++) {
+            productos.add(new CatalogoProductosCache.ProductoCargado(producto(i, "Producto " + i, 100), 0));
+        }
+        MockMvc mvc = MockMvcBuilders.standaloneSetup(new ProductoController(listado(() -> productos))).build();
+        int hilos = Runtime.getRuntime().availableProcessors();
+
+        medirListado(mvc, hilos, 200, false);
+        System.out.printf("GET /api/productos: %.0f solicitudes/s sin ventas, %.0f solicitudes/s con ventas (%d hilos)%n",
+                medirListado(mvc, hilos, 1_000, false), medirListado(mvc, hilos, 1_000, true), hilos);
+    }
+
+    private double medirListado(MockMvc mvc, int hilos, int solicitudesPorHilo, boolean conVentas)
+            throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(hilos + 1);
+        AtomicBoolean activo = new AtomicBoolean(true);
+        try {
+            if (conVentas) {
+                // One sale per millisecond, each one invalidating the cached list
+                executor.submit(() -> {
+                    long version = System.nanoTime();
+                    while (activo.get()) {
+                        int productoId = (int) (version % 2_000) + 1;
+                        catalogo.refrescarStock(List.of(new StockActualizado(productoId, 50, ++version)));
+                        Thread.sleep(1);
+                    }
+                    return null;
+                });
+            }
+
+            List<Future<?>> clientes = new ArrayList<>();
+            long inicio = System.nanoTime();
+            for (int h = 0; h < hilos; h++) {
+                clientes.add(executor.submit(() -> {
+                    for (int i = 0; i < solicitudesPorHilo; i++) {
+                        mvc.perform(get("/api/productos")).andExpect(status().isOk());
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> cliente : clientes) {
+                cliente.get();
+            }
+            long nanos = System.nanoTime() - inicio;
+            return (double) hilos * solicitudesPorHilo * 1e9 / nanos;
+        } finally {
+            activo.set(false);
+            executor.shutdown();
+        }
+    }
+
+    // Only the read path of ProductoServiceImpl, over this catalog
+    private ProductoService listado(Supplier<List<CatalogoProductosCache.ProductoCargado>> cargador) {
+        return new ProductoService() {
+            @Override
+            public List<ProductoDTO> findAll() {
+                return catalogo.listar(cargador);
+            }
+
+            @Override
+            public Optional<ProductoDTO> findById(Integer id) {
+                return catalogo.obtener(id, cargador);
+            }
+
+            @Override
+            public List<ProductoDTO> buscar(String texto, Integer limite) {
+                return catalogo.buscar(texto, limite, cargador);
+            }
+
+            @Override
+            public ProductoDTO save(ProductoDTO productoDTO) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public ProductoDTO update(Integer id, ProductoDTO productoDTO) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void delete(Integer id) {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    private void cargar(ProductoDTO producto, long versionStock) {
+        catalogo.listar(() -> List.of(new CatalogoProductosCache.ProductoCargado(producto, versionStock)));
+    }
+
+    private int stock(Integer productoId) {
+        return catalogo.obtener(productoId, List::of).orElseThrow().getCantidadStock();
+    }
+
+    private static ProductoDTO producto(int id, String nombre, int stock) {
+        return ProductoDTO.builder()
+                .productoId(id)
+                .categoriaId(1)
+                .categoriaNombre("Escolar")
+                .ubicacionId(1)
+                .ubicacionNombre("A1")
+                .nombre(nombre)
+                .sku("SKU-" + id)
+                .precioVenta(new BigDecimal("12.50"))
+                .precioMayorista(new BigDecimal("10.00"))
+                .cantidadStock(stock)
+                .activo(true)
+                .build();
+    }
+
+    private static void completar(int status) {
+        for (TransactionSynchronization sincronizacion : TransactionSynchronizationManager.getSynchronizations()) {
+            if (status == TransactionSynchronization.STATUS_COMMITTED) {
+                sincronizacion.afterCommit();
+            }
+            sincronizacion.afterCompletion(status);
+        }
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+}
@@ -0,0 +1,204 @@
+package com.libreria.libreria.service.impl;
+
+import com.libreria.libreria.dto.ProductoMasVendidoDTO;
+import com.libreria.libreria.dto.VentaDTO;
+import com.libreria.libreria.model.enums.EstadoVenta;
+import com.libreria.libreria.model.enums.MetodoPago;
+import com.libreria.libreria.service.VentaService;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Las consultas del historial de ventas no pueden hacer una sentencia por
+ * venta ni por línea: listarVentas, filtrarVentas y obtenerVentaPorId preparan
+ * las mismas sentencias con 1 que con 50 ventas (o líneas), según las
+ * estadísticas de Hibernate. Lo mismo la factura PDF y el ticket de una venta.
+ * Las estadísticas y las ventas por método cuestan lo mismo para dos días que
+ * para un mes, y el ranking de productos lo mismo para 1 que para 50.
+ *
+ * Se ejecuta con -Dbenchmark.db.url=jdbc:postgresql://host/base y, si hacen
+ * falta, -Dbenchmark.db.user y -Dbenchmark.db.password.
+ */
+@EnabledIfSystemProperty(named = "benchmark.db.url", matches = ".+")
+class ConsultasVentasTest {
+
+    private static final int VENTAS = 50;
+
+    private static AnnotationConfigApplicationContext contexto;
+    private static VentaService ventaService;
+    private static Statistics estadisticas;
+
+    private static BaseDatosPrueba.Datos conUnaVenta;
+    private static BaseDatosPrueba.Datos conMuchasVentas;
+    private static VentaDTO ventaDeUnaLinea;
+    private static VentaDTO ventaDeMuchasLineas;
+    private static LocalDateTime desde;
+
+    @BeforeAll
+    static void iniciar() {
+        contexto = BaseDatosPrueba.iniciar();
+        ventaService = contexto.getBean(VentaService.class);
+        estadisticas = BaseDatosPrueba.estadisticas(contexto);
+        JdbcTemplate jdbc = contexto.getBean(JdbcTemplate.class);
+
+        desde = LocalDateTime.now().minusMinutes(1);
+        conUnaVenta = BaseDatosPrueba.crearDatos(jdbc);
+        conMuchasVentas = BaseDatosPrueba.crearDatos(jdbc);
+        List<Integer> productos = BaseDatosPrueba.crearProductos(jdbc, conMuchasVentas, VENTAS, 1_000);
+
+        ventaDeUnaLinea = ventaService.crearVenta(BaseDatosPrueba.venta(conUnaVenta, lineas(productos, 1)));
+        for (int i = 0; i < VENTAS - 1; i++) {
+            ventaService.crearVenta(BaseDatosPrueba.venta(conMuchasVentas, lineas(productos, 2)));
+        }
+        ventaDeMuchasLineas = ventaService.crearVenta(
+                BaseDatosPrueba.venta(conMuchasVentas, lineas(productos, VENTAS)));
+
+        // Normally run on ApplicationReadyEvent; switches whole days to the daily summary
+        contexto.getBean(ResumenVentasDiario.class).inicializar();
+    }
+
+    @AfterAll
+    static void cerrar() {
+        contexto.close();
+    }
+
+    @Test
+    void listarVentas() {
+        long una = sentencias(() -> ventaService.listarVentas(null, null, 1).getContenido());
+        long muchas = sentencias(() -> ventaService.listarVentas(null, null, VENTAS).getContenido());
+
+        assertEquals(una, muchas);
+        assertTrue(una <= 1, "listarVentas: " + una);
+    }
+
+    @Test
+    void filtrarVentas() {
+        LocalDateTime hasta = LocalDateTime.now().plusMinutes(1);
+        long una = sentencias(() -> {
+            List<VentaDTO> ventas = ventaService.filtrarVentas(desde, hasta, conUnaVenta.clienteId(), null, null);
+            assertEquals(1, ventas.size());
+            return ventas;
+        });
+        long muchas = sentencias(() -> {
+            List<VentaDTO> ventas = ventaService.filtrarVentas(desde, hasta, conMuchasVentas.clienteId(),
+                    MetodoPago.Efectivo, EstadoVenta.Completada);
+            assertEquals(VENTAS, ventas.size());
+            return ventas;
+        });
+
+        assertEquals(una, muchas);
+        assertTrue(una <= 2, "filtrarVentas: " + una);
+    }
+
+    @Test
+    void obtenerVentaPorId() {
+        long una = sentencias(() -> ventaService.obtenerVentaPorId(ventaDeUnaLinea.getVentaId()).getDetalles());
+        long muchas = sentencias(
+                () -> ventaService.obtenerVentaPorId(ventaDeMuchasLineas.getVentaId()).getDetalles());
+
+        assertEquals(una, muchas);
+        assertTrue(una <= 1, "obtenerVentaPorId: " + una);
+    }
+
+    @Test
+    void obtenerEstadisticas() {
+        LocalDateTime hasta = LocalDateTime.now().plusMinutes(1);
+        // Both ranges have hours before the first whole day, whole days and a last day
+        long dosDias = sentencias(() -> ventaService.obtenerEstadisticas(hasta.minusDays(2), hasta));
+        long unMes = sentencias(() -> ventaService.obtenerEstadisticas(hasta.minusDays(30), hasta));
+
+        // One query per part, for the period and the previous one
+        assertEquals(dosDias, unMes);
+        assertTrue(unMes <= 6, "obtenerEstadisticas: " + unMes);
+    }
+
+    @Test
+    void obtenerVentasPorMetodo() {
+        LocalDateTime hasta = LocalDateTime.now().plusMinutes(1);
+        long dosDias = sentencias(() -> ventaService.obtenerVentasPorMetodo(hasta.minusDays(2), hasta));
+        long unMes = sentencias(() -> ventaService.obtenerVentasPorMetodo(hasta.minusDays(30), hasta));
+
+        assertEquals(dosDias, unMes);
+        assertTrue(unMes <= 3, "obtenerVentasPorMetodo: " + unMes);
+    }
+
+    @Test
+    void obtenerProductosMasVendidos() {
+        LocalDateTime hasta = LocalDateTime.now().plusMinutes(1);
+        // The ranking itself goes through JdbcTemplate, which Hibernate does not see; it
+        // only loads the product names, in one query
+        long uno = sentencias(() -> ventaService.obtenerProductosMasVendidos(desde, hasta, 1));
+        long muchos = sentencias(() -> {
+            List<ProductoMasVendidoDTO> ranking = ventaService.obtenerProductosMasVendidos(desde, hasta, VENTAS);
+            assertEquals(VENTAS, ranking.size());
+            return ranking;
+        });
+        assertEquals(uno, muchos);
+        assertTrue(uno <= 1, "obtenerProductosMasVendidos: " + uno);
+
+        long unoJdbc = sentenciasJdbc(() -> ventaService.obtenerProductosMasVendidos(desde, hasta, 1));
+        long muchosJdbc = sentenciasJdbc(() -> ventaService.obtenerProductosMasVendidos(desde, hasta, VENTAS));
+        assertEquals(unoJdbc, muchosJdbc);
+        assertTrue(unoJdbc <= 2, "obtenerProductosMasVendidos por JDBC: " + unoJdbc);
+    }
+
+    @Test
+    void obtenerFacturaPdf() {
+        long una = sentencias(() -> ventaService.obtenerFacturaPdf(ventaDeUnaLinea.getVentaId(), null));
+        long muchas = sentencias(() -> ventaService.obtenerFacturaPdf(ventaDeMuchasLineas.getVentaId(), null));
+
+        // The state for the ETag, then the sale with its lines
+        assertEquals(una, muchas);
+        assertTrue(una <= 2, "obtenerFacturaPdf: " + una);
+
+        // Already cached: only the state
+        long enCache = sentencias(() -> ventaService.generarReportePdf(ventaDeMuchasLineas.getVentaId()));
+        assertTrue(enCache <= 1, "generarReportePdf en caché: " + enCache);
+    }
+
+    @Test
+    void generarTicket() {
+        long una = sentencias(() -> ventaService.generarTicket(ventaDeUnaLinea.getVentaId()));
+        long muchas = sentencias(() -> ventaService.generarTicket(ventaDeMuchasLineas.getVentaId()));
+        long texto = sentencias(() -> ventaService.generarTicketTexto(ventaDeMuchasLineas.getVentaId()));
+
+        assertEquals(una, muchas);
+        assertEquals(una, texto);
+        assertTrue(una <= 1, "generarTicket: " + una);
+    }
+
+    private static long sentencias(Supplier<?> consulta) {
+        estadisticas.clear();
+        consulta.get();
+        return estadisticas.getPrepareStatementCount();
+    }
+
+    // Every JDBC statement the current thread sends, Hibernate or not
+    private static long sentenciasJdbc(Supplier<?> consulta) {
+        BaseDatosPrueba.reiniciarSentencias();
+        consulta.get();
+        return BaseDatosPrueba.sentencias();
+    }
+
+    private static Map<Integer, Integer> lineas(List<Integer> productos, int cantidad) {
+        Map<Integer, Integer> lineas = new LinkedHashMap<>();
+        for (Integer productoId : productos.subList(0, cantidad)) {
+            lineas.put(productoId, 1);
+        }
+        return lineas;
+    }
+}
@@ -0,0 +1,98 @@
+package com.libreria.libreria.service.impl;
+
+import com.libreria.libreria.model.enums.FormatoExportacion;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EscritorVentasTest {
+
+    private static final LocalDateTime FECHA = LocalDateTime.of(2024, 3, 1, 10, 15, 30);
+
+    @Test
+    void csvEscapaComillasComasYFormulas() throws IOException {
+        StringWriter salida = new StringWriter();
+        EscritorVentas escritor = new EscritorVentas(salida, FormatoExportacion.CSV);
+
+        escritor.iniciar();
+        escritor.escribir(fila(1, "Pérez, \"Juan\"", 10, "=SUMA(A1)"));
+        assertEquals(1, escritor.terminar());
+
+        String[] lineas = salida.toString().split("\r\n");
+        assertEquals(2, lineas.length);
+        assertTrue(lineas[0].startsWith("venta_id,fecha_venta,"));
+        assertEquals("1,2024-03-01T10:15:30,1,1,Cajero,1,\"Pérez, \"\"Juan\"\"\",Efectivo,Completada,25.50,,,"
+                + "10,5,SKU-1,'=SUMA(A1),2,12.75,0.00,25.50", lineas[1]);
+    }
+
+    @Test
+    void ndjsonAgrupaDetallesPorVenta() throws IOException {
+        StringWriter salida = new StringWriter();
+        EscritorVentas escritor = new EscritorVentas(salida, FormatoExportacion.NDJSON);
+
+        escritor.iniciar();
+        escritor.escribir(fila(1, "Ana", 10, "Lápiz"));
+        escritor.escribir(fila(1, "Ana", 11, "Borrador\n\"blanco\""));
+        escritor.escribir(fila(2, "Luis", null, null));
+        assertEquals(2, escritor.terminar());
+
+        String[] lineas = salida.toString().split("\n");
+        assertEquals(2, lineas.length);
+        assertTrue(lineas[0].startsWith("{\"ventaId\":1,\"fechaVenta\":\"2024-03-01T10:15:30\","));
+        assertTrue(lineas[0].contains("\"montoTotal\":25.50,\"motivoAnulacion\":null"));
+        assertTrue(lineas[0].contains("\"detalles\":[{\"detalleId\":10,"));
+        assertTrue(lineas[0].endsWith("\"producto\":\"Borrador\\n\\\"blanco\\\"\",\"cantidad\":2,"
+                + "\"precioUnitario\":12.75,\"descuento\":0.00,\"subtotal\":25.50}]}"));
+        assertTrue(lineas[1].endsWith("\"detalles\":[]}"));
+    }
+
+    @Test
+    void memoriaNoCreceConLaCantidadDeFilas() throws IOException {
+        for (FormatoExportacion formato : FormatoExportacion.values()) {
+            EscritorVentas escritor = new EscritorVentas(Writer.nullWriter(), formato);
+            escritor.iniciar();
+
+            long base = 0;
+            for (int i = 1; i <= 1_000_000; i++) {
+                escritor.escribir(fila(i / 3, "Cliente " + i, i, "Producto " + i));
+                if (i == 100_000) {
+                    base = memoriaUsada();
+                }
+            }
+            escritor.terminar();
+
+            long crecimiento = memoriaUsada() - base;
+            assertTrue(crecimiento < 16L * 1024 * 1024,
+                    formato + " retuvo " + crecimiento / 1024 + " KB después de 1M filas");
+        }
+    }
+
+    private static long memoriaUsada() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static EscritorVentas.Fila fila(int ventaId, String cliente, Integer detalleId, String producto) {
+        boolean conDetalle = detalleId != null;
+        return new EscritorVentas.Fila(ventaId, FECHA, 1, 1, "Cajero", 1, cliente, "Efectivo", "Completada",
+                new BigDecimal("25.50"), null, null,
+                detalleId,
+                conDetalle ? 5 : null,
+                conDetalle ? "SKU-1" : null,
+                producto,
+                conDetalle ? 2 : null,
+                conDetalle ? new BigDecimal("12.75") : null,
+                conDetalle ? new BigDecimal("0.00") : null,
+                conDetalle ? new BigDecimal("25.50") : null);
+    }
+}
@@ -0,0 +1,204 @@
+package com.libreria.libreria.service.impl;
+
+import com.libreria.libreria.model.enums.FormatoExportacion;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.net.SocketFactory;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Exporta 20.000 ventas con fetch size 2.000 contando lo que el driver lee del
+ * socket: dentro de una transacción las filas tienen que llegar en tandas de
+ * 2.000, intercaladas con la escritura de la salida, y no todas antes de
+ * escribir la primera.
+ *
+ * Se ejecuta con -Dbenchmark.db.url=jdbc:postgresql://host/base y, si hacen
+ * falta, -Dbenchmark.db.user y -Dbenchmark.db.password.
+ */
+@EnabledIfSystemProperty(named = "benchmark.db.url", matches = ".+")
+class ExportadorVentasStreamingTest {
+
+    private static final int VENTAS = 20_000;
+    private static final int FETCH_SIZE = 2_000;
+    // Inside the historical partition, so nothing else exports these days
+    private static final LocalDateTime DESDE = LocalDateTime.of(2001, 1, 1, 0, 0);
+    private static final LocalDateTime HASTA = LocalDateTime.of(2001, 1, 31, 23, 59, 59);
+
+    private static AnnotationConfigApplicationContext contexto;
+    private static JdbcTemplate jdbc;
+    private static DriverManagerDataSource contada;
+
+    @BeforeAll
+    static void iniciar() {
+        contexto = BaseDatosPrueba.iniciar();
+        jdbc = contexto.getBean(JdbcTemplate.class);
+        BaseDatosPrueba.Datos datos = BaseDatosPrueba.crearDatos(jdbc);
+
+        // Negative ids never collide with the ones taken from ventas_seq
+        jdbc.update("DELETE FROM ventas WHERE venta_id < 0");
+        jdbc.update("INSERT INTO ventas (venta_id, sesion_id, usuario_id, cliente_id, fecha_venta, monto_total, "
+                + "metodo_pago, estado) "
+                + "SELECT -n, ?, ?, ?, TIMESTAMP '2001-01-01' + n * INTERVAL '1 minute', 12.50, 'Efectivo', "
+                + "'Completada' FROM generate_series(1, ?) AS n",
+                datos.sesionId(), datos.usuarioId(), datos.clienteId(), VENTAS);
+
+        Properties propiedades = BaseDatosPrueba.propiedadesConexion();
+        propiedades.setProperty("socketFactory", SocketContado.class.getName());
+        contada = new DriverManagerDataSource(System.getProperty("benchmark.db.url"), propiedades);
+    }
+
+    @AfterAll
+    static void cerrar() {
+        jdbc.update("DELETE FROM ventas WHERE venta_id < 0");
+        contexto.close();
+    }
+
+    @Test
+    void dentroDeUnaTransaccionLasFilasLleganEnTandas() {
+        TransactionTemplate transaccion = new TransactionTemplate(new DataSourceTransactionManager(contada));
+        transaccion.setReadOnly(true);
+
+        Lecturas lecturas = transaccion.execute(estado -> exportar());
+
+        System.out.printf("Exportación con cursor: %d tandas, %d de %d bytes antes de escribir%n",
+                lecturas.tandas(), lecturas.primeraTanda(), lecturas.total());
+        // One round trip per fetch, plus the last one that only returns CommandComplete
+        int esperadas = VENTAS / FETCH_SIZE;
+        assertTrue(lecturas.tandas() >= esperadas && lecturas.tandas() <= esperadas + 1,
+                "tandas: " + lecturas.tandas());
+        assertTrue(lecturas.primeraTanda() * 5 < lecturas.total(),
+                lecturas.primeraTanda() + " de " + lecturas.total() + " bytes antes de escribir");
+    }
+
+    @Test
+    void sinTransaccionElDriverLeeTodoDeUnaVez() {
+        Lecturas lecturas = exportar();
+
+        assertEquals(1, lecturas.tandas());
+    }
+
+    private static Lecturas exportar() {
+        ExportadorVentas exportador = new ExportadorVentas(contada, FETCH_SIZE);
+        SalidaContada salida = new SalidaContada();
+
+        SocketContado.registro = salida;
+        try {
+            assertEquals(VENTAS, exportador.exportar(DESDE, HASTA, FormatoExportacion.CSV, salida));
+        } finally {
+            SocketContado.registro = null;
+        }
+        return salida.lecturas();
+    }
+
+    /** Lecturas del socket durante una exportación, agrupadas en tandas. */
+    record Lecturas(int tandas, long primeraTanda, long total) {
+    }
+
+    private static class SalidaContada extends OutputStream {
+
+        private final List<long[]> tandas = new ArrayList<>();
+        private long escritos;
+
+        @Override
+        public void write(int b) {
+            escritos++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            escritos += len;
+        }
+
+        // Reads with no output written in between belong to the same fetch
+        synchronized void leidos(long bytes) {
+            long[] ultima = tandas.isEmpty() ? null : tandas.get(tandas.size() - 1);
+            if (ultima != null && ultima[0] == escritos) {
+                ultima[1] += bytes;
+            } else {
+                tandas.add(new long[] { escritos, bytes });
+            }
+        }
+
+        synchronized Lecturas lecturas() {
+            long total = tandas.stream().mapToLong(t -> t[1]).sum();
+            return new Lecturas(tandas.size(), tandas.get(0)[1], total);
+        }
+    }
+
+    /** Fábrica de sockets para el driver (propiedad socketFactory) que cuenta los bytes leídos. */
+    public static class SocketContado extends SocketFactory {
+
+        static volatile SalidaContada registro;
+
+        @Override
+        public Socket createSocket() {
+            return new Socket() {
+                @Override
+                public InputStream getInputStream() throws IOException {
+                    return new FilterInputStream(super.getInputStream()) {
+                        @Override
+                        public int read() throws IOException {
+                            int b = super.read();
+                            contar(b < 0 ? 0 : 1);
+                            return b;
+                        }
+
+                        @Override
+                        public int read(byte[] b, int off, int len) throws IOException {
+                            int leidos = super.read(b, off, len);
+                            contar(Math.max(leidos, 0));
+                            return leidos;
+                        }
+                    };
+                }
+            };
+        }
+
+        @Override
+        public Socket createSocket(String host, int port) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Socket createSocket(String host, int port, InetAddress localHost, int localPort) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Socket createSocket(InetAddress host, int port) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Socket createSocket(InetAddress address, int port, InetAddress localAddress, int localPort) {
+            throw new UnsupportedOperationException();
+        }
+
+        private static void contar(long bytes) {
+            SalidaContada salida = registro;
+            if (salida != null && bytes > 0) {
+                salida.leidos(bytes);
+            }
+        }
+    }
+}
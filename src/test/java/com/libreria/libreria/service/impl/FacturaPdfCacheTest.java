@@ -0,0 +1,67 @@
+package com.libreria.libreria.service.impl;
+
+import com.libreria.libreria.model.enums.EstadoVenta;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FacturaPdfCacheTest {
+
+    private static final int KB = 1024;
+
+    @TempDir
+    Path directorio;
+
+    @Test
+    void etagCambiaConElEstadoYSeReconoceEnIfNoneMatch() {
+        String completada = FacturaPdfCache.etag(7, EstadoVenta.Completada);
+        String anulada = FacturaPdfCache.etag(7, EstadoVenta.Anulada);
+
+        assertNotEquals(completada, anulada);
+        assertTrue(FacturaPdfCache.coincide(completada, completada));
+        assertTrue(FacturaPdfCache.coincide("\"otro\", W/" + completada, completada));
+        assertTrue(FacturaPdfCache.coincide("*", completada));
+        assertFalse(FacturaPdfCache.coincide(anulada, completada));
+        assertFalse(FacturaPdfCache.coincide(null, completada));
+    }
+
+    @Test
+    void memoriaDescartaLaMenosUsadaAlLlenarse() {
+        FacturaPdfCache cache = new FacturaPdfCache(new SimpleMeterRegistry(), 1, "", 0);
+        cache.guardar(1, EstadoVenta.Completada, new byte[400 * KB]);
+        cache.guardar(2, EstadoVenta.Completada, new byte[400 * KB]);
+        assertNotNull(cache.obtener(1, EstadoVenta.Completada));
+
+        cache.guardar(3, EstadoVenta.Completada, new byte[400 * KB]);
+
+        assertNotNull(cache.obtener(1, EstadoVenta.Completada));
+        assertNull(cache.obtener(2, EstadoVenta.Completada));
+        assertNotNull(cache.obtener(3, EstadoVenta.Completada));
+        assertTrue(cache.bytesEnMemoria() <= 1024 * KB);
+    }
+
+    @Test
+    void discoSobreviveAReiniciosYSeInvalida() {
+        byte[] pdf = { '%', 'P', 'D', 'F' };
+        new FacturaPdfCache(new SimpleMeterRegistry(), 1, directorio.toString(), 10)
+                .guardar(5, EstadoVenta.Completada, pdf);
+
+        FacturaPdfCache reiniciada = new FacturaPdfCache(new SimpleMeterRegistry(), 1, directorio.toString(), 10);
+        assertArrayEquals(pdf, reiniciada.obtener(5, EstadoVenta.Completada));
+        assertNull(reiniciada.obtener(5, EstadoVenta.Anulada));
+
+        reiniciada.invalidar(5);
+        assertNull(reiniciada.obtener(5, EstadoVenta.Completada));
+        assertNull(new FacturaPdfCache(new SimpleMeterRegistry(), 1, directorio.toString(), 10)
+                .obtener(5, EstadoVenta.Completada));
+    }
+}
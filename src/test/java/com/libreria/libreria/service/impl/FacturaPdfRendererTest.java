@@ -0,0 +1,124 @@
+package com.libreria.libreria.service.impl;
+
+import com.libreria.libreria.model.Cliente;
+import com.libreria.libreria.model.DetalleVenta;
+import com.libreria.libreria.model.Producto;
+import com.libreria.libreria.model.Usuario;
+import com.libreria.libreria.model.Venta;
+import com.libreria.libreria.model.enums.MetodoPago;
+import com.lowagie.text.Image;
+import com.lowagie.text.pdf.PdfReader;
+import com.lowagie.text.pdf.parser.PdfTextExtractor;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.awt.image.BufferedImage;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FacturaPdfRendererTest {
+
+    @Test
+    void generaLaFacturaConDetallesYTotal() throws Exception {
+        FacturaPdfRenderer renderer = new FacturaPdfRenderer(null);
+
+        byte[] pdf = renderer.renderizar(venta(3));
+
+        PdfReader reader = new PdfReader(pdf);
+        String texto = new PdfTextExtractor(reader).getTextFromPage(1);
+        reader.close();
+        assertTrue(texto.contains("No. de Factura: #42"));
+        assertTrue(texto.contains("Producto 2"));
+        assertTrue(texto.contains("Q 37.50"));
+        assertTrue(texto.contains("LIBRERIA MAR"));
+    }
+
+    @Test
+    void elLogoCompartidoNoCambiaEntreFacturas() throws Exception {
+        Image logo = logoDePrueba();
+        FacturaPdfRenderer renderer = new FacturaPdfRenderer(logo);
+        float ancho = logo.getScaledWidth();
+
+        byte[] primera = renderer.renderizar(venta(1));
+        byte[] segunda = renderer.renderizar(venta(1));
+
+        assertEquals(ancho, logo.getScaledWidth());
+        assertEquals(60f, logo.getScaledHeight());
+        assertEquals(180f, logo.getWidth());
+        assertEquals(1, new PdfReader(primera).getNumberOfPages());
+        assertEquals(1, new PdfReader(segunda).getNumberOfPages());
+    }
+
+    @Test
+    void formateaMontosSinDependerDelLocale() {
+        assertEquals("Q 1234.50", FacturaDocumento.moneda(new BigDecimal("1234.5")));
+        assertEquals("Q 0.13", FacturaDocumento.moneda(new BigDecimal("0.125")));
+    }
+
+    /**
+     * Facturas por segundo y bytes asignados por factura en un solo hilo. Se
+     * ejecuta con -Dbenchmark=true.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void benchmark() throws Exception {
+        com.sun.management.ThreadMXBean hilos = (com.sun.management.ThreadMXBean) ManagementFactory
+                .getThreadMXBean();
+        long hilo = Thread.currentThread().getId();
+        FacturaPdfRenderer renderer = new FacturaPdfRenderer(logoDePrueba());
+        Venta venta = venta(8);
+
+        for (int i = 0; i < 2_000; i++) {
+            renderer.renderizar(venta);
+        }
+
+        int facturas = 5_000;
+        long bytesAntes = hilos.getThreadAllocatedBytes(hilo);
+        long inicio = System.nanoTime();
+        for (int i = 0; i < facturas; i++) {
+            renderer.renderizar(venta);
+        }
+        long nanos = System.nanoTime() - inicio;
+        long bytes = hilos.getThreadAllocatedBytes(hilo) - bytesAntes;
+
+        System.out.printf("Facturas PDF: %.0f/s, %.1f µs/factura, %d KB asignados/factura%n",
+                facturas * 1e9 / nanos, nanos / 1e3 / facturas, bytes / facturas / 1024);
+    }
+
+    private static Image logoDePrueba() throws Exception {
+        BufferedImage imagen = new BufferedImage(500, 500, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < 500; y++) {
+            for (int x = 0; x < 500; x++) {
+                imagen.setRGB(x, y, (x * y) | 0x80000000);
+            }
+        }
+        return FacturaPdfRenderer.prepararLogo(imagen);
+    }
+
+    private static Venta venta(int lineas) {
+        List<DetalleVenta> detalles = new ArrayList<>();
+        for (int i = 1; i <= lineas; i++) {
+            detalles.add(DetalleVenta.builder()
+                    .producto(Producto.builder().productoId(i).nombre("Producto " + i).build())
+                    .cantidad(3)
+                    .precioUnitario(new BigDecimal("12.50"))
+                    .subtotal(new BigDecimal("37.50"))
+                    .build());
+        }
+        return Venta.builder()
+                .ventaId(42)
+                .fechaVenta(LocalDateTime.of(2024, 3, 1, 10, 15))
+                .cliente(Cliente.builder().nombreCompleto("Ana López").nit("1234567-8").build())
+                .usuario(Usuario.builder().nombreCompleto("Cajero Uno").build())
+                .metodoPago(MetodoPago.Efectivo)
+                .montoTotal(new BigDecimal("37.50").multiply(BigDecimal.valueOf(lineas)))
+                .detalles(detalles)
+                .build();
+    }
+}
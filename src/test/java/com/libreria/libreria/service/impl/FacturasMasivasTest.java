@@ -0,0 +1,214 @@
+package com.libreria.libreria.service.impl;
+
+import com.libreria.libreria.model.Venta;
+import com.libreria.libreria.model.enums.EstadoVenta;
+import com.libreria.libreria.model.enums.FormatoFactura;
+import com.libreria.libreria.repository.VentaRepository;
+import com.lowagie.text.Document;
+import com.lowagie.text.Paragraph;
+import com.lowagie.text.Rectangle;
+import com.lowagie.text.pdf.PdfReader;
+import com.lowagie.text.pdf.PdfWriter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FacturasMasivasTest {
+
+    private static final int HILOS = 2;
+    private static final int VENTANA = HILOS * 2;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private FacturasMasivas facturas;
+
+    @AfterEach
+    void detener() {
+        if (facturas != null) {
+            facturas.detener();
+        }
+    }
+
+    @Test
+    void elPdfUnidoRespetaElOrdenAunqueTerminenDesordenadas() throws Exception {
+        List<Integer> terminadas = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch otras = new CountDownLatch(1);
+        facturas = facturasMasivas(venta -> {
+            if (venta.getVentaId() == 1) {
+                // The first invoice waits until one after it is done
+                esperar(otras);
+            }
+            byte[] pdf = pdf(venta.getVentaId());
+            terminadas.add(venta.getVentaId());
+            otras.countDown();
+            return pdf;
+        });
+        List<Integer> ventaIds = ids(VENTANA * 2);
+
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        facturas.escribir(ventaIds, FormatoFactura.PDF, salida);
+
+        assertNotEquals(1, terminadas.get(0));
+        assertEquals(ventaIds, paginas(salida.toByteArray()));
+    }
+
+    @Test
+    void nuncaHayMasDeUnaVentanaDeFacturasPendientes() {
+        SalidaContada salida = new SalidaContada();
+        AtomicInteger maximo = new AtomicInteger();
+        facturas = facturasMasivas(venta -> {
+            // Invoice i sits at position i - 1; everything between it and the last one written is pending
+            maximo.accumulateAndGet(venta.getVentaId() - 1 - salida.escritas(), Math::max);
+            return new byte[] { 1 };
+        });
+
+        facturas.escribir(ids(50), FormatoFactura.ZIP, salida);
+
+        assertEquals(50, salida.escritas());
+        assertTrue(maximo.get() < VENTANA, "pendientes: " + (maximo.get() + 1));
+    }
+
+    @Test
+    void unaFacturaFallidaCancelaLasPendientes() throws Exception {
+        AtomicInteger iniciadas = new AtomicInteger();
+        AtomicInteger interrumpidas = new AtomicInteger();
+        facturas = facturasMasivas(venta -> {
+            iniciadas.incrementAndGet();
+            if (venta.getVentaId() == 1) {
+                throw new IllegalStateException("Fuente dañada");
+            }
+            try {
+                Thread.sleep(TimeUnit.SECONDS.toMillis(30));
+            } catch (InterruptedException e) {
+                interrumpidas.incrementAndGet();
+            }
+            return new byte[] { 1 };
+        });
+
+        RuntimeException error = assertThrows(RuntimeException.class,
+                () -> facturas.escribir(ids(50), FormatoFactura.ZIP, new ByteArrayOutputStream()));
+
+        assertEquals("Fuente dañada", error.getCause().getMessage());
+        // Invoices already rendering are interrupted; the queued ones never start
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (interrumpidas.get() < iniciadas.get() - 1 && System.nanoTime() < limite) {
+            Thread.sleep(10);
+        }
+        assertEquals(iniciadas.get() - 1, interrumpidas.get());
+        assertTrue(iniciadas.get() <= VENTANA, "iniciadas: " + iniciadas.get());
+    }
+
+    @Test
+    void usaLaCacheYLasMetricasDeFacturas() {
+        AtomicInteger renderizadas = new AtomicInteger();
+        facturas = facturasMasivas(venta -> {
+            renderizadas.incrementAndGet();
+            return new byte[100];
+        });
+
+        facturas.escribir(ids(10), FormatoFactura.ZIP, new ByteArrayOutputStream());
+        facturas.escribir(ids(10), FormatoFactura.ZIP, new ByteArrayOutputStream());
+
+        assertEquals(10, renderizadas.get());
+        assertEquals(10, registry.get("ventas.factura.renderizado").timer().count());
+        assertEquals(10, registry.get("ventas.factura.cache").tag("resultado", "memoria").counter().count());
+    }
+
+    private FacturasMasivas facturasMasivas(Function<Venta, byte[]> renderizar) {
+        FacturaPdfRenderer renderer = new FacturaPdfRenderer(null) {
+            @Override
+            public byte[] renderizar(Venta venta) {
+                return renderizar.apply(venta);
+            }
+        };
+        return new FacturasMasivas(repositorio(), renderer, new FacturaPdfCache(registry, 32, "", 512),
+                new MetricasVentas(registry), HILOS, 2000);
+    }
+
+    // Only the batch query FacturasMasivas.escribir uses
+    private static VentaRepository repositorio() {
+        return (VentaRepository) Proxy.newProxyInstance(FacturasMasivasTest.class.getClassLoader(),
+                new Class<?>[] { VentaRepository.class }, (proxy, metodo, args) -> {
+                    if (!metodo.getName().equals("findConDetallesByVentaIdIn")) {
+                        throw new UnsupportedOperationException(metodo.getName());
+                    }
+                    List<Venta> ventas = new ArrayList<>();
+                    for (Object ventaId : (Iterable<?>) args[0]) {
+                        ventas.add(Venta.builder().ventaId((Integer) ventaId).estado(EstadoVenta.Completada).build());
+                    }
+                    return ventas;
+                });
+    }
+
+    private static List<Integer> ids(int cantidad) {
+        return IntStream.rangeClosed(1, cantidad).boxed().toList();
+    }
+
+    // One page whose width identifies the sale
+    private static byte[] pdf(int ventaId) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Document document = new Document(new Rectangle(100 + ventaId, 100));
+        PdfWriter.getInstance(document, out);
+        document.open();
+        document.add(new Paragraph("Venta " + ventaId));
+        document.close();
+        return out.toByteArray();
+    }
+
+    private static List<Integer> paginas(byte[] pdf) throws Exception {
+        List<Integer> ventaIds = new ArrayList<>();
+        PdfReader reader = new PdfReader(pdf);
+        for (int pagina = 1; pagina <= reader.getNumberOfPages(); pagina++) {
+            ventaIds.add(Math.round(reader.getPageSize(pagina).getWidth()) - 100);
+        }
+        reader.close();
+        return ventaIds;
+    }
+
+    private static void esperar(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Cuenta las facturas escritas al ZIP: DestinoZip vacía la salida una vez por factura. */
+    private static class SalidaContada extends OutputStream {
+
+        private final AtomicInteger escritas = new AtomicInteger();
+
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+
+        @Override
+        public void flush() {
+            escritas.incrementAndGet();
+        }
+
+        int escritas() {
+            return escritas.get();
+        }
+    }
+}
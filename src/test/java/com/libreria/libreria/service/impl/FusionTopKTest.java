@@ -0,0 +1,97 @@
+package com.libreria.libreria.service.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FusionTopKTest {
+
+    @Test
+    void listasCompletasDanElTopExacto() {
+        List<FusionTopK.Parcial> parciales = List.of(
+                FusionTopK.parcial(lista(1, 10L, 2, 5L), 5),
+                FusionTopK.parcial(lista(2, 8L, 3, 1L), 5));
+
+        assertEquals(Optional.of(List.of(2, 1)), FusionTopK.fusionar(parciales, 2));
+        assertEquals(Optional.of(List.of(2, 1, 3)), FusionTopK.fusionar(parciales, 5));
+    }
+
+    @Test
+    void noAceptaUnTopQueNoPuedeAsegurar() {
+        // Product 3 is missing from the second list but could have sold up to 7 there
+        List<FusionTopK.Parcial> parciales = List.of(
+                FusionTopK.parcial(lista(1, 10L, 3, 9L), 2),
+                FusionTopK.parcial(lista(2, 12L, 4, 7L), 2));
+
+        assertTrue(FusionTopK.fusionar(parciales, 1).isEmpty());
+    }
+
+    @Test
+    void siemprePideMasOAciertaContraElCalculoExacto() {
+        Random random = new Random(42);
+        for (int caso = 0; caso < 500; caso++) {
+            int productos = 5 + random.nextInt(60);
+            int dias = 1 + random.nextInt(15);
+            int n = 1 + random.nextInt(10);
+            int k = 1 + random.nextInt(20);
+
+            Map<Integer, Long> totales = new HashMap<>();
+            List<FusionTopK.Parcial> parciales = new ArrayList<>();
+            for (int dia = 0; dia < dias; dia++) {
+                Map<Integer, Long> ventasDia = new HashMap<>();
+                for (int p = 0; p < productos; p++) {
+                    if (random.nextInt(3) == 0) {
+                        // Skewed sales so that some lists can be certified
+                        ventasDia.put(p, (long) (1 + random.nextInt(1 + 100 / (p + 1))));
+                    }
+                }
+                ventasDia.forEach((p, cantidad) -> totales.merge(p, cantidad, Long::sum));
+                parciales.add(FusionTopK.parcial(topK(ventasDia, k), k));
+            }
+
+            Optional<List<Integer>> resultado = FusionTopK.fusionar(parciales, n);
+            if (resultado.isEmpty()) {
+                continue;
+            }
+
+            // Every certified answer must match the exact top N, up to ties
+            List<Long> esperadas = totales.values().stream()
+                    .sorted(Comparator.reverseOrder())
+                    .limit(n)
+                    .toList();
+            List<Long> obtenidas = resultado.get().stream()
+                    .map(totales::get)
+                    .sorted(Comparator.reverseOrder())
+                    .toList();
+            assertEquals(esperadas, obtenidas, "caso " + caso);
+        }
+    }
+
+    private static LinkedHashMap<Integer, Long> topK(Map<Integer, Long> ventas, int k) {
+        LinkedHashMap<Integer, Long> top = new LinkedHashMap<>();
+        ventas.entrySet().stream()
+                .sorted(Map.Entry.<Integer, Long>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .limit(k)
+                .forEach(entrada -> top.put(entrada.getKey(), entrada.getValue()));
+        return top;
+    }
+
+    private static LinkedHashMap<Integer, Long> lista(Object... productoYCantidad) {
+        LinkedHashMap<Integer, Long> lista = new LinkedHashMap<>();
+        for (int i = 0; i < productoYCantidad.length; i += 2) {
+            lista.put((Integer) productoYCantidad[i], (Long) productoYCantidad[i + 1]);
+        }
+        return lista;
+    }
+}
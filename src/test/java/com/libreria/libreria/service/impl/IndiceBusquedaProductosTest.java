@@ -0,0 +1,151 @@
+package com.libreria.libreria.service.impl;
+
+import com.libreria.libreria.dto.ProductoDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IndiceBusquedaProductosTest {
+
+    private static final int P99_MAXIMO_MS = 5;
+
+    private IndiceBusquedaProductos indice;
+
+    @BeforeEach
+    void setUp() {
+        indice = new IndiceBusquedaProductos();
+        indice.indexar(producto(1, "Lápiz HB Faber", "LAP-001", "Grafito"));
+        indice.indexar(producto(2, "Cuaderno cuadriculado", "CUA-100", "100 hojas, incluye lápiz"));
+        indice.indexar(producto(3, "Lapicero azul", "LPC-002", "Tinta"));
+    }
+
+    @Test
+    void ignoraAcentosYMayusculas() {
+        assertEquals(List.of(1, 2), indice.buscar("LAPIZ", 10));
+    }
+
+    @Test
+    void skuExactoVaPrimero() {
+        assertEquals(1, indice.buscar("lap001", 10).get(0));
+        assertEquals(List.of(3), indice.buscar("LPC-0", 10));
+    }
+
+    @Test
+    void nombreAntesQueDescripcion() {
+        assertEquals(List.of(1, 3, 2), indice.buscar("lap", 10));
+    }
+
+    @Test
+    void todasLasPalabrasEnCualquierOrden() {
+        assertEquals(List.of(1), indice.buscar("faber hb", 10));
+    }
+
+    @Test
+    void toleraErroresDeTipeo() {
+        assertEquals(List.of(2), indice.buscar("cuadreno", 10));
+    }
+
+    @Test
+    void respetaElLimite() {
+        assertEquals(1, indice.buscar("lap", 1).size());
+        assertTrue(indice.buscar("  ", 10).isEmpty());
+    }
+
+    @Test
+    void reindexarYQuitarActualizanResultados() {
+        indice.indexar(producto(3, "Bolígrafo azul", "BOL-002", "Tinta"));
+        assertEquals(List.of(1, 2), indice.buscar("lap", 10));
+
+        indice.quitar(1);
+        assertEquals(List.of(2), indice.buscar("lapiz", 10));
+    }
+
+    /**
+     * Latencia p50 y p99 de búsquedas por prefijo, de varias palabras y con
+     * errores de tipeo (que caen a los trigramas) sobre 100.000 productos
+     * sintéticos. Incluso con errores de tipeo el p99 tiene que quedar bajo
+     * {@link #P99_MAXIMO_MS} ms. Se ejecuta con -Dbenchmark=true.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void benchmark() {
+        String[] tipos = { "Cuaderno", "Lápiz", "Bolígrafo", "Marcador", "Borrador", "Regla", "Tijera", "Carpeta",
+                "Resaltador", "Pegamento", "Crayón", "Acuarela", "Sacapuntas", "Compás", "Calculadora", "Mochila",
+                "Agenda", "Libreta", "Papel", "Folder" };
+        String[] marcas = { "Faber", "Pelikan", "Bic", "Norma", "Scribe", "Stabilo", "Pilot", "Maped", "Staedtler",
+                "Artesco" };
+        String[] colores = { "azul", "rojo", "negro", "verde", "amarillo", "morado", "rosado", "blanco" };
+        String[] variantes = { "HB", "2B", "punta fina", "doble línea", "cuadriculado", "100 hojas", "pequeño",
+                "grande", "escolar", "profesional" };
+        Random random = new Random(42);
+        IndiceBusquedaProductos grande = new IndiceBusquedaProductos();
+        for (int i = 1; i <= 100_000; i++) {
+            String tipo = tipos[random.nextInt(tipos.length)];
+            String nombre = tipo + " " + marcas[random.nextInt(marcas.length)] + " "
+                    + colores[random.nextInt(colores.length)] + " " + variantes[random.nextInt(variantes.length)]
+                    + " M" + random.nextInt(1_000);
+            String sku = IndiceBusquedaProductos.normalizar(tipo).substring(0, 3).toUpperCase() + "-"
+                    + String.format("%06d", i);
+            grande.indexar(producto(i, nombre, sku, "Presentación " + variantes[random.nextInt(variantes.length)]));
+        }
+
+        String[] prefijos = { "cuad", "lapiz fa", "bol", "CUA-0012", "MAR-04", "resal" };
+        String[] palabras = { "faber azul", "cuaderno norma 100 hojas", "marcador rojo fina", "pilot negro",
+                "mochila grande morado", "hb staedtler lapiz" };
+        String[] aproximadas = { "cuadreno", "boligarfo", "resaltdor", "stabillo verd", "calculdora", "sacapntas" };
+        for (String consulta : aproximadas) {
+            assertFalse(grande.buscar(consulta, 20).isEmpty(), consulta);
+        }
+
+        medir(grande, prefijos);
+        medir(grande, palabras);
+        medir(grande, aproximadas);
+        Latencias porPrefijo = medir(grande, prefijos);
+        Latencias porPalabras = medir(grande, palabras);
+        Latencias porTrigramas = medir(grande, aproximadas);
+        System.out.printf("Búsqueda en 100.000 productos: prefijo %s, varias palabras %s, trigramas %s%n",
+                porPrefijo, porPalabras, porTrigramas);
+
+        assertTrue(porPrefijo.p99() < P99_MAXIMO_MS * 1e6, "prefijo " + porPrefijo);
+        assertTrue(porPalabras.p99() < P99_MAXIMO_MS * 1e6, "varias palabras " + porPalabras);
+        assertTrue(porTrigramas.p99() < P99_MAXIMO_MS * 1e6, "trigramas " + porTrigramas);
+    }
+
+    /** Percentiles en nanosegundos. */
+    record Latencias(long p50, long p99) {
+
+        @Override
+        public String toString() {
+            return String.format("p50 %.1f µs / p99 %.1f µs", p50 / 1e3, p99 / 1e3);
+        }
+    }
+
+    // p50 and p99 over 2,000 searches cycling through the queries
+    private static Latencias medir(IndiceBusquedaProductos indice, String[] consultas) {
+        long[] nanos = new long[2_000];
+        for (int i = 0; i < nanos.length; i++) {
+            long inicio = System.nanoTime();
+            indice.buscar(consultas[i % consultas.length], 20);
+            nanos[i] = System.nanoTime() - inicio;
+        }
+        Arrays.sort(nanos);
+        return new Latencias(nanos[nanos.length / 2], nanos[nanos.length * 99 / 100]);
+    }
+
+    private static ProductoDTO producto(Integer id, String nombre, String sku, String descripcion) {
+        return ProductoDTO.builder()
+                .productoId(id)
+                .nombre(nombre)
+                .sku(sku)
+                .descripcion(descripcion)
+                .build();
+    }
+}
@@ -0,0 +1,182 @@
+package com.libreria.libreria.service.impl;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Ventas por segundo al insertar ventas de muchas líneas con IDs IDENTITY
+ * (una sentencia por fila, como las escribe Hibernate sin batching) y con IDs
+ * de secuencia de a 50 (una sentencia por venta y un lote por sus detalles).
+ * Usa tablas temporales con las columnas de Ventas y Detalle_Ventas.
+ *
+ * Se ejecuta con -Dbenchmark.db.url=jdbc:postgresql://host/base y, si hacen
+ * falta, -Dbenchmark.db.user y -Dbenchmark.db.password.
+ */
+@EnabledIfSystemProperty(named = "benchmark.db.url", matches = ".+")
+class InsercionVentasBenchmarkTest {
+
+    private static final int VENTAS = 300;
+    private static final int LINEAS = 50;
+    private static final int ASIGNACION = 50;
+
+    @Test
+    void benchmark() throws Exception {
+        Properties propiedades = new Properties();
+        propiedades.setProperty("user", System.getProperty("benchmark.db.user", "postgres"));
+        propiedades.setProperty("password", System.getProperty("benchmark.db.password", ""));
+        propiedades.setProperty("reWriteBatchedInserts", "true");
+
+        try (Connection con = DriverManager.getConnection(System.getProperty("benchmark.db.url"), propiedades)) {
+            crearTablas(con);
+            con.setAutoCommit(false);
+
+            insertarConIdentity(con, VENTAS / 10);
+            insertarConSecuencia(con, VENTAS / 10);
+
+            long inicio = System.nanoTime();
+            insertarConIdentity(con, VENTAS);
+            long identity = System.nanoTime() - inicio;
+
+            inicio = System.nanoTime();
+            insertarConSecuencia(con, VENTAS);
+            long secuencia = System.nanoTime() - inicio;
+
+            assertEquals(contar(con, "bench_detalle_identity"), contar(con, "bench_detalle_secuencia"));
+            System.out.printf("Ventas de %d líneas: IDENTITY %.0f/s, secuencia + lotes %.0f/s (%.1fx)%n", LINEAS,
+                    VENTAS * 1e9 / identity, VENTAS * 1e9 / secuencia, (double) identity / secuencia);
+        }
+    }
+
+    private static void insertarConIdentity(Connection con, int ventas) throws Exception {
+        try (PreparedStatement venta = con.prepareStatement(
+                "INSERT INTO bench_ventas_identity (sesion_id, usuario_id, cliente_id, fecha_venta, monto_total, " +
+                        "metodo_pago, estado) VALUES (1, 1, 1, ?, ?, 'Efectivo', 'Completada')",
+                Statement.RETURN_GENERATED_KEYS);
+                PreparedStatement detalle = con.prepareStatement(
+                        "INSERT INTO bench_detalle_identity (venta_id, producto_id, cantidad, precio_unitario, " +
+                                "descuento, subtotal) VALUES (?, ?, 1, ?, 0, ?)",
+                        Statement.RETURN_GENERATED_KEYS)) {
+            for (int v = 0; v < ventas; v++) {
+                venta.setTimestamp(1, Timestamp.valueOf(LocalDateTime.now()));
+                venta.setBigDecimal(2, BigDecimal.valueOf(LINEAS * 10L));
+                venta.executeUpdate();
+                int ventaId = idGenerado(venta);
+
+                for (int l = 0; l < LINEAS; l++) {
+                    detalle.setInt(1, ventaId);
+                    detalle.setInt(2, l + 1);
+                    detalle.setBigDecimal(3, BigDecimal.TEN);
+                    detalle.setBigDecimal(4, BigDecimal.TEN);
+                    detalle.executeUpdate();
+                    idGenerado(detalle);
+                }
+                con.commit();
+            }
+        }
+    }
+
+    private static void insertarConSecuencia(Connection con, int ventas) throws Exception {
+        Ids idsVentas = new Ids(con, "bench_ventas_seq");
+        Ids idsDetalles = new Ids(con, "bench_detalle_seq");
+        try (PreparedStatement venta = con.prepareStatement(
+                "INSERT INTO bench_ventas_secuencia (sesion_id, usuario_id, cliente_id, fecha_venta, monto_total, " +
+                        "metodo_pago, estado, venta_id) VALUES (1, 1, 1, ?, ?, 'Efectivo', 'Completada', ?)");
+                PreparedStatement detalle = con.prepareStatement(
+                        "INSERT INTO bench_detalle_secuencia (venta_id, producto_id, cantidad, precio_unitario, " +
+                                "descuento, subtotal, detalle_id) VALUES (?, ?, 1, ?, 0, ?, ?)")) {
+            for (int v = 0; v < ventas; v++) {
+                int ventaId = idsVentas.siguiente();
+                venta.setTimestamp(1, Timestamp.valueOf(LocalDateTime.now()));
+                venta.setBigDecimal(2, BigDecimal.valueOf(LINEAS * 10L));
+                venta.setInt(3, ventaId);
+                venta.executeUpdate();
+
+                for (int l = 0; l < LINEAS; l++) {
+                    detalle.setInt(1, ventaId);
+                    detalle.setInt(2, l + 1);
+                    detalle.setBigDecimal(3, BigDecimal.TEN);
+                    detalle.setBigDecimal(4, BigDecimal.TEN);
+                    detalle.setInt(5, idsDetalles.siguiente());
+                    detalle.addBatch();
+                }
+                detalle.executeBatch();
+                con.commit();
+            }
+        }
+    }
+
+    // Pooled optimizer: nextval returns the last ID of a block of ASIGNACION
+    private static class Ids {
+        private final Connection con;
+        private final String secuencia;
+        private int siguiente;
+        private int ultimo = -1;
+
+        Ids(Connection con, String secuencia) {
+            this.con = con;
+            this.secuencia = secuencia;
+        }
+
+        int siguiente() throws Exception {
+            if (siguiente > ultimo) {
+                try (Statement st = con.createStatement();
+                        ResultSet rs = st.executeQuery("SELECT nextval('" + secuencia + "')")) {
+                    rs.next();
+                    ultimo = rs.getInt(1);
+                    siguiente = ultimo - ASIGNACION + 1;
+                }
+            }
+            return siguiente++;
+        }
+    }
+
+    private static int idGenerado(PreparedStatement ps) throws Exception {
+        try (ResultSet rs = ps.getGeneratedKeys()) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    private static long contar(Connection con, String tabla) throws Exception {
+        try (Statement st = con.createStatement(); ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM " + tabla)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private static void crearTablas(Connection con) throws Exception {
+        String ventas = " (venta_id integer %s PRIMARY KEY, sesion_id integer NOT NULL, " +
+                "usuario_id integer NOT NULL, cliente_id integer NOT NULL, fecha_venta timestamp NOT NULL, " +
+                "monto_total numeric(10,2) NOT NULL, metodo_pago varchar(255) NOT NULL, " +
+                "estado varchar(255) NOT NULL)";
+        String detalles = " (detalle_id integer %s PRIMARY KEY, venta_id integer NOT NULL " +
+                "REFERENCES %s, producto_id integer NOT NULL, cantidad integer NOT NULL, " +
+                "precio_unitario numeric(10,2) NOT NULL, descuento numeric(10,2) NOT NULL, " +
+                "subtotal numeric(10,2) NOT NULL)";
+        String identity = "GENERATED BY DEFAULT AS IDENTITY";
+
+        try (Statement st = con.createStatement()) {
+            st.execute("CREATE TEMP TABLE bench_ventas_identity" + ventas.formatted(identity));
+            st.execute("CREATE TEMP TABLE bench_detalle_identity"
+                    + detalles.formatted(identity, "bench_ventas_identity"));
+            st.execute("CREATE TEMP TABLE bench_ventas_secuencia" + ventas.formatted(""));
+            st.execute("CREATE TEMP TABLE bench_detalle_secuencia"
+                    + detalles.formatted("", "bench_ventas_secuencia"));
+            String secuencia = " START WITH " + ASIGNACION + " INCREMENT BY " + ASIGNACION;
+            st.execute("CREATE TEMP SEQUENCE bench_ventas_seq" + secuencia);
+            st.execute("CREATE TEMP SEQUENCE bench_detalle_seq" + secuencia);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.libreria.libreria.service.impl;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class MetricasVentasTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final MetricasVentas metricas = new MetricasVentas(registry);
+
+    @AfterEach
+    void limpiar() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void laVentaSeMideAlTerminarLaTransaccion() {
+        TransactionSynchronizationManager.initSynchronization();
+        metricas.medirCreacion(3);
+        assertNull(registry.find("ventas.creacion").timer());
+
+        completar(TransactionSynchronization.STATUS_COMMITTED);
+
+        assertEquals(1, registry.get("ventas.creacion").tag("resultado", "confirmada").timer().count());
+        assertEquals(3, registry.get("ventas.lineas").summary().totalAmount());
+    }
+
+    @Test
+    void unaVentaRevertidaNoCuentaLineas() {
+        TransactionSynchronizationManager.initSynchronization();
+        metricas.medirCreacion(2);
+        metricas.conflictoStock(true);
+
+        completar(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        assertEquals(1, registry.get("ventas.creacion").tag("resultado", "revertida").timer().count());
+        assertEquals(0, registry.get("ventas.lineas").summary().count());
+        assertEquals(1, registry.get("ventas.stock.conflictos").tag("etapa", "descuento").counter().count());
+        assertEquals(0, registry.get("ventas.stock.conflictos").tag("etapa", "validacion").counter().count());
+    }
+
+    @Test
+    void laFacturaRegistraTiempoYTamano() {
+        byte[] pdf = metricas.renderizarFactura(() -> new byte[1234]);
+
+        assertEquals(1234, pdf.length);
+        assertEquals(1, registry.get("ventas.factura.renderizado").timer().count());
+        assertEquals(1234, registry.get("ventas.factura.tamano").summary().totalAmount());
+    }
+
+    private static void completar(int status) {
+        for (TransactionSynchronization sincronizacion : TransactionSynchronizationManager.getSynchronizations()) {
+            sincronizacion.afterCompletion(status);
+        }
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+}
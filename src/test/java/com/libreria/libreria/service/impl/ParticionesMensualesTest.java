@@ -0,0 +1,30 @@
+package com.libreria.libreria.service.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ParticionesMensualesTest {
+
+    @Test
+    void soloMesesAnterioresAlLimiteEnOrden() {
+        List<String> particiones = List.of("ventas_2025_03", "ventas_historico", "ventas_2024_12", "ventas_2025_01",
+                "ventas_2025_02");
+
+        assertEquals(List.of("ventas_2024_12", "ventas_2025_01"),
+                ParticionesMensuales.anterioresA("ventas", particiones, YearMonth.of(2025, 2)));
+    }
+
+    @Test
+    void noConfundeTablasConElMismoSufijo() {
+        List<String> particiones = List.of("detalle_ventas_2024_01", "ventas_2024_01", "ventas_2024_01_copia");
+
+        assertEquals(List.of("ventas_2024_01"),
+                ParticionesMensuales.anterioresA("ventas", particiones, YearMonth.of(2025, 1)));
+        assertEquals(List.of("detalle_ventas_2024_01"),
+                ParticionesMensuales.anterioresA("detalle_ventas", particiones, YearMonth.of(2025, 1)));
+    }
+}
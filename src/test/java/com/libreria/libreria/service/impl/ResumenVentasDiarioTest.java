@@ -0,0 +1,142 @@
+package com.libreria.libreria.service.impl;
+
+import com.libreria.libreria.dto.VentaDTO;
+import com.libreria.libreria.service.VentaService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Varias cajas venden y anulan mientras el día se reconstruye una y otra vez.
+ * Al terminar, los totales del resumen por método y estado y las unidades por
+ * producto tienen que coincidir con Ventas: la reconstrucción no puede perder
+ * ni contar dos veces la diferencia de una venta concurrente, ni bloquearse
+ * con ellas.
+ *
+ * Se ejecuta con -Dbenchmark.db.url=jdbc:postgresql://host/base y, si hacen
+ * falta, -Dbenchmark.db.user y -Dbenchmark.db.password.
+ */
+@EnabledIfSystemProperty(named = "benchmark.db.url", matches = ".+")
+class ResumenVentasDiarioTest {
+
+    private static final int CAJAS = 4;
+    private static final int VENTAS_POR_CAJA = 30;
+
+    private static AnnotationConfigApplicationContext contexto;
+
+    @BeforeAll
+    static void iniciar() {
+        contexto = BaseDatosPrueba.iniciar();
+    }
+
+    @AfterAll
+    static void cerrar() {
+        contexto.close();
+    }
+
+    @Test
+    void reconstruirMientrasSeVendeNoPierdeVentas() throws Exception {
+        VentaService ventaService = contexto.getBean(VentaService.class);
+        ResumenVentasDiario resumen = contexto.getBean(ResumenVentasDiario.class);
+        JdbcTemplate jdbc = contexto.getBean(JdbcTemplate.class);
+        LocalDate hoy = LocalDate.now();
+
+        List<BaseDatosPrueba.Datos> cajas = new ArrayList<>();
+        List<Integer> productos = new ArrayList<>();
+        for (int c = 0; c < CAJAS; c++) {
+            BaseDatosPrueba.Datos datos = BaseDatosPrueba.crearDatos(jdbc);
+            cajas.add(datos);
+            productos.addAll(BaseDatosPrueba.crearProductos(jdbc, datos, 2, 10_000));
+        }
+        resumen.reconstruir(hoy, hoy);
+
+        AtomicBoolean vendiendo = new AtomicBoolean(true);
+        AtomicInteger reconstrucciones = new AtomicInteger();
+        CountDownLatch salida = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(CAJAS + 1);
+        List<Future<?>> tareas = new ArrayList<>();
+        for (BaseDatosPrueba.Datos datos : cajas) {
+            tareas.add(executor.submit(() -> {
+                salida.await();
+                for (int i = 0; i < VENTAS_POR_CAJA; i++) {
+                    // Every product in every sale, so the cash registers share the product rows
+                    Map<Integer, Integer> lineas = new TreeMap<>();
+                    productos.forEach(productoId -> lineas.put(productoId, 1 + lineas.size() % 3));
+                    VentaDTO venta = ventaService.crearVenta(BaseDatosPrueba.venta(datos, lineas));
+                    if (i % 5 == 0) {
+                        ventaService.anularVenta(venta.getVentaId(), datos.usuarioId(), "Prueba");
+                    }
+                }
+                return null;
+            }));
+        }
+        Future<?> reconstruccion = executor.submit(() -> {
+            salida.await();
+            while (vendiendo.get()) {
+                resumen.reconstruir(hoy, hoy);
+                reconstrucciones.incrementAndGet();
+            }
+            return null;
+        });
+        salida.countDown();
+        try {
+            for (Future<?> tarea : tareas) {
+                tarea.get();
+            }
+            vendiendo.set(false);
+            reconstruccion.get();
+        } catch (ExecutionException e) {
+            throw (Exception) e.getCause();
+        } finally {
+            vendiendo.set(false);
+            executor.shutdown();
+        }
+
+        System.out.printf("Resumen diario: %d reconstrucciones durante %d ventas%n", reconstrucciones.get(),
+                CAJAS * VENTAS_POR_CAJA);
+        assertTrue(reconstrucciones.get() > 0);
+        assertEquals(totales(jdbc, "SELECT metodo_pago, estado, COUNT(*), SUM(monto_total) FROM ventas "
+                + "WHERE fecha_venta >= CURRENT_DATE AND fecha_venta < CURRENT_DATE + 1 GROUP BY 1, 2"),
+                totales(jdbc, "SELECT metodo_pago, estado, SUM(numero_ventas), SUM(monto_total) "
+                        + "FROM ventas_resumen_diario WHERE fecha = CURRENT_DATE GROUP BY 1, 2 "
+                        + "HAVING SUM(numero_ventas) <> 0"));
+        String enProductos = " AND producto_id IN (" + String.join(",", productos.stream().map(String::valueOf)
+                .toList()) + ")";
+        assertEquals(totales(jdbc, "SELECT d.producto_id, '', SUM(d.cantidad), SUM(d.subtotal) "
+                + "FROM detalle_ventas d JOIN ventas v ON v.venta_id = d.venta_id AND v.fecha_venta = d.fecha_venta "
+                + "WHERE v.estado = 'Completada' AND v.fecha_venta >= CURRENT_DATE "
+                + "AND v.fecha_venta < CURRENT_DATE + 1" + enProductos.replace("producto_id", "d.producto_id")
+                + " GROUP BY 1"),
+                totales(jdbc, "SELECT producto_id, '', cantidad_vendida, monto_total FROM ventas_productos_diario "
+                        + "WHERE fecha = CURRENT_DATE AND cantidad_vendida <> 0" + enProductos));
+    }
+
+    // "clave/estado" -> "cantidad/monto", with the amounts normalized so 10.0 equals 10.00
+    private static Map<String, String> totales(JdbcTemplate jdbc, String sql) {
+        Map<String, String> totales = new TreeMap<>();
+        jdbc.query(sql, fila -> {
+            totales.put(fila.getString(1) + "/" + fila.getString(2), fila.getLong(3) + "/"
+                    + fila.getBigDecimal(4).stripTrailingZeros().toPlainString());
+        });
+        return totales;
+    }
+}
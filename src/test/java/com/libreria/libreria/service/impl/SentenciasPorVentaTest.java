@@ -0,0 +1,72 @@
+package com.libreria.libreria.service.impl;
+
+import com.libreria.libreria.service.VentaService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Sentencias que crearVenta envía a la base de datos para ventas de 1, 10 y
+ * 100 líneas. Los productos se leen en una consulta, el stock se descuenta en
+ * un lote y los detalles se insertan en lotes de 50, así que cada 50 líneas
+ * solo suman un lote de inserción y, a veces, un bloque de IDs de la
+ * secuencia.
+ *
+ * Se ejecuta con -Dbenchmark.db.url=jdbc:postgresql://host/base y, si hacen
+ * falta, -Dbenchmark.db.user y -Dbenchmark.db.password.
+ */
+@EnabledIfSystemProperty(named = "benchmark.db.url", matches = ".+")
+class SentenciasPorVentaTest {
+
+    private static AnnotationConfigApplicationContext contexto;
+
+    @BeforeAll
+    static void iniciar() {
+        contexto = BaseDatosPrueba.iniciar();
+    }
+
+    @AfterAll
+    static void cerrar() {
+        contexto.close();
+    }
+
+    @Test
+    void lasSentenciasNoCrecenConLasLineas() {
+        VentaService ventaService = contexto.getBean(VentaService.class);
+        JdbcTemplate jdbc = contexto.getBean(JdbcTemplate.class);
+        BaseDatosPrueba.Datos datos = BaseDatosPrueba.crearDatos(jdbc);
+        List<Integer> productos = BaseDatosPrueba.crearProductos(jdbc, datos, 100, 1_000);
+
+        // Warms up the sequences and the first-use queries
+        ventaService.crearVenta(BaseDatosPrueba.venta(datos, lineas(productos, 100)));
+
+        Map<Integer, Long> sentencias = new LinkedHashMap<>();
+        for (int lineas : new int[] { 1, 10, 100 }) {
+            BaseDatosPrueba.reiniciarSentencias();
+            ventaService.crearVenta(BaseDatosPrueba.venta(datos, lineas(productos, lineas)));
+            sentencias.put(lineas, BaseDatosPrueba.sentencias());
+        }
+        System.out.println("Sentencias por venta según líneas: " + sentencias);
+
+        long una = sentencias.get(1);
+        assertTrue(sentencias.get(10) <= una + 1, "10 líneas: " + sentencias);
+        assertTrue(sentencias.get(100) <= una + 4, "100 líneas: " + sentencias);
+    }
+
+    private static Map<Integer, Integer> lineas(List<Integer> productos, int cantidad) {
+        Map<Integer, Integer> lineas = new LinkedHashMap<>();
+        for (Integer productoId : productos.subList(0, cantidad)) {
+            lineas.put(productoId, 1);
+        }
+        return lineas;
+    }
+}
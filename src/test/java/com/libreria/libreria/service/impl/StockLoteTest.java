@@ -0,0 +1,36 @@
+package com.libreria.libreria.service.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StockLoteTest {
+
+    @Test
+    void rechazarNoDescuentaLaVentaQueNoAlcanza() {
+        StockLote stock = new StockLote(Map.of(1, 5, 2, 1), StockLote.PoliticaStockNegativo.RECHAZAR);
+
+        assertTrue(stock.reservar(Map.of(1, 3)).isEmpty());
+        assertEquals(List.of(1), stock.reservar(Map.of(1, 3, 2, 1)));
+        assertTrue(stock.reservar(Map.of(1, 2, 2, 1)).isEmpty());
+
+        assertEquals(0, stock.disponible(1));
+        assertEquals(0, stock.disponible(2));
+        assertEquals(Map.of(1, 5, 2, 1), stock.descontado());
+    }
+
+    @Test
+    void permitirDejaElStockNegativoYAvisa() {
+        StockLote stock = new StockLote(Map.of(1, 2), StockLote.PoliticaStockNegativo.PERMITIR);
+
+        assertEquals(List.of(1), stock.reservar(Map.of(1, 3)));
+        assertEquals(List.of(1), stock.reservar(Map.of(1, 1)));
+
+        assertEquals(-2, stock.disponible(1));
+        assertEquals(Map.of(1, 4), stock.descontado());
+    }
+}
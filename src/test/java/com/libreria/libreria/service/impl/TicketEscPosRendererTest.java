@@ -0,0 +1,83 @@
+package com.libreria.libreria.service.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TicketEscPosRendererTest {
+
+    private final TicketEscPosRenderer renderer = new TicketEscPosRenderer(48);
+
+    @Test
+    void vistaPreviaAlineaMontosALaDerecha() {
+        String[] lineas = renderer.previsualizar(factura(2)).split("\n");
+
+        for (String linea : lineas) {
+            assertTrue(linea.length() <= 48, linea);
+        }
+        assertEquals("No. de Factura: #42", lineas[3]);
+        assertEquals("Producto 1", lineas[10]);
+        assertEquals(48, lineas[11].length());
+        assertTrue(lineas[11].startsWith("  3 x Q 12.50"));
+        assertTrue(lineas[11].endsWith(" Q 37.50"));
+        assertTrue(lineas[15].startsWith("TOTAL:"));
+        assertTrue(lineas[15].endsWith(" Q 75.00"));
+    }
+
+    @Test
+    void partirNombresLargos() {
+        FacturaDocumento factura = new FacturaDocumento(1, "01/03/2024 10:15", "Ana", "C/F", "Cajero",
+                "Efectivo", List.of(new FacturaDocumento.Linea("X".repeat(60), "1", "Q 1.00", "Q 1.00")), "Q 1.00");
+
+        String texto = renderer.previsualizar(factura);
+
+        assertTrue(texto.contains("X".repeat(48) + "\n" + "X".repeat(12) + "\n"));
+    }
+
+    @Test
+    void escPosIniciaCodificaYCorta() {
+        byte[] ticket = renderer.renderizar(factura(1));
+
+        assertArrayEquals(new byte[] { 0x1B, '@', 0x1B, 't', 2 }, Arrays.copyOf(ticket, 5));
+        assertArrayEquals(new byte[] { 0x1D, 'V', 1 },
+                Arrays.copyOfRange(ticket, ticket.length - 3, ticket.length));
+        // Accents survive only if the text was encoded in code page 850
+        String contenido = new String(ticket, Charset.forName("IBM850"));
+        assertTrue(contenido.contains("Método de Pago: Efectivo"));
+        assertTrue(contenido.contains("¡Gracias por su compra"));
+    }
+
+    @Test
+    void generaUnTicketEnMenosDeUnMilisegundo() {
+        FacturaDocumento factura = factura(15);
+        for (int i = 0; i < 20_000; i++) {
+            renderer.renderizar(factura);
+        }
+
+        int tickets = 20_000;
+        long inicio = System.nanoTime();
+        for (int i = 0; i < tickets; i++) {
+            renderer.renderizar(factura);
+        }
+        long nanosPorTicket = (System.nanoTime() - inicio) / tickets;
+
+        assertTrue(nanosPorTicket < 1_000_000, nanosPorTicket + " ns por ticket");
+    }
+
+    private static FacturaDocumento factura(int lineas) {
+        List<FacturaDocumento.Linea> detalles = new ArrayList<>();
+        for (int i = 1; i <= lineas; i++) {
+            detalles.add(new FacturaDocumento.Linea("Producto " + i, "3", "Q 12.50", "Q 37.50"));
+        }
+        return new FacturaDocumento(42, "01/03/2024 10:15", "Ana López", "1234567-8", "Cajero Uno", "Efectivo",
+                detalles, FacturaDocumento.moneda(new BigDecimal("37.5").multiply(BigDecimal.valueOf(lineas))));
+    }
+}
@@ -0,0 +1,179 @@
+package com.libreria.libreria.service.impl;
+
+import com.libreria.libreria.dto.VentaDTO;
+import com.libreria.libreria.exception.StockInsuficienteException;
+import com.libreria.libreria.service.ProductoService;
+import com.libreria.libreria.service.VentaService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Varias cajas venden a la vez el mismo producto, pidiendo en total mucho más
+ * de lo que hay en stock. El descuento condicional tiene que dejar el stock en
+ * cero o más, sin perder descuentos, y cada venta rechazada tiene que contarse
+ * como conflicto de stock. Varias cajas anulan a la vez la misma venta: solo
+ * una anulación puede devolver el stock y mover los totales.
+ *
+ * Se ejecuta con -Dbenchmark.db.url=jdbc:postgresql://host/base y, si hacen
+ * falta, -Dbenchmark.db.user y -Dbenchmark.db.password.
+ */
+@EnabledIfSystemProperty(named = "benchmark.db.url", matches = ".+")
+class VentasConcurrentesTest {
+
+    private static final int CAJAS = 8;
+    private static final int VENTAS_POR_CAJA = 25;
+    private static final int STOCK_INICIAL = 60;
+
+    private static AnnotationConfigApplicationContext contexto;
+
+    @BeforeAll
+    static void iniciar() {
+        contexto = BaseDatosPrueba.iniciar();
+    }
+
+    @AfterAll
+    static void cerrar() {
+        contexto.close();
+    }
+
+    @Test
+    void elStockNuncaQuedaNegativoNiPierdeDescuentos() throws Exception {
+        VentaService ventaService = contexto.getBean(VentaService.class);
+        ProductoService productoService = contexto.getBean(ProductoService.class);
+        JdbcTemplate jdbc = contexto.getBean(JdbcTemplate.class);
+        BaseDatosPrueba.Datos datos = BaseDatosPrueba.crearDatos(jdbc);
+        Integer productoId = BaseDatosPrueba.crearProductos(jdbc, datos, 1, STOCK_INICIAL).get(0);
+
+        // Load the catalog first so every sale has to update it after commit
+        productoService.findAll();
+        double conflictosAntes = conflictos();
+
+        AtomicInteger aceptadas = new AtomicInteger();
+        AtomicInteger rechazadas = new AtomicInteger();
+        AtomicInteger vendidas = new AtomicInteger();
+        CountDownLatch salida = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(CAJAS);
+        List<Future<?>> cajas = new ArrayList<>();
+        for (int c = 0; c < CAJAS; c++) {
+            Random random = new Random(c);
+            cajas.add(executor.submit(() -> {
+                salida.await();
+                for (int i = 0; i < VENTAS_POR_CAJA; i++) {
+                    int cantidad = 1 + random.nextInt(3);
+                    try {
+                        ventaService.crearVenta(BaseDatosPrueba.venta(datos, Map.of(productoId, cantidad)));
+                        aceptadas.incrementAndGet();
+                        vendidas.addAndGet(cantidad);
+                    } catch (StockInsuficienteException e) {
+                        rechazadas.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        salida.countDown();
+        for (Future<?> caja : cajas) {
+            caja.get();
+        }
+        executor.shutdown();
+
+        int stockFinal = jdbc.queryForObject("SELECT cantidad_stock FROM productos WHERE producto_id = ?",
+                Integer.class, productoId);
+        Map<String, Object> registradas = jdbc.queryForMap("SELECT COUNT(*) AS lineas, "
+                + "COALESCE(SUM(cantidad), 0) AS unidades FROM detalle_ventas WHERE producto_id = ?", productoId);
+        System.out.printf("Ventas concurrentes: %d aceptadas (%d unidades), %d rechazadas, stock final %d%n",
+                aceptadas.get(), vendidas.get(), rechazadas.get(), stockFinal);
+
+        assertTrue(stockFinal >= 0);
+        assertEquals(STOCK_INICIAL - vendidas.get(), stockFinal);
+        assertEquals(aceptadas.get(), ((Number) registradas.get("lineas")).intValue());
+        assertEquals(vendidas.get(), ((Number) registradas.get("unidades")).intValue());
+        assertEquals(CAJAS * VENTAS_POR_CAJA, aceptadas.get() + rechazadas.get());
+        assertTrue(rechazadas.get() > 0);
+        assertEquals(rechazadas.get(), conflictos() - conflictosAntes);
+        assertEquals(stockFinal, productoService.findById(productoId).orElseThrow().getCantidadStock());
+    }
+
+    @Test
+    void unaVentaSoloSeAnulaUnaVez() throws Exception {
+        VentaService ventaService = contexto.getBean(VentaService.class);
+        JdbcTemplate jdbc = contexto.getBean(JdbcTemplate.class);
+        BaseDatosPrueba.Datos datos = BaseDatosPrueba.crearDatos(jdbc);
+        Integer productoId = BaseDatosPrueba.crearProductos(jdbc, datos, 1, STOCK_INICIAL).get(0);
+        VentaDTO venta = ventaService.crearVenta(BaseDatosPrueba.venta(datos, Map.of(productoId, 5)));
+        long anuladasAntes = anuladasHoy(jdbc);
+
+        AtomicInteger repetidas = new AtomicInteger();
+        CountDownLatch salida = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(CAJAS);
+        List<Future<?>> cajas = new ArrayList<>();
+        for (int c = 0; c < CAJAS; c++) {
+            cajas.add(executor.submit(() -> {
+                salida.await();
+                try {
+                    ventaService.anularVenta(venta.getVentaId(), datos.usuarioId(), "Anulación concurrente");
+                } catch (RuntimeException e) {
+                    assertEquals("La venta ya está anulada.", e.getMessage());
+                    repetidas.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        salida.countDown();
+        for (Future<?> caja : cajas) {
+            try {
+                caja.get();
+            } catch (ExecutionException e) {
+                throw (Exception) e.getCause();
+            }
+        }
+        executor.shutdown();
+
+        int stockFinal = jdbc.queryForObject("SELECT cantidad_stock FROM productos WHERE producto_id = ?",
+                Integer.class, productoId);
+        Map<String, Object> sesion = jdbc.queryForMap("SELECT total_efectivo, total_anulado, numero_ventas "
+                + "FROM sesiones_caja WHERE sesion_id = ?", datos.sesionId());
+        long vendidas = jdbc.queryForObject("SELECT COALESCE(SUM(cantidad_vendida), 0) FROM ventas_productos_diario "
+                + "WHERE producto_id = ?", Long.class, productoId);
+
+        assertEquals(CAJAS - 1, repetidas.get());
+        assertEquals(STOCK_INICIAL, stockFinal);
+        assertEquals(0, venta.getMontoTotal().compareTo((BigDecimal) sesion.get("total_anulado")));
+        assertEquals(0, ((BigDecimal) sesion.get("total_efectivo")).signum());
+        assertEquals(0, ((Number) sesion.get("numero_ventas")).intValue());
+        assertEquals(0, vendidas);
+        assertEquals(anuladasAntes + 1, anuladasHoy(jdbc));
+    }
+
+    private static long anuladasHoy(JdbcTemplate jdbc) {
+        return jdbc.queryForObject("SELECT COALESCE(SUM(numero_ventas), 0) FROM ventas_resumen_diario "
+                + "WHERE fecha = CURRENT_DATE AND estado = 'Anulada'", Long.class);
+    }
+
+    private static double conflictos() {
+        return contexto.getBean(MeterRegistry.class).get("ventas.stock.conflictos").counters().stream()
+                .mapToDouble(Counter::count)
+                .sum();
+    }
+}
@@ -0,0 +1,184 @@
+package com.libreria.libreria.service.impl;
+
+import com.libreria.libreria.dto.DetalleVentaDTO;
+import com.libreria.libreria.dto.VentaDTO;
+import com.libreria.libreria.exception.IdempotenciaConflictoException;
+import com.libreria.libreria.exception.StockInsuficienteException;
+import com.libreria.libreria.model.VentaIdempotencia;
+import com.libreria.libreria.model.enums.MetodoPago;
+import com.libreria.libreria.repository.VentaIdempotenciaRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class VentasIdempotentesTest {
+
+    // Rows of Ventas_Idempotencia; reservar fails like the primary key does
+    private final Map<String, VentaIdempotencia> tabla = new ConcurrentHashMap<>();
+    private final AtomicInteger secuencia = new AtomicInteger(100);
+
+    private final VentasIdempotentes idempotentes = new VentasIdempotentes(repositorio(), new SinTransacciones(),
+            new SimpleMeterRegistry(), 10, 7);
+
+    @Test
+    void duplicadosConcurrentesSeEjecutanUnaVez() throws Exception {
+        AtomicInteger ejecuciones = new AtomicInteger();
+        CountDownLatch enCurso = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+
+        ExecutorService hilos = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<VentaDTO>> respuestas = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                respuestas.add(hilos.submit(() -> idempotentes.registrar("caja1-0001", venta(3), () -> {
+                    ejecuciones.incrementAndGet();
+                    enCurso.countDown();
+                    esperar(liberar);
+                    return creada();
+                }, this::cargada)));
+            }
+            enCurso.await();
+            Thread.sleep(100);
+            liberar.countDown();
+
+            for (Future<VentaDTO> respuesta : respuestas) {
+                assertEquals(101, respuesta.get().getVentaId());
+            }
+        } finally {
+            hilos.shutdownNow();
+        }
+        assertEquals(1, ejecuciones.get());
+        assertEquals(101, tabla.get("caja1-0001").getVentaId());
+    }
+
+    @Test
+    void reintentoDespuesDeReiniciarUsaLaBaseDeDatos() {
+        VentaDTO original = idempotentes.registrar("caja1-0002", venta(1), this::creada, this::cargada);
+
+        VentasIdempotentes reiniciado = new VentasIdempotentes(repositorio(), new SinTransacciones(),
+                new SimpleMeterRegistry(), 10, 7);
+        VentaDTO reintento = reiniciado.registrar("caja1-0002", venta(1), () -> {
+            throw new AssertionError("no debe crear otra venta");
+        }, this::cargada);
+
+        assertEquals(original.getVentaId(), reintento.getVentaId());
+    }
+
+    @Test
+    void ventaFallidaPuedeReintentarse() {
+        assertThrows(StockInsuficienteException.class, () -> idempotentes.registrar("caja1-0003", venta(2),
+                () -> {
+                    throw new StockInsuficienteException("Stock insuficiente");
+                }, this::cargada));
+
+        VentaDTO venta = idempotentes.registrar("caja1-0003", venta(2), this::creada, this::cargada);
+
+        assertEquals(101, venta.getVentaId());
+        assertEquals(1, idempotentes.enMemoria());
+    }
+
+    @Test
+    void mismaClaveConOtroContenidoEsConflicto() {
+        idempotentes.registrar("caja1-0004", venta(1), this::creada, this::cargada);
+
+        assertThrows(IdempotenciaConflictoException.class,
+                () -> idempotentes.registrar("caja1-0004", venta(5), this::creada, this::cargada));
+    }
+
+    @Test
+    void huellaIgnoraLosCamposQueCalculaElServidor() {
+        VentaDTO conPrecios = venta(2);
+        conPrecios.getDetalles().get(0).setSubtotal(new BigDecimal("999"));
+        conPrecios.getDetalles().get(0).setDescuento(new BigDecimal("0.00"));
+
+        assertEquals(VentasIdempotentes.huella(venta(2)), VentasIdempotentes.huella(conPrecios));
+        assertNotEquals(VentasIdempotentes.huella(venta(2)), VentasIdempotentes.huella(venta(3)));
+    }
+
+    private VentaDTO creada() {
+        return VentaDTO.builder().ventaId(secuencia.incrementAndGet()).build();
+    }
+
+    private VentaDTO cargada(Integer ventaId) {
+        return VentaDTO.builder().ventaId(ventaId).build();
+    }
+
+    private static VentaDTO venta(int cantidad) {
+        List<DetalleVentaDTO> detalles = new ArrayList<>();
+        detalles.add(DetalleVentaDTO.builder().productoId(7).cantidad(cantidad).build());
+        return VentaDTO.builder()
+                .clienteId(1)
+                .usuarioId(2)
+                .sesionId(3)
+                .metodoPago(MetodoPago.values()[0])
+                .detalles(detalles)
+                .build();
+    }
+
+    private static void esperar(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private VentaIdempotenciaRepository repositorio() {
+        return (VentaIdempotenciaRepository) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] { VentaIdempotenciaRepository.class }, (proxy, metodo, args) -> switch (metodo.getName()) {
+                    case "findById" -> Optional.ofNullable(tabla.get((String) args[0]));
+                    case "reservar" -> {
+                        VentaIdempotencia fila = new VentaIdempotencia((String) args[0], (String) args[1], null,
+                                (LocalDateTime) args[2]);
+                        if (tabla.putIfAbsent((String) args[0], fila) != null) {
+                            throw new DataIntegrityViolationException("duplicate key");
+                        }
+                        yield 1;
+                    }
+                    case "asignarVenta" -> {
+                        tabla.get((String) args[0]).setVentaId((Integer) args[1]);
+                        yield 1;
+                    }
+                    default -> throw new UnsupportedOperationException(metodo.getName());
+                });
+    }
+
+    // Rolling back drops the keys reserved by a sale that never got its id
+    private class SinTransacciones implements PlatformTransactionManager {
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+            tabla.values().removeIf(fila -> fila.getVentaId() == null);
+        }
+    }
+}